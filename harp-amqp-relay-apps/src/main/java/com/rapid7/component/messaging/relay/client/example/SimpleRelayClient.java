@@ -30,6 +30,7 @@ package com.rapid7.component.messaging.relay.client.example;
 
 
 import com.rapid7.component.messaging.relay.MessageHandlerChain;
+import com.rapid7.component.messaging.relay.amqp.AckHandler;
 import com.rapid7.component.messaging.relay.amqp.BusConnector;
 import com.rapid7.component.messaging.relay.amqp.BusMessageRetriever;
 import com.rapid7.component.messaging.relay.amqp.SecurityFilterManager;
@@ -67,6 +68,10 @@ public class SimpleRelayClient
          .withDescription("Client identifier to pass to the message relay server")
          .withLongOpt("client")
          .create("c"));
+      options.addOption(OptionBuilder
+         .withDescription("Receive acks and relay control messages over a separate express lane")
+         .withLongOpt("express")
+         .create("x"));
       
       CommandLineParser parser = new BasicParser();
       CommandLine commandLine = null;
@@ -136,15 +141,29 @@ public class SimpleRelayClient
          
          //Handle incoming messages from the server side
          MessageHandlerChain handlerChain = new MessageHandlerChain()
-            .add(securityFilter.getFilter(serverName))
             .add(new StandardHandler(localRetriever,connector));
          final MessageReceiverTask receiverTask = 
-                  new MessageReceiverTask(appURL,clientID,handlerChain);
+                  new MessageReceiverTask(appURL,clientID,handlerChain)
+            .addEnvelopeHandler(securityFilter.getEnvelopeFilter(serverName))
+            .addEnvelopeHandler(new AckHandler(localRetriever));
          final Thread receiverThread  = new Thread(receiverTask);
          
+         // Optionally run a second receiver for the express lane, so acks and control messages
+         // are not held up behind bulk transfers
+         MessageReceiverTask expressTask = null;
+         if (commandLine.hasOption("x")) {
+            expressTask = new MessageReceiverTask(appURL,clientID,handlerChain)
+               .addEnvelopeHandler(securityFilter.getEnvelopeFilter(serverName))
+               .addEnvelopeHandler(new AckHandler(localRetriever));
+            expressTask.setStreamID(BusMessageRetriever.EXPRESS_STREAM);
+         }
+         final MessageReceiverTask expressReceiverTask = expressTask;
+         final Thread expressThread = (expressTask != null) ? new Thread(expressTask) : null;
+         
          System.out.print("Starting Up...");
          transmitterThread.start();
          receiverThread.start();
+         if (expressThread != null) expressThread.start();
          System.out.println(" Started.");
          
          // Create a shutdown task so we can clean up when the user kills the
@@ -154,10 +173,12 @@ public class SimpleRelayClient
                System.out.println("\nShutting Down...");
                transmitterTask.stop();
                receiverTask.stop();
+               if (expressReceiverTask != null) expressReceiverTask.stop();
                try
                {
                   transmitterThread.join();
                   receiverThread.join();
+                  if (expressThread != null) expressThread.join();
                   BusConnector.deleteConnector(brokerName);
                }catch (InterruptedException e) {
                   System.out.println("Shutdown Interrupted");
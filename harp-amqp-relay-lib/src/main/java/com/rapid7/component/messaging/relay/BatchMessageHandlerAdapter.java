@@ -0,0 +1,83 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay;
+
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapts a single message MessageHandler to the BatchMessageHandler interface by passing
+ * each message in a batch to the wrapped handler in turn. The adapter also implements
+ * MessageHandler itself, so it can be used anywhere the wrapped handler could be.
+ */
+public class BatchMessageHandlerAdapter implements BatchMessageHandler, MessageHandler
+{
+   private MessageHandler m_handler;
+   
+   /**
+    * Create a new BatchMessageHandlerAdapter instance.
+    * @param handler The single message handler to wrap.
+    */
+   public BatchMessageHandlerAdapter(MessageHandler handler) {
+      m_handler = handler;
+   }
+   
+   /**
+    * Get a BatchMessageHandler view of the supplied handler.
+    * @param handler The handler to adapt.
+    * @return The handler itself if it already implements BatchMessageHandler, otherwise a new
+    * BatchMessageHandlerAdapter wrapping it.
+    */
+   public static BatchMessageHandler adapt(MessageHandler handler) {
+      if (handler instanceof BatchMessageHandler) return (BatchMessageHandler)handler;
+      return new BatchMessageHandlerAdapter(handler);
+   }
+
+   @Override
+   public boolean handle(EncodedMessage message) {
+      return m_handler.handle(message);
+   }
+
+   @Override
+   public List<EncodedMessage> handleBatch(List<EncodedMessage> messages) {
+      // Only copy the batch once the first message has been filtered out
+      List<EncodedMessage> passed = null;
+      for (int i = 0; i < messages.size(); i++) {
+         EncodedMessage message = messages.get(i);
+         if (m_handler.handle(message)) {
+            if (passed != null) passed.add(message);
+         } else if (passed == null) {
+            passed = new ArrayList<EncodedMessage>(messages.subList(0, i));
+         }
+      }
+      return (passed == null) ? messages : passed;
+   }
+
+}
@@ -0,0 +1,51 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay;
+
+import java.io.IOException;
+
+/**
+ * A MessageRetriever that can end a retrieval once the retrieved messages reach a size budget,
+ * as well as a message count limit, so a chunk of large messages is kept as small as a chunk of
+ * small ones.
+ */
+public interface ByteBudgetRetriever extends MessageRetriever
+{
+   /**
+    * Retrieve and encode messages, passing them to the supplied MessageHandler. The implementation
+    * should block until the specified message count limit, byte budget or timeout have been reached.
+    * The message that reaches the byte budget is still passed on.
+    * @param handler The MessageHandler to which to pass encoded messages from the monitored queues.
+    * @param limit The message count limit
+    * @param byteLimit The byte budget, measured as the encoded size of the messages, or 0 for none.
+    * @param timeout The specified operation timeout
+    * @throws IOException
+    */
+   public void retrieve(MessageHandler handler, int limit, long byteLimit, long timeout) throws IOException;
+}
@@ -0,0 +1,57 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay;
+
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import java.io.IOException;
+
+/**
+ * An interface for classes that hold the payloads of very large messages out of band, so the
+ * messages themselves can be relayed with a claim check in place of their payload.
+ * @see MessageStreamReader#setClaimCheckStore(ClaimCheckStore)
+ */
+public interface ClaimCheckStore
+{
+   /**
+    * Store the payload of a message.
+    * @param message The message whose payload should be stored.
+    * @return A copy of the message with a claim check in place of its payload.
+    * @throws IOException
+    */
+   public EncodedMessage checkIn(EncodedMessage message) throws IOException;
+   
+   /**
+    * Retrieve the payload of a message that carries a claim check. The payload stays in the
+    * store, so it can be retrieved again if the message is redelivered, until it expires.
+    * @param message The message carrying the claim check.
+    * @return A copy of the message with its payload restored.
+    * @throws IOException
+    */
+   public EncodedMessage checkOut(EncodedMessage message) throws IOException;
+}
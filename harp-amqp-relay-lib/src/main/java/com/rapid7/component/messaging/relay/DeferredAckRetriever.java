@@ -0,0 +1,58 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay;
+
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A MessageRetriever that can hold back acknowledging retrieved messages to their source until
+ * the caller confirms that they have been delivered, so messages are never lost if the delivery
+ * fails after they have been retrieved.
+ */
+public interface DeferredAckRetriever extends MessageRetriever
+{
+   /**
+    * Enable or disable deferred acknowledgment. While it is enabled, retrieved messages that would
+    * otherwise be acknowledged as soon as they have been handled are only acknowledged once they
+    * are passed to acknowledge().
+    * @param deferred True to defer acknowledgments.
+    * @throws IOException
+    */
+   public void setDeferredAck(boolean deferred) throws IOException;
+   
+   /**
+    * Acknowledge messages whose delivery has been confirmed. Messages that are acknowledged some
+    * other way, or that were not retrieved with a deferred acknowledgment, are ignored.
+    * @param messages The delivered messages, as handed to the retriever's handler.
+    * @throws IOException
+    */
+   public void acknowledge(List<EncodedMessage> messages) throws IOException;
+}
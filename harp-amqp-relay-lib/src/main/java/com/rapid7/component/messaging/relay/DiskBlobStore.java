@@ -0,0 +1,245 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay;
+
+import com.google.protobuf.ByteString;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.ZeroCopyByteString;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+
+/**
+ * A ClaimCheckStore that keeps message payloads as files in a local directory. Blobs can also
+ * be written and read in ranges, so an interrupted upload or download can be resumed from the
+ * point where it broke off. Checking a payload out does not remove its blob, since the message
+ * may still be redelivered if it cannot be published; blobs are removed once they expire.<P>
+ * All state is kept on disk, so any number of store instances may share the same directory.
+ */
+public class DiskBlobStore implements ClaimCheckStore
+{
+   public static final long DEFAULT_EXPIRY = 24 * 60 * 60 * 1000L;
+   
+   private static final String BLOB_SUFFIX = ".blob";
+   private static final long PURGE_INTERVAL = 10 * 60 * 1000L;
+   private static final int COPY_BUFFER_SIZE = 64 * 1024;
+   
+   private File m_directory;
+   private long m_expiry;
+   private long m_lastPurge = 0;
+   
+   /**
+    * Create a new DiskBlobStore.
+    * @param directory The directory to keep blobs in. It is created if it does not exist.
+    * @param expiry The time, in ms, after its last modification that a blob is removed.
+    */
+   public DiskBlobStore(File directory, long expiry) {
+      m_directory = directory;
+      m_expiry = expiry;
+   }
+   
+   /**
+    * Create a new DiskBlobStore with the default blob expiry time.
+    * @param directory The directory to keep blobs in. It is created if it does not exist.
+    */
+   public DiskBlobStore(File directory) {
+      this(directory, DEFAULT_EXPIRY);
+   }
+   
+   /**
+    * Check whether a string can be used as a blob ID. IDs are restricted to letters, digits
+    * and dashes, so they can be used safely as file names.
+    * @param blobID The ID to check.
+    * @return True if the ID is valid.
+    */
+   public static boolean isValidID(String blobID) {
+      return blobID != null && blobID.matches("[A-Za-z0-9-]{1,64}");
+   }
+   
+   /**
+    * Get the current size of a blob.
+    * @param blobID The ID of the blob.
+    * @return The number of bytes stored so far, or -1 if there is no such blob.
+    */
+   public long getSize(String blobID) {
+      File file = this.getFile(blobID);
+      return file.isFile() ? file.length() : -1;
+   }
+   
+   /**
+    * Write data to a blob, creating it if necessary. Any data already stored beyond the
+    * offset is replaced.
+    * @param blobID The ID of the blob.
+    * @param offset The offset to write the data at, which must not be beyond the current size.
+    * @param data The data to write. The stream is read to its end but not closed.
+    * @return The size of the blob after the write.
+    * @throws IOException If the offset is beyond the current size of the blob, or the write fails.
+    */
+   public long write(String blobID, long offset, InputStream data) throws IOException {
+      return this.write(blobID, offset, data, Long.MAX_VALUE);
+   }
+   
+   /**
+    * Write data to a blob, creating it if necessary, and stop reading once the blob grows
+    * beyond a maximum size. Any data already stored beyond the offset is replaced.
+    * @param blobID The ID of the blob.
+    * @param offset The offset to write the data at, which must not be beyond the current size.
+    * @param data The data to write. The stream is read to its end, or until the maximum size
+    * is exceeded, but not closed.
+    * @param maxSize The maximum size of the blob, in bytes.
+    * @return The size of the blob after the write, which is greater than maxSize if the data
+    * did not fit.
+    * @throws IOException If the offset is beyond the current size of the blob, or the write fails.
+    */
+   public long write(String blobID, long offset, InputStream data, long maxSize) throws IOException {
+      File file = this.getFile(blobID);
+      m_directory.mkdirs();
+      RandomAccessFile out = new RandomAccessFile(file, "rw");
+      try {
+         if (offset > out.length()) {
+            throw new IOException("Write offset " + offset + " is beyond the end of blob " + blobID 
+               + " (" + out.length() + " bytes).");
+         }
+         out.setLength(offset);
+         out.seek(offset);
+         byte[] buffer = new byte[COPY_BUFFER_SIZE];
+         long position = offset;
+         int count;
+         // Read at most one byte past the maximum size, which is enough to tell that it was exceeded
+         while (position <= maxSize
+               && (count = data.read(buffer, 0, (int)Math.min(buffer.length, maxSize + 1 - position))) >= 0) {
+            out.write(buffer, 0, count);
+            position += count;
+         }
+         return out.length();
+      } finally {
+         out.close();
+      }
+   }
+   
+   /**
+    * Open a blob for reading.
+    * @param blobID The ID of the blob.
+    * @param offset The offset to start reading from.
+    * @return A stream of the blob's data from the offset onwards, or null if there is no such blob.
+    * @throws IOException
+    */
+   public InputStream open(String blobID, long offset) throws IOException {
+      FileInputStream in;
+      try {
+         in = new FileInputStream(this.getFile(blobID));
+      } catch (FileNotFoundException e) {
+         return null;
+      }
+      in.getChannel().position(offset);
+      return in;
+   }
+   
+   /**
+    * Remove a blob from the store.
+    * @param blobID The ID of the blob.
+    * @return True if the blob existed and was removed.
+    */
+   public boolean delete(String blobID) {
+      return this.getFile(blobID).delete();
+   }
+   
+   /**
+    * Remove all blobs that have expired.
+    */
+   public void purgeExpired() {
+      File[] files = m_directory.listFiles();
+      if (files == null) return;
+      long cutoff = System.currentTimeMillis() - m_expiry;
+      for (File file : files) {
+         if (file.getName().endsWith(BLOB_SUFFIX) && file.lastModified() < cutoff) file.delete();
+      }
+   }
+
+   @Override
+   public EncodedMessage checkIn(EncodedMessage message) throws IOException {
+      this.purgeIfDue();
+      
+      String blobID = UUID.randomUUID().toString();
+      ByteString payload = message.getPayload();
+      m_directory.mkdirs();
+      FileOutputStream out = new FileOutputStream(this.getFile(blobID));
+      try {
+         out.write(ZeroCopyByteString.array(payload));
+      } finally {
+         out.close();
+      }
+      ClaimCheck claimCheck = ClaimCheck.newBuilder().setBlobID(blobID).setSize(payload.size()).build();
+      return message.toBuilder().clearPayload().setClaimCheck(claimCheck).build();
+   }
+
+   @Override
+   public EncodedMessage checkOut(EncodedMessage message) throws IOException {
+      this.purgeIfDue();
+      
+      ClaimCheck claimCheck = message.getClaimCheck();
+      String blobID = claimCheck.getBlobID();
+      if (!isValidID(blobID)) throw new IOException("Invalid blob ID: " + blobID);
+      long size = this.getSize(blobID);
+      if (size != claimCheck.getSize()) {
+         throw new IOException("Blob " + blobID + " is " + size + " bytes, expected " + claimCheck.getSize() + ".");
+      }
+      if (size > Integer.MAX_VALUE) throw new IOException("Blob " + blobID + " is too large to check out.");
+      
+      byte[] data = new byte[(int)size];
+      DataInputStream in = new DataInputStream(new FileInputStream(this.getFile(blobID)));
+      try {
+         in.readFully(data);
+      } finally {
+         in.close();
+      }
+      return message.toBuilder().clearClaimCheck().setPayload(ZeroCopyByteString.wrap(data)).build();
+   }
+   
+   private void purgeIfDue() {
+      long now = System.currentTimeMillis();
+      if (now - m_lastPurge > PURGE_INTERVAL) {
+         m_lastPurge = now;
+         this.purgeExpired();
+      }
+   }
+   
+   private File getFile(String blobID) {
+      if (!isValidID(blobID)) throw new IllegalArgumentException("Invalid blob ID: " + blobID);
+      return new File(m_directory, blobID + BLOB_SUFFIX);
+   }
+
+}
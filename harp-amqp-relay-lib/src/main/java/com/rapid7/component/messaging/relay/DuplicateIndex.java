@@ -0,0 +1,211 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay;
+
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded index of the messages a receiver has already handled, used to drop messages that are
+ * delivered again, for instance when the sending side redelivers them after a connection cycle
+ * broke off. Messages are keyed by their message ID. Messages without one are never treated as
+ * duplicates: channel IDs and delivery tags start again when the sending side restarts, so they
+ * cannot identify a message. Replays within a resumable stream are already dropped by its
+ * SequenceTracker. Entries expire after a fixed time, and the oldest entries are dropped once the
+ * index is full.<P>
+ * An index can optionally be persisted to an append-only file, so it survives a restart of the
+ * receiver. The file is rewritten from the current entries whenever it has grown to twice the
+ * size of the index. Because message IDs are chosen by the publishers, an index should only be
+ * used for messages from a single sending side.
+ * @see SequenceTracker
+ */
+public class DuplicateIndex
+{
+   public static final int DEFAULT_MAX_ENTRIES = 100000;
+   public static final long DEFAULT_EXPIRY = 10 * 60 * 1000L;
+   
+   private int m_maxEntries;
+   private long m_expiry;
+   private File m_file = null;
+   private DataOutputStream m_out = null;
+   private int m_fileRecords = 0;
+   // Entries in the order they were recorded, so the oldest are always first
+   private LinkedHashMap<String,Long> m_entries = new LinkedHashMap<String,Long>();
+   
+   /**
+    * Create a new in-memory DuplicateIndex.
+    * @param maxEntries The maximum number of messages to remember.
+    * @param expiry The time, in ms, that a message is remembered for.
+    */
+   public DuplicateIndex(int maxEntries, long expiry) {
+      m_maxEntries = maxEntries;
+      m_expiry = expiry;
+   }
+   
+   /**
+    * Create a new DuplicateIndex that is persisted to a file, loading any unexpired entries
+    * the file already contains.
+    * @param maxEntries The maximum number of messages to remember.
+    * @param expiry The time, in ms, that a message is remembered for.
+    * @param file The file to persist the index to.
+    * @throws IOException
+    */
+   public DuplicateIndex(int maxEntries, long expiry, File file) throws IOException {
+      this(maxEntries, expiry);
+      m_file = file;
+      if (file.isFile()) {
+         DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+         try {
+            while (true) {
+               String key = in.readUTF();
+               long time = in.readLong();
+               this.put(key, time);
+            }
+         } catch (EOFException e) {
+            // End of the file, or of the last complete record
+         } finally {
+            in.close();
+         }
+      }
+      this.expire(System.currentTimeMillis());
+      this.rewrite();
+   }
+   
+   /**
+    * Get the key a message is indexed by.
+    * @param message The message.
+    * @return The key, or null if the message cannot be indexed.
+    */
+   public static String getKey(EncodedMessage message) {
+      EncodedProperties properties = message.getProperties();
+      if (properties.hasMessageID() && properties.getMessageID().length() > 0) {
+         return "id:" + properties.getMessageID();
+      }
+      return null;
+   }
+   
+   /**
+    * Check whether a message has already been handled.
+    * @param message The message.
+    * @return True if the message is a duplicate.
+    */
+   public synchronized boolean isDuplicate(EncodedMessage message) {
+      String key = getKey(message);
+      if (key == null) return false;
+      this.expire(System.currentTimeMillis());
+      return m_entries.containsKey(key);
+   }
+   
+   /**
+    * Record that messages have been handled.
+    * @param messages The messages.
+    */
+   public synchronized void record(List<EncodedMessage> messages) {
+      long now = System.currentTimeMillis();
+      try {
+         for (EncodedMessage message : messages) {
+            String key = getKey(message);
+            if (key == null) continue;
+            this.put(key, now);
+            if (m_out != null) {
+               m_out.writeUTF(key);
+               m_out.writeLong(now);
+               m_fileRecords++;
+            }
+         }
+         if (m_out != null) {
+            m_out.flush();
+            if (m_fileRecords > 2 * m_maxEntries) this.rewrite();
+         }
+      } catch (IOException e) {
+         System.err.println("Error while persisting duplicate index: " + e.getMessage());
+      }
+   }
+   
+   /**
+    * Close the index file, if the index is persisted.
+    * @throws IOException
+    */
+   public synchronized void close() throws IOException {
+      if (m_out != null) m_out.close();
+      m_out = null;
+   }
+   
+   private void put(String key, long time) {
+      // Re-insert so the entry moves to the end of the recording order
+      m_entries.remove(key);
+      m_entries.put(key, time);
+      if (m_entries.size() > m_maxEntries) {
+         Iterator<String> oldest = m_entries.keySet().iterator();
+         oldest.next();
+         oldest.remove();
+      }
+   }
+   
+   private void expire(long now) {
+      Iterator<Map.Entry<String,Long>> entries = m_entries.entrySet().iterator();
+      while (entries.hasNext() && entries.next().getValue() < now - m_expiry) {
+         entries.remove();
+      }
+   }
+   
+   private void rewrite() throws IOException {
+      if (m_out != null) m_out.close();
+      File tempFile = new File(m_file.getPath() + ".tmp");
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      try {
+         for (Map.Entry<String,Long> entry : m_entries.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+         }
+      } finally {
+         out.close();
+      }
+      if (!tempFile.renameTo(m_file)) {
+         m_file.delete();
+         if (!tempFile.renameTo(m_file)) throw new IOException("Unable to rewrite duplicate index " + m_file);
+      }
+      m_fileRecords = m_entries.size();
+      m_out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(m_file, true)));
+   }
+
+}
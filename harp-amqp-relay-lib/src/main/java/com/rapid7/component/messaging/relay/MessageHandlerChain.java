@@ -34,11 +34,51 @@ import java.util.List;
 
 /**
  * A class used to chain together a sequence of child MessageHandlers
- * into a single compound MessageHandler instance.
+ * into a single compound MessageHandler instance. The chain can also handle
+ * batches of messages. Consecutive single message handlers then still see one
+ * message at a time, each message passing through all of them before the next
+ * one, so their side effects keep the order of the single message chain. Only
+ * handlers that implement BatchMessageHandler see the whole batch (less any
+ * messages filtered out by earlier handlers) in a single call, after the handlers
+ * before them have handled the whole batch. A batch-aware handler must therefore
+ * not depend on side effects of earlier handlers happening only for the messages
+ * before the one it handles. The chain has ended once any of its handlers that
+ * can end their stream has.
  */
-public class MessageHandlerChain implements MessageHandler
+public class MessageHandlerChain implements MessageHandler, BatchMessageHandler, EndableHandler
 {
    private List<MessageHandler> m_chain = new ArrayList<MessageHandler>();
+   private List<BatchMessageHandler> m_batchChain = new ArrayList<BatchMessageHandler>();
+   
+   /**
+    * A run of consecutive single message handlers, which passes each message of a batch
+    * through all of the handlers before the next message.
+    */
+   private static class SingleMessageStage implements BatchMessageHandler {
+      private List<MessageHandler> m_handlers = new ArrayList<MessageHandler>();
+      
+      @Override
+      public List<EncodedMessage> handleBatch(List<EncodedMessage> messages) {
+         // Only copy the batch once the first message has been filtered out
+         List<EncodedMessage> passed = null;
+         for (int i = 0; i < messages.size(); i++) {
+            EncodedMessage message = messages.get(i);
+            boolean pass = true;
+            for (MessageHandler handler : m_handlers) {
+               if (!handler.handle(message)) {
+                  pass = false;
+                  break;
+               }
+            }
+            if (pass) {
+               if (passed != null) passed.add(message);
+            } else if (passed == null) {
+               passed = new ArrayList<EncodedMessage>(messages.subList(0, i));
+            }
+         }
+         return (passed == null) ? messages : passed;
+      }
+   }
    
    /**
     * Add a new MessageHandler instance to the end of the chain.
@@ -47,6 +87,19 @@ public class MessageHandlerChain implements MessageHandler
     */
    public MessageHandlerChain add(MessageHandler handler) {
       m_chain.add(handler);
+      if (handler instanceof BatchMessageHandler) {
+         m_batchChain.add((BatchMessageHandler)handler);
+      } else {
+         BatchMessageHandler last = m_batchChain.isEmpty() ? null : m_batchChain.get(m_batchChain.size() - 1);
+         SingleMessageStage stage;
+         if (last instanceof SingleMessageStage) {
+            stage = (SingleMessageStage)last;
+         } else {
+            stage = new SingleMessageStage();
+            m_batchChain.add(stage);
+         }
+         stage.m_handlers.add(handler);
+      }
       return this;
    }
 
@@ -58,5 +111,21 @@ public class MessageHandlerChain implements MessageHandler
       return true;
    }
 
+   @Override
+   public List<EncodedMessage> handleBatch(List<EncodedMessage> messages) {
+      for (BatchMessageHandler handler : m_batchChain) {
+         if (messages.isEmpty()) break;
+         messages = handler.handleBatch(messages);
+      }
+      return messages;
+   }
+
+   @Override
+   public boolean isEnded() {
+      for (MessageHandler handler : m_chain) {
+         if (handler instanceof EndableHandler && ((EndableHandler)handler).isEnded()) return true;
+      }
+      return false;
+   }
 
 }
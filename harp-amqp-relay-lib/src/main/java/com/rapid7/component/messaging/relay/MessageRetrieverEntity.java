@@ -28,7 +28,9 @@
 
 package com.rapid7.component.messaging.relay;
 
+import com.rapid7.component.messaging.relay.amqp.FlushPolicy;
 import com.rapid7.component.messaging.relay.amqp.OutputStreamHandler;
+import com.rapid7.component.messaging.relay.encoding.StreamDictionary;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -49,7 +51,14 @@ public class MessageRetrieverEntity extends AbstractHttpEntity
    private MessageRetriever m_retriever;
    private int m_chunkLimit;
    private long m_chunkTimeout;
+   private long m_chunkBytes = 0;
    private MessageHandler m_additionalHandler = null;
+   private FlushPolicy m_flushPolicy = FlushPolicy.immediate();
+   private boolean m_useDictionary = false;
+   private int m_fragmentSize = 0;
+   private ClaimCheckStore m_claimCheckStore = null;
+   private int m_claimCheckSize = 0;
+   private RetransmitBuffer m_retransmitBuffer = null;
    
    protected static ExecutorService sm_threadPool = Executors.newCachedThreadPool();
 
@@ -65,6 +74,63 @@ public class MessageRetrieverEntity extends AbstractHttpEntity
       m_additionalHandler = additionalHandler;
    }
 
+   public MessageRetrieverEntity(MessageRetriever retriever, int chunkLimit, long chunkTimeout,
+         MessageHandler additionalHandler, FlushPolicy flushPolicy) {
+      this(retriever,chunkLimit,chunkTimeout,additionalHandler);
+      m_flushPolicy = flushPolicy;
+   }
+
+   /**
+    * Compress the entity stream with a stream dictionary. The receiving side must support
+    * stream dictionaries.
+    * @param useDictionary True to compress the stream.
+    * @see StreamDictionary
+    */
+   public void setUseDictionary(boolean useDictionary) {
+      m_useDictionary = useDictionary;
+   }
+
+   /**
+    * Split messages with payloads larger than the fragment size into fragments, so they do not
+    * hold up other messages on the entity stream. The receiving side must support fragmented
+    * messages.
+    * @param fragmentSize The fragment size in bytes, or 0 to never fragment messages.
+    */
+   public void setFragmentSize(int fragmentSize) {
+      m_fragmentSize = fragmentSize;
+   }
+
+   /**
+    * Send messages with payloads larger than the claim check size out of band, through a claim
+    * check store, with a claim check in place of their payload on the entity stream. The receiving
+    * side must be able to check the payloads out of the same store.
+    * @param store The claim check store, or null to always send payloads inline.
+    * @param claimCheckSize The payload size in bytes above which payloads are checked in.
+    */
+   public void setClaimCheckStore(ClaimCheckStore store, int claimCheckSize) {
+      m_claimCheckStore = store;
+      m_claimCheckSize = claimCheckSize;
+   }
+
+   /**
+    * End the chunk once the retrieved messages reach a byte budget, as well as the chunk limit.
+    * Only applies if the retriever is a ByteBudgetRetriever.
+    * @param chunkBytes The byte budget, or 0 for none.
+    */
+   public void setChunkBytes(long chunkBytes) {
+      m_chunkBytes = chunkBytes;
+   }
+
+   /**
+    * Make the entity stream resumable. Messages the receiving side has not confirmed yet are
+    * replayed from the buffer at the start of the stream, and every message sent is kept in the
+    * buffer until the receiving side confirms it.
+    * @param buffer The retransmit buffer for the stream, or null to send messages unsequenced.
+    */
+   public void setRetransmitBuffer(RetransmitBuffer buffer) {
+      m_retransmitBuffer = buffer;
+   }
+
    @Override
    public InputStream getContent() throws IOException, IllegalStateException {
       // Create piped stream pair
@@ -72,14 +138,18 @@ public class MessageRetrieverEntity extends AbstractHttpEntity
       final PipedInputStream pi = new PipedInputStream(po);
 
       // Set up output handler
-      final MessageHandlerChain outputHandler = new MessageHandlerChain();
-      if (m_additionalHandler != null) outputHandler.add(m_additionalHandler);
-      outputHandler.add(new OutputStreamHandler(po));
+      final OutputStreamHandler streamHandler = new OutputStreamHandler(po, m_flushPolicy);
+      if (m_useDictionary) streamHandler.setDictionary(new StreamDictionary());
+      streamHandler.setFragmentSize(m_fragmentSize);
+      streamHandler.setClaimCheckStore(m_claimCheckStore, m_claimCheckSize);
+      final MessageHandlerChain outputHandler = this.createOutputHandler(streamHandler);
 
       Runnable retrieveTask = new Runnable() {
          @Override public void run() {
             try {
-               m_retriever.retrieve(outputHandler, m_chunkLimit, m_chunkTimeout);
+               if (m_retransmitBuffer != null) streamHandler.resumeFrom(m_retransmitBuffer);
+               retrieve(outputHandler);
+               streamHandler.flush();
             } catch (IOException e) {
                e.printStackTrace();
             }
@@ -106,10 +176,40 @@ public class MessageRetrieverEntity extends AbstractHttpEntity
 
    @Override
    public void writeTo(OutputStream os) throws IOException {
-      final MessageHandlerChain outputHandler = new MessageHandlerChain();
+      OutputStreamHandler streamHandler = new OutputStreamHandler(os, m_flushPolicy);
+      if (m_useDictionary) streamHandler.setDictionary(new StreamDictionary());
+      streamHandler.setFragmentSize(m_fragmentSize);
+      streamHandler.setClaimCheckStore(m_claimCheckStore, m_claimCheckSize);
+      if (m_retransmitBuffer != null) streamHandler.resumeFrom(m_retransmitBuffer);
+      this.retrieve(this.createOutputHandler(streamHandler));
+      // Push out anything still held back by the flush policy
+      streamHandler.flush();
+   }
+   
+   /**
+    * Retrieve a chunk of messages to the specified handler, within the chunking parameters.
+    * @param handler The handler.
+    * @throws IOException
+    */
+   private void retrieve(MessageHandler handler) throws IOException {
+      if (m_chunkBytes > 0 && m_retriever instanceof ByteBudgetRetriever) {
+         ((ByteBudgetRetriever)m_retriever).retrieve(handler, m_chunkLimit, m_chunkBytes, m_chunkTimeout);
+      } else {
+         m_retriever.retrieve(handler, m_chunkLimit, m_chunkTimeout);
+      }
+   }
+   
+   /**
+    * Create the handler chain used to write retrieved messages to the entity stream. The chain
+    * is batch-aware, so retrievers that deliver messages in batches get a single flush per batch.
+    * @param streamHandler The handler which writes encoded messages to the entity stream.
+    * @return The output handler chain.
+    */
+   protected MessageHandlerChain createOutputHandler(OutputStreamHandler streamHandler) {
+      MessageHandlerChain outputHandler = new MessageHandlerChain();
       if (m_additionalHandler != null) outputHandler.add(m_additionalHandler);
-      outputHandler.add(new OutputStreamHandler(os));
-      m_retriever.retrieve(outputHandler, m_chunkLimit, m_chunkTimeout);
+      outputHandler.add(streamHandler);
+      return outputHandler;
    }
 
 }
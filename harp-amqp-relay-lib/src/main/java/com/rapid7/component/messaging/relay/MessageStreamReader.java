@@ -0,0 +1,394 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.rapid7.component.messaging.relay.encoding.FragmentAssembler;
+import com.rapid7.component.messaging.relay.encoding.LazyEncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.StreamDictionary;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads delimited Protobuf encoded messages from an InputStream in batches. The first
+ * message of each batch is read with a blocking call; further messages are only added to
+ * the batch while their frames have completely arrived, so batching never adds latency
+ * waiting for messages, or parts of messages, that have not yet arrived.<P>
+ * The stream is read with large reads into a read buffer taken from a shared pool, and frames
+ * are parsed in place from that buffer, so the only per-message allocations are the decoded
+ * message itself and its field values. Frames larger than the read buffer are read into a
+ * dedicated array, and frames larger than the maximum frame size are rejected. Readers should
+ * be released once they are no longer needed so their buffer can be reused.<P>
+ * If envelope handlers have been added, each frame is first decoded lazily and passed to them,
+ * and frames they filter out are skipped without ever decoding their properties or payload.
+ * Frames that use a stream dictionary are expanded before they are returned, and fragmented
+ * messages are only returned once they have been reassembled. If a claim check store has been
+ * set, the payloads of messages that carry a claim check are retrieved from it before they are
+ * returned. If a sequence tracker has been set, messages the tracker has already seen are dropped
+ * before any envelope handler runs, and all other sequenced messages are recorded with it.
+ * Empty frames are heartbeats, which are skipped.
+ * @see StreamDictionary
+ * @see ClaimCheckStore
+ * @see SequenceTracker
+ */
+public class MessageStreamReader
+{
+   public static final int DEFAULT_MAX_BATCH = 64;
+   public static final int DEFAULT_MAX_FRAME_SIZE = 64 * 1024 * 1024;
+   public static final int BUFFER_SIZE = 64 * 1024;
+   
+   private static final int MAX_POOLED_BUFFERS = 64;
+   private static Queue<byte[]> sm_bufferPool = new ConcurrentLinkedQueue<byte[]>();
+   private static AtomicInteger sm_pooledCount = new AtomicInteger();
+   
+   // Marker for frames filtered out by an envelope handler
+   private static final EncodedMessage FILTERED = EncodedMessage.getDefaultInstance();
+   
+   private InputStream m_is;
+   private int m_maxBatch;
+   private int m_maxFrameSize;
+   private byte[] m_buffer;
+   private int m_position = 0;
+   private int m_limit = 0;
+   private List<EnvelopeHandler> m_envelopeHandlers = new ArrayList<EnvelopeHandler>();
+   private StreamDictionary m_dictionary = new StreamDictionary();
+   private FragmentAssembler m_assembler = null;
+   private int m_maxReassemblySize = FragmentAssembler.DEFAULT_MAX_PENDING_BYTES;
+   private ClaimCheckStore m_claimCheckStore = null;
+   private SequenceTracker m_sequenceTracker = null;
+   // A read error held back until the messages read before it have been returned
+   private IOException m_error = null;
+   
+   /**
+    * Create a new MessageStreamReader.
+    * @param is The stream to read delimited messages from.
+    * @param maxBatch The maximum number of messages to return in a single batch.
+    * @param maxFrameSize The maximum size, in bytes, of a single encoded message.
+    */
+   public MessageStreamReader(InputStream is, int maxBatch, int maxFrameSize) {
+      m_is = is;
+      m_maxBatch = maxBatch;
+      m_maxFrameSize = maxFrameSize;
+      m_buffer = sm_bufferPool.poll();
+      if (m_buffer == null) {
+         m_buffer = new byte[BUFFER_SIZE];
+      } else {
+         sm_pooledCount.decrementAndGet();
+      }
+   }
+   
+   /**
+    * Create a new MessageStreamReader.
+    * @param is The stream to read delimited messages from.
+    * @param maxBatch The maximum number of messages to return in a single batch.
+    */
+   public MessageStreamReader(InputStream is, int maxBatch) {
+      this(is, maxBatch, DEFAULT_MAX_FRAME_SIZE);
+   }
+   
+   /**
+    * Create a new MessageStreamReader with the default maximum batch size.
+    * @param is The stream to read delimited messages from.
+    */
+   public MessageStreamReader(InputStream is) {
+      this(is, DEFAULT_MAX_BATCH);
+   }
+   
+   /**
+    * Add an EnvelopeHandler that is run against every frame before it is fully decoded.
+    * Handlers are run in the order they were added.
+    * @param handler The handler to add.
+    * @return This reader.
+    */
+   public MessageStreamReader addEnvelopeHandler(EnvelopeHandler handler) {
+      m_envelopeHandlers.add(handler);
+      return this;
+   }
+   
+   /**
+    * Set the maximum total size of the fragmented message payloads that may be partially
+    * reassembled at any one time.
+    * @param maxReassemblySize The limit, in bytes.
+    * @return This reader.
+    */
+   public MessageStreamReader setMaxReassemblySize(int maxReassemblySize) {
+      m_maxReassemblySize = maxReassemblySize;
+      return this;
+   }
+   
+   /**
+    * Set the store used to retrieve the payloads of messages that carry a claim check. Messages
+    * whose payload cannot be retrieved are dropped.
+    * @param store The claim check store, or null to return messages with their claim checks.
+    * @return This reader.
+    */
+   public MessageStreamReader setClaimCheckStore(ClaimCheckStore store) {
+      m_claimCheckStore = store;
+      return this;
+   }
+   
+   /**
+    * Set the tracker used to drop messages that are replayed on a resumable stream, and to
+    * record the messages that have been received.
+    * @param tracker The sequence tracker, or null to return all messages.
+    * @return This reader.
+    */
+   public MessageStreamReader setSequenceTracker(SequenceTracker tracker) {
+      m_sequenceTracker = tracker;
+      return this;
+   }
+   
+   /**
+    * Read the next batch of messages from the stream.
+    * @return A non-empty list of messages, or null if the end of the stream has been reached.
+    * @throws IOException
+    */
+   public List<EncodedMessage> readBatch() throws IOException {
+      EncodedMessage message = this.readMessage();
+      if (message == null) return null;
+      
+      List<EncodedMessage> batch = new ArrayList<EncodedMessage>();
+      batch.add(message);
+      while (batch.size() < m_maxBatch) {
+         try {
+            message = this.readMessage(false);
+         } catch (IOException e) {
+            // The messages read so far have been recorded as received, so they must be
+            // returned; the error is reported by the next read
+            m_error = e;
+            break;
+         }
+         if (message == null) break;
+         batch.add(message);
+      }
+      return batch;
+   }
+   
+   /**
+    * Read the next message from the stream that is not filtered out by an envelope handler.
+    * @return The message, or null if the end of the stream has been reached.
+    * @throws IOException
+    */
+   public EncodedMessage readMessage() throws IOException {
+      return this.readMessage(true);
+   }
+   
+   /**
+    * Read the next message from the stream that is not filtered out by an envelope handler.
+    * @param block If false, only read frames that have completely arrived.
+    * @return The message, or null if the end of the stream has been reached, or if not blocking
+    * and the next frame has not completely arrived.
+    * @throws IOException
+    */
+   private EncodedMessage readMessage(boolean block) throws IOException {
+      if (m_buffer == null) throw new IllegalStateException("MessageStreamReader has been released.");
+      if (m_error != null) throw m_error;
+      
+      EncodedMessage message;
+      do {
+         if (!block && !this.isFrameBuffered()) return null;
+         message = this.readFrame();
+         if (message != null && message.hasFragment()) {
+            if (m_assembler == null) m_assembler = new FragmentAssembler(m_maxReassemblySize);
+            message = m_assembler.add(message);
+            // Keep reading until the message is complete
+            if (message == null) message = MessageStreamReader.FILTERED;
+         }
+         if (message != null && message.hasClaimCheck() && m_claimCheckStore != null) {
+            try {
+               message = m_claimCheckStore.checkOut(message);
+            } catch (IOException e) {
+               System.err.println("Unable to retrieve claim checked message payload: " + e.getMessage());
+               message = MessageStreamReader.FILTERED;
+            }
+         }
+         if (message != null && message != MessageStreamReader.FILTERED) this.accept(message);
+      } while (message == MessageStreamReader.FILTERED);
+      return message;
+   }
+   
+   private EncodedMessage readFrame() throws IOException {
+      // A clean end of stream can only occur between frames
+      if (!this.fill(1)) return null;
+      int frameLength = this.readFrameLength();
+      // Empty frames are heartbeats
+      if (frameLength == 0) return MessageStreamReader.FILTERED;
+      if (frameLength > m_maxFrameSize) {
+         throw new InvalidProtocolBufferException("Message frame of " + frameLength 
+            + " bytes exceeds the maximum frame size of " + m_maxFrameSize + " bytes.");
+      }
+      
+      byte[] frame;
+      int offset;
+      if (frameLength <= m_buffer.length) {
+         // Parse the frame in place in the read buffer
+         if (!this.fill(frameLength)) throw new EOFException("Stream ended in the middle of a message frame.");
+         frame = m_buffer;
+         offset = m_position;
+         m_position += frameLength;
+      } else {
+         // Oversized frame, so read it into a dedicated array
+         frame = new byte[frameLength];
+         offset = 0;
+         int buffered = m_limit - m_position;
+         System.arraycopy(m_buffer, m_position, frame, 0, buffered);
+         m_position = m_limit = 0;
+         while (buffered < frameLength) {
+            int count = m_is.read(frame, buffered, frameLength - buffered);
+            if (count < 0) throw new EOFException("Stream ended in the middle of a message frame.");
+            buffered += count;
+         }
+      }
+      
+      if (!m_envelopeHandlers.isEmpty()) {
+         LazyEncodedMessage view = LazyEncodedMessage.parseFrom(frame, offset, frameLength, m_dictionary);
+         boolean discard = view.hasSequence() && m_sequenceTracker != null 
+            && m_sequenceTracker.isDuplicate(view.getSequence());
+         for (int i = 0; i < m_envelopeHandlers.size() && !discard; i++) {
+            if (!m_envelopeHandlers.get(i).handleEnvelope(view)) {
+               // A filtered message has still been received
+               if (view.hasSequence() && m_sequenceTracker != null) m_sequenceTracker.accept(view.getSequence());
+               discard = true;
+            }
+         }
+         if (discard) {
+            // Keep the stream dictionary in step even though the message is discarded
+            view.getProperties();
+            return MessageStreamReader.FILTERED;
+         }
+         return view.getMessage();
+      }
+      
+      CodedInputStream input = CodedInputStream.newInstance(frame, offset, frameLength);
+      input.setSizeLimit(m_maxFrameSize);
+      EncodedMessage message = m_dictionary.expand(EncodedMessage.parseFrom(input));
+      if (message.hasSequence() && m_sequenceTracker != null && m_sequenceTracker.isDuplicate(message.getSequence())) {
+         return MessageStreamReader.FILTERED;
+      }
+      return message;
+   }
+   
+   private void accept(EncodedMessage message) throws IOException {
+      if (message.hasSequence() && m_sequenceTracker != null) m_sequenceTracker.accept(message.getSequence());
+   }
+   
+   /**
+    * Release the read buffer back to the shared pool. The reader cannot be used afterwards.
+    * Note that this does not close the underlying stream.
+    */
+   public void release() {
+      if (m_buffer != null && sm_pooledCount.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+         sm_bufferPool.offer(m_buffer);
+      } else if (m_buffer != null) {
+         sm_pooledCount.decrementAndGet();
+      }
+      m_buffer = null;
+   }
+   
+   private int readFrameLength() throws IOException {
+      int result = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+         if (!this.fill(1)) throw new EOFException("Stream ended in the middle of a message frame length.");
+         byte b = m_buffer[m_position++];
+         result |= (b & 0x7f) << shift;
+         if (b >= 0) {
+            if (result < 0) break;
+            return result;
+         }
+      }
+      throw new InvalidProtocolBufferException("Malformed message frame length.");
+   }
+   
+   /**
+    * Check whether the next frame has completely arrived, reading whatever is available on the
+    * underlying stream without blocking. Frames larger than the read buffer are never reported
+    * as buffered.
+    * @return True if the next frame can be read without blocking.
+    * @throws IOException
+    */
+   private boolean isFrameBuffered() throws IOException {
+      int available = m_is.available();
+      if (available > 0) {
+         if (m_position > 0) {
+            System.arraycopy(m_buffer, m_position, m_buffer, 0, m_limit - m_position);
+            m_limit -= m_position;
+            m_position = 0;
+         }
+         int free = m_buffer.length - m_limit;
+         if (free > 0) {
+            int read = m_is.read(m_buffer, m_limit, Math.min(available, free));
+            if (read > 0) m_limit += read;
+         }
+      }
+      
+      // Decode the frame length without consuming it
+      int length = 0;
+      int index = m_position;
+      for (int shift = 0; shift < 32; shift += 7) {
+         if (index >= m_limit) return false;
+         byte b = m_buffer[index++];
+         length |= (b & 0x7f) << shift;
+         if (b >= 0) return length >= 0 && m_limit - index >= length;
+      }
+      // Malformed length, which reading the frame reports
+      return true;
+   }
+   
+   /**
+    * Make sure that at least the specified number of bytes are buffered, reading from the
+    * underlying stream as required.
+    * @param count The number of bytes required, which must not exceed the buffer size.
+    * @return False if the stream ended before enough bytes could be read.
+    * @throws IOException
+    */
+   private boolean fill(int count) throws IOException {
+      if (m_limit - m_position >= count) return true;
+      if (m_position > 0) {
+         // Move the partial frame to the start of the buffer
+         System.arraycopy(m_buffer, m_position, m_buffer, 0, m_limit - m_position);
+         m_limit -= m_position;
+         m_position = 0;
+      }
+      while (m_limit < count) {
+         int read = m_is.read(m_buffer, m_limit, m_buffer.length - m_limit);
+         if (read < 0) return false;
+         m_limit += read;
+      }
+      return true;
+   }
+
+}
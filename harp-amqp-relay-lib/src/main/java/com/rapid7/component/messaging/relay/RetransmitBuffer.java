@@ -0,0 +1,168 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay;
+
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The sending side of a resumable message stream. Every message sent on the stream is given the
+ * next sequence number and kept in the buffer until the receiving side confirms that it has
+ * received it, so any messages lost when a connection cycle breaks can be replayed at the start
+ * of the next cycle. Unconfirmed messages are never dropped. Instead, once the buffer holds more
+ * than its limits it reports that it is full, and the sending side should end the stream so the
+ * receiving side can confirm what it has received before any more messages are sent.<P>
+ * Each buffer has a random epoch, which is sent along with its sequence numbers, so a receiver
+ * can tell when the sending side has been restarted and its sequence numbers begin again.
+ * @see SequenceTracker
+ */
+public class RetransmitBuffer
+{
+   public static final int DEFAULT_MAX_MESSAGES = 1000;
+   public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+   
+   /** HTTP header used to tell the receiving side the epoch of a resumable stream. */
+   public static final String EPOCH_HEADER = "X-Relay-Stream-Epoch";
+   /** HTTP header used to confirm the messages received on a resumable stream. */
+   public static final String ACK_HEADER = "X-Relay-Ack-Sequence";
+   
+   private static Random sm_random = new Random();
+   
+   private long m_epoch;
+   private long m_nextSequence = 1;
+   private LinkedList<EncodedMessage> m_messages = new LinkedList<EncodedMessage>();
+   private long m_bytes = 0;
+   private int m_maxMessages;
+   private long m_maxBytes;
+   private volatile long m_lastUsed = System.currentTimeMillis();
+   
+   /**
+    * Create a new RetransmitBuffer.
+    * @param maxMessages The maximum number of unconfirmed messages to keep.
+    * @param maxBytes The maximum total encoded size of the unconfirmed messages to keep.
+    */
+   public RetransmitBuffer(int maxMessages, long maxBytes) {
+      m_maxMessages = maxMessages;
+      m_maxBytes = maxBytes;
+      synchronized (sm_random) {
+         do {
+            m_epoch = sm_random.nextLong();
+         } while (m_epoch == 0);
+      }
+   }
+   
+   /**
+    * Create a new RetransmitBuffer with the default limits.
+    */
+   public RetransmitBuffer() {
+      this(DEFAULT_MAX_MESSAGES, DEFAULT_MAX_BYTES);
+   }
+   
+   public long getEpoch() {
+      return m_epoch;
+   }
+   
+   /**
+    * Record that the stream is still in use. Adding a message also counts as a use.
+    */
+   public void touch() {
+      m_lastUsed = System.currentTimeMillis();
+   }
+   
+   /**
+    * Get the time the stream was last used.
+    * @return The time of the last call to touch(), or of the buffer's creation.
+    */
+   public long getLastUsed() {
+      return m_lastUsed;
+   }
+   
+   /**
+    * Give a message the next sequence number and keep it until it is confirmed. The message is
+    * kept even if the buffer is full, so callers must check isFull() afterwards.
+    * @param message The message being sent.
+    * @return A copy of the message with its sequence number set.
+    */
+   public synchronized EncodedMessage add(EncodedMessage message) {
+      EncodedMessage sequenced = message.toBuilder().setSequence(m_nextSequence++).build();
+      m_messages.add(sequenced);
+      m_bytes += sequenced.getSerializedSize();
+      m_lastUsed = System.currentTimeMillis();
+      return sequenced;
+   }
+   
+   /**
+    * Check whether the unconfirmed messages exceed the buffer's limits.
+    * @return True if the stream should be ended until the receiving side confirms what it has received.
+    */
+   public synchronized boolean isFull() {
+      return m_messages.size() > m_maxMessages || m_bytes > m_maxBytes;
+   }
+   
+   /**
+    * Release all messages up to and including the specified sequence number.
+    * @param epoch The epoch the receiving side is confirming messages for. Confirmations for
+    * any other epoch are ignored.
+    * @param sequence The sequence number of the last message received.
+    * @return The messages that have been released, in the order they were first sent.
+    */
+   public synchronized List<EncodedMessage> acknowledge(long epoch, long sequence) {
+      List<EncodedMessage> released = new ArrayList<EncodedMessage>();
+      if (epoch != m_epoch) return released;
+      while (!m_messages.isEmpty() && m_messages.getFirst().getSequence() <= sequence) {
+         EncodedMessage message = m_messages.removeFirst();
+         m_bytes -= message.getSerializedSize();
+         released.add(message);
+      }
+      return released;
+   }
+   
+   /**
+    * Get the messages that have not been confirmed yet, in the order they were first sent.
+    * @return A list of the unconfirmed messages.
+    */
+   public synchronized List<EncodedMessage> getUnacknowledged() {
+      return new ArrayList<EncodedMessage>(m_messages);
+   }
+   
+   /**
+    * Release all messages, for receivers that cannot confirm them.
+    * @return The messages that have been released, in the order they were first sent.
+    */
+   public synchronized List<EncodedMessage> clear() {
+      List<EncodedMessage> released = new ArrayList<EncodedMessage>(m_messages);
+      m_messages.clear();
+      m_bytes = 0;
+      return released;
+   }
+
+}
@@ -0,0 +1,124 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay;
+
+import java.io.IOException;
+import java.util.TreeSet;
+
+/**
+ * The receiving side of a resumable message stream. Tracks the sequence numbers received in the
+ * current epoch, so messages that are replayed by the sending side after a connection cycle breaks
+ * can be recognized and dropped, and so the highest sequence number up to which every message has
+ * been received can be confirmed to the sending side.<P>
+ * Messages can arrive out of sequence, for instance when a fragmented message is overtaken by
+ * messages for other destinations, so sequence numbers above a gap are remembered separately. The
+ * sending side keeps every message until it is confirmed, so a gap is never skipped: if too many
+ * messages arrive above a gap, the stream fails and the sending side replays it from the gap.
+ * @see RetransmitBuffer
+ */
+public class SequenceTracker
+{
+   public static final int MAX_OUT_OF_SEQUENCE = 1024;
+   
+   private long m_epoch = 0;
+   private long m_acknowledged = 0;
+   private TreeSet<Long> m_received = new TreeSet<Long>();
+   private volatile long m_lastUsed = System.currentTimeMillis();
+   
+   public synchronized long getEpoch() {
+      return m_epoch;
+   }
+   
+   /**
+    * Record that the stream is still in use. Accepting a message also counts as a use.
+    */
+   public void touch() {
+      m_lastUsed = System.currentTimeMillis();
+   }
+   
+   /**
+    * Get the time the stream was last used.
+    * @return The time of the last call to touch(), or of the tracker's creation.
+    */
+   public long getLastUsed() {
+      return m_lastUsed;
+   }
+   
+   /**
+    * Set the epoch of the sending side. If it differs from the current epoch, the sending side
+    * has been restarted, so everything received so far is forgotten.
+    * @param epoch The epoch of the sending side.
+    */
+   public synchronized void setEpoch(long epoch) {
+      if (epoch != m_epoch) {
+         m_epoch = epoch;
+         m_acknowledged = 0;
+         m_received.clear();
+      }
+   }
+   
+   /**
+    * Get the highest sequence number up to which every message has been received.
+    * @return The sequence number to confirm to the sending side.
+    */
+   public synchronized long getAcknowledged() {
+      return m_acknowledged;
+   }
+   
+   /**
+    * Check whether a message has already been received.
+    * @param sequence The sequence number of the message.
+    * @return True if the message is a duplicate.
+    */
+   public synchronized boolean isDuplicate(long sequence) {
+      return sequence <= m_acknowledged || m_received.contains(sequence);
+   }
+   
+   /**
+    * Record that a message has been received.
+    * @param sequence The sequence number of the message.
+    * @return False if the message had already been received.
+    * @throws IOException If MAX_OUT_OF_SEQUENCE messages have already arrived above a gap. The
+    * message is not recorded, so the stream must be failed and resumed to replay it.
+    */
+   public synchronized boolean accept(long sequence) throws IOException {
+      m_lastUsed = System.currentTimeMillis();
+      if (sequence <= m_acknowledged || m_received.contains(sequence)) return false;
+      if (sequence > m_acknowledged + 1 && m_received.size() >= MAX_OUT_OF_SEQUENCE) {
+         throw new IOException("More than " + MAX_OUT_OF_SEQUENCE + " messages received out of sequence after "
+            + m_acknowledged + ", the stream must be resumed.");
+      }
+      m_received.add(sequence);
+      while (!m_received.isEmpty() && m_received.first() == m_acknowledged + 1) {
+         m_acknowledged = m_received.pollFirst();
+      }
+      return true;
+   }
+
+}
@@ -0,0 +1,341 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay;
+
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An append-only, memory-mapped message log used to store messages on local disk while the relay
+ * server cannot be reached, and to forward them once it can again. Messages are appended to fixed
+ * size segment files as length prefixed frames; a segment that fills up is followed by a new one.<P>
+ * The log is read through the MessageRetriever interface, which hands stored messages to the handler
+ * in batches as fast as the handler takes them, without waiting for new messages. Messages that have
+ * been read are only removed once the reader commits, and can be read again after a rollback, so a
+ * failed forwarding attempt loses nothing. The committed read position is kept in a head file, so
+ * the log survives restarts, and segments are deleted once they have been read and committed.
+ */
+public class StoreAndForwardLog implements MessageRetriever, MessageHandler, BatchMessageHandler
+{
+   public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+   
+   private static final String SEGMENT_SUFFIX = ".log";
+   private static final String HEAD_FILE = "head";
+   private static final int MAX_BATCH = 64;
+   private static final int LENGTH_SIZE = 4;
+   
+   /**
+    * A single mapped segment file.
+    */
+   private static class Segment {
+      private long m_id;
+      private File m_file;
+      private MappedByteBuffer m_buffer;
+      private int m_limit = 0;
+      
+      private Segment(long id, File file, MappedByteBuffer buffer) {
+         m_id = id;
+         m_file = file;
+         m_buffer = buffer;
+      }
+   }
+   
+   private File m_directory;
+   private int m_segmentSize;
+   private LinkedList<Segment> m_segments = new LinkedList<Segment>();
+   private Set<Segment> m_unforced = new HashSet<Segment>();
+   private Segment m_readSegment = null;
+   private int m_readOffset = 0;
+   private Segment m_headSegment = null;
+   private int m_headOffset = 0;
+   private long m_lastID = 0;
+   
+   /**
+    * Open a StoreAndForwardLog, recovering any messages stored in the directory that have not
+    * been forwarded yet.
+    * @param directory The directory to keep the log in. It is created if it does not exist.
+    * @param segmentSize The size of each segment file, in bytes.
+    * @throws IOException
+    */
+   public StoreAndForwardLog(File directory, int segmentSize) throws IOException {
+      m_directory = directory;
+      m_segmentSize = segmentSize;
+      m_directory.mkdirs();
+      
+      File[] files = m_directory.listFiles(new FilenameFilter() {
+         @Override public boolean accept(File dir, String name) {
+            return name.endsWith(SEGMENT_SUFFIX);
+         }
+      });
+      if (files == null) throw new IOException("Unable to list store and forward log directory " + directory);
+      // Segment names are fixed width hex IDs, so they sort in order
+      Arrays.sort(files);
+      for (File file : files) {
+         long id = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()), 16);
+         Segment segment = new Segment(id, file, map(file, file.length()));
+         // Find the end of the frames written to the segment
+         int position = 0;
+         while (position + LENGTH_SIZE <= segment.m_buffer.capacity()) {
+            int length = segment.m_buffer.getInt(position);
+            if (length <= 0 || position + LENGTH_SIZE + length > segment.m_buffer.capacity()) break;
+            position += LENGTH_SIZE + length;
+         }
+         segment.m_limit = position;
+         m_segments.add(segment);
+         m_lastID = id;
+      }
+      
+      long headID = -1;
+      int headOffset = 0;
+      File headFile = new File(m_directory, HEAD_FILE);
+      if (headFile.isFile()) {
+         DataInputStream in = new DataInputStream(new FileInputStream(headFile));
+         try {
+            headID = in.readLong();
+            headOffset = in.readInt();
+         } finally {
+            in.close();
+         }
+         // New segments must never be mistaken for ones forwarded before
+         m_lastID = Math.max(m_lastID, headID);
+      }
+      // Drop any segments that had already been forwarded when the log was last closed
+      while (!m_segments.isEmpty() && m_segments.getFirst().m_id < headID) {
+         m_segments.removeFirst().m_file.delete();
+      }
+      if (!m_segments.isEmpty()) {
+         m_headSegment = m_segments.getFirst();
+         m_headOffset = (m_headSegment.m_id == headID) ? Math.min(headOffset, m_headSegment.m_limit) : 0;
+      }
+      this.rollback();
+   }
+   
+   /**
+    * Open a StoreAndForwardLog with the default segment size.
+    * @param directory The directory to keep the log in. It is created if it does not exist.
+    * @throws IOException
+    */
+   public StoreAndForwardLog(File directory) throws IOException {
+      this(directory, DEFAULT_SEGMENT_SIZE);
+   }
+   
+   /**
+    * Append a message to the log.
+    * @param message The message to store.
+    * @throws IOException
+    */
+   public synchronized void append(EncodedMessage message) throws IOException {
+      byte[] frame = message.toByteArray();
+      int size = LENGTH_SIZE + frame.length;
+      Segment segment = m_segments.isEmpty() ? null : m_segments.getLast();
+      // Always leave room for a zero length terminating the segment
+      if (segment == null || segment.m_limit + size + LENGTH_SIZE > segment.m_buffer.capacity()) {
+         segment = this.addSegment(Math.max(m_segmentSize, size + LENGTH_SIZE));
+      }
+      ByteBuffer buffer = segment.m_buffer.duplicate();
+      buffer.position(segment.m_limit + LENGTH_SIZE);
+      buffer.put(frame);
+      // The length goes in last, so a partially written frame is never read back
+      segment.m_buffer.putInt(segment.m_limit, frame.length);
+      segment.m_limit += size;
+      m_unforced.add(segment);
+   }
+   
+   /**
+    * Force all appended messages out to the storage device.
+    */
+   public synchronized void force() {
+      for (Segment segment : m_unforced) {
+         segment.m_buffer.force();
+      }
+      m_unforced.clear();
+   }
+   
+   /**
+    * Check whether there are any messages left to read.
+    * @return True if every stored message has been read.
+    */
+   public synchronized boolean isEmpty() {
+      return m_readSegment == null || (m_readSegment == m_segments.getLast() && m_readOffset >= m_readSegment.m_limit);
+   }
+   
+   /**
+    * Read the next messages from the log.
+    * @param max The maximum number of messages to read.
+    * @return The messages, which is an empty list if there are none left.
+    * @throws IOException
+    */
+   public synchronized List<EncodedMessage> read(int max) throws IOException {
+      List<EncodedMessage> messages = new ArrayList<EncodedMessage>();
+      while (m_readSegment != null && messages.size() < max) {
+         if (m_readOffset >= m_readSegment.m_limit) {
+            if (m_readSegment == m_segments.getLast()) break;
+            m_readSegment = m_segments.get(m_segments.indexOf(m_readSegment) + 1);
+            m_readOffset = 0;
+            continue;
+         }
+         int length = m_readSegment.m_buffer.getInt(m_readOffset);
+         byte[] frame = new byte[length];
+         ByteBuffer buffer = m_readSegment.m_buffer.duplicate();
+         buffer.position(m_readOffset + LENGTH_SIZE);
+         buffer.get(frame);
+         messages.add(EncodedMessage.parseFrom(frame));
+         m_readOffset += LENGTH_SIZE + length;
+      }
+      return messages;
+   }
+   
+   /**
+    * Commit the current read position, so the messages read so far are removed from the log.
+    * @throws IOException
+    */
+   public synchronized void commit() throws IOException {
+      if (m_readSegment == null) return;
+      m_headSegment = m_readSegment;
+      m_headOffset = m_readOffset;
+      
+      File headFile = new File(m_directory, HEAD_FILE);
+      File tempFile = new File(m_directory, HEAD_FILE + ".tmp");
+      DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile));
+      try {
+         out.writeLong(m_headSegment.m_id);
+         out.writeInt(m_headOffset);
+      } finally {
+         out.close();
+      }
+      if (!tempFile.renameTo(headFile)) {
+         headFile.delete();
+         if (!tempFile.renameTo(headFile)) throw new IOException("Unable to update store and forward log head " + headFile);
+      }
+      
+      // Segments before the head have been forwarded completely
+      while (m_segments.getFirst() != m_headSegment) {
+         Segment segment = m_segments.removeFirst();
+         m_unforced.remove(segment);
+         segment.m_file.delete();
+      }
+   }
+   
+   /**
+    * Move the read position back to the last commit, so the messages read since then are read again.
+    */
+   public synchronized void rollback() {
+      m_readSegment = m_headSegment;
+      m_readOffset = m_headOffset;
+   }
+
+   @Override
+   public void retrieve(MessageHandler handler, int limit, long timeout) throws IOException {
+      // Stored messages are handed over as fast as possible, so the timeout never applies
+      BatchMessageHandler batchHandler = BatchMessageHandlerAdapter.adapt(handler);
+      int count = 0;
+      while (count < limit) {
+         // Leave the rest in the log once the handler has ended its stream
+         if (handler instanceof EndableHandler && ((EndableHandler)handler).isEnded()) break;
+         List<EncodedMessage> batch = this.read(Math.min(MAX_BATCH, limit - count));
+         if (batch.isEmpty()) break;
+         batchHandler.handleBatch(batch);
+         count += batch.size();
+      }
+   }
+
+   /**
+    * Append a message to the log.
+    * @return False if the message could not be stored, so it is not passed on.
+    */
+   @Override
+   public boolean handle(EncodedMessage message) {
+      try {
+         this.append(message);
+      } catch (IOException e) {
+         System.err.println("Error while storing message in store and forward log: " + e.getMessage());
+         return false;
+      }
+      return true;
+   }
+
+   /**
+    * Append a batch of messages to the log. Appending stops at the first message that cannot be stored.
+    * @return The messages that have been stored, so only these are passed on.
+    */
+   @Override
+   public List<EncodedMessage> handleBatch(List<EncodedMessage> messages) {
+      int stored = 0;
+      try {
+         for (EncodedMessage message : messages) {
+            this.append(message);
+            stored++;
+         }
+      } catch (IOException e) {
+         System.err.println("Error while storing message batch in store and forward log: " + e.getMessage());
+         return messages.subList(0, stored);
+      }
+      return messages;
+   }
+   
+   private Segment addSegment(int size) throws IOException {
+      long id = ++m_lastID;
+      File file = new File(m_directory, String.format("%016x", id) + SEGMENT_SUFFIX);
+      Segment segment = new Segment(id, file, map(file, size));
+      m_segments.add(segment);
+      if (m_readSegment == null) {
+         m_headSegment = m_readSegment = segment;
+         m_headOffset = m_readOffset = 0;
+      }
+      return segment;
+   }
+   
+   private static MappedByteBuffer map(File file, long size) throws IOException {
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+         raf.setLength(size);
+         // The mapping stays valid after the file is closed
+         return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      } finally {
+         raf.close();
+      }
+   }
+
+}
@@ -28,7 +28,10 @@
 
 package com.rapid7.component.messaging.relay.amqp;
 
+import com.rapid7.component.messaging.relay.EnvelopeHandler;
 import com.rapid7.component.messaging.relay.MessageHandler;
+import com.rapid7.component.messaging.relay.encoding.LazyEncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
 import java.io.IOException;
 
@@ -37,7 +40,7 @@ import java.io.IOException;
  * ack operation on the specified BusMessageRetriever (thus closing an end-to-end message
  * acknowledgment chain).
  */
-public class AckHandler implements MessageHandler
+public class AckHandler implements MessageHandler, EnvelopeHandler
 {
    
    public static String ACK_DEST = "__relay_ack_";
@@ -55,13 +58,22 @@ public class AckHandler implements MessageHandler
    
    @Override
    public boolean handle(EncodedMessage message) {
-      if (AckHandler.isAckMessage(message)) {
+      return this.handleAck(message.getEnvelope(), message.getChannelID());
+   }
+   
+   @Override
+   public boolean handleEnvelope(LazyEncodedMessage message) {
+      return this.handleAck(message.getEnvelope(), message.getChannelID());
+   }
+   
+   private boolean handleAck(EncodedEnvelope envelope, int channelID) {
+      if (AckHandler.isAckMessage(envelope)) {
          // It's an ack message. Process it.
          try {
-            m_ackRetriever.doAck(message.getEnvelope().getDeliveryTag(), message.getChannelID());
+            m_ackRetriever.doAck(envelope.getDeliveryTag(), channelID);
          } catch (IOException e) {
             System.err.println("Unable to complete end-to-end ack for message "
-               + message.getEnvelope().getDeliveryTag() + " : " + e.getMessage());
+               + envelope.getDeliveryTag() + " : " + e.getMessage());
          }
          return false;
       } else {
@@ -71,8 +83,12 @@ public class AckHandler implements MessageHandler
    }
    
    public static boolean isAckMessage(EncodedMessage message) {
-      return message.getEnvelope().getExchange().equals(ACK_DEST)
-          || message.getEnvelope().getRoutingKey().equals(ACK_DEST);
+      return AckHandler.isAckMessage(message.getEnvelope());
+   }
+   
+   public static boolean isAckMessage(EncodedEnvelope envelope) {
+      return envelope.getExchange().equals(ACK_DEST)
+          || envelope.getRoutingKey().equals(ACK_DEST);
    }
 
 
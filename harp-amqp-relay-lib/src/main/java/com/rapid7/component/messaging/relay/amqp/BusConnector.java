@@ -31,27 +31,59 @@ package com.rapid7.component.messaging.relay.amqp;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.RelayControlMessage.EndpointType;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class to simplify managing connections to an AMQP broker. Supports a centralized pool of 
  * multiple, named connection instances. Leverages the RabbitMQ AMQP client API, but should be compatible
- * with other AMQP-compliant brokers (like QPid).
+ * with other AMQP-compliant brokers (like QPid).<P>
+ * Each connector can open a pool of several connections to its broker, so bulk traffic is not
+ * limited by a single socket and broker frame reader. The channels of each client's retriever are
+ * striped across the pool by client ID, while the control channel and the publisher use the first
+ * connection.<P>
+ * If a connection is lost unexpectedly, the connector reconnects in the background, backing off
+ * between attempts, and then has the retrievers whose channels it carried replay their topology
+ * (queues, exchange relays and control queue bindings) and resume consuming. Channels opened on
+ * the lost connection are reopened on the new one as they are next used.
  */
 public class BusConnector
 {
    public static final String DEFAULT_CONNECTOR = "DEFAULT";
    public static final String DEFAULT_HOST = "localhost";
    public static final int DEFAULT_PORT = -1;
+   public static final long INITIAL_RECOVERY_DELAY = 1000;
+   public static final long MAX_RECOVERY_DELAY = 30000;
       
    private static Map<String,BusConnector> sm_instanceMap = new HashMap<String,BusConnector>();
    
-   private Connection m_connection;
+   // Runs the reconnection attempts after connections are lost
+   private static ScheduledExecutorService sm_recoveryTimer = Executors.newSingleThreadScheduledExecutor(
+         new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+               Thread thread = new Thread(r, "BusConnector recovery");
+               thread.setDaemon(true);
+               return thread;
+            }
+         });
+   
+   private Connection[] m_connections = new Connection[1];
    private Map<String,BusMessageRetriever> m_retrieverMap = new HashMap<String,BusMessageRetriever>();
    private TranscodingPublisher m_publisher;
    private String m_hostname;
@@ -59,6 +91,12 @@ public class BusConnector
    private String m_username;
    private String m_password;
    private Channel m_controlChannel;
+   private Set<Integer> m_recoveringConnections = new HashSet<Integer>();
+   private volatile boolean m_deleted = false;
+   private int m_retrieverChannels = 1;
+   private int m_retrieverPrefetch = 1;
+   private Map<String,Integer> m_retrieverQueueWeights;
+   private Collection<String> m_retrieverExpressQueues = Collections.emptyList();
    
    private BusConnector(String hostname, int port, String username, String password) {
       m_hostname = hostname;
@@ -77,17 +115,75 @@ public class BusConnector
     * @return The BusMessageRetriever instance for the specified client. 
     * @throws IOException
     */
-   public BusMessageRetriever getRetriever(String clientID) throws IOException {
+   public synchronized BusMessageRetriever getRetriever(String clientID) throws IOException {
 
       BusMessageRetriever retriever = m_retrieverMap.get(clientID);
       if (retriever == null) {
          retriever = new BusMessageRetriever(clientID,this);
+         retriever.setSharding(m_retrieverChannels, m_retrieverPrefetch);
+         retriever.setQueueWeights(m_retrieverQueueWeights);
+         retriever.setExpressQueues(m_retrieverExpressQueues);
          m_retrieverMap.put(clientID, retriever);
       }
       
       return retriever;
    }
    
+   /**
+    * Set how retrievers created from now on shard their target queues across channels.
+    * @param channels The number of retrieval channels per retriever.
+    * @param prefetch The prefetch count of each retrieval channel.
+    * @see BusMessageRetriever#setSharding(int, int)
+    */
+   public void setRetrieverSharding(int channels, int prefetch) {
+      if (channels < 1 || prefetch < 1) throw new IllegalArgumentException("Invalid sharding: " + channels + "/" + prefetch);
+      m_retrieverChannels = channels;
+      m_retrieverPrefetch = prefetch;
+   }
+   
+   /**
+    * Set the number of connections to the broker in the pool. Connections are opened as they are
+    * first needed. Should be set before the connector is used, since connections already open are
+    * only kept if they are still in the pool.
+    * @param size The number of connections.
+    */
+   public synchronized void setConnectionPoolSize(int size) {
+      if (size < 1) throw new IllegalArgumentException("Invalid connection pool size: " + size);
+      if (size == m_connections.length) return;
+      Connection[] connections = new Connection[size];
+      for (int i = 0; i < m_connections.length; i++) {
+         if (i < size) {
+            connections[i] = m_connections[i];
+         } else if (m_connections[i] != null && m_connections[i].isOpen()) {
+            try {
+               m_connections[i].close();
+            } catch (IOException e) {
+               e.printStackTrace();
+            }
+         }
+      }
+      m_connections = connections;
+   }
+   
+   /**
+    * Set the queue weights that retrievers created from now on schedule deliveries by.
+    * @param weights The weights of queues or forwarded exchanges, or null to pass deliveries on
+    * as they arrive.
+    * @see BusMessageRetriever#setQueueWeights(Map)
+    */
+   public void setRetrieverQueueWeights(Map<String,Integer> weights) {
+      m_retrieverQueueWeights = weights;
+   }
+   
+   /**
+    * Set the queues that retrievers created from now on carry over the express lane.
+    * @param endpoints The names of the queues or forwarded exchanges.
+    * @see BusMessageRetriever#setExpressQueues(Collection)
+    */
+   public void setRetrieverExpressQueues(Collection<String> endpoints) {
+      m_retrieverExpressQueues = endpoints;
+   }
+   
    /**
     * Get a TranscodingPublisher instance for this connection, which can
     * be used to publish encoded messages from the HTTP stream onto the bus.
@@ -171,13 +267,20 @@ public class BusConnector
    public static void deleteConnector(String instanceName) {
       BusConnector bc = sm_instanceMap.remove(instanceName);
       if (bc != null) {
-         if (bc.m_connection != null) {
+         bc.m_deleted = true;
+         if (bc.m_connections[0] != null) {
             try {
                for (BusMessageRetriever r : bc.m_retrieverMap.values()) {
                   r.dispose();
                }
                if (bc.m_controlChannel != null && bc.m_controlChannel.isOpen()) bc.m_controlChannel.close();
-               bc.m_connection.close();
+            } catch (IOException e) {
+               e.printStackTrace();
+            }
+         }
+         for (Connection connection : bc.m_connections) {
+            try {
+               if (connection != null && connection.isOpen()) connection.close();
             } catch (IOException e) {
                e.printStackTrace();
             }
@@ -191,15 +294,125 @@ public class BusConnector
     * @throws IOException
     */
    public Connection getConnection() throws IOException {
-      if (m_connection == null) {
+      return this.getConnection(0);
+   }
+   
+   /**
+    * Get the pooled AMQP Connection that channels for the specified client are opened on.
+    * Initializes the connection if necessary.
+    * @param clientID The unique ID of the client.
+    * @return The live Connection object for the client.
+    * @throws IOException
+    */
+   public Connection getConnection(String clientID) throws IOException {
+      return this.getConnection((clientID.hashCode() & Integer.MAX_VALUE) % m_connections.length);
+   }
+   
+   private synchronized Connection getConnection(int index) throws IOException {
+      if (m_connections[index] == null || !m_connections[index].isOpen()) {
          ConnectionFactory factory = new ConnectionFactory();
          factory.setHost(m_hostname);
          if (m_port > 0 ) factory.setPort(m_port);
          if (m_username != null) factory.setUsername(m_username);
          if (m_password != null) factory.setPassword(m_password);
-         m_connection = factory.newConnection();
+         final Connection connection = factory.newConnection();
+         final int connectionIndex = index;
+         connection.addShutdownListener(new ShutdownListener() {
+            @Override
+            public void shutdownCompleted(ShutdownSignalException cause) {
+               // Connections closed by the connector itself are not recovered
+               if (cause.isInitiatedByApplication()) return;
+               System.err.println("Connection to broker " + m_hostname + " lost: " + cause.getMessage());
+               synchronized (BusConnector.this) {
+                  // A recovery that is already under way takes care of the new connection as well
+                  if (!m_recoveringConnections.add(connectionIndex)) return;
+               }
+               BusConnector.this.scheduleRecovery(connectionIndex, INITIAL_RECOVERY_DELAY);
+            }
+         });
+         m_connections[index] = connection;
+      }
+      return m_connections[index];
+   }
+   
+   /**
+    * Schedule an attempt to recover a lost pooled connection, retried with a doubling delay until
+    * the broker can be reached again and the retrievers on the connection have replayed their topology.
+    * @param index The pool index of the connection.
+    * @param delay The time, in ms, to wait before the attempt.
+    */
+   private void scheduleRecovery(final int index, final long delay) {
+      this.scheduleRecovery(index, delay, null, null);
+   }
+   
+   /**
+    * Schedule an attempt to recover a lost pooled connection. Each retriever is recovered on its own,
+    * and only the ones that failed are retried, unless the connection has been lost again since.
+    * @param index The pool index of the connection.
+    * @param delay The time, in ms, to wait before the attempt.
+    * @param retrievers The retrievers still to recover, or null for all retrievers on the connection.
+    * @param connection The connection the other retrievers were recovered on, or null.
+    */
+   private void scheduleRecovery(final int index, final long delay, final List<BusMessageRetriever> retrievers,
+         final Connection connection) {
+      sm_recoveryTimer.schedule(new Runnable() {
+         @Override
+         public void run() {
+            synchronized (BusConnector.this) {
+               // Give up if the connector has been deleted or the connection removed from the pool
+               if (m_deleted || index >= m_connections.length) {
+                  m_recoveringConnections.remove(index);
+                  return;
+               }
+            }
+            long nextDelay = Math.min(delay * 2, MAX_RECOVERY_DELAY);
+            Connection recovered;
+            try {
+               recovered = BusConnector.this.getConnection(index);
+            } catch (IOException | ShutdownSignalException e) {
+               System.err.println("Unable to recover connection to broker " + m_hostname + ": " + e.getMessage());
+               BusConnector.this.scheduleRecovery(index, nextDelay, retrievers, connection);
+               return;
+            }
+            List<BusMessageRetriever> failed = new ArrayList<BusMessageRetriever>();
+            List<BusMessageRetriever> current = BusConnector.this.getRetrievers(index);
+            // A new connection loses what was recovered on the previous one, so everything is recovered again
+            boolean retryFailed = retrievers != null && recovered == connection;
+            for (BusMessageRetriever retriever : retryFailed ? retrievers : current) {
+               // Skip retrievers that have been deleted since the last attempt
+               if (!current.contains(retriever)) continue;
+               try {
+                  retriever.recover();
+               } catch (IOException | ShutdownSignalException e) {
+                  System.err.println("Unable to recover retriever on broker " + m_hostname + ": " + e.getMessage());
+                  failed.add(retriever);
+               }
+            }
+            if (!failed.isEmpty()) {
+               BusConnector.this.scheduleRecovery(index, nextDelay, failed, recovered);
+               return;
+            }
+            synchronized (BusConnector.this) {
+               m_recoveringConnections.remove(index);
+            }
+            System.err.println("Connection to broker " + m_hostname + " recovered.");
+         }
+      }, delay, TimeUnit.MILLISECONDS);
+   }
+   
+   /**
+    * Get the retrievers whose channels are opened on the specified pooled connection.
+    * @param index The pool index of the connection.
+    * @return The retrievers.
+    */
+   private synchronized List<BusMessageRetriever> getRetrievers(int index) {
+      List<BusMessageRetriever> retrievers = new ArrayList<BusMessageRetriever>();
+      for (Map.Entry<String,BusMessageRetriever> entry : m_retrieverMap.entrySet()) {
+         if ((entry.getKey().hashCode() & Integer.MAX_VALUE) % m_connections.length == index) {
+            retrievers.add(entry.getValue());
+         }
       }
-      return m_connection;
+      return retrievers;
    }
    
    /**
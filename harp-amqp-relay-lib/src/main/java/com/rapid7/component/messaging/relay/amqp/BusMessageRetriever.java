@@ -28,46 +28,277 @@
 
 package com.rapid7.component.messaging.relay.amqp;
 
+import com.rapid7.component.messaging.relay.BatchMessageHandler;
+import com.rapid7.component.messaging.relay.BatchMessageHandlerAdapter;
+import com.rapid7.component.messaging.relay.ByteBudgetRetriever;
+import com.rapid7.component.messaging.relay.DeferredAckRetriever;
+import com.rapid7.component.messaging.relay.EndableHandler;
 import com.rapid7.component.messaging.relay.MessageHandler;
-import com.rapid7.component.messaging.relay.MessageRetriever;
+import com.rapid7.component.messaging.relay.RetransmitBuffer;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.RelayControlMessage.EndpointType;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.*;
-import com.google.protobuf.ByteString;
+import com.rapid7.component.messaging.relay.encoding.ZeroCopyByteString;
 import com.rabbitmq.client.*;
 import com.rabbitmq.client.AMQP.BasicProperties;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * A utility class used to retrieve messages from a set of monitored AMQP queues,
  * encode the retrieved messages (as Protobuf) and transmit the encoded messages
- * as a delimited binary stream.
+ * as a delimited binary stream.<P>
+ * Messages from queues without full acknowledgment are normally acknowledged to the broker as soon
+ * as they have been handled. With deferred acknowledgment they are only acknowledged once the caller
+ * confirms they have been delivered, and the channel prefetch is raised so the broker keeps
+ * delivering messages in the meantime.<P>
+ * Several retrievals for different stream IDs can run at the same time, so a client can receive
+ * over several concurrent response streams. Each target queue is assigned to one of the running
+ * streams, the one with the fewest queues, and stays with it until that stream's retrieval ends or
+ * reaches its limit, so the order of a queue's messages is kept within a stream. A retrieval that
+ * starts while another one for the same stream ID is still running takes over its stream: the
+ * running retrieval returns, and messages go to the new handler from then on. The consumers keep
+ * running as long as any stream is, so overlapping retrievals leave no gap in which messages have
+ * to be buffered.<P>
+ * The target queues can be sharded across several channels, each with its own prefetch. Every
+ * channel has its own dispatch thread, so deliveries from queues on different channels are encoded
+ * in parallel, and a hot queue only holds the prefetch of its own channel instead of taking every
+ * delivery slot from the other queues.<P>
+ * Messages are assigned to a stream, and counted against its limits, with the retriever locked, but
+ * they are written outside the retriever lock. Each stream has its own queue of pending writes,
+ * which are written in the order they were queued by whichever thread finds the stream idle, so
+ * writes to one stream never wait for writes to another one.<P>
+ * With queue weights set, deliveries are held in a local buffer per queue, and each retrieval
+ * hands them to its stream by deficit round-robin: every turn a queue may pass as many messages as
+ * its weight, so a flooded queue can only take its share of a chunk while other queues have
+ * messages waiting. Messages are only acknowledged once they have been handed to a stream, so the
+ * local buffers are bounded by the channel prefetch, which has to be raised (see
+ * {@link #setSharding(int, int)}) for the buffers to hold enough messages to schedule.<P>
+ * A retrieval for the {@link #EXPRESS_STREAM} stream ID runs an express lane next to the bulk
+ * streams. While it runs, it carries acks, the relay control queue and the queues set as express
+ * queues, and bulk queues are never assigned to it, so they cannot hold up its traffic.
  */
-public class BusMessageRetriever implements MessageRetriever
+public class BusMessageRetriever implements DeferredAckRetriever, ByteBudgetRetriever
 {  
+   public static final int DEFERRED_ACK_PREFETCH = RetransmitBuffer.DEFAULT_MAX_MESSAGES;
+   public static final String DEFAULT_STREAM = "";
+   public static final String EXPRESS_STREAM = "express";
+   public static final int DEFAULT_QUEUE_WEIGHT = 1;
+   public static final int CONTROL_QUEUE_WEIGHT = 16;
    
+   /**
+    * A response stream that a running retrieval passes messages to.
+    */
+   protected static class RetrievalStream {
+      protected String m_streamID;
+      protected MessageHandler m_handler;
+      protected BatchMessageHandler m_batchHandler;
+      protected int m_count = 0;
+      protected int m_limit;
+      protected long m_bytes = 0;
+      protected long m_byteLimit;
+      // The number of target queues assigned to the stream
+      protected int m_queues = 0;
+      // True once the handler has ended the stream it writes to
+      protected volatile boolean m_ended = false;
+      // Writes waiting to be passed to the handler, and whether a thread is passing them
+      private Deque<StreamWrite> m_writes = new LinkedList<StreamWrite>();
+      private boolean m_writing = false;
+      
+      protected RetrievalStream(String streamID, MessageHandler handler, int limit, long byteLimit) {
+         m_streamID = streamID;
+         m_handler = handler;
+         m_batchHandler = BatchMessageHandlerAdapter.adapt(handler);
+         m_limit = limit;
+         m_byteLimit = byteLimit;
+      }
+      
+      /**
+       * Queue a write to the stream. Must be called with the retriever locked, so writes are queued
+       * in the order their messages were assigned to the stream. The caller must call writePending()
+       * once it has released the retriever lock.
+       * @param write The write.
+       */
+      protected void queue(StreamWrite write) {
+         synchronized (m_writes) {
+            m_writes.addLast(write);
+         }
+      }
+      
+      /**
+       * Pass the queued writes to the handler, in order, unless another thread is already doing so,
+       * in which case that thread writes them. Must be called without the retriever locked.
+       */
+      protected void writePending() {
+         synchronized (m_writes) {
+            if (m_writing) return;
+            m_writing = true;
+         }
+         StreamWrite write = null;
+         try {
+            while (true) {
+               boolean drained;
+               synchronized (m_writes) {
+                  write = m_writes.pollFirst();
+                  if (write == null) return;
+                  drained = m_writes.isEmpty();
+               }
+               write.writeTo(this, drained);
+               if (m_handler instanceof EndableHandler && ((EndableHandler)m_handler).isEnded()) m_ended = true;
+            }
+         } finally {
+            synchronized (m_writes) {
+               m_writing = false;
+               m_writes.notifyAll();
+            }
+         }
+      }
+      
+      /**
+       * Write everything queued for the stream, and wait for any write another thread is
+       * passing to the handler to finish. Must be called without the retriever locked.
+       */
+      protected void awaitWrites() {
+         this.writePending();
+         synchronized (m_writes) {
+            while (m_writing || !m_writes.isEmpty()) {
+               try {
+                  m_writes.wait();
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  return;
+               }
+            }
+         }
+      }
+      
+      /**
+       * Count a message passed to the stream against its limits.
+       * @param message The message.
+       */
+      protected void count(EncodedMessage message) {
+         m_count++;
+         if (m_byteLimit > 0) m_bytes += message.getSerializedSize();
+      }
+      
+      /**
+       * Check whether the stream has reached its message count limit or its byte budget, or
+       * its handler has ended it.
+       * @return True if the stream should not be passed any more messages.
+       */
+      protected boolean isFull() {
+         return m_ended || m_count >= m_limit || (m_byteLimit > 0 && m_bytes >= m_byteLimit);
+      }
+   }
+
+   /**
+    * A delivered message waiting in a local queue buffer to be scheduled.
+    */
+   protected static class ScheduledMessage {
+      protected EncodedMessage m_message;
+      protected Channel m_channel;
+      // True if the message is acknowledged as soon as it has been handled
+      protected boolean m_immediateAck;
+      
+      protected ScheduledMessage(EncodedMessage message, Channel channel, boolean immediateAck) {
+         m_message = message;
+         m_channel = channel;
+         m_immediateAck = immediateAck;
+      }
+   }
+   
+   /**
+    * Messages queued to be passed to a stream's handler, and the deliveries to acknowledge once
+    * they have been.
+    */
+   protected static class StreamWrite {
+      protected List<EncodedMessage> m_messages;
+      // True to pass the messages as a batch, false for a single delivered message
+      protected boolean m_batch;
+      protected List<ScheduledMessage> m_acks;
+      
+      protected StreamWrite(List<EncodedMessage> messages, boolean batch, List<ScheduledMessage> acks) {
+         m_messages = messages;
+         m_batch = batch;
+         m_acks = acks;
+      }
+      
+      /**
+       * Pass the messages to the stream's handler, then acknowledge the deliveries.
+       * @param stream The stream.
+       * @param drained True if no other writes are queued for the stream, in which case a single
+       * message is passed as a batch of its own, so it ends a batch and drain flush policies flush it.
+       */
+      protected void writeTo(RetrievalStream stream, boolean drained) {
+         if (m_batch || drained) {
+            stream.m_batchHandler.handleBatch(m_messages);
+         } else {
+            stream.m_handler.handle(m_messages.get(0));
+         }
+         if (m_acks == null) return;
+         for (ScheduledMessage message : m_acks) {
+            if (!message.m_immediateAck || !message.m_channel.isOpen()) continue;
+            try {
+               message.m_channel.basicAck(message.m_message.getEnvelope().getDeliveryTag(), false);
+            } catch (IOException e) {
+               System.err.println("Unable to ACK message " + message.m_message.getEnvelope().getDeliveryTag() + ": " + e.getMessage());
+            }
+         }
+      }
+   }
+   
+   /**
+    * The local buffer of a target queue, and its deficit round-robin state.
+    */
+   protected static class QueueBuffer {
+      protected Deque<ScheduledMessage> m_messages = new LinkedList<ScheduledMessage>();
+      protected int m_deficit = 0;
+      protected boolean m_inTurn = false;
+   }
+
    private BusConnector m_connector;
-   private Channel m_channel;
-   private int m_channelID = 0;
+   // The retrieval channels, one per shard, and the ID of each channel
+   private Channel[] m_channels = new Channel[1];
+   private int[] m_channelIDs = new int[1];
+   private int m_lastChannelID = 0;
+   private int m_prefetch = 1;
    private Set<String> m_targetQueues = new HashSet<String>();
    private Set<String> m_fullAckQueues = new HashSet<String>();
    private Map<String,Set<String>> m_relayExchangeBindings = new HashMap<String, Set<String>>();
    private Map<String,RetrievalConsumer> m_retrievalConsumers = new HashMap<String,RetrievalConsumer>();
    private String m_clientID;
    private String m_relayControlQueue;
-   protected MessageHandler m_currentHandler;
-   protected int m_streamCount;
-   protected int m_streamLimit;
-   protected boolean m_terminationFlag;
+   // The topology declared for this retriever, replayed when the broker connection is recovered
+   private Set<String> m_declaredQueues = new HashSet<String>();
+   private Map<String,EndpointType> m_relayExchangeTypes = new HashMap<String,EndpointType>();
+   // The running streams by stream ID, and the stream ID each target queue is assigned to
+   protected Map<String,RetrievalStream> m_streams = new LinkedHashMap<String,RetrievalStream>();
+   protected Map<String,String> m_queueStreams = new HashMap<String,String>();
    protected Deque<EncodedMessage> m_messageBuffer = new LinkedList<EncodedMessage>();
+   // Acks and express queue messages buffered while no retrieval can take them
+   protected Deque<EncodedMessage> m_expressBuffer = new LinkedList<EncodedMessage>();
+   private Set<String> m_expressQueues = new HashSet<String>();
+   protected volatile boolean m_deferredAck = false;
+   private Set<String> m_consumingQueues = new HashSet<String>();
+   // The channels that buffered messages needing an immediate ack were delivered on
+   private Map<EncodedMessage,Channel> m_bufferedChannels = new IdentityHashMap<EncodedMessage,Channel>();
+   // Queue weights, or null if deliveries are passed on as they arrive, and the local buffers of the
+   // queues with the queues that have messages waiting in round-robin order
+   private Map<String,Integer> m_queueWeights;
+   private Map<String,QueueBuffer> m_queueBuffers = new HashMap<String,QueueBuffer>();
+   private Deque<String> m_activeQueues = new LinkedList<String>();
    
    /**
     * A RabbitMQ client API Consumer implementation that receives messages from a specific monitored
@@ -77,11 +308,16 @@ public class BusMessageRetriever implements MessageRetriever
       
       private BusMessageRetriever m_retriever;
       private Channel m_channel;
+      private int m_channelID;
+      private String m_queue;
 
-      public RetrievalConsumer(Channel channel, BusMessageRetriever retriever) throws IOException {
+      public RetrievalConsumer(Channel channel, int channelID, BusMessageRetriever retriever, String queue)
+            throws IOException {
          super(channel);
          m_channel = channel;
+         m_channelID = channelID;
          m_retriever = retriever;
+         m_queue = queue;
       }
 
       @Override
@@ -94,6 +330,7 @@ public class BusMessageRetriever implements MessageRetriever
          throws IOException {
          
          boolean fullAck = m_retriever.isFullAck(envelope.getRoutingKey());
+         boolean deferredAck = !fullAck && m_retriever.m_deferredAck;
                       
          // First encode the message as Protobuf
          EncodedMessage.Builder messageBuilder = EncodedMessage.newBuilder();
@@ -104,38 +341,57 @@ public class BusMessageRetriever implements MessageRetriever
          envelopeBuilder.setIsRedeliver(envelope.isRedeliver());
          messageBuilder.setEnvelope(envelopeBuilder.build());
       
-         messageBuilder.setProperties(MessagePropertiesTranscoder.encode(properties));
-         if (body != null) messageBuilder.setPayload(ByteString.copyFrom(body));
+         EncodedProperties encodedProperties = MessagePropertiesTranscoder.encode(properties);
+         if (!MessagePropertiesTranscoder.isEmpty(encodedProperties)) messageBuilder.setProperties(encodedProperties);
+         // The delivered body array is never reused by the client library, so it can be wrapped as is
+         if (body != null) messageBuilder.setPayload(ZeroCopyByteString.wrap(body));
          if (fullAck) {
             messageBuilder.setDoAck(true);
-            messageBuilder.setChannelID(m_retriever.getChannelID());
+            messageBuilder.setChannelID(m_channelID);
+         } else if (deferredAck) {
+            // The channel ID is needed to acknowledge the message later
+            messageBuilder.setChannelID(m_channelID);
          }
          
          EncodedMessage em = messageBuilder.build();
          
-          // Now handle transmission of the encoded message. We synchronize on the parent
-          // BusMessageRetriever to prevent multiple instances from trying to write to
-          // the output stream at the same time, which could result in mangled encoding.
+         // Now assign the encoded message to a stream. We synchronize on the parent
+         // BusMessageRetriever so messages are queued to each stream in delivery order and
+         // counted against its limits; the write itself happens outside the lock.
+         RetrievalStream stream;
          synchronized(m_retriever) {
-            if (m_retriever.m_terminationFlag) {
+            if (m_retriever.m_queueWeights != null) {
+               // Leave it to the retrieval to schedule the message
+               m_retriever.schedule(m_queue, new ScheduledMessage(em, m_channel, !fullAck && !deferredAck));
+               return;
+            }
+            stream = m_retriever.getStream(m_queue);
+            if (stream == null) {
                // We may have ended the HTTP response, so we need to buffer the messages since
                // the associated output stream could be closed at any time.
-               m_retriever.m_messageBuffer.add(em);
-            } else {
-
-               // Handle the message
-               m_retriever.m_currentHandler.handle(em);
-               if (!fullAck) {
-                  m_channel.basicAck(envelope.getDeliveryTag(), false);
-               }
-               
-               // Increment the message counter, so we know when we have hit the
-               // chunk size limit.
-               m_retriever.m_streamCount++;
-               if (m_retriever.m_streamCount >= m_retriever.m_streamLimit) {
-                  // If we have hit the chunk size limit wake up the parent BusMessageRetriever
-                  m_retriever.notifyAll();
-               }
+               if (m_retriever.isExpressQueue(m_queue)) m_retriever.m_expressBuffer.add(em);
+               else m_retriever.m_messageBuffer.add(em);
+               if (!fullAck && !deferredAck) m_retriever.m_bufferedChannels.put(em, m_channel);
+               return;
+            }
+            
+            // Queue the message, to be acknowledged once it has been written if it has no other ack
+            stream.queue(new StreamWrite(Collections.singletonList(em), false,
+                  Collections.singletonList(new ScheduledMessage(em, m_channel, !fullAck && !deferredAck))));
+            
+            // Increment the message counter, so we know when we have hit the
+            // chunk size limit.
+            stream.count(em);
+            if (stream.isFull()) {
+               // If we have hit the chunk size limit wake up the parent BusMessageRetriever
+               m_retriever.notifyAll();
+            }
+         }
+         stream.writePending();
+         if (stream.m_ended) {
+            // The handler has ended the stream, so wake up the retrieval to stop it
+            synchronized(m_retriever) {
+               m_retriever.notifyAll();
             }
          }
       }
@@ -158,7 +414,6 @@ public class BusMessageRetriever implements MessageRetriever
    public BusMessageRetriever(String clientID, BusConnector connector) throws IOException {
       m_clientID = clientID;
       m_connector = connector;
-      m_channel = null;
       // Make sure we always add the relay control queue so we can handle
       // forwarding requests from clients.
       m_relayControlQueue = MessageRelayControl.RELAY_CONTROL_EXCHANGE + "_" + m_clientID;
@@ -168,71 +423,313 @@ public class BusMessageRetriever implements MessageRetriever
    
    
    @Override
-   public synchronized void retrieve(MessageHandler handler, int limit, long timeout) throws IOException {
+   public void retrieve(MessageHandler handler, int limit, long timeout) throws IOException {
+      this.retrieve(handler, limit, 0, timeout, DEFAULT_STREAM);
+   }
+   
+   @Override
+   public void retrieve(MessageHandler handler, int limit, long byteLimit, long timeout) throws IOException {
+      this.retrieve(handler, limit, byteLimit, timeout, DEFAULT_STREAM);
+   }
+   
+   /**
+    * Retrieve messages to one of several concurrent response streams.
+    * @param handler The MessageHandler to which to pass encoded messages from the monitored queues.
+    * @param limit The message count limit
+    * @param timeout The specified operation timeout
+    * @param streamID The ID of the stream. A retrieval for a stream ID that already has a retrieval
+    * running takes over that retrieval's stream.
+    * @throws IOException
+    */
+   public void retrieve(MessageHandler handler, int limit, long timeout, String streamID) throws IOException {
+      this.retrieve(handler, limit, 0, timeout, streamID);
+   }
+   
+   /**
+    * Retrieve messages to one of several concurrent response streams.
+    * @param handler The MessageHandler to which to pass encoded messages from the monitored queues.
+    * @param limit The message count limit
+    * @param byteLimit The byte budget, measured as the encoded size of the messages, or 0 for none.
+    * The retrieval ends once either the message count limit or the byte budget is reached.
+    * @param timeout The specified operation timeout
+    * @param streamID The ID of the stream. A retrieval for a stream ID that already has a retrieval
+    * running takes over that retrieval's stream.
+    * @throws IOException
+    */
+   public void retrieve(MessageHandler handler, int limit, long byteLimit, long timeout,
+         String streamID) throws IOException {
       
       long startTime = System.currentTimeMillis();
+      RetrievalStream stream = new RetrievalStream(streamID, handler, limit, byteLimit);
       
-      // Set/reset the data elements that are shared by all of the RetrievalConsumer child threads.
-      m_currentHandler = handler;
-      m_streamCount = 0;
-      m_streamLimit = limit;
-      m_terminationFlag = false;
-      Channel channel = getChannel();
-      
-
-      // Next, Deque & transmit any messages buffered during the previous request
-      while (true) {
-         EncodedMessage em = m_messageBuffer.pollFirst();
-         if (em == null) break;
-         m_currentHandler.handle(em);
-         if (!em.getDoAck() && !AckHandler.isAckMessage(em)) {
-            // Do immediate ack
-            System.err.println("Doing immediate ack for " + em.getEnvelope().getExchange() +":" + em.getEnvelope().getRoutingKey()+":"+em.getEnvelope().getDeliveryTag());
-            channel.basicAck(em.getEnvelope().getDeliveryTag(), false);
+      try {
+         synchronized (this) {
+            // If another retrieval is still running for this stream, this one takes its stream over.
+            // The consumers keep running, so no messages have to be buffered in between.
+            RetrievalStream previous = m_streams.put(streamID, stream);
+            if (previous != null) {
+               stream.m_queues = previous.m_queues;
+               this.notifyAll();
+            }
+            
+            // Next, Deque & transmit any messages buffered during the previous request as a single batch
+            // The express lane only takes the express messages.
+            if (!m_expressBuffer.isEmpty() || (!m_messageBuffer.isEmpty() && !EXPRESS_STREAM.equals(streamID))) {
+               List<EncodedMessage> buffered = new ArrayList<EncodedMessage>(m_expressBuffer);
+               m_expressBuffer.clear();
+               if (!EXPRESS_STREAM.equals(streamID)) {
+                  buffered.addAll(m_messageBuffer);
+                  m_messageBuffer.clear();
+               }
+               List<ScheduledMessage> acks = new ArrayList<ScheduledMessage>();
+               for (EncodedMessage em : buffered) {
+                  // Bulk messages left in the shared buffer keep their ack channels
+                  Channel ackChannel = m_bufferedChannels.remove(em);
+                  if (ackChannel != null) {
+                     // Do immediate ack on the channel the message was delivered on
+                     System.err.println("Doing immediate ack for " + em.getEnvelope().getExchange() +":" + em.getEnvelope().getRoutingKey()+":"+em.getEnvelope().getDeliveryTag());
+                     acks.add(new ScheduledMessage(em, ackChannel, true));
+                  }
+               }
+               stream.queue(new StreamWrite(buffered, true, acks));
+               for (EncodedMessage em : buffered) stream.count(em);
+            }
+            
+            // Abort if there are no target queues
+            if (m_targetQueues.size() == 0) return;
+            
+            // Now, Start the RetrievalConsumers and begin pulling additional messages from the broker
+            this.startConsumers();
+         }
+         stream.writePending();
+         
+         // Go to sleep for a time period up to the timeout, or until the limit is reached or
+         // another retrieval takes over, writing whatever is scheduled for the stream in between
+         while (true) {
+            synchronized (this) {
+               long remainTime = timeout - (System.currentTimeMillis() - startTime);
+               if (remainTime <= 0 || stream.isFull() || m_streams.get(streamID) != stream) break;
+               boolean scheduled = m_queueWeights != null && this.drainScheduled(stream);
+               if (!scheduled) this.wait(remainTime);
+            }
+            stream.writePending();
+         }
+      } catch (InterruptedException e) {
+      } finally {
+         synchronized (this) {
+            if (m_streams.get(streamID) == stream) {
+               // Remove the stream, so the child RetrievalConsumers move its queues to other
+               // streams, or buffer their messages if there are none left.
+               m_streams.remove(streamID);
+               m_queueStreams.values().removeAll(Collections.singleton(streamID));
+               if (m_streams.isEmpty()) {
+                  // Request shutdown the retrieval consumers. Note that they still
+                  // may receive some messages after the cancel command is sent, and
+                  // these "stray" messages will need to be buffered.
+                  for (String queue : m_consumingQueues) {
+                     Channel channel = m_channels[this.getShard(queue)];
+                     if (channel != null && channel.isOpen()) channel.basicCancel(queue);
+                  }
+                  m_consumingQueues.clear();
+               }
+            }
          }
-         m_streamCount++;
+         // Nothing more is queued once the stream has been removed, so the handler is done
+         // with once everything queued so far has been written
+         stream.awaitWrites();
       }
+        
       
-      // Abort if there are no target queues
-      if (m_targetQueues.size() == 0) return;
-      
-      // Now, Start the RetrievalConsumers for each monitored queue and begin 
-      /// pulling additional messages from the broker
+   }
+   
+   /**
+    * Start the RetrievalConsumers for each monitored queue that is not already being consumed,
+    * and stop consuming queues that are no longer targeted. Must be called with the retriever locked.
+    * @throws IOException
+    */
+   protected void startConsumers() throws IOException {
       for (String queue : m_targetQueues) {
+         int shard = this.getShard(queue);
+         Channel channel = this.getShardChannel(shard);
+         if (m_consumingQueues.contains(queue)) continue;
          RetrievalConsumer consumer = m_retrievalConsumers.get(queue);
-         if (consumer == null) {
+         if (consumer == null || consumer.getChannel() != channel) {
             channel.queueDeclare(queue, false, false, false, null);
-            consumer = new RetrievalConsumer(channel,this);
+            consumer = new RetrievalConsumer(channel,m_channelIDs[shard],this,queue);
             m_retrievalConsumers.put(queue, consumer);
          }
          try {
             channel.basicConsume(queue,false,queue,consumer);
+            m_consumingQueues.add(queue);
          } catch (IOException e) {
             e.printStackTrace();
          }
       }
+      // Stop consuming queues that are no longer targeted
+      for (String queue : new ArrayList<String>(m_consumingQueues)) {
+         if (!m_targetQueues.contains(queue)) {
+            m_consumingQueues.remove(queue);
+            Channel channel = m_channels[this.getShard(queue)];
+            if (channel != null && channel.isOpen()) channel.basicCancel(queue);
+         }
+      }
+   }
+   
+   /**
+    * Check whether a retrieval is currently running.
+    * @return True if messages are currently being passed to a retrieval's handler.
+    */
+   public synchronized boolean isRetrieving() {
+      return !m_streams.isEmpty();
+   }
+   
+   /**
+    * Get the running stream that messages from the specified queue go to. Express queues go to the
+    * express lane while it runs and is under its limit. Other queues are assigned to the running
+    * bulk stream with the fewest queues if they are not assigned to a running stream, or their
+    * stream has reached its limit. Must be called with the retriever locked.
+    * @param queue The target queue.
+    * @return The stream, or null if no retrieval that can take the queue's messages is running.
+    */
+   protected RetrievalStream getStream(String queue) {
+      if (m_streams.isEmpty()) return null;
+      RetrievalStream express = m_streams.get(EXPRESS_STREAM);
+      boolean expressQueue = this.isExpressQueue(queue);
+      if (express != null && expressQueue && !express.isFull()) return express;
       
-      long remainTime = timeout - (System.currentTimeMillis() - startTime);
+      String streamID = m_queueStreams.get(queue);
+      RetrievalStream current = (streamID != null) ? m_streams.get(streamID) : null;
+      if (current == express) current = null;
+      int bulkStreams = m_streams.size() - ((express != null) ? 1 : 0);
+      if (current != null && (!current.isFull() || bulkStreams == 1)) return current;
       
-      try {
-         // Go to sleep for a time period up to the timeout
-         if (remainTime > 0) this.wait(remainTime);
-      } catch (InterruptedException e) {
-      } finally {
-         // Request shutdown the retrieval consumers. Note that they still
-         // may receive some messages after the cancel command is sent, and
-         // these "stray" messages will need to be buffered.
-         if (channel.isOpen()) {
-            for (RetrievalConsumer c : m_retrievalConsumers.values()) {
-               channel.basicCancel(c.getConsumerTag());
+      RetrievalStream chosen = null;
+      for (RetrievalStream stream : m_streams.values()) {
+         if (stream == express || stream.isFull()) continue;
+         if (chosen == null || stream.m_queues < chosen.m_queues) chosen = stream;
+      }
+      if (chosen == null) chosen = current;
+      if (chosen == null) {
+         for (RetrievalStream stream : m_streams.values()) {
+            if (stream != express) {
+               chosen = stream;
+               break;
             }
          }
-         // Set the termination flag so the child RetrievalConsumers know to buffer
-         // messages at this point.
-         m_terminationFlag = true;
       }
-        
+      // Only the express lane is running
+      if (chosen == null) return expressQueue ? express : null;
+      if (chosen != current) {
+         if (current != null) current.m_queues--;
+         chosen.m_queues++;
+         m_queueStreams.put(queue, chosen.m_streamID);
+      }
+      return chosen;
+   }
+   
+   /**
+    * Add a delivered message to the local buffer of its queue, and wake up the retrievals to
+    * schedule it. Must be called with the retriever locked.
+    * @param queue The queue the message was delivered from.
+    * @param message The delivered message.
+    */
+   protected void schedule(String queue, ScheduledMessage message) {
+      QueueBuffer buffer = m_queueBuffers.get(queue);
+      if (buffer == null) {
+         buffer = new QueueBuffer();
+         m_queueBuffers.put(queue, buffer);
+      }
+      if (buffer.m_messages.isEmpty()) m_activeQueues.addLast(queue);
+      buffer.m_messages.addLast(message);
+      this.notifyAll();
+   }
+   
+   /**
+    * Queue the messages waiting in the local buffers of the queues assigned to a stream to the
+    * stream as a single batch, by deficit round-robin, up to the stream's limit. Must be called
+    * with the retriever locked.
+    * @param stream The stream.
+    * @return True if any messages were queued.
+    */
+   protected boolean drainScheduled(RetrievalStream stream) {
+      List<ScheduledMessage> batch = new ArrayList<ScheduledMessage>();
+      int skipped = 0;
+      while (!stream.isFull() && skipped < m_activeQueues.size()) {
+         String queue = m_activeQueues.getFirst();
+         if (this.getStream(queue) != stream) {
+            // Assigned to another stream
+            m_activeQueues.addLast(m_activeQueues.removeFirst());
+            skipped++;
+            continue;
+         }
+         skipped = 0;
+         QueueBuffer buffer = m_queueBuffers.get(queue);
+         if (!buffer.m_inTurn) {
+            buffer.m_deficit += this.getQueueWeight(queue);
+            buffer.m_inTurn = true;
+         }
+         while (buffer.m_deficit > 0 && !buffer.m_messages.isEmpty() && !stream.isFull()) {
+            ScheduledMessage message = buffer.m_messages.removeFirst();
+            // The broker redelivers messages from channels that have closed
+            if (!message.m_channel.isOpen()) continue;
+            batch.add(message);
+            stream.count(message.m_message);
+            buffer.m_deficit--;
+         }
+         if (buffer.m_messages.isEmpty()) {
+            buffer.m_deficit = 0;
+            buffer.m_inTurn = false;
+            m_activeQueues.removeFirst();
+         } else if (buffer.m_deficit <= 0) {
+            buffer.m_inTurn = false;
+            m_activeQueues.addLast(m_activeQueues.removeFirst());
+         }
+         // Otherwise the budget ran out, and the queue finishes its turn in the next batch
+      }
+      if (batch.isEmpty()) return false;
       
+      List<EncodedMessage> messages = new ArrayList<EncodedMessage>(batch.size());
+      for (ScheduledMessage message : batch) messages.add(message.m_message);
+      stream.queue(new StreamWrite(messages, true, batch));
+      return true;
+   }
+   
+   /**
+    * Get the scheduling weight of a queue. The weight of an exchange relay queue can also be set
+    * for the exchange name, and the relay control queue has a weight of {@link #CONTROL_QUEUE_WEIGHT}
+    * unless set otherwise.
+    * @param queue The queue name.
+    * @return The weight.
+    */
+   protected int getQueueWeight(String queue) {
+      Integer weight = m_queueWeights.get(queue);
+      String relaySuffix = this.getRelayQueueForExchange("");
+      if (weight == null && queue.endsWith(relaySuffix)) {
+         weight = m_queueWeights.get(queue.substring(0, queue.length() - relaySuffix.length()));
+      }
+      if (weight == null && queue.equals(m_relayControlQueue)) return CONTROL_QUEUE_WEIGHT;
+      return (weight != null) ? Math.max(1, weight) : DEFAULT_QUEUE_WEIGHT;
+   }
+   
+   /**
+    * Schedule deliveries across the target queues by weight within each chunk.
+    * @param weights The weights of queues or forwarded exchanges, where queues that are not listed
+    * have a weight of {@link #DEFAULT_QUEUE_WEIGHT}, or null to pass deliveries on as they arrive.
+    */
+   public synchronized void setQueueWeights(Map<String,Integer> weights) {
+      m_queueWeights = (weights != null) ? new HashMap<String,Integer>(weights) : null;
+      if (m_queueWeights == null) {
+         // Move the messages that are still waiting to the shared buffer
+         for (String queue : m_activeQueues) {
+            for (ScheduledMessage message : m_queueBuffers.get(queue).m_messages) {
+               if (this.isExpressQueue(queue)) m_expressBuffer.add(message.m_message);
+               else m_messageBuffer.add(message.m_message);
+               if (message.m_immediateAck) m_bufferedChannels.put(message.m_message, message.m_channel);
+            }
+         }
+         m_queueBuffers.clear();
+         m_activeQueues.clear();
+      }
    }
    
    /**
@@ -243,7 +740,10 @@ public class BusMessageRetriever implements MessageRetriever
     */
    public synchronized void addTargetQueue(String queueName, boolean addEndpoint, boolean fullAck) 
             throws IOException {
-      if (addEndpoint) m_connector.declareQueue(queueName);
+      if (addEndpoint) {
+         m_connector.declareQueue(queueName);
+         m_declaredQueues.add(queueName);
+      }
       m_targetQueues.add(queueName);
       if (fullAck) {
          m_fullAckQueues.add(queueName);
@@ -265,6 +765,7 @@ public class BusMessageRetriever implements MessageRetriever
       m_retrievalConsumers.remove(queueName);
       m_targetQueues.remove(queueName);
       m_fullAckQueues.remove(queueName);
+      m_declaredQueues.remove(queueName);
       if (removeEndpoint) m_connector.removeQueue(queueName);
    }
    
@@ -301,6 +802,7 @@ public class BusMessageRetriever implements MessageRetriever
          relayBindings.addAll(bindings);
       }
       m_connector.declareExchangeRelay(exchangeName, relayQueueName, type, bindings);
+      m_relayExchangeTypes.put(exchangeName, type);
       this.addTargetQueue(relayQueueName, false, fullAck);
    }
    
@@ -326,7 +828,11 @@ public class BusMessageRetriever implements MessageRetriever
             if (relayBindings.size() > 0) removeRelayQueue = false;
          }
       }
-      if (removeRelayQueue) this.removeTargetQueue(relayQueueName, removeEndpoint);
+      if (removeRelayQueue) {
+         m_relayExchangeTypes.remove(exchangeName);
+         m_relayExchangeBindings.remove(exchangeName);
+         this.removeTargetQueue(relayQueueName, removeEndpoint);
+      }
    }
    
    /**
@@ -342,8 +848,33 @@ public class BusMessageRetriever implements MessageRetriever
       }
       m_targetQueues.clear();
       m_fullAckQueues.clear();
+      m_declaredQueues.clear();
+      m_relayExchangeTypes.clear();
+      m_relayExchangeBindings.clear();
       m_targetQueues.add(m_relayControlQueue);
       m_fullAckQueues.add(m_relayControlQueue);
+      m_declaredQueues.add(m_relayControlQueue);
+   }
+   
+   /**
+    * Replay the topology declared for this retriever after the broker connection has been
+    * recovered: declare its queues and exchange relays, bind the relay control queue again, and
+    * restart the consumers if a retrieval is running.
+    * @throws IOException
+    */
+   public synchronized void recover() throws IOException {
+      for (String queue : m_declaredQueues) {
+         m_connector.declareQueue(queue);
+      }
+      for (Map.Entry<String,EndpointType> relay : m_relayExchangeTypes.entrySet()) {
+         m_connector.declareExchangeRelay(relay.getKey(), this.getRelayQueueForExchange(relay.getKey()),
+               relay.getValue(), m_relayExchangeBindings.get(relay.getKey()));
+      }
+      MessageRelayControl.bindControlQueue(m_connector.getControlChannel(), m_relayControlQueue);
+      
+      // The consumers were lost with their channels. Reopening a shard's channel forgets the queues
+      // consumed on it, so only those are consumed again.
+      if (!m_streams.isEmpty()) this.startConsumers();
    }
    
    /**
@@ -351,8 +882,29 @@ public class BusMessageRetriever implements MessageRetriever
     * @throws IOException
     */
    public synchronized void close() throws IOException {
-     if (m_channel != null) m_channel.close();
-     m_channel = null;
+      for (int i = 0; i < m_channels.length; i++) {
+         if (m_channels[i] != null && m_channels[i].isOpen()) m_channels[i].close();
+         m_channels[i] = null;
+      }
+      m_consumingQueues.clear();
+   }
+   
+   /**
+    * Shard the target queues across several retrieval channels. Each queue is consumed on the
+    * channel its name hashes to. Should be set before retrieval starts, since any open channels
+    * are closed, and messages delivered on them that are still unacknowledged are redelivered.
+    * @param channels The number of retrieval channels.
+    * @param prefetch The prefetch count of each channel. With deferred acknowledgment, each channel
+    * uses at least {@link #DEFERRED_ACK_PREFETCH}.
+    * @throws IOException
+    */
+   public synchronized void setSharding(int channels, int prefetch) throws IOException {
+      if (channels < 1 || prefetch < 1) throw new IllegalArgumentException("Invalid sharding: " + channels + "/" + prefetch);
+      if (channels == m_channels.length && prefetch == m_prefetch) return;
+      this.close();
+      m_channels = new Channel[channels];
+      m_channelIDs = new int[channels];
+      m_prefetch = prefetch;
    }
    
    public synchronized void dispose() throws IOException {
@@ -360,9 +912,8 @@ public class BusMessageRetriever implements MessageRetriever
       MessageRelayControl.removeControlQueue(m_connector.getControlChannel(), m_relayControlQueue);
    }
    
-   protected void sendAck(long deliveryTag, int channelID) throws IOException {
-      
-      EncodedMessage ackMessage = EncodedMessage.newBuilder()
+   protected static EncodedMessage createAckMessage(long deliveryTag, int channelID) {
+      return EncodedMessage.newBuilder()
                .setEnvelope(EncodedEnvelope.newBuilder()
                   .setDeliveryTag(deliveryTag)
                   .setExchange(AckHandler.ACK_DEST)
@@ -370,16 +921,83 @@ public class BusMessageRetriever implements MessageRetriever
                   .build())
                   .setChannelID(channelID)
                .build();
+   }
+   
+   protected void sendAck(long deliveryTag, int channelID) throws IOException {
+      
+      EncodedMessage ackMessage = createAckMessage(deliveryTag, channelID);
       
+      RetrievalStream stream;
       synchronized(this) {
-         if (m_currentHandler != null && !m_terminationFlag) {
-            m_currentHandler.handle(ackMessage);
-         } else {
-            m_messageBuffer.add(ackMessage);
+         stream = this.getAckStream();
+         if (stream == null) {
+            m_expressBuffer.add(ackMessage);
+            return;
+         }
+         // An ack is a complete batch by itself, so it is not held back by the flush policy
+         stream.queue(new StreamWrite(Collections.singletonList(ackMessage), true, null));
+      }
+      stream.writePending();
+      
+   }
+
+   /**
+    * Send acknowledgments for a batch of received messages, taking the retriever lock
+    * and queuing a single write to the ack stream for the whole batch.
+    * @param messages The received messages to acknowledge.
+    * @throws IOException
+    */
+   protected void sendAcks(List<EncodedMessage> messages) throws IOException {
+      
+      List<EncodedMessage> ackMessages = new ArrayList<EncodedMessage>(messages.size());
+      for (EncodedMessage message : messages) {
+         ackMessages.add(createAckMessage(message.getEnvelope().getDeliveryTag(), message.getChannelID()));
+      }
+      
+      RetrievalStream stream;
+      synchronized(this) {
+         stream = this.getAckStream();
+         if (stream == null) {
+            m_expressBuffer.addAll(ackMessages);
+            return;
          }
+         stream.queue(new StreamWrite(ackMessages, true, null));
       }
+      stream.writePending();
       
    }
+   
+   /**
+    * Get the running stream that acks go to, which is the express lane if it is running, or
+    * else any running stream. Must be called with the retriever locked.
+    * @return The stream, or null if no retrieval is running.
+    */
+   protected RetrievalStream getAckStream() {
+      RetrievalStream express = m_streams.get(EXPRESS_STREAM);
+      if (express != null) return express;
+      return m_streams.isEmpty() ? null : m_streams.values().iterator().next();
+   }
+   
+   /**
+    * Set the queues that are carried by the express lane. The relay control queue always is.
+    * @param endpoints The names of the queues, or of forwarded exchanges whose relay queues are
+    * carried by the express lane.
+    */
+   public synchronized void setExpressQueues(Collection<String> endpoints) {
+      m_expressQueues = new HashSet<String>(endpoints);
+   }
+   
+   /**
+    * Check whether a queue is carried by the express lane.
+    * @param queue The queue name.
+    * @return True for the relay control queue and the express queues.
+    */
+   public boolean isExpressQueue(String queue) {
+      if (queue.equals(m_relayControlQueue) || m_expressQueues.contains(queue)) return true;
+      String relaySuffix = this.getRelayQueueForExchange("");
+      return queue.endsWith(relaySuffix)
+         && m_expressQueues.contains(queue.substring(0, queue.length() - relaySuffix.length()));
+   }
 
    protected synchronized void doAck(long deliveryTag, int channelID) throws IOException {
       Channel ackChannel = getChannel(channelID);
@@ -390,6 +1008,28 @@ public class BusMessageRetriever implements MessageRetriever
       }
    }
    
+   @Override
+   public synchronized void setDeferredAck(boolean deferred) throws IOException {
+      m_deferredAck = deferred;
+      for (Channel channel : m_channels) {
+         if (channel != null && channel.isOpen()) channel.basicQos(this.getPrefetch());
+      }
+   }
+   
+   @Override
+   public void acknowledge(List<EncodedMessage> messages) throws IOException {
+      for (EncodedMessage message : messages) {
+         // Only messages retrieved with a deferred ack carry a channel ID without being full ack
+         if (!message.getDoAck() && message.hasChannelID() && !AckHandler.isAckMessage(message)) {
+            this.doAck(message.getEnvelope().getDeliveryTag(), message.getChannelID());
+         }
+      }
+   }
+   
+   private int getPrefetch() {
+      return m_deferredAck ? Math.max(DEFERRED_ACK_PREFETCH, m_prefetch) : m_prefetch;
+   }
+   
    public boolean isFullAck(String queueName) {
       return m_fullAckQueues.contains(queueName);
    }
@@ -442,26 +1082,48 @@ public class BusMessageRetriever implements MessageRetriever
 
 
    protected Channel getChannel() throws IOException {
-      if (m_channel == null || !m_channel.isOpen()) {
-         if (m_channel != null && !m_channel.isOpen()) {
+      return this.getShardChannel(0);
+   }
+   
+   /**
+    * Get the retrieval channel for a shard, opening it if necessary.
+    * @param shard The shard index.
+    * @return The open channel.
+    * @throws IOException
+    */
+   protected Channel getShardChannel(int shard) throws IOException {
+      Channel channel = m_channels[shard];
+      if (channel == null || !channel.isOpen()) {
+         if (channel != null) {
             System.err.println("Message retrieval channel for client " + this.m_clientID
-               + " closed unexpectedly: " + m_channel.getCloseReason().getMessage());
+               + " closed unexpectedly: " + channel.getCloseReason().getMessage());
+         }
+         channel = m_connector.getConnection(m_clientID).createChannel();
+         m_channels[shard] = channel;
+         m_channelIDs[shard] = ++m_lastChannelID;
+         // The queues consumed on the old channel are no longer being consumed
+         for (String queue : new ArrayList<String>(m_consumingQueues)) {
+            if (this.getShard(queue) == shard) m_consumingQueues.remove(queue);
          }
-         m_channel = m_connector.getConnection().createChannel();
-         m_channelID++;
-         m_channel.basicQos(1);
+         channel.basicQos(this.getPrefetch());
       }
-      return m_channel;
-
+      return channel;
    }
    
    protected Channel getChannel(int channelID) {
-      if (m_channelID == channelID && m_channel != null && m_channel.isOpen()) return m_channel;
-      else return null;
+      for (int i = 0; i < m_channels.length; i++) {
+         if (m_channelIDs[i] == channelID && m_channels[i] != null && m_channels[i].isOpen()) return m_channels[i];
+      }
+      return null;
    }
    
-   protected int getChannelID() {
-      return m_channelID;
+   /**
+    * Get the shard that a queue is consumed on.
+    * @param queue The queue name.
+    * @return The shard index.
+    */
+   protected int getShard(String queue) {
+      return (queue.hashCode() & Integer.MAX_VALUE) % m_channels.length;
    }
 
    
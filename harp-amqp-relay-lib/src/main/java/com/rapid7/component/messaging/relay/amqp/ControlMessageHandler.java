@@ -30,7 +30,10 @@ package com.rapid7.component.messaging.relay.amqp;
 
 import java.util.Collection;
 
+import com.rapid7.component.messaging.relay.EnvelopeHandler;
 import com.rapid7.component.messaging.relay.MessageHandler;
+import com.rapid7.component.messaging.relay.encoding.LazyEncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.RelayControlMessage;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.RelayControlMessage.EndpointType;
@@ -41,9 +44,10 @@ import com.google.protobuf.InvalidProtocolBufferException;
  * them. This abstract base class simply interprets instructions from the message and invokes
  * abstract handler methods that must be overridden by concrete child classes.
  * Any other messages (not of type RelayControlMessage) are forwarded to the supplied downstream
- * MessageHandler instance.
+ * MessageHandler instance. When used as an EnvelopeHandler, only control messages are
+ * fully decoded.
  */
-public abstract class ControlMessageHandler implements MessageHandler
+public abstract class ControlMessageHandler implements MessageHandler, EnvelopeHandler
 {
    
    private boolean m_doForward;
@@ -138,10 +142,29 @@ public abstract class ControlMessageHandler implements MessageHandler
       }
    }
    
+   @Override
+   public boolean handleEnvelope(LazyEncodedMessage message) {
+      if (isControlMessage(message.getEnvelope())) {
+         // It's a RelayControlMessage, so it needs to be fully decoded.
+         try {
+            this.parseControlMessage(message.getMessage());
+         } catch (InvalidProtocolBufferException e) {
+            System.err.println("Invalid message transmitted to Relay Control queue.");
+         }
+         return m_doForward;
+      } else {
+         return true;
+      }
+   }
+   
    public static boolean isControlMessage(EncodedMessage message) {
-       if (message.getEnvelope().hasRoutingKey() 
-           && (message.getEnvelope().getExchange().equals(MessageRelayControl.RELAY_CONTROL_EXCHANGE)
-           || message.getEnvelope().getRoutingKey().startsWith(MessageRelayControl.RELAY_CONTROL_EXCHANGE)))
+       return isControlMessage(message.getEnvelope());
+   }
+   
+   public static boolean isControlMessage(EncodedEnvelope envelope) {
+       if (envelope.hasRoutingKey() 
+           && (envelope.getExchange().equals(MessageRelayControl.RELAY_CONTROL_EXCHANGE)
+           || envelope.getRoutingKey().startsWith(MessageRelayControl.RELAY_CONTROL_EXCHANGE)))
 	   return true;
        else return false;       
    }
@@ -0,0 +1,652 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay.amqp;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.BasicProperties;
+import com.rabbitmq.client.Envelope;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header;
+import com.rapid7.component.messaging.relay.encoding.ZeroCopyByteString;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A hand-written streaming codec for EncodedMessage frames. Messages are written straight from
+ * the RabbitMQ delivery (Envelope, BasicProperties and body) to the output, and read straight
+ * back into RabbitMQ types, without building any intermediate Protobuf objects. The wire format
+ * is byte-for-byte identical to the one produced by the generated MessageRelayEncoding classes
+ * for the same message, so frames written by either can be read by the other. The codec does not
+ * support frames that use a stream dictionary, message fragments or claim checks. Run main() to
+ * check the codec against the generated classes after changing either.
+ * @see com.rapid7.component.messaging.relay.encoding.StreamDictionary
+ */
+public class EncodedMessageCodec
+{
+   private static final int ENVELOPE_FIELD = EncodedMessage.ENVELOPE_FIELD_NUMBER;
+   private static final int PROPERTIES_FIELD = EncodedMessage.PROPERTIES_FIELD_NUMBER;
+   private static final int PAYLOAD_FIELD = EncodedMessage.PAYLOAD_FIELD_NUMBER;
+   private static final int DO_ACK_FIELD = EncodedMessage.DOACK_FIELD_NUMBER;
+   private static final int CHANNEL_ID_FIELD = EncodedMessage.CHANNELID_FIELD_NUMBER;
+   private static final int SEQUENCE_FIELD = EncodedMessage.SEQUENCE_FIELD_NUMBER;
+   
+   private static final int TAG_TYPE_BITS = 3;
+   private static final String DICTIONARY_ERROR = "EncodedMessageCodec does not support stream dictionary symbols.";
+   
+   /**
+    * A message decoded into RabbitMQ types, ready to be published.
+    */
+   public static class DecodedMessage {
+      private Envelope m_envelope;
+      private AMQP.BasicProperties m_properties;
+      private byte[] m_body;
+      private boolean m_doAck;
+      private boolean m_hasChannelID;
+      private int m_channelID;
+      private boolean m_hasSequence;
+      private long m_sequence;
+      
+      public Envelope getEnvelope() {
+         return m_envelope;
+      }
+      
+      /**
+       * @return The message properties, or null if the message has no properties.
+       */
+      public AMQP.BasicProperties getProperties() {
+         return m_properties;
+      }
+      
+      /**
+       * @return The message body, or null if the message has no payload.
+       */
+      public byte[] getBody() {
+         return m_body;
+      }
+      
+      public boolean getDoAck() {
+         return m_doAck;
+      }
+      
+      public boolean hasChannelID() {
+         return m_hasChannelID;
+      }
+      
+      public int getChannelID() {
+         return m_channelID;
+      }
+      
+      public boolean hasSequence() {
+         return m_hasSequence;
+      }
+      
+      public long getSequence() {
+         return m_sequence;
+      }
+   }
+   
+   /**
+    * Compute the encoded size of a message, not including the length delimiter.
+    * @param envelope The delivery envelope.
+    * @param properties The delivery properties, or null.
+    * @param body The message body, or null.
+    * @param doAck True if the message requires an end-to-end ack.
+    * @param channelID The ID of the channel to ack the message on, or -1 if the message has none.
+    * @param sequence The sequence number of the message in a resumable stream, or -1 if it has none.
+    * @return The encoded size in bytes.
+    */
+   public static int computeSize(Envelope envelope, BasicProperties properties, byte[] body,
+         boolean doAck, int channelID, long sequence) {
+      return computeSize(computeEnvelopeSize(envelope), computePropertiesSize(properties),
+         body, doAck, channelID, sequence);
+   }
+   
+   /**
+    * Write a length delimited message, as EncodedMessage.writeDelimitedTo would.
+    * @param os The stream to write the message to.
+    * @param envelope The delivery envelope.
+    * @param properties The delivery properties, or null.
+    * @param body The message body, or null.
+    * @param doAck True if the message requires an end-to-end ack.
+    * @param channelID The ID of the channel to ack the message on, or -1 if the message has none.
+    * @param sequence The sequence number of the message in a resumable stream, or -1 if it has none.
+    * @throws IOException
+    */
+   public static void writeDelimitedTo(OutputStream os, Envelope envelope, BasicProperties properties,
+         byte[] body, boolean doAck, int channelID, long sequence) throws IOException {
+      int envelopeSize = computeEnvelopeSize(envelope);
+      int propertiesSize = computePropertiesSize(properties);
+      int size = computeSize(envelopeSize, propertiesSize, body, doAck, channelID, sequence);
+      
+      // Write small messages in one go, but don't buffer large payloads twice
+      int bufferSize = CodedOutputStream.computeRawVarint32Size(size) + size;
+      if (bufferSize > 4096) bufferSize = 4096;
+      CodedOutputStream output = CodedOutputStream.newInstance(os, bufferSize);
+      output.writeRawVarint32(size);
+      writeMessage(output, envelope, envelopeSize, properties, propertiesSize, body, doAck, channelID, sequence);
+      output.flush();
+   }
+   
+   /**
+    * Write a message, without a length delimiter.
+    * @param output The output to write the message to.
+    * @param envelope The delivery envelope.
+    * @param properties The delivery properties, or null.
+    * @param body The message body, or null.
+    * @param doAck True if the message requires an end-to-end ack.
+    * @param channelID The ID of the channel to ack the message on, or -1 if the message has none.
+    * @param sequence The sequence number of the message in a resumable stream, or -1 if it has none.
+    * @throws IOException
+    */
+   public static void writeTo(CodedOutputStream output, Envelope envelope, BasicProperties properties,
+         byte[] body, boolean doAck, int channelID, long sequence) throws IOException {
+      writeMessage(output, envelope, computeEnvelopeSize(envelope), properties, 
+         computePropertiesSize(properties), body, doAck, channelID, sequence);
+   }
+   
+   /**
+    * Decode a serialized EncodedMessage straight into RabbitMQ types.
+    * @param frame The array holding the serialized message.
+    * @param offset The offset of the message within the array.
+    * @param length The length of the serialized message.
+    * @return The decoded message.
+    * @throws InvalidProtocolBufferException If the frame is not a valid EncodedMessage.
+    */
+   public static DecodedMessage decode(byte[] frame, int offset, int length) 
+         throws InvalidProtocolBufferException {
+      DecodedMessage message = new DecodedMessage();
+      CodedInputStream input = CodedInputStream.newInstance(frame, offset, length);
+      input.setSizeLimit(length);
+      try {
+         while (true) {
+            int tag = input.readTag();
+            if (tag == 0) break;
+            switch (tag) {
+               case (ENVELOPE_FIELD << TAG_TYPE_BITS) | WireFormat.WIRETYPE_LENGTH_DELIMITED : {
+                  int limit = input.pushLimit(input.readRawVarint32());
+                  message.m_envelope = readEnvelope(input);
+                  input.popLimit(limit);
+                  break;
+               }
+               case (PROPERTIES_FIELD << TAG_TYPE_BITS) | WireFormat.WIRETYPE_LENGTH_DELIMITED : {
+                  int limit = input.pushLimit(input.readRawVarint32());
+                  message.m_properties = readProperties(input);
+                  input.popLimit(limit);
+                  break;
+               }
+               case (PAYLOAD_FIELD << TAG_TYPE_BITS) | WireFormat.WIRETYPE_LENGTH_DELIMITED :
+                  message.m_body = input.readRawBytes(input.readRawVarint32());
+                  break;
+               case (DO_ACK_FIELD << TAG_TYPE_BITS) | WireFormat.WIRETYPE_VARINT :
+                  message.m_doAck = input.readBool();
+                  break;
+               case (CHANNEL_ID_FIELD << TAG_TYPE_BITS) | WireFormat.WIRETYPE_VARINT :
+                  message.m_channelID = input.readInt32();
+                  message.m_hasChannelID = true;
+                  break;
+               case (SEQUENCE_FIELD << TAG_TYPE_BITS) | WireFormat.WIRETYPE_VARINT :
+                  message.m_sequence = input.readInt64();
+                  message.m_hasSequence = true;
+                  break;
+               case (EncodedMessage.SYMBOLS_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_LENGTH_DELIMITED :
+                  throw new InvalidProtocolBufferException(DICTIONARY_ERROR);
+               case (EncodedMessage.FRAGMENT_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_LENGTH_DELIMITED :
+                  throw new InvalidProtocolBufferException("EncodedMessageCodec does not support message fragments.");
+               case (EncodedMessage.CLAIMCHECK_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_LENGTH_DELIMITED :
+                  throw new InvalidProtocolBufferException("EncodedMessageCodec does not support claim checks.");
+               default :
+                  input.skipField(tag);
+                  break;
+            }
+         }
+      } catch (InvalidProtocolBufferException e) {
+         throw e;
+      } catch (IOException e) {
+         throw new InvalidProtocolBufferException(e.getMessage());
+      }
+      if (message.m_envelope == null) {
+         throw new InvalidProtocolBufferException("EncodedMessage is missing a valid envelope.");
+      }
+      return message;
+   }
+   
+   private static Envelope readEnvelope(CodedInputStream input) throws IOException {
+      long deliveryTag = 0;
+      String exchange = null;
+      String routingKey = null;
+      boolean redeliver = false;
+      boolean hasDeliveryTag = false;
+      while (true) {
+         int tag = input.readTag();
+         if (tag == 0) break;
+         switch (tag) {
+            case (EncodedEnvelope.DELIVERYTAG_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_VARINT :
+               deliveryTag = input.readInt64();
+               hasDeliveryTag = true;
+               break;
+            case (EncodedEnvelope.EXCHANGE_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_LENGTH_DELIMITED :
+               exchange = input.readString();
+               break;
+            case (EncodedEnvelope.ROUTINGKEY_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_LENGTH_DELIMITED :
+               routingKey = input.readString();
+               break;
+            case (EncodedEnvelope.ISREDELIVER_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_VARINT :
+               redeliver = input.readBool();
+               break;
+            case (EncodedEnvelope.EXCHANGESYMBOL_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_VARINT :
+            case (EncodedEnvelope.ROUTINGKEYSYMBOL_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_VARINT :
+               throw new InvalidProtocolBufferException(DICTIONARY_ERROR);
+            default :
+               input.skipField(tag);
+               break;
+         }
+      }
+      if (!hasDeliveryTag || exchange == null || routingKey == null) {
+         throw new InvalidProtocolBufferException("EncodedEnvelope is missing required fields.");
+      }
+      return new Envelope(deliveryTag, redeliver, exchange, routingKey);
+   }
+   
+   private static AMQP.BasicProperties readProperties(CodedInputStream input) throws IOException {
+      String appId = null;
+      String contentEncoding = null;
+      String contentType = null;
+      String correlationId = null;
+      Integer deliveryMode = null;
+      String expiration = null;
+      String messageId = null;
+      Integer priority = null;
+      String replyTo = null;
+      Date timestamp = null;
+      String type = null;
+      String userId = null;
+      Map<String,Object> headers = null;
+      while (true) {
+         int tag = input.readTag();
+         if (tag == 0) break;
+         int field = tag >>> TAG_TYPE_BITS;
+         if (field == EncodedProperties.CONTENTENCODINGSYMBOL_FIELD_NUMBER 
+               || field == EncodedProperties.CONTENTTYPESYMBOL_FIELD_NUMBER) {
+            throw new InvalidProtocolBufferException(DICTIONARY_ERROR);
+         }
+         boolean isVarint = field == EncodedProperties.DELIVERYMODE_FIELD_NUMBER 
+            || field == EncodedProperties.PRIORITY_FIELD_NUMBER 
+            || field == EncodedProperties.TIMESTAMP_FIELD_NUMBER;
+         if ((tag & 0x7) != (isVarint ? WireFormat.WIRETYPE_VARINT : WireFormat.WIRETYPE_LENGTH_DELIMITED)) {
+            input.skipField(tag);
+            continue;
+         }
+         switch (field) {
+            case EncodedProperties.APPID_FIELD_NUMBER : appId = input.readString(); break;
+            case EncodedProperties.CONTENTENCODING_FIELD_NUMBER : contentEncoding = input.readString(); break;
+            case EncodedProperties.CONTENTTYPE_FIELD_NUMBER : contentType = input.readString(); break;
+            case EncodedProperties.CORRELATIONID_FIELD_NUMBER : correlationId = input.readString(); break;
+            case EncodedProperties.DELIVERYMODE_FIELD_NUMBER : deliveryMode = input.readInt32(); break;
+            case EncodedProperties.EXPIRATION_FIELD_NUMBER : expiration = input.readString(); break;
+            case EncodedProperties.MESSAGEID_FIELD_NUMBER : messageId = input.readString(); break;
+            case EncodedProperties.PRIORITY_FIELD_NUMBER : priority = input.readInt32(); break;
+            case EncodedProperties.REPLYTO_FIELD_NUMBER : replyTo = input.readString(); break;
+            case EncodedProperties.TIMESTAMP_FIELD_NUMBER : timestamp = new Date(input.readInt64()); break;
+            case EncodedProperties.TYPE_FIELD_NUMBER : type = input.readString(); break;
+            case EncodedProperties.USERID_FIELD_NUMBER : userId = input.readString(); break;
+            case EncodedProperties.HEADER_FIELD_NUMBER : {
+               if (headers == null) headers = new HashMap<String,Object>();
+               int limit = input.pushLimit(input.readRawVarint32());
+               readHeader(input, headers);
+               input.popLimit(limit);
+               break;
+            }
+            default :
+               input.skipField(tag);
+               break;
+         }
+      }
+      return new AMQP.BasicProperties(contentType, contentEncoding, headers, deliveryMode, priority,
+         correlationId, replyTo, expiration, messageId, timestamp, type, userId, appId, null);
+   }
+   
+   private static void readHeader(CodedInputStream input, Map<String,Object> headers) throws IOException {
+      String name = null;
+      String value = null;
+      while (true) {
+         int tag = input.readTag();
+         if (tag == 0) break;
+         switch (tag) {
+            case (Header.NAME_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_LENGTH_DELIMITED :
+               name = input.readString();
+               break;
+            case (Header.VALUE_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_LENGTH_DELIMITED :
+               value = input.readString();
+               break;
+            case (Header.NAMESYMBOL_FIELD_NUMBER << TAG_TYPE_BITS) | WireFormat.WIRETYPE_VARINT :
+               throw new InvalidProtocolBufferException(DICTIONARY_ERROR);
+            default :
+               input.skipField(tag);
+               break;
+         }
+      }
+      if (name == null || value == null) {
+         throw new InvalidProtocolBufferException("Header is missing required fields.");
+      }
+      headers.put(name, value);
+   }
+   
+   private static void writeMessage(CodedOutputStream output, Envelope envelope, int envelopeSize,
+         BasicProperties properties, int propertiesSize, byte[] body, boolean doAck, int channelID,
+         long sequence) throws IOException {
+      output.writeTag(ENVELOPE_FIELD, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+      output.writeRawVarint32(envelopeSize);
+      output.writeInt64(EncodedEnvelope.DELIVERYTAG_FIELD_NUMBER, envelope.getDeliveryTag());
+      writeString(output, EncodedEnvelope.EXCHANGE_FIELD_NUMBER, envelope.getExchange());
+      writeString(output, EncodedEnvelope.ROUTINGKEY_FIELD_NUMBER, envelope.getRoutingKey());
+      output.writeBool(EncodedEnvelope.ISREDELIVER_FIELD_NUMBER, envelope.isRedeliver());
+      
+      if (propertiesSize > 0) {
+         output.writeTag(PROPERTIES_FIELD, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+         output.writeRawVarint32(propertiesSize);
+         writeProperties(output, properties);
+      }
+      
+      if (body != null) {
+         output.writeTag(PAYLOAD_FIELD, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+         output.writeRawVarint32(body.length);
+         output.writeRawBytes(body);
+      }
+      
+      if (doAck) output.writeBool(DO_ACK_FIELD, true);
+      if (channelID >= 0) output.writeInt32(CHANNEL_ID_FIELD, channelID);
+      if (sequence >= 0) output.writeInt64(SEQUENCE_FIELD, sequence);
+   }
+   
+   private static void writeProperties(CodedOutputStream output, BasicProperties properties) 
+         throws IOException {
+      writeString(output, EncodedProperties.APPID_FIELD_NUMBER, properties.getAppId());
+      writeString(output, EncodedProperties.CONTENTENCODING_FIELD_NUMBER, properties.getContentEncoding());
+      writeString(output, EncodedProperties.CONTENTTYPE_FIELD_NUMBER, properties.getContentType());
+      writeString(output, EncodedProperties.CORRELATIONID_FIELD_NUMBER, properties.getCorrelationId());
+      Integer deliveryMode = properties.getDeliveryMode();
+      if (deliveryMode != null) output.writeInt32(EncodedProperties.DELIVERYMODE_FIELD_NUMBER, deliveryMode);
+      writeString(output, EncodedProperties.EXPIRATION_FIELD_NUMBER, properties.getExpiration());
+      writeString(output, EncodedProperties.MESSAGEID_FIELD_NUMBER, properties.getMessageId());
+      Integer priority = properties.getPriority();
+      if (priority != null) output.writeInt32(EncodedProperties.PRIORITY_FIELD_NUMBER, priority);
+      writeString(output, EncodedProperties.REPLYTO_FIELD_NUMBER, properties.getReplyTo());
+      Date timestamp = properties.getTimestamp();
+      if (timestamp != null) output.writeInt64(EncodedProperties.TIMESTAMP_FIELD_NUMBER, timestamp.getTime());
+      writeString(output, EncodedProperties.TYPE_FIELD_NUMBER, properties.getType());
+      writeString(output, EncodedProperties.USERID_FIELD_NUMBER, properties.getUserId());
+      Map<String,Object> headers = properties.getHeaders();
+      if (headers != null) {
+         for (Map.Entry<String,Object> header : headers.entrySet()) {
+            String value = headerValue(header.getValue());
+            output.writeTag(EncodedProperties.HEADER_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeRawVarint32(computeHeaderSize(header.getKey(), value));
+            writeString(output, Header.NAME_FIELD_NUMBER, header.getKey());
+            writeString(output, Header.VALUE_FIELD_NUMBER, value);
+         }
+      }
+   }
+   
+   private static int computeSize(int envelopeSize, int propertiesSize, byte[] body, 
+         boolean doAck, int channelID, long sequence) {
+      int size = CodedOutputStream.computeTagSize(ENVELOPE_FIELD) 
+         + CodedOutputStream.computeRawVarint32Size(envelopeSize) + envelopeSize;
+      if (propertiesSize > 0) {
+         size += CodedOutputStream.computeTagSize(PROPERTIES_FIELD) 
+            + CodedOutputStream.computeRawVarint32Size(propertiesSize) + propertiesSize;
+      }
+      if (body != null) {
+         size += CodedOutputStream.computeTagSize(PAYLOAD_FIELD)
+            + CodedOutputStream.computeRawVarint32Size(body.length) + body.length;
+      }
+      if (doAck) size += CodedOutputStream.computeBoolSize(DO_ACK_FIELD, true);
+      if (channelID >= 0) size += CodedOutputStream.computeInt32Size(CHANNEL_ID_FIELD, channelID);
+      if (sequence >= 0) size += CodedOutputStream.computeInt64Size(SEQUENCE_FIELD, sequence);
+      return size;
+   }
+   
+   private static int computeEnvelopeSize(Envelope envelope) {
+      return CodedOutputStream.computeInt64Size(EncodedEnvelope.DELIVERYTAG_FIELD_NUMBER, envelope.getDeliveryTag())
+         + computeStringSize(EncodedEnvelope.EXCHANGE_FIELD_NUMBER, envelope.getExchange())
+         + computeStringSize(EncodedEnvelope.ROUTINGKEY_FIELD_NUMBER, envelope.getRoutingKey())
+         + CodedOutputStream.computeBoolSize(EncodedEnvelope.ISREDELIVER_FIELD_NUMBER, envelope.isRedeliver());
+   }
+   
+   private static int computePropertiesSize(BasicProperties properties) {
+      if (properties == null) return 0;
+      int size = computeStringSize(EncodedProperties.APPID_FIELD_NUMBER, properties.getAppId())
+         + computeStringSize(EncodedProperties.CONTENTENCODING_FIELD_NUMBER, properties.getContentEncoding())
+         + computeStringSize(EncodedProperties.CONTENTTYPE_FIELD_NUMBER, properties.getContentType())
+         + computeStringSize(EncodedProperties.CORRELATIONID_FIELD_NUMBER, properties.getCorrelationId())
+         + computeStringSize(EncodedProperties.EXPIRATION_FIELD_NUMBER, properties.getExpiration())
+         + computeStringSize(EncodedProperties.MESSAGEID_FIELD_NUMBER, properties.getMessageId())
+         + computeStringSize(EncodedProperties.REPLYTO_FIELD_NUMBER, properties.getReplyTo())
+         + computeStringSize(EncodedProperties.TYPE_FIELD_NUMBER, properties.getType())
+         + computeStringSize(EncodedProperties.USERID_FIELD_NUMBER, properties.getUserId());
+      Integer deliveryMode = properties.getDeliveryMode();
+      if (deliveryMode != null) size += CodedOutputStream.computeInt32Size(EncodedProperties.DELIVERYMODE_FIELD_NUMBER, deliveryMode);
+      Integer priority = properties.getPriority();
+      if (priority != null) size += CodedOutputStream.computeInt32Size(EncodedProperties.PRIORITY_FIELD_NUMBER, priority);
+      Date timestamp = properties.getTimestamp();
+      if (timestamp != null) size += CodedOutputStream.computeInt64Size(EncodedProperties.TIMESTAMP_FIELD_NUMBER, timestamp.getTime());
+      Map<String,Object> headers = properties.getHeaders();
+      if (headers != null) {
+         for (Map.Entry<String,Object> header : headers.entrySet()) {
+            int headerSize = computeHeaderSize(header.getKey(), headerValue(header.getValue()));
+            size += CodedOutputStream.computeTagSize(EncodedProperties.HEADER_FIELD_NUMBER)
+               + CodedOutputStream.computeRawVarint32Size(headerSize) + headerSize;
+         }
+      }
+      return size;
+   }
+   
+   private static int computeHeaderSize(String name, String value) {
+      return computeStringSize(Header.NAME_FIELD_NUMBER, name) + computeStringSize(Header.VALUE_FIELD_NUMBER, value);
+   }
+   
+   private static String headerValue(Object value) {
+      return (value instanceof String) ? (String)value : String.valueOf(value);
+   }
+   
+   private static int computeStringSize(int fieldNumber, String value) {
+      if (value == null) return 0;
+      int length = utf8Length(value);
+      return CodedOutputStream.computeTagSize(fieldNumber) 
+         + CodedOutputStream.computeRawVarint32Size(length) + length;
+   }
+   
+   /**
+    * Write a string field, encoding it as UTF-8 directly into the output rather than through
+    * an intermediate byte array. Unpaired surrogates are written as '?', as String.getBytes does.
+    */
+   private static void writeString(CodedOutputStream output, int fieldNumber, String value) 
+         throws IOException {
+      if (value == null) return;
+      output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+      int length = value.length();
+      output.writeRawVarint32(utf8Length(value));
+      for (int i = 0; i < length; i++) {
+         char c = value.charAt(i);
+         if (c < 0x80) {
+            output.writeRawByte(c);
+         } else if (c < 0x800) {
+            output.writeRawByte(0xc0 | (c >> 6));
+            output.writeRawByte(0x80 | (c & 0x3f));
+         } else if (Character.isSurrogate(c)) {
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+               int codePoint = Character.toCodePoint(c, value.charAt(++i));
+               output.writeRawByte(0xf0 | (codePoint >> 18));
+               output.writeRawByte(0x80 | ((codePoint >> 12) & 0x3f));
+               output.writeRawByte(0x80 | ((codePoint >> 6) & 0x3f));
+               output.writeRawByte(0x80 | (codePoint & 0x3f));
+            } else {
+               output.writeRawByte('?');
+            }
+         } else {
+            output.writeRawByte(0xe0 | (c >> 12));
+            output.writeRawByte(0x80 | ((c >> 6) & 0x3f));
+            output.writeRawByte(0x80 | (c & 0x3f));
+         }
+      }
+   }
+   
+   private static int utf8Length(String value) {
+      int length = value.length();
+      int utf8Length = length;
+      for (int i = 0; i < length; i++) {
+         char c = value.charAt(i);
+         if (c < 0x80) continue;
+         if (c < 0x800) {
+            utf8Length += 1;
+         } else if (Character.isSurrogate(c)) {
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+               // A surrogate pair is two chars and four bytes
+               utf8Length += 2;
+               i++;
+            }
+         } else {
+            utf8Length += 2;
+         }
+      }
+      return utf8Length;
+   }
+   
+   /**
+    * A compatibility check against the generated MessageRelayEncoding classes. Each sample delivery
+    * must be written as the same bytes as the retriever's generated encoding of it, and decoding
+    * those bytes must give the same values as parsing them with the generated classes. Exits with
+    * a non-zero status if any sample does not match.
+    */
+   public static void main(String[] args) {
+      Map<String,Object> headers = new HashMap<String,Object>();
+      headers.put("name", "value");
+      headers.put("count", 42);
+      headers.put("unicode", "caf\u00e9 \u20ac \ud83d\ude00 \ud83d");
+      AMQP.BasicProperties full = new AMQP.BasicProperties.Builder().appId("app").contentEncoding("gzip")
+         .contentType("application/x-protobuf").correlationId("correlation").deliveryMode(2)
+         .expiration("60000").messageId("message-1").priority(9).replyTo("reply")
+         .timestamp(new Date(1380000000000L)).type("type").userId("guest").headers(headers).build();
+      AMQP.BasicProperties empty = new AMQP.BasicProperties.Builder()
+         .headers(Collections.<String,Object>emptyMap()).build();
+      byte[] large = new byte[10000];
+      for (int i = 0; i < large.length; i++) large[i] = (byte)i;
+      
+      boolean ok = true;
+      ok &= check(new Envelope(1, false, "", "queue"), null, "hello".getBytes(), false, -1, -1);
+      ok &= check(new Envelope(Long.MAX_VALUE, true, "exchange", "key.\u00fc\ud800"), full, large, true, 3, 123456789012L);
+      ok &= check(new Envelope(7, true, "exchange", "key"), empty, new byte[0], false, 7, 0);
+      ok &= check(new Envelope(0, false, "", ""), full, null, false, -1, 5);
+      System.out.println(ok ? "EncodedMessageCodec is compatible with the generated classes." 
+         : "EncodedMessageCodec is NOT compatible with the generated classes.");
+      if (!ok) System.exit(1);
+   }
+   
+   private static boolean check(Envelope envelope, AMQP.BasicProperties properties, byte[] body,
+         boolean doAck, int channelID, long sequence) {
+      String name = envelope.getExchange() + "/" + envelope.getRoutingKey() + "#" + envelope.getDeliveryTag();
+      try {
+         // Encode the delivery the way the retriever does
+         EncodedMessage.Builder builder = EncodedMessage.newBuilder().setEnvelope(EncodedEnvelope.newBuilder()
+            .setDeliveryTag(envelope.getDeliveryTag())
+            .setExchange(envelope.getExchange())
+            .setRoutingKey(envelope.getRoutingKey())
+            .setIsRedeliver(envelope.isRedeliver()));
+         if (properties != null) {
+            EncodedProperties encodedProperties = MessagePropertiesTranscoder.encode(properties);
+            if (!MessagePropertiesTranscoder.isEmpty(encodedProperties)) builder.setProperties(encodedProperties);
+         }
+         if (body != null) builder.setPayload(ZeroCopyByteString.wrap(body));
+         if (doAck) builder.setDoAck(true);
+         if (channelID >= 0) builder.setChannelID(channelID);
+         if (sequence >= 0) builder.setSequence(sequence);
+         EncodedMessage generated = builder.build();
+         
+         ByteArrayOutputStream expected = new ByteArrayOutputStream();
+         generated.writeDelimitedTo(expected);
+         ByteArrayOutputStream actual = new ByteArrayOutputStream();
+         writeDelimitedTo(actual, envelope, properties, body, doAck, channelID, sequence);
+         if (!Arrays.equals(expected.toByteArray(), actual.toByteArray())) {
+            System.err.println(name + ": encoding differs from the generated encoding.");
+            return false;
+         }
+         if (computeSize(envelope, properties, body, doAck, channelID, sequence) != generated.getSerializedSize()) {
+            System.err.println(name + ": computed size differs from the generated size.");
+            return false;
+         }
+         
+         byte[] frame = generated.toByteArray();
+         EncodedMessage parsed = EncodedMessage.parseFrom(frame);
+         DecodedMessage decoded = decode(frame, 0, frame.length);
+         EncodedEnvelope parsedEnvelope = parsed.getEnvelope();
+         boolean same = decoded.getEnvelope().getDeliveryTag() == parsedEnvelope.getDeliveryTag()
+            && decoded.getEnvelope().getExchange().equals(parsedEnvelope.getExchange())
+            && decoded.getEnvelope().getRoutingKey().equals(parsedEnvelope.getRoutingKey())
+            && decoded.getEnvelope().isRedeliver() == parsedEnvelope.getIsRedeliver()
+            && sameProperties(decoded.getProperties(), 
+               parsed.hasProperties() ? MessagePropertiesTranscoder.decode(parsed.getProperties()) : null)
+            && Arrays.equals(decoded.getBody(), parsed.hasPayload() ? parsed.getPayload().toByteArray() : null)
+            && decoded.getDoAck() == parsed.getDoAck()
+            && decoded.hasChannelID() == parsed.hasChannelID() && decoded.getChannelID() == parsed.getChannelID()
+            && decoded.hasSequence() == parsed.hasSequence() && decoded.getSequence() == parsed.getSequence();
+         if (!same) System.err.println(name + ": decoded message differs from the generated decoding.");
+         return same;
+      } catch (IOException e) {
+         System.err.println(name + ": " + e.getMessage());
+         return false;
+      }
+   }
+   
+   private static boolean sameProperties(BasicProperties a, BasicProperties b) {
+      if (a == null || b == null) return a == b;
+      return same(a.getAppId(), b.getAppId()) && same(a.getContentEncoding(), b.getContentEncoding())
+         && same(a.getContentType(), b.getContentType()) && same(a.getCorrelationId(), b.getCorrelationId())
+         && same(a.getDeliveryMode(), b.getDeliveryMode()) && same(a.getExpiration(), b.getExpiration())
+         && same(a.getMessageId(), b.getMessageId()) && same(a.getPriority(), b.getPriority())
+         && same(a.getReplyTo(), b.getReplyTo()) && same(a.getTimestamp(), b.getTimestamp())
+         && same(a.getType(), b.getType()) && same(a.getUserId(), b.getUserId())
+         && same(a.getHeaders(), b.getHeaders());
+   }
+   
+   private static boolean same(Object a, Object b) {
+      return (a == null) ? b == null : a.equals(b);
+   }
+
+}
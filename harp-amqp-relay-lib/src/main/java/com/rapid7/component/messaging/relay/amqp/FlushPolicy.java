@@ -0,0 +1,186 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay.amqp;
+
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decides when an OutputStreamHandler should flush buffered message data to its underlying stream.
+ * Flushing after every message gives the lowest latency, but on chunked HTTP(S) streams each flush
+ * costs a separate chunk and TCP segment. Coalescing flushes trades a little latency for full size
+ * writes. A set of standard policies is available through the static factory methods.
+ * @see OutputStreamHandler
+ */
+public abstract class FlushPolicy
+{
+   
+   /**
+    * Decide whether buffered data should be flushed after a message has been written.
+    * @param message The message that has just been written.
+    * @param pendingBytes The number of bytes written since the last flush, including this message.
+    * @param endOfBatch True if the message completes a batch, meaning the retriever has no
+    * further messages queued up for immediate delivery.
+    * @return True if the handler should flush now.
+    */
+   public abstract boolean shouldFlush(EncodedMessage message, int pendingBytes, boolean endOfBatch);
+   
+   /**
+    * Get the maximum time that written data may stay buffered before it is flushed.
+    * @return The linger time in ms, or 0 if data is only flushed when shouldFlush() says so.
+    */
+   public long getLingerTime() {
+      return 0;
+   }
+   
+   /**
+    * Get a policy that flushes after every message (the default behavior).
+    * @return The FlushPolicy.
+    */
+   public static FlushPolicy immediate() {
+      return IMMEDIATE;
+   }
+   
+   /**
+    * Get a policy that flushes once a number of bytes have been buffered.
+    * @param threshold The number of pending bytes that triggers a flush.
+    * @return The FlushPolicy.
+    */
+   public static FlushPolicy afterBytes(final int threshold) {
+      return new FlushPolicy() {
+         @Override
+         public boolean shouldFlush(EncodedMessage message, int pendingBytes, boolean endOfBatch) {
+            return pendingBytes >= threshold;
+         }
+      };
+   }
+   
+   /**
+    * Get a policy that only flushes once the oldest buffered data has waited for the linger time.
+    * @param lingerTime The maximum time, in ms, to buffer data.
+    * @return The FlushPolicy.
+    */
+   public static FlushPolicy afterLinger(final long lingerTime) {
+      return new FlushPolicy() {
+         @Override
+         public boolean shouldFlush(EncodedMessage message, int pendingBytes, boolean endOfBatch) {
+            return false;
+         }
+         
+         @Override
+         public long getLingerTime() {
+            return lingerTime;
+         }
+      };
+   }
+   
+   /**
+    * Get a policy that flushes whenever the retriever has drained its queued messages, i.e. at the
+    * end of every batch. The BusMessageRetriever ends a batch whenever a stream's write queue runs
+    * empty, so a delivery that nothing else is queued behind is flushed straight away. Messages that
+    * other callers hand to the handler one at a time do not end a batch.
+    * @return The FlushPolicy.
+    */
+   public static FlushPolicy onDrain() {
+      return ON_DRAIN;
+   }
+   
+   /**
+    * Get a policy that flushes when any of the supplied policies would flush. The linger time is
+    * the shortest linger time of the supplied policies.
+    * @param policies The policies to combine.
+    * @return The FlushPolicy.
+    */
+   public static FlushPolicy any(final FlushPolicy... policies) {
+      long lingerTime = 0;
+      for (FlushPolicy policy : policies) {
+         long linger = policy.getLingerTime();
+         if (linger > 0 && (lingerTime == 0 || linger < lingerTime)) lingerTime = linger;
+      }
+      final long anyLingerTime = lingerTime;
+      return new FlushPolicy() {
+         @Override
+         public boolean shouldFlush(EncodedMessage message, int pendingBytes, boolean endOfBatch) {
+            for (FlushPolicy policy : policies) {
+               if (policy.shouldFlush(message, pendingBytes, endOfBatch)) return true;
+            }
+            return false;
+         }
+         
+         @Override
+         public long getLingerTime() {
+            return anyLingerTime;
+         }
+      };
+   }
+   
+   /**
+    * Get a policy that flushes immediately after relay control messages, acks, and messages for the
+    * specified latency sensitive endpoints, and uses the supplied bulk policy for everything else.
+    * @param endpoints The names of the latency sensitive queues and exchanges.
+    * @param bulkPolicy The policy used for all other messages.
+    * @return The FlushPolicy.
+    */
+   public static FlushPolicy latencySensitive(Collection<String> endpoints, final FlushPolicy bulkPolicy) {
+      final Set<String> endpointSet = new HashSet<String>(endpoints);
+      return new FlushPolicy() {
+         @Override
+         public boolean shouldFlush(EncodedMessage message, int pendingBytes, boolean endOfBatch) {
+            if (AckHandler.isAckMessage(message) || ControlMessageHandler.isControlMessage(message)
+                || endpointSet.contains(message.getEnvelope().getExchange())
+                || endpointSet.contains(message.getEnvelope().getRoutingKey())) {
+               return true;
+            }
+            return bulkPolicy.shouldFlush(message, pendingBytes, endOfBatch);
+         }
+         
+         @Override
+         public long getLingerTime() {
+            return bulkPolicy.getLingerTime();
+         }
+      };
+   }
+   
+   private static final FlushPolicy IMMEDIATE = new FlushPolicy() {
+      @Override
+      public boolean shouldFlush(EncodedMessage message, int pendingBytes, boolean endOfBatch) {
+         return true;
+      }
+   };
+   
+   private static final FlushPolicy ON_DRAIN = new FlushPolicy() {
+      @Override
+      public boolean shouldFlush(EncodedMessage message, int pendingBytes, boolean endOfBatch) {
+         return endOfBatch;
+      }
+   };
+
+}
@@ -32,42 +32,81 @@ import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Encode
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.BasicProperties;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * A utility class to encode/decode AMQP message properties as Protobuf.
+ * A utility class to encode/decode AMQP message properties as Protobuf. Properties are
+ * streamed straight into the target builder, messages without any properties share a
+ * single empty encoding, and frequently repeated strings (header names, content types and
+ * encodings) are interned on decode so that decoded messages share a single copy of them.
+ * Consecutive decodes with the same timestamp or the same headers also share the last decoded
+ * Date and (read-only) header map, so decoded properties must not be modified.
  */
 public class MessagePropertiesTranscoder
 {
    
-   public static EncodedProperties encode(BasicProperties properties) {
+   private static final int MAX_INTERNED_STRINGS = 1024;
+   private static ConcurrentHashMap<String,String> sm_internedStrings = new ConcurrentHashMap<String,String>();
+   private static volatile DecodedHeaders sm_lastHeaders = null;
+   private static volatile Date sm_lastTimestamp = null;
+   
+   private static class DecodedHeaders {
+      private final List<Header> m_encoded;
+      private final Map<String,Object> m_decoded;
       
-      Set<Header> headers = new HashSet<Header>();
-      if (properties.getHeaders() != null) {
-         for (String headerName : properties.getHeaders().keySet()) {
-            headers.add(Header.newBuilder().setName(headerName)
-               .setValue(properties.getHeaders().get(headerName).toString()).build());
-         }
+      private DecodedHeaders(List<Header> encoded, Map<String,Object> decoded) {
+         m_encoded = encoded;
+         m_decoded = decoded;
       }
+   }
+   
+   public static EncodedProperties encode(BasicProperties properties) {
+      
+      Map<String,Object> headers = properties.getHeaders();
+      boolean hasHeaders = headers != null && !headers.isEmpty();
+      if (!hasHeaders && isEmpty(properties)) return EncodedProperties.getDefaultInstance();
       
       EncodedProperties.Builder propertiesBuilder = EncodedProperties.newBuilder();
-      if (properties.getAppId() != null) propertiesBuilder.setAppID(properties.getAppId());
-      if (properties.getContentEncoding() != null) propertiesBuilder.setContentEncoding(properties.getContentEncoding());
-      if (properties.getContentType() != null) propertiesBuilder.setContentType(properties.getContentType());
-      if (properties.getCorrelationId() != null) propertiesBuilder.setCorrelationId(properties.getCorrelationId());
-      if (properties.getDeliveryMode() != null) propertiesBuilder.setDeliveryMode(properties.getDeliveryMode());
-      if (properties.getExpiration() != null) propertiesBuilder.setExpiration(properties.getExpiration());
-      if (properties.getMessageId() != null) propertiesBuilder.setMessageID(properties.getMessageId());
-      if (properties.getPriority() != null) propertiesBuilder.setPriority(properties.getPriority());
-      if (properties.getReplyTo() != null) propertiesBuilder.setReplyTo(properties.getReplyTo());
-      if (properties.getTimestamp() != null) propertiesBuilder.setTimestamp(properties.getTimestamp().getTime());
-      if (properties.getType() != null) propertiesBuilder.setType(properties.getType());
-      if (properties.getUserId() != null) propertiesBuilder.setUserId(properties.getUserId());
-      if (headers.size() > 0) propertiesBuilder.addAllHeader(headers);
+      String appId = properties.getAppId();
+      if (appId != null) propertiesBuilder.setAppID(appId);
+      String contentEncoding = properties.getContentEncoding();
+      if (contentEncoding != null) propertiesBuilder.setContentEncoding(contentEncoding);
+      String contentType = properties.getContentType();
+      if (contentType != null) propertiesBuilder.setContentType(contentType);
+      String correlationId = properties.getCorrelationId();
+      if (correlationId != null) propertiesBuilder.setCorrelationId(correlationId);
+      Integer deliveryMode = properties.getDeliveryMode();
+      if (deliveryMode != null) propertiesBuilder.setDeliveryMode(deliveryMode);
+      String expiration = properties.getExpiration();
+      if (expiration != null) propertiesBuilder.setExpiration(expiration);
+      String messageId = properties.getMessageId();
+      if (messageId != null) propertiesBuilder.setMessageID(messageId);
+      Integer priority = properties.getPriority();
+      if (priority != null) propertiesBuilder.setPriority(priority);
+      String replyTo = properties.getReplyTo();
+      if (replyTo != null) propertiesBuilder.setReplyTo(replyTo);
+      Date timestamp = properties.getTimestamp();
+      if (timestamp != null) propertiesBuilder.setTimestamp(timestamp.getTime());
+      String type = properties.getType();
+      if (type != null) propertiesBuilder.setType(type);
+      String userId = properties.getUserId();
+      if (userId != null) propertiesBuilder.setUserId(userId);
+      if (hasHeaders) {
+         // Header names are unique map keys, so they can be added directly
+         Header.Builder headerBuilder = Header.newBuilder();
+         for (Map.Entry<String,Object> header : headers.entrySet()) {
+            Object value = header.getValue();
+            propertiesBuilder.addHeader(headerBuilder
+               .setName(header.getKey())
+               .setValue((value instanceof String) ? (String)value : String.valueOf(value))
+               .build());
+         }
+      }
       
       return propertiesBuilder.build();
 
@@ -78,28 +117,102 @@ public class MessagePropertiesTranscoder
       AMQP.BasicProperties.Builder builder = new AMQP.BasicProperties.Builder();
       
       if (properties.hasAppID()) builder.appId(properties.getAppID());
-      if (properties.hasContentEncoding()) builder.contentEncoding(properties.getContentEncoding());
-      if (properties.hasContentType()) builder.contentType(properties.getContentType());
+      if (properties.hasContentEncoding()) builder.contentEncoding(intern(properties.getContentEncoding()));
+      if (properties.hasContentType()) builder.contentType(intern(properties.getContentType()));
       if (properties.hasCorrelationId()) builder.correlationId(properties.getCorrelationId());
       if (properties.hasDeliveryMode()) builder.deliveryMode(properties.getDeliveryMode());
       if (properties.hasExpiration()) builder.expiration(properties.getExpiration());
       if (properties.hasMessageID()) builder.messageId(properties.getMessageID());
       if (properties.hasPriority()) builder.priority(properties.getPriority());
       if (properties.hasReplyTo()) builder.replyTo(properties.getReplyTo());
-      if (properties.hasTimestamp()) builder.timestamp(new Date(properties.getTimestamp()));
+      if (properties.hasTimestamp()) builder.timestamp(decodeTimestamp(properties.getTimestamp()));
       if (properties.hasType()) builder.type(properties.getType());
       if (properties.hasUserId()) builder.userId(properties.getUserId());
-      if (properties.getHeaderCount() > 0) {
-         Map<String,Object> headerMap = new HashMap<String,Object>();
-         for (Header h : properties.getHeaderList()) {
-            headerMap.put(h.getName(), h.getValue());
-         }
-         builder.headers(headerMap);
-      }
+      if (properties.getHeaderCount() > 0) builder.headers(decodeHeaders(properties.getHeaderList()));
       
       return builder.build();
       
       
    }
+   
+   /**
+    * Get the Date for a timestamp, reusing the last one when the timestamp has not changed.
+    */
+   private static Date decodeTimestamp(long timestamp) {
+      Date last = sm_lastTimestamp;
+      if (last != null && last.getTime() == timestamp) return last;
+      last = new Date(timestamp);
+      sm_lastTimestamp = last;
+      return last;
+   }
+   
+   /**
+    * Get the header map for a list of encoded headers, reusing the last map when the
+    * headers have not changed.
+    */
+   private static Map<String,Object> decodeHeaders(List<Header> headers) {
+      DecodedHeaders last = sm_lastHeaders;
+      if (last != null && sameHeaders(last.m_encoded, headers)) return last.m_decoded;
+      
+      int headerCount = headers.size();
+      // Size the map up front so it never needs to be rehashed
+      Map<String,Object> headerMap = new HashMap<String,Object>((headerCount * 4 / 3) + 1);
+      for (int i = 0; i < headerCount; i++) {
+         Header h = headers.get(i);
+         headerMap.put(intern(h.getName()), h.getValue());
+      }
+      headerMap = Collections.unmodifiableMap(headerMap);
+      sm_lastHeaders = new DecodedHeaders(headers, headerMap);
+      return headerMap;
+   }
+   
+   /**
+    * Compare two header lists field by field (Protobuf's own equals() builds a field map
+    * for every comparison).
+    */
+   private static boolean sameHeaders(List<Header> a, List<Header> b) {
+      if (a == b) return true;
+      int count = a.size();
+      if (count != b.size()) return false;
+      for (int i = 0; i < count; i++) {
+         Header x = a.get(i);
+         Header y = b.get(i);
+         if (x != y && !(x.getName().equals(y.getName()) && x.getValue().equals(y.getValue()))) return false;
+      }
+      return true;
+   }
+   
+   /**
+    * Check whether encoded properties carry any values at all. Messages with empty properties
+    * can be published without decoding them.
+    * @param properties The encoded properties.
+    * @return True if no property has been set.
+    */
+   public static boolean isEmpty(EncodedProperties properties) {
+      return properties == EncodedProperties.getDefaultInstance() || properties.getSerializedSize() == 0;
+   }
+   
+   private static boolean isEmpty(BasicProperties properties) {
+      return properties.getAppId() == null && properties.getContentEncoding() == null
+          && properties.getContentType() == null && properties.getCorrelationId() == null
+          && properties.getDeliveryMode() == null && properties.getExpiration() == null
+          && properties.getMessageId() == null && properties.getPriority() == null
+          && properties.getReplyTo() == null && properties.getTimestamp() == null
+          && properties.getType() == null && properties.getUserId() == null;
+   }
+   
+   /**
+    * Get a shared copy of a frequently repeated string. Once the intern table is full, unknown
+    * strings are returned as they are.
+    */
+   private static String intern(String value) {
+      String interned = sm_internedStrings.get(value);
+      if (interned != null) return interned;
+      if (sm_internedStrings.size() < MAX_INTERNED_STRINGS) {
+         interned = sm_internedStrings.putIfAbsent(value, value);
+         if (interned != null) return interned;
+      }
+      return value;
+   }
 
 }
@@ -28,18 +28,27 @@
 
 package com.rapid7.component.messaging.relay.amqp;
 
+import com.rapid7.component.messaging.relay.BatchMessageHandler;
+import com.rapid7.component.messaging.relay.DuplicateIndex;
 import com.rapid7.component.messaging.relay.MessageHandler;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * A MessageHandler implementation that republishes Protobuf encoded messages
- * on to the specified AMQP message bus.
+ * on to the specified AMQP message bus. When handling a batch, the acknowledgments
+ * for all of the republished messages are sent back together.
  */
-public class MessageRepublisher implements MessageHandler
+public class MessageRepublisher implements MessageHandler, BatchMessageHandler
 {
    private BusConnector m_bus;
    private BusMessageRetriever m_ack;
+   private DuplicateIndex m_duplicates = null;
    
    /**
     * Create a MessageRepublisher instance.
@@ -61,11 +70,26 @@ public class MessageRepublisher implements MessageHandler
       m_ack = ack;
    }
    
+   /**
+    * Set an index used to drop messages that have already been republished. Dropped
+    * messages are still acknowledged, so the sending side stops redelivering them.
+    * @param index The DuplicateIndex, or null to republish every message.
+    */
+   public void setDuplicateIndex(DuplicateIndex index) {
+      m_duplicates = index;
+   }
+   
    @Override
    public boolean handle(EncodedMessage message) {
       try {
-         // Get the TranscodingPublisher from the connection instance and publish the message.
-         m_bus.getPublisher().publish(message);
+         if (m_duplicates != null && m_duplicates.isDuplicate(message)) {
+            System.err.println("Dropping duplicate message with delivery tag " + 
+                  message.getEnvelope().getDeliveryTag());
+         } else {
+            // Get the TranscodingPublisher from the connection instance and publish the message.
+            m_bus.getPublisher().publish(message);
+            if (m_duplicates != null) m_duplicates.record(Collections.singletonList(message));
+         }
          if (m_ack != null) {
             // Handle ack
             if (message.getDoAck()) {
@@ -79,5 +103,42 @@ public class MessageRepublisher implements MessageHandler
       return true;
    }
 
+   @Override
+   public List<EncodedMessage> handleBatch(List<EncodedMessage> messages) {
+      List<EncodedMessage> published = new ArrayList<EncodedMessage>(messages.size());
+      List<EncodedMessage> acks = new ArrayList<EncodedMessage>(messages.size());
+      // The batch is only recorded in the index once it has been published, so copies of a
+      // message within the batch itself are caught by the keys published so far
+      Set<String> publishedKeys = (m_duplicates != null) ? new HashSet<String>() : null;
+      for (EncodedMessage message : messages) {
+         try {
+            String key = (m_duplicates != null) ? DuplicateIndex.getKey(message) : null;
+            if (key != null && (publishedKeys.contains(key) || m_duplicates.isDuplicate(message))) {
+               System.err.println("Dropping duplicate message with delivery tag " + 
+                     message.getEnvelope().getDeliveryTag());
+            } else {
+               m_bus.getPublisher().publish(message);
+               published.add(message);
+               if (key != null) publishedKeys.add(key);
+            }
+            // Only ack the messages that made it on to the bus, or already had
+            if (m_ack != null && message.getDoAck()) acks.add(message);
+         } catch (IOException e) {
+            System.err.println("Error while republishing message:");
+            e.printStackTrace();
+         }
+      }
+      if (m_duplicates != null && published.size() > 0) m_duplicates.record(published);
+      if (acks.size() > 0) {
+         try {
+            m_ack.sendAcks(acks);
+         } catch (IOException e) {
+            System.err.println("Error while acknowledging republished messages:");
+            e.printStackTrace();
+         }
+      }
+      return messages;
+   }
+
 
 }
@@ -28,32 +28,524 @@
 
 package com.rapid7.component.messaging.relay.amqp;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.rapid7.component.messaging.relay.BatchMessageHandler;
+import com.rapid7.component.messaging.relay.ClaimCheckStore;
+import com.rapid7.component.messaging.relay.EndableHandler;
 import com.rapid7.component.messaging.relay.MessageHandler;
+import com.rapid7.component.messaging.relay.RetransmitBuffer;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment;
+import com.rapid7.component.messaging.relay.encoding.StreamDictionary;
+import com.rapid7.component.messaging.relay.encoding.ZeroCopyByteString;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * A simple handler that writes messages to a supplied OutputStream
+ * A simple handler that writes messages to a supplied OutputStream. By default every message
+ * is flushed as soon as it has been written. Alternatively a FlushPolicy can be supplied, in which
+ * case messages are buffered and flushed according to that policy, so bulk traffic can be sent
+ * as full size writes. Handlers with a buffering policy must be flushed by their owner once the
+ * last message has been written.<P>
+ * If a fragment size is set, messages with larger payloads are split into fragments which are
+ * written by a background writer, one fragment at a time, so other messages can be written in
+ * between. Messages for the same destination as a message that is still being fragmented are
+ * queued behind it, so per destination ordering is preserved. Flushing the handler writes any
+ * remaining fragments first.<P>
+ * If a claim check store is set, the payloads of messages above the claim check size are checked
+ * into the store and the messages are written with a claim check in their place.<P>
+ * A handler that resumes a stream from a retransmit buffer writes the unconfirmed messages from the
+ * buffer first, then gives every message it handles a sequence number and keeps it in the buffer.
+ * If the buffer fills up, the handler ends the stream by closing the underlying OutputStream, and
+ * reports itself ended so retrievals stop passing it messages. Any messages it is still passed are
+ * kept in the buffer without being written, so the receiving side gets them once it has confirmed
+ * what it received and resumes the stream.<P>
+ * If a heartbeat interval is set, an empty frame is written and flushed whenever nothing else has
+ * been written for that long, so idle long-polls are not cut off by intervening infrastructure.<P>
+ * Linger flushes and heartbeats are timed by a timer shared by all handlers, but written by a
+ * separate pool of writer threads, so a stalled stream only holds up its own flushes.
+ * @see FlushPolicy
+ * @see ClaimCheckStore
+ * @see RetransmitBuffer
  */
-public class OutputStreamHandler implements MessageHandler
+public class OutputStreamHandler implements MessageHandler, BatchMessageHandler, EndableHandler
 {
+   public static final int DEFAULT_BUFFER_SIZE = 16384;
+   public static final int MIN_FRAGMENT_SIZE = 4096;
+   
+   private static ScheduledExecutorService sm_lingerTimer = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactory() {
+         @Override public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "OutputStreamHandler-linger");
+            t.setDaemon(true);
+            return t;
+         }
+      });
+   
+   private static ExecutorService sm_timerWriter = Executors.newCachedThreadPool(
+      new ThreadFactory() {
+         @Override public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "OutputStreamHandler-timer-writes");
+            t.setDaemon(true);
+            return t;
+         }
+      });
+   
+   private static ExecutorService sm_fragmentWriter = Executors.newCachedThreadPool(
+      new ThreadFactory() {
+         @Override public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "OutputStreamHandler-fragments");
+            t.setDaemon(true);
+            return t;
+         }
+      });
+   
+   /**
+    * A message waiting to be written by the fragment writer, either in fragments or whole.
+    */
+   private static class PendingMessage {
+      private EncodedMessage m_message;
+      private long m_id;
+      private int m_fragmentSize;
+      private int m_count;
+      private int m_index = 0;
+      
+      private PendingMessage(EncodedMessage message, long id, int fragmentSize) {
+         m_message = message;
+         m_id = id;
+         m_fragmentSize = fragmentSize;
+         int size = message.getPayload().size();
+         m_count = (id < 0) ? 1 : (size + fragmentSize - 1) / fragmentSize;
+      }
+      
+      private boolean isDone() {
+         return m_index >= m_count;
+      }
+      
+      private EncodedMessage next() {
+         if (m_id < 0) {
+            // Not fragmented, just queued behind a fragmented message
+            m_index++;
+            return m_message;
+         }
+         ByteString payload = m_message.getPayload();
+         int start = m_index * m_fragmentSize;
+         byte[] data = new byte[Math.min(m_fragmentSize, payload.size() - start)];
+         payload.copyTo(data, start, 0, data.length);
+         
+         Fragment.Builder fragment = Fragment.newBuilder().setId(m_id).setIndex(m_index).setCount(m_count);
+         EncodedMessage.Builder builder;
+         if (m_index == 0) {
+            // The first fragment carries everything but the rest of the payload
+            builder = m_message.toBuilder();
+            fragment.setTotalSize(payload.size());
+         } else {
+            builder = EncodedMessage.newBuilder().setEnvelope(m_message.getEnvelope());
+         }
+         m_index++;
+         return builder.setPayload(ZeroCopyByteString.wrap(data)).setFragment(fragment).build();
+      }
+   }
+   
    private OutputStream m_os;
+   private FlushPolicy m_policy;
+   private int m_pendingBytes = 0;
+   private ScheduledFuture<?> m_lingerFlush = null;
+   private StreamDictionary m_dictionary = null;
+   private int m_fragmentSize = 0;
+   private long m_nextFragmentID = 0;
+   private LinkedList<PendingMessage> m_pendingMessages = new LinkedList<PendingMessage>();
+   private boolean m_fragmentWriterActive = false;
+   private volatile ClaimCheckStore m_claimCheckStore = null;
+   private volatile int m_claimCheckSize = 0;
+   private RetransmitBuffer m_retransmitBuffer = null;
+   private volatile boolean m_ended = false;
+   private ScheduledFuture<?> m_heartbeat = null;
+   private boolean m_written = false;
+   // Set while a heartbeat is queued for or running on the timer writer pool
+   private AtomicBoolean m_heartbeatQueued = new AtomicBoolean();
+   // Number of callers waiting to write messages, which take priority over fragments
+   private AtomicInteger m_waitingWriters = new AtomicInteger();
    
    public OutputStreamHandler(OutputStream os) {
       m_os = os;
+      m_policy = FlushPolicy.immediate();
+   }
+   
+   /**
+    * Create an OutputStreamHandler which buffers messages and flushes them according to the
+    * supplied policy.
+    * @param os The stream to write messages to.
+    * @param policy The policy that decides when to flush buffered messages.
+    * @param bufferSize The size of the write buffer, in bytes.
+    */
+   public OutputStreamHandler(OutputStream os, FlushPolicy policy, int bufferSize) {
+      m_os = (policy == FlushPolicy.immediate()) ? os : new BufferedOutputStream(os, bufferSize);
+      m_policy = policy;
+   }
+   
+   /**
+    * Create an OutputStreamHandler which buffers messages using the default buffer size and
+    * flushes them according to the supplied policy.
+    * @param os The stream to write messages to.
+    * @param policy The policy that decides when to flush buffered messages.
+    */
+   public OutputStreamHandler(OutputStream os, FlushPolicy policy) {
+      this(os, policy, DEFAULT_BUFFER_SIZE);
+   }
+   
+   /**
+    * Compress messages written by this handler with a stream dictionary. The dictionary must
+    * be new, as it has to match the one the reading side creates for the stream.
+    * @param dictionary The dictionary for the stream, or null to write messages uncompressed.
+    */
+   public synchronized void setDictionary(StreamDictionary dictionary) {
+      m_dictionary = dictionary;
+   }
+   
+   /**
+    * Split messages with payloads larger than the fragment size into fragments. The reading
+    * side of the stream must support fragmented messages.
+    * @param fragmentSize The fragment size in bytes, which is raised to at least MIN_FRAGMENT_SIZE,
+    * or 0 to never fragment messages.
+    */
+   public synchronized void setFragmentSize(int fragmentSize) {
+      m_fragmentSize = (fragmentSize <= 0) ? 0 : Math.max(fragmentSize, MIN_FRAGMENT_SIZE);
+   }
+
+   /**
+    * Send the payloads of messages larger than the claim check size out of band, through a claim
+    * check store. The reading side of the stream must be able to check the payloads out again.
+    * Payloads are checked in before the handler's stream is locked, so slow stores do not hold up
+    * other writers.
+    * @param store The claim check store, or null to always send payloads inline.
+    * @param claimCheckSize The payload size in bytes above which payloads are checked in.
+    */
+   public void setClaimCheckStore(ClaimCheckStore store, int claimCheckSize) {
+      m_claimCheckSize = claimCheckSize;
+      m_claimCheckStore = store;
+   }
+
+   /**
+    * Resume a sequenced stream. The messages the receiving side has not yet confirmed are written
+    * again, in their original order, and every message handled afterwards is sequenced and kept in
+    * the buffer until it is confirmed.
+    * @param buffer The retransmit buffer for the stream.
+    * @throws IOException
+    */
+   public synchronized void resumeFrom(RetransmitBuffer buffer) throws IOException {
+      m_retransmitBuffer = buffer;
+      List<EncodedMessage> unacknowledged = buffer.getUnacknowledged();
+      int last = unacknowledged.size() - 1;
+      for (int i = 0; i <= last; i++) {
+         this.write(unacknowledged.get(i), i == last);
+      }
+   }
+
+   /**
+    * Continue a sequenced stream that is being handed over from another handler which is still
+    * writing it, without writing any unconfirmed messages again. Every message handled is sequenced
+    * and kept in the buffer until it is confirmed.
+    * @param buffer The retransmit buffer for the stream.
+    */
+   public synchronized void continueFrom(RetransmitBuffer buffer) {
+      m_retransmitBuffer = buffer;
+   }
+
+   /**
+    * Write an empty heartbeat frame whenever nothing else has been written for the specified
+    * interval. The reading side of the stream must skip empty frames. The heartbeat must be
+    * stopped, by setting an interval of 0, once the handler is no longer used.
+    * @param interval The heartbeat interval in ms, or 0 to stop writing heartbeats.
+    */
+   public synchronized void setHeartbeatInterval(long interval) {
+      if (m_heartbeat != null) m_heartbeat.cancel(false);
+      m_heartbeat = null;
+      if (interval <= 0) return;
+      m_written = false;
+      m_heartbeat = sm_lingerTimer.scheduleAtFixedRate(offTimer(m_heartbeatQueued, new Runnable() {
+         @Override public void run() {
+            synchronized (OutputStreamHandler.this) {
+               if (m_heartbeat == null) return;
+               if (m_written) {
+                  m_written = false;
+                  return;
+               }
+               try {
+                  m_os.write(0);
+                  OutputStreamHandler.this.flushStream();
+               } catch (IOException e) {
+                  // The stream is gone, so there is nothing left to keep alive
+                  m_heartbeat.cancel(false);
+                  m_heartbeat = null;
+               }
+            }
+         }
+      }), interval, interval, TimeUnit.MILLISECONDS);
+   }
+   
+   /**
+    * Wrap a timer task so the timer only hands it to the timer writer pool, and never blocks on
+    * the stream itself. A repeating task is skipped while an earlier run of it is still queued or
+    * running, so a stalled stream holds at most one writer thread for it.
+    * @param queued The flag tracking whether the task is queued or running, or null for a task
+    * that is not repeated until its last run is done.
+    * @param task The task that writes to the stream.
+    * @return The task to schedule on the timer.
+    */
+   private static Runnable offTimer(final AtomicBoolean queued, final Runnable task) {
+      return new Runnable() {
+         @Override public void run() {
+            if (queued != null && !queued.compareAndSet(false, true)) return;
+            sm_timerWriter.execute(new Runnable() {
+               @Override public void run() {
+                  try {
+                     task.run();
+                  } finally {
+                     if (queued != null) queued.set(false);
+                  }
+               }
+            });
+         }
+      };
    }
 
    @Override
    public boolean handle(EncodedMessage message) {
+      message = this.checkIn(message);
+      m_waitingWriters.incrementAndGet();
+      synchronized (this) {
+         m_waitingWriters.decrementAndGet();
+         try {
+            // A message handled on its own does not end a batch, so the flush policy decides
+            // whether to flush it; the owner flushes the handler at the end of the retrieval
+            this.writeSequenced(message, false);
+         } catch (IOException e) {
+            System.err.println("Error while sending message to OutputStream: " + e.getMessage());
+         } finally {
+            this.writerDone();
+         }
+      }
+      return true;
+      
+   }
+
+   @Override
+   public List<EncodedMessage> handleBatch(List<EncodedMessage> messages) {
+      List<EncodedMessage> written = messages;
+      if (m_claimCheckStore != null) {
+         written = new ArrayList<EncodedMessage>(messages.size());
+         for (EncodedMessage message : messages) {
+            written.add(this.checkIn(message));
+         }
+      }
+      m_waitingWriters.incrementAndGet();
+      synchronized (this) {
+         m_waitingWriters.decrementAndGet();
+         try {
+            int last = written.size() - 1;
+            for (int i = 0; i <= last; i++) {
+               this.writeSequenced(written.get(i), i == last);
+            }
+         } catch (IOException e) {
+            System.err.println("Error while sending message batch to OutputStream: " + e.getMessage());
+         } finally {
+            this.writerDone();
+         }
+      }
+      return messages;
+   }
+   
+   /**
+    * Write any remaining message fragments, then flush all buffered messages to the
+    * underlying stream.
+    * @throws IOException
+    */
+   public synchronized void flush() throws IOException {
+      if (m_ended) return;
+      while (!m_pendingMessages.isEmpty()) {
+         this.writePending();
+      }
+      this.flushStream();
+   }
+   
+   /**
+    * Check whether the handler has ended the stream because its retransmit buffer filled up.
+    * @return True if the underlying stream has been closed.
+    */
+   @Override
+   public boolean isEnded() {
+      return m_ended;
+   }
+   
+   private void flushStream() throws IOException {
+      if (m_lingerFlush != null) {
+         m_lingerFlush.cancel(false);
+         m_lingerFlush = null;
+      }
+      m_pendingBytes = 0;
+      m_os.flush();
+   }
+   
+   /**
+    * Check the payload of a message into the claim check store if it is large enough.
+    * @return The message to write, which is the original message if its payload was not checked in.
+    */
+   private EncodedMessage checkIn(EncodedMessage message) {
+      ClaimCheckStore store = m_claimCheckStore;
+      if (store == null || message.getPayload().size() <= m_claimCheckSize) return message;
       try {
-         message.writeDelimitedTo(m_os);
-         m_os.flush();
+         return store.checkIn(message);
       } catch (IOException e) {
-         System.err.println("Error while sending message to OutputStream: " + e.getMessage());
+         System.err.println("Unable to check in message payload, sending it inline: " + e.getMessage());
+         return message;
+      }
+   }
+   
+   /**
+    * Sequence a message if the stream is resumable, then write it. If this fills the retransmit
+    * buffer, the stream is ended once the message has been written.
+    */
+   private void writeSequenced(EncodedMessage message, boolean endOfBatch) throws IOException {
+      if (m_retransmitBuffer == null) {
+         this.write(message, endOfBatch);
+         return;
+      }
+      message = m_retransmitBuffer.add(message);
+      // An ended stream only keeps messages for the next cycle
+      if (m_ended) return;
+      this.write(message, endOfBatch);
+      if (m_retransmitBuffer.isFull()) this.end();
+   }
+   
+   /**
+    * End the stream. Everything written so far is flushed and the underlying stream is closed.
+    * Unwritten fragments are dropped, since their messages are already in the retransmit buffer.
+    */
+   private void end() throws IOException {
+      System.err.println("Retransmit buffer full, ending the stream until the receiving side confirms its messages.");
+      m_ended = true;
+      m_pendingMessages.clear();
+      try {
+         this.flushStream();
+      } finally {
+         m_os.close();
+      }
+   }
+   
+   private void write(EncodedMessage message, boolean endOfBatch) throws IOException {
+      boolean fragment = m_fragmentSize > 0 && message.getPayload().size() > m_fragmentSize;
+      if (fragment || (!m_pendingMessages.isEmpty() && this.isPendingDestination(message.getEnvelope()))) {
+         m_pendingMessages.add(new PendingMessage(message, fragment ? m_nextFragmentID++ : -1, m_fragmentSize));
+         if (!m_fragmentWriterActive) {
+            m_fragmentWriterActive = true;
+            sm_fragmentWriter.submit(new Runnable() {
+               @Override public void run() {
+                  boolean more = true;
+                  while (more) {
+                     more = OutputStreamHandler.this.writeNextPending();
+                  }
+               }
+            });
+         }
+      } else {
+         this.writeFrame(message, endOfBatch);
+      }
+   }
+   
+   /**
+    * Wake the fragment writer once no more messages are waiting to be written.
+    * Must be called while holding the handler's monitor.
+    */
+   private void writerDone() {
+      if (m_fragmentWriterActive && m_waitingWriters.get() == 0) this.notifyAll();
+   }
+   
+   private boolean isPendingDestination(EncodedEnvelope envelope) {
+      for (PendingMessage pending : m_pendingMessages) {
+         EncodedEnvelope pendingEnvelope = pending.m_message.getEnvelope();
+         if (pendingEnvelope.getRoutingKey().equals(envelope.getRoutingKey())
+               && pendingEnvelope.getExchange().equals(envelope.getExchange())) {
+            return true;
+         }
+      }
+      return false;
+   }
+   
+   /**
+    * Write the next pending frame from the fragment writer.
+    * @return False once there is nothing left to write.
+    */
+   private synchronized boolean writeNextPending() {
+      // Let waiting messages go ahead of the next fragment
+      while (m_waitingWriters.get() > 0) {
+         try {
+            this.wait();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            break;
+         }
+      }
+      if (m_pendingMessages.isEmpty()) {
+         m_fragmentWriterActive = false;
+         return false;
+      }
+      try {
+         this.writePending();
+      } catch (IOException e) {
+         System.err.println("Error while sending message fragment to OutputStream: " + e.getMessage());
+         m_pendingMessages.clear();
+         m_fragmentWriterActive = false;
+         return false;
       }
       return true;
-      
+   }
+   
+   private void writePending() throws IOException {
+      PendingMessage pending = m_pendingMessages.getFirst();
+      EncodedMessage frame = pending.next();
+      if (pending.isDone()) m_pendingMessages.removeFirst();
+      this.writeFrame(frame, m_pendingMessages.isEmpty());
+   }
+   
+   private void writeFrame(EncodedMessage message, boolean endOfBatch) throws IOException {
+      EncodedMessage encoded = (m_dictionary == null) ? message : m_dictionary.compress(message);
+      int size = encoded.getSerializedSize();
+      encoded.writeDelimitedTo(m_os);
+      m_written = true;
+      m_pendingBytes += CodedOutputStream.computeRawVarint32Size(size) + size;
+      if (m_policy.shouldFlush(message, m_pendingBytes, endOfBatch)) {
+         this.flushStream();
+      } else if (m_lingerFlush == null && m_policy.getLingerTime() > 0) {
+         m_lingerFlush = sm_lingerTimer.schedule(offTimer(null, new Runnable() {
+            @Override public void run() {
+               synchronized (OutputStreamHandler.this) {
+                  // Only flush if no other flush has happened since this one was scheduled
+                  if (m_lingerFlush == null) return;
+                  m_lingerFlush = null;
+                  try {
+                     OutputStreamHandler.this.flushStream();
+                  } catch (IOException e) {
+                     System.err.println("Error while flushing OutputStream: " + e.getMessage());
+                  }
+               }
+            }
+         }), m_policy.getLingerTime(), TimeUnit.MILLISECONDS);
+      }
    }
 
 
@@ -28,7 +28,10 @@
 
 package com.rapid7.component.messaging.relay.amqp;
 
+import com.rapid7.component.messaging.relay.EnvelopeHandler;
 import com.rapid7.component.messaging.relay.MessageHandler;
+import com.rapid7.component.messaging.relay.encoding.LazyEncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.RelayControlMessage.EndpointType;
 
@@ -103,7 +106,7 @@ public class SecurityFilterManager
 
     }
 
-   private class MessageFilter implements MessageHandler {
+   private class MessageFilter implements MessageHandler, EnvelopeHandler {
       
       private SecurityFilterManager m_manager;
       private String m_clientID;
@@ -115,14 +118,23 @@ public class SecurityFilterManager
 
       @Override
       public boolean handle(EncodedMessage message) {
+	  return this.accept(message.getEnvelope());
+      }
+
+      @Override
+      public boolean handleEnvelope(LazyEncodedMessage message) {
+	  return this.accept(message.getEnvelope());
+      }
+
+      private boolean accept(EncodedEnvelope envelope) {
 
 	  // First, pass through any ControlMessages or ACKS
-	  if (ControlMessageHandler.isControlMessage(message) || AckHandler.isAckMessage(message)) {
+	  if (ControlMessageHandler.isControlMessage(envelope) || AckHandler.isAckMessage(envelope)) {
 	      return true;
 	  }
 
-	  if (message.getEnvelope().hasExchange()) {
-	      String exchangeDest = message.getEnvelope().getExchange();
+	  if (envelope.hasExchange()) {
+	      String exchangeDest = envelope.getExchange();
 	      if (!exchangeDest.isEmpty()) {
 		  if (m_manager.getClientEndpoints(m_clientID).m_exchanges.contains(exchangeDest)) {
 		      // This is a valid published exchange, forward the message
@@ -136,8 +148,8 @@ public class SecurityFilterManager
 	      }
 	  }
 
-	  if (message.getEnvelope().hasRoutingKey()) {
-	      String queueDest = message.getEnvelope().getRoutingKey();
+	  if (envelope.hasRoutingKey()) {
+	      String queueDest = envelope.getRoutingKey();
 	      if (!queueDest.isEmpty()) {
 		  if (m_manager.getClientEndpoints(m_clientID).m_queues.contains(queueDest)) {
 		      // This is a valid published queue, forward the message
@@ -190,5 +202,17 @@ public class SecurityFilterManager
    public MessageHandler getFilter(String clientID) {
        return new SecurityFilterManager.MessageFilter(this, clientID);
    }
+   
+   /**
+    * Get the security message filter for a specified client as an EnvelopeHandler, so that
+    * messages can be filtered before they are fully decoded.
+    * @param clientID The unique ID of the client.
+    * @return An EnvelopeHandler instance that should be added to the reader for the inbound
+    * message stream from the client.
+    * @see com.rapid7.component.messaging.relay.MessageStreamReader#addEnvelopeHandler(EnvelopeHandler)
+    */
+   public EnvelopeHandler getEnvelopeFilter(String clientID) {
+       return new SecurityFilterManager.MessageFilter(this, clientID);
+   }
 
 }
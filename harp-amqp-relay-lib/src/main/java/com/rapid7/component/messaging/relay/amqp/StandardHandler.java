@@ -28,15 +28,18 @@
 
 package com.rapid7.component.messaging.relay.amqp;
 
+import com.rapid7.component.messaging.relay.BatchMessageHandler;
+import com.rapid7.component.messaging.relay.DuplicateIndex;
 import com.rapid7.component.messaging.relay.MessageHandler;
 import com.rapid7.component.messaging.relay.MessageHandlerChain;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import java.util.List;
 
 /**
  * A MessageHandler that handles the typical functions needed on the receiving
  * end of the AMQP message Relay Pipeline.
  */
-public class StandardHandler implements MessageHandler
+public class StandardHandler implements MessageHandler, BatchMessageHandler
 {
    private MessageHandlerChain m_handlerChain;
    
@@ -47,11 +50,26 @@ public class StandardHandler implements MessageHandler
     * @param connector A connector to the local AMQP message bus instance.
     */
    public StandardHandler(BusMessageRetriever pairedRetriever, BusConnector connector) {
+      this(pairedRetriever, connector, null);
+   }
+   
+   /**
+    * Create a new StandardHandler instance that drops messages it has already republished.
+    * @param pairedRetriever The message retriever paired with and controlled by this
+    * handler.
+    * @param connector A connector to the local AMQP message bus instance.
+    * @param duplicates An index of the messages already republished from the paired
+    * sending side, or null to republish every message.
+    */
+   public StandardHandler(BusMessageRetriever pairedRetriever, BusConnector connector, 
+         DuplicateIndex duplicates) {
+      MessageRepublisher republisher = new MessageRepublisher(connector,pairedRetriever);
+      republisher.setDuplicateIndex(duplicates);
       m_handlerChain = new MessageHandlerChain()
       .add(new AckHandler(pairedRetriever))
       .add(new ControlMessageProcessor(pairedRetriever))
       .add(new ReplyToHandler(pairedRetriever))
-      .add(new MessageRepublisher(connector,pairedRetriever));
+      .add(republisher);
    }
 
    @Override
@@ -59,4 +77,16 @@ public class StandardHandler implements MessageHandler
       return m_handlerChain.handle(message);
    }
 
+   /**
+    * Handle a batch of messages. Acks, control messages and reply-to queues are handled message
+    * by message in stream order, and the remaining messages are then republished as one batch.
+    * Republishing does not depend on the acks and control changes of later messages in the batch
+    * having been applied after it, and reply-to queues only need to be monitored before their
+    * requests are republished, so the batch is republished with the same effect.
+    */
+   @Override
+   public List<EncodedMessage> handleBatch(List<EncodedMessage> messages) {
+      return m_handlerChain.handleBatch(messages);
+   }
+
 }
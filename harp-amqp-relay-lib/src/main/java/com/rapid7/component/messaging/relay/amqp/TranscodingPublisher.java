@@ -29,18 +29,31 @@
 package com.rapid7.component.messaging.relay.amqp;
 
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.*;
+import com.rapid7.component.messaging.relay.encoding.ZeroCopyByteString;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import java.io.IOException;
 
 /**
  * A utility class that decodes and publishes Protobuf-encoded messages onto the supplied
- * broker connection.
+ * broker connection. The last decoded properties are cached, so a run of messages that share
+ * the same EncodedProperties instance (as delta encoded streams produce) only decodes them once.
  */
 public class TranscodingPublisher
 {
+   private static class DecodedProperties {
+      private final EncodedProperties m_encoded;
+      private final AMQP.BasicProperties m_decoded;
+      
+      private DecodedProperties(EncodedProperties encoded, AMQP.BasicProperties decoded) {
+         m_encoded = encoded;
+         m_decoded = decoded;
+      }
+   }
+   
    private BusConnector m_bus;
    private Channel m_channel;
+   private volatile DecodedProperties m_lastProperties = null;
    
    /**
     * Create a new TranscodingPublisher instance.
@@ -62,10 +75,20 @@ public class TranscodingPublisher
       }
       
       AMQP.BasicProperties basicProps = null;
-      if (message.hasProperties()) basicProps = MessagePropertiesTranscoder.decode(message.getProperties());
+      if (message.hasProperties() && !MessagePropertiesTranscoder.isEmpty(message.getProperties())) {
+         EncodedProperties properties = message.getProperties();
+         DecodedProperties last = m_lastProperties;
+         if (last != null && last.m_encoded == properties) {
+            basicProps = last.m_decoded;
+         } else {
+            basicProps = MessagePropertiesTranscoder.decode(properties);
+            m_lastProperties = new DecodedProperties(properties, basicProps);
+         }
+      }
       
       byte[] payload = null;
-      if (message.hasPayload()) payload = message.getPayload().toByteArray();
+      // basicPublish only reads the payload, so it can be handed the ByteString's own bytes
+      if (message.hasPayload()) payload = ZeroCopyByteString.array(message.getPayload());
       
       m_channel.basicPublish(message.getEnvelope().getExchange(),
                              message.getEnvelope().getRoutingKey(),
@@ -73,5 +96,21 @@ public class TranscodingPublisher
                              payload);
    }
    
+   /**
+    * Publish a message decoded by EncodedMessageCodec onto the bus.
+    * @param message The decoded message to publish.
+    * @throws IOException
+    */
+   public void publish (EncodedMessageCodec.DecodedMessage message) throws IOException {
+      if (m_channel == null || !m_channel.isOpen()) {
+         m_channel = m_bus.getConnection().createChannel();
+      }
+      
+      m_channel.basicPublish(message.getEnvelope().getExchange(),
+                             message.getEnvelope().getRoutingKey(),
+                             message.getProperties(),
+                             message.getBody());
+   }
+   
 
 }
@@ -0,0 +1,144 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay.client;
+
+/**
+ * Adjusts the chunk limit and chunk timeout of a MessageRelayTask from one request cycle to the
+ * next, within configurable bounds, based on how many messages and bytes each cycle carried:<P>
+ * <UL>
+ *    <LI>A cycle that reached the chunk limit doubles the limit, so bursts are carried by fewer,
+ *    larger cycles.</LI>
+ *    <LI>A cycle that used less than a quarter of the limit halves it.</LI>
+ *    <LI>A cycle that carried more than the maximum cycle bytes scales the limit down, so large
+ *    messages keep cycles to a size that proxies and memory limits tolerate.</LI>
+ *    <LI>A cycle that ran out its timeout without carrying any messages stretches the timeout by
+ *    half, so idle tasks wake less often.</LI>
+ *    <LI>A cycle that ran out its timeout with only a few messages halves the timeout, so those
+ *    messages are confirmed sooner.</LI>
+ * </UL>
+ */
+public class ChunkController
+{
+   public static final int DEFAULT_MIN_CHUNK_LIMIT = 10;
+   public static final int DEFAULT_MAX_CHUNK_LIMIT = 5000;
+   public static final long DEFAULT_MIN_CHUNK_TIMEOUT = 1000;
+   public static final long DEFAULT_MAX_CHUNK_TIMEOUT = 30000;
+   public static final long DEFAULT_MAX_CYCLE_BYTES = 8 * 1024 * 1024;
+   
+   private int m_minLimit;
+   private int m_maxLimit;
+   private long m_minTimeout;
+   private long m_maxTimeout;
+   private long m_maxCycleBytes = DEFAULT_MAX_CYCLE_BYTES;
+   private int m_limit;
+   private long m_timeout;
+   
+   /**
+    * Create a new ChunkController.
+    * @param minLimit The lowest chunk limit to use.
+    * @param maxLimit The highest chunk limit to use.
+    * @param minTimeout The shortest chunk timeout, in ms, to use.
+    * @param maxTimeout The longest chunk timeout, in ms, to use. This should stay well below
+    * the timeouts of any intervening HTTP(S) infrastructure.
+    */
+   public ChunkController(int minLimit, int maxLimit, long minTimeout, long maxTimeout) {
+      m_minLimit = Math.max(1, minLimit);
+      m_maxLimit = Math.max(m_minLimit, maxLimit);
+      m_minTimeout = Math.max(1, minTimeout);
+      m_maxTimeout = Math.max(m_minTimeout, maxTimeout);
+      this.reset(m_minLimit, m_minTimeout);
+   }
+   
+   /**
+    * Create a new ChunkController with the default bounds.
+    */
+   public ChunkController() {
+      this(DEFAULT_MIN_CHUNK_LIMIT, DEFAULT_MAX_CHUNK_LIMIT, DEFAULT_MIN_CHUNK_TIMEOUT, DEFAULT_MAX_CHUNK_TIMEOUT);
+   }
+   
+   /**
+    * Set the number of bytes above which a cycle scales the chunk limit down.
+    * @param maxCycleBytes The maximum payload bytes per cycle.
+    */
+   public synchronized void setMaxCycleBytes(long maxCycleBytes) {
+      m_maxCycleBytes = maxCycleBytes;
+   }
+   
+   /**
+    * Restart from the specified chunk limit and timeout, brought within bounds.
+    * @param limit The chunk limit.
+    * @param timeout The chunk timeout in ms.
+    */
+   public synchronized void reset(int limit, long timeout) {
+      m_limit = Math.min(m_maxLimit, Math.max(m_minLimit, limit));
+      m_timeout = Math.min(m_maxTimeout, Math.max(m_minTimeout, timeout));
+   }
+   
+   /**
+    * Adjust the chunk limit and timeout after a request cycle.
+    * @param messages The number of messages the cycle carried.
+    * @param bytes The number of payload bytes the cycle carried.
+    * @param duration The time, in ms, the cycle took.
+    */
+   public synchronized void cycleCompleted(int messages, long bytes, long duration) {
+      int cycleLimit = m_limit;
+      if (messages >= m_limit) {
+         m_limit = Math.min(m_maxLimit, m_limit * 2);
+      } else if (messages < m_limit / 4) {
+         m_limit = Math.max(m_minLimit, m_limit / 2);
+      }
+      if (bytes > m_maxCycleBytes && messages > 0) {
+         int limit = (int)Math.max(1, messages * m_maxCycleBytes / bytes);
+         m_limit = Math.max(m_minLimit, Math.min(m_limit, limit));
+      }
+      
+      if (duration >= m_timeout) {
+         if (messages == 0) {
+            m_timeout = Math.min(m_maxTimeout, m_timeout + m_timeout / 2);
+         } else if (messages < cycleLimit / 4) {
+            m_timeout = Math.max(m_minTimeout, m_timeout / 2);
+         }
+      }
+   }
+   
+   /**
+    * @return The chunk limit to use for the next request cycle.
+    */
+   public synchronized int getChunkLimit() {
+      return m_limit;
+   }
+   
+   /**
+    * @return The chunk timeout, in ms, to use for the next request cycle.
+    */
+   public synchronized long getChunkTimeout() {
+      return m_timeout;
+   }
+
+}
@@ -0,0 +1,193 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay.client;
+
+import com.rapid7.component.messaging.relay.ClaimCheckStore;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.ZeroCopyByteString;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.UUID;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * A ClaimCheckStore that keeps message payloads in the blob store of a relay server, and moves
+ * them over HTTP(S). Payloads are uploaded with PUT requests and downloaded with GET requests,
+ * using Content-Range and Range headers, so a transfer that breaks off is resumed from the last
+ * byte the other side received rather than restarted. Downloaded payloads are left on the server,
+ * so a message that is redelivered can fetch its payload again; the server removes them once they
+ * expire.<P>
+ * The client uses its own connections, so payloads can be transferred while a relay request
+ * stream is open.
+ */
+public class ClaimCheckClient implements ClaimCheckStore
+{
+   public static final int MAX_ATTEMPTS = 5;
+   
+   private URI m_blobURI;
+   private HttpClient m_httpClient;
+   
+   /**
+    * Create a new ClaimCheckClient.
+    * @param blobURI The URI of the relay server's blob endpoint, including any parameters
+    * needed to identify the client.
+    */
+   public ClaimCheckClient(URI blobURI) {
+      m_blobURI = blobURI;
+      m_httpClient = new DefaultHttpClient(new PoolingClientConnectionManager());
+   }
+
+   @Override
+   public EncodedMessage checkIn(EncodedMessage message) throws IOException {
+      String blobID = UUID.randomUUID().toString();
+      URI uri = this.getBlobURI(blobID);
+      byte[] payload = ZeroCopyByteString.array(message.getPayload());
+      
+      long offset = 0;
+      for (int attempt = 1; ; attempt++) {
+         HttpPut put = new HttpPut(uri);
+         put.setHeader("Content-Range", "bytes " + offset + "-" + (payload.length - 1) + "/" + payload.length);
+         put.setEntity(new InputStreamEntity(
+            new ByteArrayInputStream(payload, (int)offset, payload.length - (int)offset), payload.length - offset));
+         try {
+            HttpResponse response = m_httpClient.execute(put);
+            EntityUtils.consume(response.getEntity());
+            int status = response.getStatusLine().getStatusCode();
+            if (status >= 200 && status < 300) break;
+            if (attempt >= MAX_ATTEMPTS) throw new IOException("Upload of blob " + blobID + " failed: " + response.getStatusLine());
+         } catch (IOException e) {
+            put.abort();
+            if (attempt >= MAX_ATTEMPTS) throw e;
+         }
+         this.pause();
+         // Resume from whatever the server has already stored
+         offset = Math.max(0, Math.min(this.getStoredSize(uri), payload.length - 1));
+      }
+      
+      ClaimCheck claimCheck = ClaimCheck.newBuilder().setBlobID(blobID).setSize(payload.length).build();
+      return message.toBuilder().clearPayload().setClaimCheck(claimCheck).build();
+   }
+
+   @Override
+   public EncodedMessage checkOut(EncodedMessage message) throws IOException {
+      ClaimCheck claimCheck = message.getClaimCheck();
+      URI uri = this.getBlobURI(claimCheck.getBlobID());
+      if (claimCheck.getSize() > Integer.MAX_VALUE) {
+         throw new IOException("Blob " + claimCheck.getBlobID() + " is too large to check out.");
+      }
+      byte[] data = new byte[(int)claimCheck.getSize()];
+      
+      int offset = 0;
+      for (int attempt = 1; offset < data.length; attempt++) {
+         HttpGet get = new HttpGet(uri);
+         get.setHeader("Range", "bytes=" + offset + "-");
+         try {
+            HttpResponse response = m_httpClient.execute(get);
+            HttpEntity entity = response.getEntity();
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_PARTIAL_CONTENT || (status == HttpStatus.SC_OK && offset == 0)) {
+               InputStream in = entity.getContent();
+               try {
+                  int count;
+                  while (offset < data.length && (count = in.read(data, offset, data.length - offset)) >= 0) {
+                     offset += count;
+                  }
+               } finally {
+                  in.close();
+               }
+            } else {
+               EntityUtils.consume(entity);
+               if (status == HttpStatus.SC_NOT_FOUND) throw new IOException("Blob " + claimCheck.getBlobID() + " not found.");
+               if (attempt >= MAX_ATTEMPTS) throw new IOException("Download of blob " + claimCheck.getBlobID() + " failed: " + response.getStatusLine());
+            }
+         } catch (IOException e) {
+            get.abort();
+            if (attempt >= MAX_ATTEMPTS) throw e;
+         }
+         if (offset < data.length) this.pause();
+      }
+      
+      return message.toBuilder().clearClaimCheck().setPayload(ZeroCopyByteString.wrap(data)).build();
+   }
+   
+   /**
+    * Release the connections used by this client.
+    */
+   public void shutdown() {
+      m_httpClient.getConnectionManager().shutdown();
+   }
+   
+   private long getStoredSize(URI uri) {
+      try {
+         HttpResponse response = m_httpClient.execute(new HttpHead(uri));
+         EntityUtils.consume(response.getEntity());
+         Header length = response.getFirstHeader("Content-Length");
+         if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK && length != null) {
+            return Long.parseLong(length.getValue());
+         }
+      } catch (IOException | NumberFormatException e) {
+         // Fall through and start again from the beginning
+      }
+      return 0;
+   }
+   
+   private URI getBlobURI(String blobID) throws IOException {
+      try {
+         return new URIBuilder(m_blobURI).setParameter("id", blobID).build();
+      } catch (URISyntaxException e) {
+         throw new IOException(e);
+      }
+   }
+   
+   private void pause() throws IOException {
+      try {
+         Thread.sleep(MessageRelayTask.CONNECTION_FAIL_RETRY_PAUSE);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IOException("Interrupted while retrying blob transfer.");
+      }
+   }
+
+}
@@ -28,13 +28,35 @@
 
 package com.rapid7.component.messaging.relay.client;
 
+import com.rapid7.component.messaging.relay.BatchMessageHandler;
+import com.rapid7.component.messaging.relay.BatchMessageHandlerAdapter;
+import com.rapid7.component.messaging.relay.EnvelopeHandler;
 import com.rapid7.component.messaging.relay.MessageHandler;
+import com.rapid7.component.messaging.relay.MessageStreamReader;
+import com.rapid7.component.messaging.relay.RetransmitBuffer;
+import com.rapid7.component.messaging.relay.SequenceTracker;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 
 /**
  * A Runnable task implementation that can be used by clients to connect to
@@ -43,9 +65,46 @@ import org.apache.http.client.methods.HttpGet;
  */
 public class MessageReceiverTask extends MessageRelayTask
 {
+   public static long DEFAULT_MAX_IDLE_TIMEOUT = 60000;
+   public static long DEFAULT_HEARTBEAT_INTERVAL = 15000;
+   
+   private static ScheduledExecutorService sm_overlapTimer = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactory() {
+         @Override public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "MessageReceiverTask-overlap");
+            t.setDaemon(true);
+            return t;
+         }
+      });
+   
+   private static ExecutorService sm_requestPool = Executors.newCachedThreadPool(
+      new ThreadFactory() {
+         @Override public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "MessageReceiverTask-requests");
+            t.setDaemon(true);
+            return t;
+         }
+      });
+   
+   /**
+    * A request that was made before the previous request cycle ended.
+    */
+   private static class OverlappingRequest {
+      private HttpGet m_request;
+      private Future<HttpResponse> m_response;
+      private long m_issued;
+      private long m_timeout;
+   }
       
    private HttpGet m_getRequest;
-   private MessageHandler m_handler;
+   private BatchMessageHandler m_handler;
+   private List<EnvelopeHandler> m_envelopeHandlers = new ArrayList<EnvelopeHandler>();
+   private boolean m_useClaimChecks = false;
+   private SequenceTracker m_sequenceTracker = null;
+   private long m_maxIdleTimeout = 0;
+   private long m_idleTimeout = 0;
+   private long m_overlap = 0;
+   private OverlappingRequest m_nextRequest = null;
      
    /**
     * Create a new MessageReceiverTask
@@ -67,7 +126,7 @@ public class MessageReceiverTask extends MessageRelayTask
       
       super(targetURL,clientID,chunkLimit,chunkTimeout);
       m_getRequest = new HttpGet(m_appURI);
-      m_handler = handler;
+      m_handler = BatchMessageHandlerAdapter.adapt(handler);
       
    }
    
@@ -87,28 +146,256 @@ public class MessageReceiverTask extends MessageRelayTask
             throws URISyntaxException {
       this(targetURL,clientID,handler,DEFAULT_CHUNK_LIMIT,DEFAULT_CHUNK_TIMEOUT);
    }
-
+   
+   /**
+    * Ask the relay server to compress the response stream with a stream dictionary, so repeated
+    * exchange names, routing keys, content types and header names are only sent once per request
+    * cycle, and unchanged message properties are delta encoded. Servers that do not support stream
+    * dictionaries ignore the request.
+    * @param useDictionary True to request a compressed response stream.
+    * @throws URISyntaxException
+    */
+   public void setUseDictionary(boolean useDictionary) throws URISyntaxException {
+      this.setRequestParameter("dictionary", String.valueOf(useDictionary));
+   }
+   
+   /**
+    * Ask the relay server to split messages with payloads larger than the fragment size into
+    * fragments, so large messages do not hold up acks and other small messages. Fragmented
+    * messages are reassembled before they are handled. Servers that do not support fragmented
+    * messages ignore the request.
+    * @param fragmentSize The fragment size in bytes, or 0 to never fragment messages.
+    * @throws URISyntaxException
+    */
+   public void setFragmentSize(int fragmentSize) throws URISyntaxException {
+      this.setRequestParameter("fragment_size", String.valueOf(fragmentSize));
+   }
+   
+   /**
+    * Ask the relay server to send messages with payloads larger than the claim check size with
+    * a claim check in place of their payload. The payloads are downloaded separately from the
+    * server's blob endpoint, with resumable range requests, before the messages are handled.
+    * Servers without a blob store ignore the request.
+    * @param claimCheckSize The payload size in bytes above which payloads are sent out of band,
+    * or 0 to always send payloads inline.
+    * @throws URISyntaxException
+    */
+   public void setClaimCheckSize(int claimCheckSize) throws URISyntaxException {
+      this.setRequestParameter("claim_check_size", String.valueOf(claimCheckSize));
+      m_useClaimChecks = claimCheckSize > 0;
+   }
+   
+   /**
+    * Ask the relay server to make the response stream resumable. Each request tells the server
+    * which messages have been received so far, and the server replays any messages it sent that
+    * were not received before the previous request cycle broke off. Replayed messages that had in
+    * fact been received are dropped. Servers that do not support resumable streams ignore the request.
+    * @param resumable True to request a resumable response stream.
+    */
+   public void setResumable(boolean resumable) {
+      m_sequenceTracker = resumable ? new SequenceTracker() : null;
+   }
+   
+   /**
+    * Stretch the request cycles of an idle task, to cut the rate of requests idle clients make
+    * to the relay server. Each request cycle that receives no messages doubles the chunk timeout
+    * of the next one, up to the maximum idle timeout, and the server keeps the connection alive by
+    * sending heartbeats. The first cycle that receives a message drops back to the normal chunk
+    * timeout. The server must support heartbeats, and its max-chunk-timeout must allow the
+    * maximum idle timeout.
+    * @param maxIdleTimeout The longest chunk timeout, in ms, for an idle task, or 0 to keep the
+    * normal chunk timeout.
+    * @param heartbeatInterval The time, in ms, after which the server sends a heartbeat if it
+    * has sent nothing else. This should stay well below the idle timeouts of any intervening
+    * HTTP(S) infrastructure.
+    * @throws URISyntaxException
+    */
+   public void setIdleStretching(long maxIdleTimeout, long heartbeatInterval) throws URISyntaxException {
+      m_maxIdleTimeout = maxIdleTimeout;
+      m_idleTimeout = 0;
+      this.setRequestParameter("heartbeat", String.valueOf(maxIdleTimeout > 0 ? heartbeatInterval : 0));
+      this.setRequestParameter("chunk_timeout", String.valueOf(m_chunkTimeout));
+   }
+   
+   /**
+    * Receive over one of several concurrent response streams, so a client can use more than one
+    * connection for receiving. Each stream is received by its own task, with its own stream ID, and
+    * the server splits the client's queues between the streams that are running. The order of
+    * messages from a queue is only kept within a stream. The server must support concurrent streams.
+    * @param streamID The ID of this task's stream.
+    * @throws URISyntaxException
+    */
+   public void setStreamID(String streamID) throws URISyntaxException {
+      this.setRequestParameter("stream", streamID);
+   }
+   
+   /**
+    * Make the next request shortly before the current request cycle is due to end, so there is
+    * no gap between request cycles in which messages can only be buffered by the server. The server
+    * hands the retrieval over from the current request to the next one. Requests are only overlapped
+    * while the current request cycle is going well; if it fails, the overlapping request is aborted
+    * and a normal request is made. The server must support overlapping requests.
+    * @param overlap The time, in ms, before the end of a request cycle at which the next request is
+    * made, or 0 to make requests one after the other.
+    */
+   public synchronized void setOverlap(long overlap) {
+      if (overlap > 0 && m_overlap <= 0) {
+         // Overlapping requests need a second connection to the server
+         m_httpClient = new DefaultHttpClient(new PoolingClientConnectionManager());
+      }
+      m_overlap = overlap;
+   }
+   
+   private void setRequestParameter(String name, String value) throws URISyntaxException {
+      m_getRequest.setURI(new URIBuilder(m_getRequest.getURI()).setParameter(name, value).build());
+   }
+   
+   /**
+    * Add an EnvelopeHandler that filters incoming messages before they are fully decoded.
+    * Envelope handlers run before the MessageHandler supplied to the constructor.
+    * @param handler The handler to add.
+    * @return This task.
+    */
+   public MessageReceiverTask addEnvelopeHandler(EnvelopeHandler handler) {
+      m_envelopeHandlers.add(handler);
+      return this;
+   }
 
 
    @Override
    protected void doRequest() throws Exception {
-      // Execute an http get to the relay servlet
-      HttpResponse response = m_httpClient.execute(m_getRequest);
-      HttpEntity entity = response.getEntity();
-      if (entity != null) {
-         // Get the input stream for the response
-         InputStream instream = entity.getContent();
+      long start = System.currentTimeMillis();
+      long timeout;
+      int messages = 0;
+      long bytes = 0;
+      OverlappingRequest overlapped;
+      synchronized (this) {
+         timeout = Math.max(m_chunkTimeout, m_idleTimeout);
+         if (m_chunkController != null) {
+            this.setRequestParameter("chunk_limit", String.valueOf(m_chunkLimit));
+         }
+         if (m_chunkController != null || m_maxIdleTimeout > 0) {
+            this.setRequestParameter("chunk_timeout", String.valueOf(timeout));
+         }
+         this.setRequestParameter("chunk_bytes", String.valueOf(m_chunkBytes));
+         if (m_sequenceTracker != null) {
+            // Tell the server where to resume the stream from
+            this.setRequestParameter("stream_epoch", String.valueOf(m_sequenceTracker.getEpoch()));
+            this.setRequestParameter("ack_sequence", String.valueOf(m_sequenceTracker.getAcknowledged()));
+         }
+         overlapped = m_nextRequest;
+         m_nextRequest = null;
+      }
+      
+      HttpResponse response;
+      if (overlapped != null) {
+         // Pick up the request made before the previous cycle ended, whose cycle started then
+         start = overlapped.m_issued;
+         timeout = overlapped.m_timeout;
          try {
-            while (true) {
-               // Pull encoded messages out of the response stream
-               EncodedMessage m = EncodedMessage.parseDelimitedFrom(instream);
-               if (m == null) break;
-               m_handler.handle(m);
+            response = overlapped.m_response.get();
+         } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) throw (Exception)e.getCause();
+            throw e;
+         }
+      } else {
+         // Execute an http get to the relay servlet
+         response = m_httpClient.execute(m_getRequest);
+      }
+      
+      ScheduledFuture<?> overlapTimer = null;
+      if (m_overlap > 0 && timeout > m_overlap) {
+         overlapTimer = sm_overlapTimer.schedule(new Runnable() {
+            @Override public void run() {
+               MessageReceiverTask.this.makeOverlappingRequest();
+            }
+         }, start + timeout - m_overlap - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+      }
+      
+      boolean completed = false;
+      try {
+         HttpEntity entity = response.getEntity();
+         Header epoch = response.getFirstHeader(RetransmitBuffer.EPOCH_HEADER);
+         if (m_sequenceTracker != null && epoch != null) m_sequenceTracker.setEpoch(Long.parseLong(epoch.getValue()));
+         if (entity != null) {
+            // Get the input stream for the response
+            InputStream instream = entity.getContent();
+            MessageStreamReader reader = new MessageStreamReader(instream);
+            for (EnvelopeHandler handler : m_envelopeHandlers) {
+               reader.addEnvelopeHandler(handler);
+            }
+            if (m_useClaimChecks) reader.setClaimCheckStore(this.getClaimCheckClient());
+            if (epoch != null) reader.setSequenceTracker(m_sequenceTracker);
+            try {
+               while (true) {
+                  // Pull batches of encoded messages out of the response stream
+                  List<EncodedMessage> batch = reader.readBatch();
+                  if (batch == null) break;
+                  messages += batch.size();
+                  for (EncodedMessage message : batch) bytes += message.getPayload().size();
+                  m_handler.handleBatch(batch);
+               }
+            } finally {
+               reader.release();
+               instream.close();
+            }
+         }
+         completed = true;
+      } finally {
+         if (overlapTimer != null) overlapTimer.cancel(false);
+         if (!completed) {
+            // The overlapping request would not replay what this cycle lost, so drop it
+            synchronized (this) {
+               if (m_nextRequest != null) m_nextRequest.m_request.abort();
+               m_nextRequest = null;
             }
-         } finally {
-            instream.close();
          }
       }
+      
+      long duration = System.currentTimeMillis() - start;
+      synchronized (this) {
+         if (m_maxIdleTimeout > 0) {
+            // Stretch the next cycle if this one was idle, or snap back if it was not
+            m_idleTimeout = (messages > 0) ? 0 : 
+               Math.min(m_maxIdleTimeout, Math.max(m_chunkTimeout, m_idleTimeout) * 2);
+         }
+         // Idle cycles are left to the stretching, if it is enabled
+         if (m_idleTimeout == 0) this.cycleCompleted(messages, bytes, duration);
+      }
+   }
+   
+   @Override
+   public synchronized void stop() {
+      super.stop();
+      // There will be no next cycle to pick up an overlapping request
+      if (m_nextRequest != null) m_nextRequest.m_request.abort();
+      m_nextRequest = null;
+   }
+   
+   /**
+    * Make the request for the next cycle while the current one is still running.
+    */
+   private synchronized void makeOverlappingRequest() {
+      if (m_nextRequest != null || this.isStopping()) return;
+      try {
+         URIBuilder uri = new URIBuilder(m_getRequest.getURI()).setParameter("overlap", "true");
+         if (m_sequenceTracker != null) {
+            uri.setParameter("ack_sequence", String.valueOf(m_sequenceTracker.getAcknowledged()));
+         }
+         final OverlappingRequest next = new OverlappingRequest();
+         next.m_request = new HttpGet(uri.build());
+         next.m_issued = System.currentTimeMillis();
+         next.m_timeout = Math.max(m_chunkTimeout, m_idleTimeout);
+         final HttpClient httpClient = m_httpClient;
+         next.m_response = sm_requestPool.submit(new Callable<HttpResponse>() {
+            @Override public HttpResponse call() throws Exception {
+               return httpClient.execute(next.m_request);
+            }
+         });
+         m_nextRequest = next;
+      } catch (URISyntaxException e) {
+         System.err.println("Unable to make overlapping request: " + e.getMessage());
+      }
    }
    
 
@@ -48,6 +48,7 @@ public abstract class MessageRelayTask implements Runnable
 {
    
    public static String DEFAULT_RELAY_APP_PATH = "/harp-amqp-relay-web/relay";
+   public static String BLOB_PATH = "blob";
    public static int DEFAULT_CHUNK_LIMIT = 100;
    public static long DEFAULT_CHUNK_TIMEOUT = 5000;
    
@@ -57,9 +58,13 @@ public abstract class MessageRelayTask implements Runnable
    protected String m_clientID;
    protected int m_chunkLimit;
    protected long m_chunkTimeout;
+   protected long m_chunkBytes = 0;
+   protected ChunkController m_chunkController = null;
    
    protected HttpClient m_httpClient;
    
+   private ClaimCheckClient m_claimCheckClient = null;
+   
    private boolean m_stop = false;
    
    /**
@@ -117,11 +122,74 @@ public abstract class MessageRelayTask implements Runnable
       this(targetURL,clientID,DEFAULT_CHUNK_LIMIT,DEFAULT_CHUNK_TIMEOUT);
    }
    
+   /**
+    * Adapt the chunk limit and chunk timeout to the traffic each request cycle carries, rather
+    * than keeping them fixed. The current chunking parameters are the starting point.
+    * @param controller The ChunkController that adjusts the chunking parameters, or null to
+    * keep them fixed.
+    */
+   public synchronized void setChunkController(ChunkController controller) {
+      m_chunkController = controller;
+      if (controller != null) {
+         controller.reset(m_chunkLimit, m_chunkTimeout);
+         m_chunkLimit = controller.getChunkLimit();
+         m_chunkTimeout = controller.getChunkTimeout();
+      }
+   }
+   
+   /**
+    * End each request cycle once the messages it carries reach a byte budget, as well as the
+    * chunk limit, so cycles of large messages stay within what proxies and memory limits allow.
+    * @param chunkBytes The byte budget, measured as the encoded size of the messages, or 0 for none.
+    */
+   public synchronized void setChunkBytes(long chunkBytes) {
+      m_chunkBytes = chunkBytes;
+   }
+   
+   /**
+    * Called by child classes when a request cycle completes, so the chunking parameters for the
+    * next cycle can be adjusted.
+    * @param messages The number of messages the cycle carried.
+    * @param bytes The number of payload bytes the cycle carried.
+    * @param duration The time, in ms, the cycle took.
+    */
+   protected synchronized void cycleCompleted(int messages, long bytes, long duration) {
+      if (m_chunkController == null) return;
+      m_chunkController.cycleCompleted(messages, bytes, duration);
+      m_chunkLimit = m_chunkController.getChunkLimit();
+      m_chunkTimeout = m_chunkController.getChunkTimeout();
+   }
+   
+   /**
+    * Get the client used to move claim checked message payloads to and from the relay server's
+    * blob endpoint, which sits next to the relay servlet ("/harp-amqp-relay-web/blob" for the
+    * default relay application path).
+    * @return The ClaimCheckClient for this task.
+    * @throws URISyntaxException
+    */
+   protected synchronized ClaimCheckClient getClaimCheckClient() throws URISyntaxException {
+      if (m_claimCheckClient == null) {
+         URI blobURI = new URIBuilder(m_appURI.resolve(BLOB_PATH))
+         .setParameter("client_id", m_clientID).build();
+         m_claimCheckClient = new ClaimCheckClient(blobURI);
+      }
+      return m_claimCheckClient;
+   }
+   
    /**
     * Handle a single request cycle. Must be overridden by child classes.
     * @throws Exception
     */
    protected abstract void doRequest() throws Exception;
+   
+   /**
+    * Called when a request cycle fails because the server is unavailable, before the next
+    * request cycle is attempted. By default this just waits a little while.
+    * @throws Exception
+    */
+   protected void handleConnectionFailure() throws Exception {
+      Thread.sleep(CONNECTION_FAIL_RETRY_PAUSE);
+   }
 
    @Override
    public void run() {
@@ -138,7 +206,7 @@ public abstract class MessageRelayTask implements Runnable
                this.doRequest();
             } catch (NoHttpResponseException | SocketException e) {
                // The server is unavailable. Hopefully temporarily. Wait a bit then retry
-               Thread.sleep(CONNECTION_FAIL_RETRY_PAUSE);
+               this.handleConnectionFailure();
             }
             
          }
@@ -157,5 +225,12 @@ public abstract class MessageRelayTask implements Runnable
       m_stop = true;
    }
    
+   /**
+    * @return True if the task has been asked to stop, but has not yet stopped.
+    */
+   protected boolean isStopping() {
+      return m_stop;
+   }
+   
 
 }
@@ -28,13 +28,24 @@
 
 package com.rapid7.component.messaging.relay.client;
 
+import com.rapid7.component.messaging.relay.BatchMessageHandler;
+import com.rapid7.component.messaging.relay.DeferredAckRetriever;
 import com.rapid7.component.messaging.relay.MessageHandler;
+import com.rapid7.component.messaging.relay.MessageHandlerChain;
 import com.rapid7.component.messaging.relay.MessageRetriever;
 import com.rapid7.component.messaging.relay.MessageRetrieverEntity;
+import com.rapid7.component.messaging.relay.RetransmitBuffer;
+import com.rapid7.component.messaging.relay.StoreAndForwardLog;
+import com.rapid7.component.messaging.relay.amqp.FlushPolicy;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import java.io.IOException;
 import java.net.URISyntaxException;
-import org.apache.http.HttpEntity;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.URIBuilder;
 
 /**
  * A Runnable task implementation that can be used by clients to connect to
@@ -43,9 +54,77 @@ import org.apache.http.client.methods.HttpPost;
  */
 public class MessageTransmitterTask extends MessageRelayTask
 {
+   public static int DEFAULT_REPLAY_LIMIT = 1000;
+   
+   /**
+    * Counts the messages, and their payload bytes, that pass through it.
+    */
+   private static class CountingHandler implements MessageHandler, BatchMessageHandler {
+      private int m_messages = 0;
+      private long m_bytes = 0;
+      
+      @Override
+      public synchronized boolean handle(EncodedMessage message) {
+         m_messages++;
+         m_bytes += message.getPayload().size();
+         return true;
+      }
+      
+      @Override
+      public synchronized List<EncodedMessage> handleBatch(List<EncodedMessage> messages) {
+         for (EncodedMessage message : messages) this.handle(message);
+         return messages;
+      }
+   }
+   
+   /**
+    * Stores messages in the store and forward log, remembering which ones it has stored. Stored
+    * messages are acknowledged to the broker once the log has been forced, so the logged copies
+    * do not carry a deferred ack, and are never acknowledged again when they are replayed.
+    */
+   private static class StoringHandler implements MessageHandler, BatchMessageHandler {
+      private StoreAndForwardLog m_log;
+      private List<EncodedMessage> m_stored = new ArrayList<EncodedMessage>();
+      
+      private StoringHandler(StoreAndForwardLog log) {
+         m_log = log;
+      }
+      
+      @Override
+      public boolean handle(EncodedMessage message) {
+         if (!m_log.handle(toLogged(message))) return false;
+         m_stored.add(message);
+         return true;
+      }
+      
+      @Override
+      public List<EncodedMessage> handleBatch(List<EncodedMessage> messages) {
+         List<EncodedMessage> logged = new ArrayList<EncodedMessage>(messages.size());
+         for (EncodedMessage message : messages) logged.add(toLogged(message));
+         int stored = m_log.handleBatch(logged).size();
+         List<EncodedMessage> storedMessages = messages.subList(0, stored);
+         m_stored.addAll(storedMessages);
+         return storedMessages;
+      }
+      
+      private static EncodedMessage toLogged(EncodedMessage message) {
+         // Full ack messages keep their channel ID, which the server needs to acknowledge them
+         if (message.getDoAck() || !message.hasChannelID()) return message;
+         return message.toBuilder().clearChannelID().build();
+      }
+   }
+   
    private HttpPost m_postRequest;
    private MessageRetriever m_retriever;
    private MessageHandler m_additionalHandler = null;
+   private FlushPolicy m_flushPolicy = FlushPolicy.immediate();
+   private boolean m_useDictionary = false;
+   private int m_fragmentSize = 0;
+   private int m_claimCheckSize = 0;
+   private RetransmitBuffer m_retransmitBuffer = null;
+   private boolean m_journaled = false;
+   private StoreAndForwardLog m_storeAndForwardLog = null;
+   private int m_replayLimit = DEFAULT_REPLAY_LIMIT;
    
    /**
     * Create a new MessageTransmitterTask
@@ -134,20 +213,191 @@ public class MessageTransmitterTask extends MessageRelayTask
    }
 
       
+   /**
+    * Set the policy used to flush messages to the outgoing HTTP(S) request stream. By default
+    * every message is flushed as soon as it has been written.
+    * @param flushPolicy The FlushPolicy to use for subsequent request cycles.
+    */
+   public void setFlushPolicy(FlushPolicy flushPolicy) {
+      m_flushPolicy = flushPolicy;
+   }
+   
+   /**
+    * Compress the outgoing HTTP(S) request stream with a stream dictionary, so repeated exchange
+    * names, routing keys, content types and header names are only sent once per request cycle,
+    * and unchanged message properties are delta encoded. The relay server must support stream
+    * dictionaries.
+    * @param useDictionary True to compress the request stream.
+    */
+   public void setUseDictionary(boolean useDictionary) {
+      m_useDictionary = useDictionary;
+   }
+   
+   /**
+    * Split outgoing messages with payloads larger than the fragment size into fragments, so
+    * large messages do not hold up acks and other small messages. The relay server must support
+    * fragmented messages.
+    * @param fragmentSize The fragment size in bytes, or 0 to never fragment messages.
+    */
+   public void setFragmentSize(int fragmentSize) {
+      m_fragmentSize = fragmentSize;
+   }
+   
+   /**
+    * Send outgoing messages with payloads larger than the claim check size out of band. Their
+    * payloads are uploaded to the relay server's blob endpoint, with resumable range requests,
+    * and the messages are sent with a claim check in place of their payload. The relay server
+    * must have a blob store.
+    * @param claimCheckSize The payload size in bytes above which payloads are sent out of band,
+    * or 0 to always send payloads inline.
+    */
+   public void setClaimCheckSize(int claimCheckSize) {
+      m_claimCheckSize = claimCheckSize;
+   }
+   
+   /**
+    * Make the outgoing request stream resumable. Every message sent is kept until the relay server
+    * confirms that it has received it, and messages that were not confirmed because a request cycle
+    * broke off are sent again at the start of the next one. If the server does not confirm a request,
+    * because it does not support resumable streams, its messages are released anyway.
+    * @param resumable True to make the request stream resumable.
+    * @throws URISyntaxException
+    */
+   public void setResumable(boolean resumable) throws URISyntaxException {
+      this.setRetransmitBuffer(resumable ? new RetransmitBuffer() : null);
+   }
+   
+   /**
+    * Keep a transmit journal of the outgoing request stream, so no message is lost if a request
+    * cycle fails. This makes the request stream resumable, and in addition messages from queues
+    * without full acknowledgment are only acknowledged to the local broker once the relay server
+    * has confirmed that it received them. The retriever must be a DeferredAckRetriever for that.
+    * Messages are never dropped from the journal; the broker's prefetch limit bounds its size.
+    * @param journaled True to keep a transmit journal.
+    * @throws URISyntaxException
+    * @throws IOException
+    */
+   public void setJournaled(boolean journaled) throws URISyntaxException, IOException {
+      this.setRetransmitBuffer(journaled ? new RetransmitBuffer(Integer.MAX_VALUE, Long.MAX_VALUE) : null);
+      if (m_retriever instanceof DeferredAckRetriever) {
+         ((DeferredAckRetriever)m_retriever).setDeferredAck(journaled);
+         m_journaled = journaled;
+      }
+   }
+   
+   /**
+    * Store messages in a local log while the relay server is unavailable. Instead of leaving
+    * forwarded messages to back up in the local broker during an outage, the task keeps draining
+    * them into the log, and once the server is available again the log is forwarded ahead of any
+    * new messages, as fast as the server takes them. Messages are only removed from the log once
+    * the server has accepted the request that carried them.
+    * @param log The store and forward log, or null to leave messages in the broker during outages.
+    * @param replayLimit The maximum number of logged messages to forward in a single request cycle.
+    */
+   public void setStoreAndForwardLog(StoreAndForwardLog log, int replayLimit) {
+      m_storeAndForwardLog = log;
+      m_replayLimit = replayLimit;
+   }
+   
+   private void setRetransmitBuffer(RetransmitBuffer buffer) throws URISyntaxException {
+      m_retransmitBuffer = buffer;
+      if (buffer != null) {
+         m_postRequest.setURI(new URIBuilder(m_appURI)
+         .setParameter("stream_epoch", String.valueOf(buffer.getEpoch())).build());
+      } else {
+         m_postRequest.setURI(m_appURI);
+      }
+   }
+   
+   @Override
+   protected void handleConnectionFailure() throws Exception {
+      if (m_storeAndForwardLog == null) {
+         super.handleConnectionFailure();
+         return;
+      }
+      
+      // Drain forwarded messages into the log for as long as we would otherwise have waited
+      StoringHandler logHandler = new StoringHandler(m_storeAndForwardLog);
+      m_retriever.retrieve(logHandler, m_chunkLimit, CONNECTION_FAIL_RETRY_PAUSE);
+      m_storeAndForwardLog.force();
+      if (m_journaled) ((DeferredAckRetriever)m_retriever).acknowledge(logHandler.m_stored);
+   }
    
    @Override
    protected void doRequest() throws Exception {
+      // Forward anything stored during an outage before retrieving new messages
+      if (m_storeAndForwardLog != null && !m_storeAndForwardLog.isEmpty()) {
+         boolean accepted = false;
+         try {
+            accepted = this.doRequest(m_storeAndForwardLog, m_replayLimit, 0);
+         } finally {
+            if (accepted) {
+               m_storeAndForwardLog.commit();
+            } else {
+               m_storeAndForwardLog.rollback();
+            }
+         }
+      } else if (m_chunkController != null) {
+         // Count what the cycle carries, so the chunking parameters can be adjusted
+         long start = System.currentTimeMillis();
+         CountingHandler counter = new CountingHandler();
+         MessageHandlerChain handler = new MessageHandlerChain().add(counter);
+         if (m_additionalHandler != null) handler.add(m_additionalHandler);
+         this.doRequest(m_retriever, m_chunkLimit, m_chunkTimeout, handler);
+         synchronized (counter) {
+            this.cycleCompleted(counter.m_messages, counter.m_bytes, System.currentTimeMillis() - start);
+         }
+      } else {
+         this.doRequest(m_retriever, m_chunkLimit, m_chunkTimeout);
+      }
+   }
+   
+   /**
+    * Handle a single request cycle, transmitting messages from the specified retriever.
+    * @return True if the server accepted the request.
+    * @throws Exception
+    */
+   private boolean doRequest(MessageRetriever retriever, int chunkLimit, long chunkTimeout) throws Exception {
+      return this.doRequest(retriever, chunkLimit, chunkTimeout, m_additionalHandler);
+   }
+   
+   /**
+    * Handle a single request cycle, transmitting messages from the specified retriever through
+    * the specified additional handler.
+    * @return True if the server accepted the request.
+    * @throws Exception
+    */
+   private boolean doRequest(MessageRetriever retriever, int chunkLimit, long chunkTimeout,
+         MessageHandler additionalHandler) throws Exception {
       // Create an entity from the MessageRetriever
-      HttpEntity entity = new MessageRetrieverEntity(m_retriever,m_chunkLimit,m_chunkTimeout,
-      	m_additionalHandler);
+      MessageRetrieverEntity entity = new MessageRetrieverEntity(retriever,chunkLimit,chunkTimeout,
+      	additionalHandler,m_flushPolicy);
+      entity.setUseDictionary(m_useDictionary);
+      entity.setFragmentSize(m_fragmentSize);
+      entity.setChunkBytes(m_chunkBytes);
+      if (m_claimCheckSize > 0) entity.setClaimCheckStore(this.getClaimCheckClient(), m_claimCheckSize);
+      entity.setRetransmitBuffer(m_retransmitBuffer);
       
       // Set the outgoing HTTP(S) POST content to the entity
       m_postRequest.setEntity(entity);
       
       // Execute the POST request
       HttpResponse response = m_httpClient.execute(m_postRequest);
-      // Ignore the response, for now
+      int status = response.getStatusLine().getStatusCode();
+      if (m_retransmitBuffer != null && status >= 200 && status < 300) {
+         // Release whatever the server has confirmed
+         Header ack = response.getFirstHeader(RetransmitBuffer.ACK_HEADER);
+         List<EncodedMessage> confirmed;
+         if (ack != null) {
+            confirmed = m_retransmitBuffer.acknowledge(m_retransmitBuffer.getEpoch(), Long.parseLong(ack.getValue()));
+         } else {
+            confirmed = m_retransmitBuffer.clear();
+         }
+         if (m_journaled) ((DeferredAckRetriever)m_retriever).acknowledge(confirmed);
+      }
+      // Ignore the rest of the response, for now
       response.getEntity().getContent().close();
+      return status >= 200 && status < 300;
    }
    
 
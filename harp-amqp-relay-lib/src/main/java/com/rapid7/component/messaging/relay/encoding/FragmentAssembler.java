@@ -0,0 +1,135 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay.encoding;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reassembles messages whose payloads were split into fragments by the sending side of a
+ * stream. The payload buffer for a message is allocated in full when its first fragment
+ * arrives, and the total size of all partially assembled payloads is bounded. An instance
+ * should only be used for a single stream, and is not thread safe.
+ */
+public class FragmentAssembler
+{
+   public static final int DEFAULT_MAX_PENDING_BYTES = 64 * 1024 * 1024;
+   
+   private static class PartialMessage {
+      private EncodedMessage m_first;
+      private byte[] m_payload;
+      private int m_position = 0;
+      private int m_nextIndex = 0;
+   }
+   
+   private int m_maxPendingBytes;
+   private long m_pendingBytes = 0;
+   private Map<Long,PartialMessage> m_partials = new HashMap<Long,PartialMessage>();
+   
+   /**
+    * Create a new FragmentAssembler.
+    * @param maxPendingBytes The maximum total size, in bytes, of the payloads being reassembled.
+    */
+   public FragmentAssembler(int maxPendingBytes) {
+      m_maxPendingBytes = maxPendingBytes;
+   }
+   
+   public FragmentAssembler() {
+      this(DEFAULT_MAX_PENDING_BYTES);
+   }
+   
+   /**
+    * Add a fragment. Later fragments of a message whose first fragment was never added (for
+    * example because it was filtered out) are ignored.
+    * @param fragment A message carrying a payload fragment.
+    * @return The reassembled message if this was its last fragment, otherwise null.
+    * @throws InvalidProtocolBufferException If the fragment is out of order or inconsistent, or
+    * if reassembling it would exceed the pending bytes limit.
+    */
+   public EncodedMessage add(EncodedMessage fragment) throws InvalidProtocolBufferException {
+      Fragment info = fragment.getFragment();
+      PartialMessage partial;
+      if (info.getIndex() == 0) {
+         int totalSize = info.getTotalSize();
+         if (!info.hasTotalSize() || totalSize < 0 || info.getCount() < 1) {
+            throw new InvalidProtocolBufferException("Invalid first fragment of message " + info.getId() + ".");
+         }
+         if (m_partials.containsKey(info.getId())) {
+            throw new InvalidProtocolBufferException("Duplicate fragmented message " + info.getId() + ".");
+         }
+         if (m_pendingBytes + totalSize > m_maxPendingBytes) {
+            throw new InvalidProtocolBufferException("Fragmented message of " + totalSize 
+               + " bytes exceeds the reassembly limit of " + m_maxPendingBytes + " bytes.");
+         }
+         partial = new PartialMessage();
+         partial.m_first = fragment;
+         partial.m_payload = new byte[totalSize];
+         m_pendingBytes += totalSize;
+         m_partials.put(info.getId(), partial);
+      } else {
+         partial = m_partials.get(info.getId());
+         if (partial == null) return null;
+         if (info.getIndex() != partial.m_nextIndex) {
+            throw new InvalidProtocolBufferException("Fragment " + info.getIndex() + " of message " 
+               + info.getId() + " is out of order.");
+         }
+      }
+      
+      ByteString data = fragment.getPayload();
+      if (partial.m_position + data.size() > partial.m_payload.length) {
+         throw new InvalidProtocolBufferException("Fragments of message " + info.getId() + " exceed its total size.");
+      }
+      data.copyTo(partial.m_payload, 0, partial.m_position, data.size());
+      partial.m_position += data.size();
+      partial.m_nextIndex++;
+      if (partial.m_nextIndex < partial.m_first.getFragment().getCount()) return null;
+      
+      m_partials.remove(info.getId());
+      m_pendingBytes -= partial.m_payload.length;
+      if (partial.m_position != partial.m_payload.length) {
+         throw new InvalidProtocolBufferException("Fragments of message " + info.getId() + " are incomplete.");
+      }
+      return partial.m_first.toBuilder()
+         .clearFragment()
+         .setPayload(ZeroCopyByteString.wrap(partial.m_payload))
+         .build();
+   }
+   
+   /**
+    * @return The number of messages that are partially reassembled.
+    */
+   public int getPendingCount() {
+      return m_partials.size();
+   }
+
+}
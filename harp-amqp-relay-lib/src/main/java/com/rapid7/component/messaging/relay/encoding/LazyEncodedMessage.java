@@ -0,0 +1,267 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay.encoding;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol;
+import java.io.IOException;
+
+/**
+ * A lazily decoded view of a serialized EncodedMessage. Only the envelope level fields (the
+ * envelope itself, the ack flag and the channel ID) are decoded up front. The properties and
+ * payload are kept as raw slices of the serialized frame and are only decoded when they are
+ * asked for, so stages that only need to route, filter or ack a message never pay for
+ * decoding the rest of it.<P>
+ * A view references the frame it was parsed from, so it must not be used after the frame
+ * array has been reused. Symbols defined by the frame are added to the stream's dictionary as
+ * the frame is parsed, and all symbol references and property deltas are resolved before values
+ * are returned. To keep the dictionary in step with the sending side, the properties of every
+ * view that has properties must be decoded before the next frame is parsed, even if the message
+ * is then discarded.
+ */
+public class LazyEncodedMessage
+{
+   private static final int ENVELOPE_TAG = tag(EncodedMessage.ENVELOPE_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+   private static final int PROPERTIES_TAG = tag(EncodedMessage.PROPERTIES_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+   private static final int PAYLOAD_TAG = tag(EncodedMessage.PAYLOAD_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+   private static final int DO_ACK_TAG = tag(EncodedMessage.DOACK_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+   private static final int CHANNEL_ID_TAG = tag(EncodedMessage.CHANNELID_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+   private static final int SYMBOLS_TAG = tag(EncodedMessage.SYMBOLS_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+   private static final int FRAGMENT_TAG = tag(EncodedMessage.FRAGMENT_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+   private static final int CLAIM_CHECK_TAG = tag(EncodedMessage.CLAIMCHECK_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+   private static final int SEQUENCE_TAG = tag(EncodedMessage.SEQUENCE_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+   
+   private static int tag(int fieldNumber, int wireType) {
+      return (fieldNumber << 3) | wireType;
+   }
+   
+   private byte[] m_frame;
+   private StreamDictionary m_dictionary;
+   private EncodedEnvelope m_envelope;
+   private boolean m_doAck = false;
+   private boolean m_hasChannelID = false;
+   private int m_channelID = 0;
+   private Fragment m_fragment = null;
+   private ClaimCheck m_claimCheck = null;
+   private long m_sequence = 0;
+   private boolean m_hasSequence = false;
+   private int m_propertiesOffset = -1;
+   private int m_propertiesLength = 0;
+   private int m_payloadOffset = -1;
+   private int m_payloadLength = 0;
+   private EncodedProperties m_properties = null;
+   private EncodedMessage m_message = null;
+   
+   private LazyEncodedMessage(byte[] frame, StreamDictionary dictionary) {
+      m_frame = frame;
+      m_dictionary = dictionary;
+   }
+   
+   /**
+    * Parse the envelope level fields of a serialized EncodedMessage.
+    * @param frame The array holding the serialized message.
+    * @param offset The offset of the message within the array.
+    * @param length The length of the serialized message.
+    * @param dictionary The dictionary of the stream the frame was read from.
+    * @return The lazy message view.
+    * @throws InvalidProtocolBufferException If the frame is not a valid EncodedMessage.
+    */
+   public static LazyEncodedMessage parseFrom(byte[] frame, int offset, int length, 
+         StreamDictionary dictionary) throws InvalidProtocolBufferException {
+      LazyEncodedMessage message = new LazyEncodedMessage(frame, dictionary);
+      CodedInputStream input = CodedInputStream.newInstance(frame, offset, length);
+      input.setSizeLimit(length);
+      EncodedEnvelope.Builder envelope = null;
+      try {
+         while (true) {
+            int tag = input.readTag();
+            if (tag == 0) {
+               break;
+            } else if (tag == ENVELOPE_TAG) {
+               if (envelope == null) envelope = EncodedEnvelope.newBuilder();
+               input.readMessage(envelope, ExtensionRegistryLite.getEmptyRegistry());
+            } else if (tag == PROPERTIES_TAG) {
+               message.m_propertiesLength = input.readRawVarint32();
+               message.m_propertiesOffset = offset + input.getTotalBytesRead();
+               input.skipRawBytes(message.m_propertiesLength);
+            } else if (tag == PAYLOAD_TAG) {
+               message.m_payloadLength = input.readRawVarint32();
+               message.m_payloadOffset = offset + input.getTotalBytesRead();
+               input.skipRawBytes(message.m_payloadLength);
+            } else if (tag == DO_ACK_TAG) {
+               message.m_doAck = input.readBool();
+            } else if (tag == CHANNEL_ID_TAG) {
+               message.m_channelID = input.readInt32();
+               message.m_hasChannelID = true;
+            } else if (tag == SYMBOLS_TAG) {
+               Symbol.Builder symbol = Symbol.newBuilder();
+               input.readMessage(symbol, ExtensionRegistryLite.getEmptyRegistry());
+               dictionary.define(symbol.build());
+            } else if (tag == FRAGMENT_TAG) {
+               Fragment.Builder fragment = Fragment.newBuilder();
+               input.readMessage(fragment, ExtensionRegistryLite.getEmptyRegistry());
+               message.m_fragment = fragment.build();
+            } else if (tag == CLAIM_CHECK_TAG) {
+               ClaimCheck.Builder claimCheck = ClaimCheck.newBuilder();
+               input.readMessage(claimCheck, ExtensionRegistryLite.getEmptyRegistry());
+               message.m_claimCheck = claimCheck.build();
+            } else if (tag == SEQUENCE_TAG) {
+               message.m_sequence = input.readInt64();
+               message.m_hasSequence = true;
+            } else if (!input.skipField(tag)) {
+               break;
+            }
+         }
+      } catch (InvalidProtocolBufferException e) {
+         throw e;
+      } catch (IOException e) {
+         throw new InvalidProtocolBufferException(e.getMessage());
+      }
+      if (envelope == null || !envelope.isInitialized()) {
+         throw new InvalidProtocolBufferException("EncodedMessage is missing a valid envelope.");
+      }
+      message.m_envelope = dictionary.expand(envelope.build());
+      // Messages without properties still reset the delta base for their destination
+      if (!message.hasProperties() && !StreamDictionary.isContinuation(message.m_fragment)) {
+         dictionary.expand(message.m_envelope, null);
+      }
+      return message;
+   }
+   
+   public EncodedEnvelope getEnvelope() {
+      return m_envelope;
+   }
+   
+   public boolean getDoAck() {
+      return m_doAck;
+   }
+   
+   public boolean hasChannelID() {
+      return m_hasChannelID;
+   }
+   
+   public int getChannelID() {
+      return m_channelID;
+   }
+   
+   public boolean hasFragment() {
+      return m_fragment != null;
+   }
+   
+   public Fragment getFragment() {
+      return (m_fragment == null) ? Fragment.getDefaultInstance() : m_fragment;
+   }
+   
+   public boolean hasSequence() {
+      return m_hasSequence;
+   }
+   
+   public long getSequence() {
+      return m_sequence;
+   }
+   
+   public boolean hasClaimCheck() {
+      return m_claimCheck != null;
+   }
+   
+   public ClaimCheck getClaimCheck() {
+      return (m_claimCheck == null) ? ClaimCheck.getDefaultInstance() : m_claimCheck;
+   }
+   
+   public boolean hasProperties() {
+      return m_propertiesOffset >= 0;
+   }
+   
+   /**
+    * Decode the message properties.
+    * @return The decoded properties, or the default (empty) instance if the message has none.
+    * @throws InvalidProtocolBufferException
+    */
+   public EncodedProperties getProperties() throws InvalidProtocolBufferException {
+      if (!this.hasProperties()) return EncodedProperties.getDefaultInstance();
+      if (m_properties == null) {
+         CodedInputStream input = CodedInputStream.newInstance(m_frame, m_propertiesOffset, m_propertiesLength);
+         try {
+            m_properties = m_dictionary.expand(m_envelope, EncodedProperties.parseFrom(input));
+         } catch (InvalidProtocolBufferException e) {
+            throw e;
+         } catch (IOException e) {
+            throw new InvalidProtocolBufferException(e.getMessage());
+         }
+      }
+      return m_properties;
+   }
+   
+   public boolean hasPayload() {
+      return m_payloadOffset >= 0;
+   }
+   
+   /**
+    * Get a copy of the message payload.
+    * @return The payload bytes, or an empty ByteString if the message has no payload.
+    */
+   public ByteString getPayload() {
+      if (m_message != null) return m_message.getPayload();
+      if (!this.hasPayload()) return ByteString.EMPTY;
+      return ByteString.copyFrom(m_frame, m_payloadOffset, m_payloadLength);
+   }
+   
+   /**
+    * Fully decode the message. The envelope decoded up front is reused, and the decoded
+    * message is cached, so repeated calls are cheap.
+    * @return The decoded EncodedMessage.
+    * @throws InvalidProtocolBufferException
+    */
+   public EncodedMessage getMessage() throws InvalidProtocolBufferException {
+      if (m_message == null) {
+         EncodedMessage.Builder builder = EncodedMessage.newBuilder().setEnvelope(m_envelope);
+         if (this.hasProperties()) builder.setProperties(this.getProperties());
+         if (this.hasPayload()) builder.setPayload(this.getPayload());
+         if (m_doAck) builder.setDoAck(true);
+         if (m_hasChannelID) builder.setChannelID(m_channelID);
+         if (m_fragment != null) builder.setFragment(m_fragment);
+         if (m_claimCheck != null) builder.setClaimCheck(m_claimCheck);
+         if (m_hasSequence) builder.setSequence(m_sequence);
+         m_message = builder.build();
+         // The frame is no longer needed once the message has been decoded
+         m_frame = null;
+      }
+      return m_message;
+   }
+
+}
@@ -18,6 +18,10 @@ public final class MessageRelayEncoding {
     // required string value = 2;
     boolean hasValue();
     String getValue();
+    
+    // optional int32 nameSymbol = 3;
+    boolean hasNameSymbol();
+    int getNameSymbol();
   }
   public static final class Header extends
       com.google.protobuf.GeneratedMessage
@@ -112,9 +116,20 @@ public final class MessageRelayEncoding {
       }
     }
     
+    // optional int32 nameSymbol = 3;
+    public static final int NAMESYMBOL_FIELD_NUMBER = 3;
+    private int nameSymbol_;
+    public boolean hasNameSymbol() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    public int getNameSymbol() {
+      return nameSymbol_;
+    }
+    
     private void initFields() {
       name_ = "";
       value_ = "";
+      nameSymbol_ = 0;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -142,6 +157,9 @@ public final class MessageRelayEncoding {
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
         output.writeBytes(2, getValueBytes());
       }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeInt32(3, nameSymbol_);
+      }
       getUnknownFields().writeTo(output);
     }
     
@@ -159,6 +177,10 @@ public final class MessageRelayEncoding {
         size += com.google.protobuf.CodedOutputStream
           .computeBytesSize(2, getValueBytes());
       }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(3, nameSymbol_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -287,6 +309,8 @@ public final class MessageRelayEncoding {
         bitField0_ = (bitField0_ & ~0x00000001);
         value_ = "";
         bitField0_ = (bitField0_ & ~0x00000002);
+        nameSymbol_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000004);
         return this;
       }
       
@@ -333,6 +357,10 @@ public final class MessageRelayEncoding {
           to_bitField0_ |= 0x00000002;
         }
         result.value_ = value_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.nameSymbol_ = nameSymbol_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -355,6 +383,9 @@ public final class MessageRelayEncoding {
         if (other.hasValue()) {
           setValue(other.getValue());
         }
+        if (other.hasNameSymbol()) {
+          setNameSymbol(other.getNameSymbol());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -404,6 +435,11 @@ public final class MessageRelayEncoding {
               value_ = input.readBytes();
               break;
             }
+            case 24: {
+              bitField0_ |= 0x00000004;
+              nameSymbol_ = input.readInt32();
+              break;
+            }
           }
         }
       }
@@ -482,6 +518,27 @@ public final class MessageRelayEncoding {
         onChanged();
       }
       
+      // optional int32 nameSymbol = 3;
+      private int nameSymbol_ ;
+      public boolean hasNameSymbol() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      public int getNameSymbol() {
+        return nameSymbol_;
+      }
+      public Builder setNameSymbol(int value) {
+        bitField0_ |= 0x00000004;
+        nameSymbol_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearNameSymbol() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        nameSymbol_ = 0;
+        onChanged();
+        return this;
+      }
+      
       // @@protoc_insertion_point(builder_scope:Header)
     }
     
@@ -493,104 +550,64 @@ public final class MessageRelayEncoding {
     // @@protoc_insertion_point(class_scope:Header)
   }
   
-  public interface EncodedEnvelopeOrBuilder
+  public interface SymbolOrBuilder
       extends com.google.protobuf.MessageOrBuilder {
     
-    // required int64 deliveryTag = 1;
-    boolean hasDeliveryTag();
-    long getDeliveryTag();
-    
-    // required string exchange = 2;
-    boolean hasExchange();
-    String getExchange();
-    
-    // required string routingKey = 3;
-    boolean hasRoutingKey();
-    String getRoutingKey();
+    // required int32 id = 1;
+    boolean hasId();
+    int getId();
     
-    // optional bool isRedeliver = 4;
-    boolean hasIsRedeliver();
-    boolean getIsRedeliver();
+    // required string value = 2;
+    boolean hasValue();
+    String getValue();
   }
-  public static final class EncodedEnvelope extends
+  public static final class Symbol extends
       com.google.protobuf.GeneratedMessage
-      implements EncodedEnvelopeOrBuilder {
-    // Use EncodedEnvelope.newBuilder() to construct.
-    private EncodedEnvelope(Builder builder) {
+      implements SymbolOrBuilder {
+    // Use Symbol.newBuilder() to construct.
+    private Symbol(Builder builder) {
       super(builder);
     }
-    private EncodedEnvelope(boolean noInit) {}
+    private Symbol(boolean noInit) {}
     
-    private static final EncodedEnvelope defaultInstance;
-    public static EncodedEnvelope getDefaultInstance() {
+    private static final Symbol defaultInstance;
+    public static Symbol getDefaultInstance() {
       return defaultInstance;
     }
     
-    public EncodedEnvelope getDefaultInstanceForType() {
+    public Symbol getDefaultInstanceForType() {
       return defaultInstance;
     }
     
     public static final com.google.protobuf.Descriptors.Descriptor
         getDescriptor() {
-      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedEnvelope_descriptor;
+      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_Symbol_descriptor;
     }
     
     protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
         internalGetFieldAccessorTable() {
-      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedEnvelope_fieldAccessorTable;
+      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_Symbol_fieldAccessorTable;
     }
     
     private int bitField0_;
-    // required int64 deliveryTag = 1;
-    public static final int DELIVERYTAG_FIELD_NUMBER = 1;
-    private long deliveryTag_;
-    public boolean hasDeliveryTag() {
+    // required int32 id = 1;
+    public static final int ID_FIELD_NUMBER = 1;
+    private int id_;
+    public boolean hasId() {
       return ((bitField0_ & 0x00000001) == 0x00000001);
     }
-    public long getDeliveryTag() {
-      return deliveryTag_;
+    public int getId() {
+      return id_;
     }
     
-    // required string exchange = 2;
-    public static final int EXCHANGE_FIELD_NUMBER = 2;
-    private java.lang.Object exchange_;
-    public boolean hasExchange() {
+    // required string value = 2;
+    public static final int VALUE_FIELD_NUMBER = 2;
+    private java.lang.Object value_;
+    public boolean hasValue() {
       return ((bitField0_ & 0x00000002) == 0x00000002);
     }
-    public String getExchange() {
-      java.lang.Object ref = exchange_;
-      if (ref instanceof String) {
-        return (String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        String s = bs.toStringUtf8();
-        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
-          exchange_ = s;
-        }
-        return s;
-      }
-    }
-    private com.google.protobuf.ByteString getExchangeBytes() {
-      java.lang.Object ref = exchange_;
-      if (ref instanceof String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
-        exchange_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
-    }
-    
-    // required string routingKey = 3;
-    public static final int ROUTINGKEY_FIELD_NUMBER = 3;
-    private java.lang.Object routingKey_;
-    public boolean hasRoutingKey() {
-      return ((bitField0_ & 0x00000004) == 0x00000004);
-    }
-    public String getRoutingKey() {
-      java.lang.Object ref = routingKey_;
+    public String getValue() {
+      java.lang.Object ref = value_;
       if (ref instanceof String) {
         return (String) ref;
       } else {
@@ -598,53 +615,37 @@ public final class MessageRelayEncoding {
             (com.google.protobuf.ByteString) ref;
         String s = bs.toStringUtf8();
         if (com.google.protobuf.Internal.isValidUtf8(bs)) {
-          routingKey_ = s;
+          value_ = s;
         }
         return s;
       }
     }
-    private com.google.protobuf.ByteString getRoutingKeyBytes() {
-      java.lang.Object ref = routingKey_;
+    private com.google.protobuf.ByteString getValueBytes() {
+      java.lang.Object ref = value_;
       if (ref instanceof String) {
         com.google.protobuf.ByteString b = 
             com.google.protobuf.ByteString.copyFromUtf8((String) ref);
-        routingKey_ = b;
+        value_ = b;
         return b;
       } else {
         return (com.google.protobuf.ByteString) ref;
       }
     }
     
-    // optional bool isRedeliver = 4;
-    public static final int ISREDELIVER_FIELD_NUMBER = 4;
-    private boolean isRedeliver_;
-    public boolean hasIsRedeliver() {
-      return ((bitField0_ & 0x00000008) == 0x00000008);
-    }
-    public boolean getIsRedeliver() {
-      return isRedeliver_;
-    }
-    
     private void initFields() {
-      deliveryTag_ = 0L;
-      exchange_ = "";
-      routingKey_ = "";
-      isRedeliver_ = false;
+      id_ = 0;
+      value_ = "";
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
       if (isInitialized != -1) return isInitialized == 1;
       
-      if (!hasDeliveryTag()) {
-        memoizedIsInitialized = 0;
-        return false;
-      }
-      if (!hasExchange()) {
+      if (!hasId()) {
         memoizedIsInitialized = 0;
         return false;
       }
-      if (!hasRoutingKey()) {
+      if (!hasValue()) {
         memoizedIsInitialized = 0;
         return false;
       }
@@ -656,16 +657,10 @@ public final class MessageRelayEncoding {
                         throws java.io.IOException {
       getSerializedSize();
       if (((bitField0_ & 0x00000001) == 0x00000001)) {
-        output.writeInt64(1, deliveryTag_);
+        output.writeInt32(1, id_);
       }
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
-        output.writeBytes(2, getExchangeBytes());
-      }
-      if (((bitField0_ & 0x00000004) == 0x00000004)) {
-        output.writeBytes(3, getRoutingKeyBytes());
-      }
-      if (((bitField0_ & 0x00000008) == 0x00000008)) {
-        output.writeBool(4, isRedeliver_);
+        output.writeBytes(2, getValueBytes());
       }
       getUnknownFields().writeTo(output);
     }
@@ -678,19 +673,11 @@ public final class MessageRelayEncoding {
       size = 0;
       if (((bitField0_ & 0x00000001) == 0x00000001)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeInt64Size(1, deliveryTag_);
+          .computeInt32Size(1, id_);
       }
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(2, getExchangeBytes());
-      }
-      if (((bitField0_ & 0x00000004) == 0x00000004)) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(3, getRoutingKeyBytes());
-      }
-      if (((bitField0_ & 0x00000008) == 0x00000008)) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeBoolSize(4, isRedeliver_);
+          .computeBytesSize(2, getValueBytes());
       }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
@@ -704,41 +691,41 @@ public final class MessageRelayEncoding {
       return super.writeReplace();
     }
     
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol parseFrom(
         com.google.protobuf.ByteString data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data).buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol parseFrom(
         com.google.protobuf.ByteString data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data, extensionRegistry)
                .buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(byte[] data)
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol parseFrom(byte[] data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data).buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol parseFrom(
         byte[] data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data, extensionRegistry)
                .buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(java.io.InputStream input)
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol parseFrom(java.io.InputStream input)
         throws java.io.IOException {
       return newBuilder().mergeFrom(input).buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol parseFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
       return newBuilder().mergeFrom(input, extensionRegistry)
                .buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseDelimitedFrom(java.io.InputStream input)
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol parseDelimitedFrom(java.io.InputStream input)
         throws java.io.IOException {
       Builder builder = newBuilder();
       if (builder.mergeDelimitedFrom(input)) {
@@ -747,7 +734,7 @@ public final class MessageRelayEncoding {
         return null;
       }
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseDelimitedFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol parseDelimitedFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -758,12 +745,12 @@ public final class MessageRelayEncoding {
         return null;
       }
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol parseFrom(
         com.google.protobuf.CodedInputStream input)
         throws java.io.IOException {
       return newBuilder().mergeFrom(input).buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol parseFrom(
         com.google.protobuf.CodedInputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -773,7 +760,7 @@ public final class MessageRelayEncoding {
     
     public static Builder newBuilder() { return Builder.create(); }
     public Builder newBuilderForType() { return newBuilder(); }
-    public static Builder newBuilder(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope prototype) {
+    public static Builder newBuilder(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol prototype) {
       return newBuilder().mergeFrom(prototype);
     }
     public Builder toBuilder() { return newBuilder(this); }
@@ -786,18 +773,18 @@ public final class MessageRelayEncoding {
     }
     public static final class Builder extends
         com.google.protobuf.GeneratedMessage.Builder<Builder>
-       implements com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelopeOrBuilder {
+       implements com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.SymbolOrBuilder {
       public static final com.google.protobuf.Descriptors.Descriptor
           getDescriptor() {
-        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedEnvelope_descriptor;
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_Symbol_descriptor;
       }
       
       protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
           internalGetFieldAccessorTable() {
-        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedEnvelope_fieldAccessorTable;
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_Symbol_fieldAccessorTable;
       }
       
-      // Construct using com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope.newBuilder()
+      // Construct using com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.newBuilder()
       private Builder() {
         maybeForceBuilderInitialization();
       }
@@ -816,14 +803,10 @@ public final class MessageRelayEncoding {
       
       public Builder clear() {
         super.clear();
-        deliveryTag_ = 0L;
+        id_ = 0;
         bitField0_ = (bitField0_ & ~0x00000001);
-        exchange_ = "";
+        value_ = "";
         bitField0_ = (bitField0_ & ~0x00000002);
-        routingKey_ = "";
-        bitField0_ = (bitField0_ & ~0x00000004);
-        isRedeliver_ = false;
-        bitField0_ = (bitField0_ & ~0x00000008);
         return this;
       }
       
@@ -833,24 +816,24 @@ public final class MessageRelayEncoding {
       
       public com.google.protobuf.Descriptors.Descriptor
           getDescriptorForType() {
-        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope.getDescriptor();
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.getDescriptor();
       }
       
-      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope getDefaultInstanceForType() {
-        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope.getDefaultInstance();
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol getDefaultInstanceForType() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.getDefaultInstance();
       }
       
-      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope build() {
-        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope result = buildPartial();
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol build() {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol result = buildPartial();
         if (!result.isInitialized()) {
           throw newUninitializedMessageException(result);
         }
         return result;
       }
       
-      private com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope buildParsed()
+      private com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol buildParsed()
           throws com.google.protobuf.InvalidProtocolBufferException {
-        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope result = buildPartial();
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol result = buildPartial();
         if (!result.isInitialized()) {
           throw newUninitializedMessageException(
             result).asInvalidProtocolBufferException();
@@ -858,68 +841,50 @@ public final class MessageRelayEncoding {
         return result;
       }
       
-      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope buildPartial() {
-        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope result = new com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope(this);
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol buildPartial() {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol result = new com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol(this);
         int from_bitField0_ = bitField0_;
         int to_bitField0_ = 0;
         if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
           to_bitField0_ |= 0x00000001;
         }
-        result.deliveryTag_ = deliveryTag_;
+        result.id_ = id_;
         if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
           to_bitField0_ |= 0x00000002;
         }
-        result.exchange_ = exchange_;
-        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
-          to_bitField0_ |= 0x00000004;
-        }
-        result.routingKey_ = routingKey_;
-        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
-          to_bitField0_ |= 0x00000008;
-        }
-        result.isRedeliver_ = isRedeliver_;
+        result.value_ = value_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
       }
       
       public Builder mergeFrom(com.google.protobuf.Message other) {
-        if (other instanceof com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope) {
-          return mergeFrom((com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope)other);
+        if (other instanceof com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol) {
+          return mergeFrom((com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol)other);
         } else {
           super.mergeFrom(other);
           return this;
         }
       }
       
-      public Builder mergeFrom(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope other) {
-        if (other == com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope.getDefaultInstance()) return this;
-        if (other.hasDeliveryTag()) {
-          setDeliveryTag(other.getDeliveryTag());
-        }
-        if (other.hasExchange()) {
-          setExchange(other.getExchange());
-        }
-        if (other.hasRoutingKey()) {
-          setRoutingKey(other.getRoutingKey());
+      public Builder mergeFrom(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol other) {
+        if (other == com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.getDefaultInstance()) return this;
+        if (other.hasId()) {
+          setId(other.getId());
         }
-        if (other.hasIsRedeliver()) {
-          setIsRedeliver(other.getIsRedeliver());
+        if (other.hasValue()) {
+          setValue(other.getValue());
         }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
       
       public final boolean isInitialized() {
-        if (!hasDeliveryTag()) {
-          
-          return false;
-        }
-        if (!hasExchange()) {
+        if (!hasId()) {
           
           return false;
         }
-        if (!hasRoutingKey()) {
+        if (!hasValue()) {
           
           return false;
         }
@@ -951,22 +916,12 @@ public final class MessageRelayEncoding {
             }
             case 8: {
               bitField0_ |= 0x00000001;
-              deliveryTag_ = input.readInt64();
+              id_ = input.readInt32();
               break;
             }
             case 18: {
               bitField0_ |= 0x00000002;
-              exchange_ = input.readBytes();
-              break;
-            }
-            case 26: {
-              bitField0_ |= 0x00000004;
-              routingKey_ = input.readBytes();
-              break;
-            }
-            case 32: {
-              bitField0_ |= 0x00000008;
-              isRedeliver_ = input.readBool();
+              value_ = input.readBytes();
               break;
             }
           }
@@ -975,261 +930,148 @@ public final class MessageRelayEncoding {
       
       private int bitField0_;
       
-      // required int64 deliveryTag = 1;
-      private long deliveryTag_ ;
-      public boolean hasDeliveryTag() {
+      // required int32 id = 1;
+      private int id_ ;
+      public boolean hasId() {
         return ((bitField0_ & 0x00000001) == 0x00000001);
       }
-      public long getDeliveryTag() {
-        return deliveryTag_;
+      public int getId() {
+        return id_;
       }
-      public Builder setDeliveryTag(long value) {
+      public Builder setId(int value) {
         bitField0_ |= 0x00000001;
-        deliveryTag_ = value;
+        id_ = value;
         onChanged();
         return this;
       }
-      public Builder clearDeliveryTag() {
+      public Builder clearId() {
         bitField0_ = (bitField0_ & ~0x00000001);
-        deliveryTag_ = 0L;
+        id_ = 0;
         onChanged();
         return this;
       }
       
-      // required string exchange = 2;
-      private java.lang.Object exchange_ = "";
-      public boolean hasExchange() {
+      // required string value = 2;
+      private java.lang.Object value_ = "";
+      public boolean hasValue() {
         return ((bitField0_ & 0x00000002) == 0x00000002);
       }
-      public String getExchange() {
-        java.lang.Object ref = exchange_;
+      public String getValue() {
+        java.lang.Object ref = value_;
         if (!(ref instanceof String)) {
           String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
-          exchange_ = s;
+          value_ = s;
           return s;
         } else {
           return (String) ref;
         }
       }
-      public Builder setExchange(String value) {
+      public Builder setValue(String value) {
         if (value == null) {
     throw new NullPointerException();
   }
   bitField0_ |= 0x00000002;
-        exchange_ = value;
+        value_ = value;
         onChanged();
         return this;
       }
-      public Builder clearExchange() {
+      public Builder clearValue() {
         bitField0_ = (bitField0_ & ~0x00000002);
-        exchange_ = getDefaultInstance().getExchange();
+        value_ = getDefaultInstance().getValue();
         onChanged();
         return this;
       }
-      void setExchange(com.google.protobuf.ByteString value) {
+      void setValue(com.google.protobuf.ByteString value) {
         bitField0_ |= 0x00000002;
-        exchange_ = value;
-        onChanged();
-      }
-      
-      // required string routingKey = 3;
-      private java.lang.Object routingKey_ = "";
-      public boolean hasRoutingKey() {
-        return ((bitField0_ & 0x00000004) == 0x00000004);
-      }
-      public String getRoutingKey() {
-        java.lang.Object ref = routingKey_;
-        if (!(ref instanceof String)) {
-          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
-          routingKey_ = s;
-          return s;
-        } else {
-          return (String) ref;
-        }
-      }
-      public Builder setRoutingKey(String value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000004;
-        routingKey_ = value;
-        onChanged();
-        return this;
-      }
-      public Builder clearRoutingKey() {
-        bitField0_ = (bitField0_ & ~0x00000004);
-        routingKey_ = getDefaultInstance().getRoutingKey();
-        onChanged();
-        return this;
-      }
-      void setRoutingKey(com.google.protobuf.ByteString value) {
-        bitField0_ |= 0x00000004;
-        routingKey_ = value;
-        onChanged();
-      }
-      
-      // optional bool isRedeliver = 4;
-      private boolean isRedeliver_ ;
-      public boolean hasIsRedeliver() {
-        return ((bitField0_ & 0x00000008) == 0x00000008);
-      }
-      public boolean getIsRedeliver() {
-        return isRedeliver_;
-      }
-      public Builder setIsRedeliver(boolean value) {
-        bitField0_ |= 0x00000008;
-        isRedeliver_ = value;
-        onChanged();
-        return this;
-      }
-      public Builder clearIsRedeliver() {
-        bitField0_ = (bitField0_ & ~0x00000008);
-        isRedeliver_ = false;
+        value_ = value;
         onChanged();
-        return this;
       }
       
-      // @@protoc_insertion_point(builder_scope:EncodedEnvelope)
+      // @@protoc_insertion_point(builder_scope:Symbol)
     }
     
     static {
-      defaultInstance = new EncodedEnvelope(true);
+      defaultInstance = new Symbol(true);
       defaultInstance.initFields();
     }
     
-    // @@protoc_insertion_point(class_scope:EncodedEnvelope)
+    // @@protoc_insertion_point(class_scope:Symbol)
   }
   
-  public interface EncodedPropertiesOrBuilder
+  public interface EncodedEnvelopeOrBuilder
       extends com.google.protobuf.MessageOrBuilder {
     
-    // optional string appID = 1;
-    boolean hasAppID();
-    String getAppID();
-    
-    // optional string contentEncoding = 2;
-    boolean hasContentEncoding();
-    String getContentEncoding();
-    
-    // optional string contentType = 3;
-    boolean hasContentType();
-    String getContentType();
-    
-    // optional string correlationId = 4;
-    boolean hasCorrelationId();
-    String getCorrelationId();
-    
-    // optional int32 deliveryMode = 5;
-    boolean hasDeliveryMode();
-    int getDeliveryMode();
-    
-    // optional string expiration = 6;
-    boolean hasExpiration();
-    String getExpiration();
-    
-    // optional string messageID = 7;
-    boolean hasMessageID();
-    String getMessageID();
-    
-    // optional int32 priority = 8;
-    boolean hasPriority();
-    int getPriority();
+    // required int64 deliveryTag = 1;
+    boolean hasDeliveryTag();
+    long getDeliveryTag();
     
-    // optional string replyTo = 9;
-    boolean hasReplyTo();
-    String getReplyTo();
+    // required string exchange = 2;
+    boolean hasExchange();
+    String getExchange();
     
-    // optional int64 timestamp = 10;
-    boolean hasTimestamp();
-    long getTimestamp();
+    // required string routingKey = 3;
+    boolean hasRoutingKey();
+    String getRoutingKey();
     
-    // optional string type = 11;
-    boolean hasType();
-    String getType();
+    // optional bool isRedeliver = 4;
+    boolean hasIsRedeliver();
+    boolean getIsRedeliver();
     
-    // optional string userId = 12;
-    boolean hasUserId();
-    String getUserId();
+    // optional int32 exchangeSymbol = 5;
+    boolean hasExchangeSymbol();
+    int getExchangeSymbol();
     
-    // repeated .Header header = 13;
-    java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> 
-        getHeaderList();
-    com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header getHeader(int index);
-    int getHeaderCount();
-    java.util.List<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder> 
-        getHeaderOrBuilderList();
-    com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder getHeaderOrBuilder(
-        int index);
+    // optional int32 routingKeySymbol = 6;
+    boolean hasRoutingKeySymbol();
+    int getRoutingKeySymbol();
   }
-  public static final class EncodedProperties extends
+  public static final class EncodedEnvelope extends
       com.google.protobuf.GeneratedMessage
-      implements EncodedPropertiesOrBuilder {
-    // Use EncodedProperties.newBuilder() to construct.
-    private EncodedProperties(Builder builder) {
+      implements EncodedEnvelopeOrBuilder {
+    // Use EncodedEnvelope.newBuilder() to construct.
+    private EncodedEnvelope(Builder builder) {
       super(builder);
     }
-    private EncodedProperties(boolean noInit) {}
+    private EncodedEnvelope(boolean noInit) {}
     
-    private static final EncodedProperties defaultInstance;
-    public static EncodedProperties getDefaultInstance() {
+    private static final EncodedEnvelope defaultInstance;
+    public static EncodedEnvelope getDefaultInstance() {
       return defaultInstance;
     }
     
-    public EncodedProperties getDefaultInstanceForType() {
+    public EncodedEnvelope getDefaultInstanceForType() {
       return defaultInstance;
     }
     
     public static final com.google.protobuf.Descriptors.Descriptor
         getDescriptor() {
-      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedProperties_descriptor;
+      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedEnvelope_descriptor;
     }
     
     protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
         internalGetFieldAccessorTable() {
-      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedProperties_fieldAccessorTable;
+      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedEnvelope_fieldAccessorTable;
     }
     
     private int bitField0_;
-    // optional string appID = 1;
-    public static final int APPID_FIELD_NUMBER = 1;
-    private java.lang.Object appID_;
-    public boolean hasAppID() {
+    // required int64 deliveryTag = 1;
+    public static final int DELIVERYTAG_FIELD_NUMBER = 1;
+    private long deliveryTag_;
+    public boolean hasDeliveryTag() {
       return ((bitField0_ & 0x00000001) == 0x00000001);
     }
-    public String getAppID() {
-      java.lang.Object ref = appID_;
-      if (ref instanceof String) {
-        return (String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        String s = bs.toStringUtf8();
-        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
-          appID_ = s;
-        }
-        return s;
-      }
-    }
-    private com.google.protobuf.ByteString getAppIDBytes() {
-      java.lang.Object ref = appID_;
-      if (ref instanceof String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
-        appID_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
+    public long getDeliveryTag() {
+      return deliveryTag_;
     }
     
-    // optional string contentEncoding = 2;
-    public static final int CONTENTENCODING_FIELD_NUMBER = 2;
-    private java.lang.Object contentEncoding_;
-    public boolean hasContentEncoding() {
+    // required string exchange = 2;
+    public static final int EXCHANGE_FIELD_NUMBER = 2;
+    private java.lang.Object exchange_;
+    public boolean hasExchange() {
       return ((bitField0_ & 0x00000002) == 0x00000002);
     }
-    public String getContentEncoding() {
-      java.lang.Object ref = contentEncoding_;
+    public String getExchange() {
+      java.lang.Object ref = exchange_;
       if (ref instanceof String) {
         return (String) ref;
       } else {
@@ -1237,31 +1079,31 @@ public final class MessageRelayEncoding {
             (com.google.protobuf.ByteString) ref;
         String s = bs.toStringUtf8();
         if (com.google.protobuf.Internal.isValidUtf8(bs)) {
-          contentEncoding_ = s;
+          exchange_ = s;
         }
         return s;
       }
     }
-    private com.google.protobuf.ByteString getContentEncodingBytes() {
-      java.lang.Object ref = contentEncoding_;
+    private com.google.protobuf.ByteString getExchangeBytes() {
+      java.lang.Object ref = exchange_;
       if (ref instanceof String) {
         com.google.protobuf.ByteString b = 
             com.google.protobuf.ByteString.copyFromUtf8((String) ref);
-        contentEncoding_ = b;
+        exchange_ = b;
         return b;
       } else {
         return (com.google.protobuf.ByteString) ref;
       }
     }
     
-    // optional string contentType = 3;
-    public static final int CONTENTTYPE_FIELD_NUMBER = 3;
-    private java.lang.Object contentType_;
-    public boolean hasContentType() {
+    // required string routingKey = 3;
+    public static final int ROUTINGKEY_FIELD_NUMBER = 3;
+    private java.lang.Object routingKey_;
+    public boolean hasRoutingKey() {
       return ((bitField0_ & 0x00000004) == 0x00000004);
     }
-    public String getContentType() {
-      java.lang.Object ref = contentType_;
+    public String getRoutingKey() {
+      java.lang.Object ref = routingKey_;
       if (ref instanceof String) {
         return (String) ref;
       } else {
@@ -1269,291 +1111,77 @@ public final class MessageRelayEncoding {
             (com.google.protobuf.ByteString) ref;
         String s = bs.toStringUtf8();
         if (com.google.protobuf.Internal.isValidUtf8(bs)) {
-          contentType_ = s;
+          routingKey_ = s;
         }
         return s;
       }
     }
-    private com.google.protobuf.ByteString getContentTypeBytes() {
-      java.lang.Object ref = contentType_;
+    private com.google.protobuf.ByteString getRoutingKeyBytes() {
+      java.lang.Object ref = routingKey_;
       if (ref instanceof String) {
         com.google.protobuf.ByteString b = 
             com.google.protobuf.ByteString.copyFromUtf8((String) ref);
-        contentType_ = b;
+        routingKey_ = b;
         return b;
       } else {
         return (com.google.protobuf.ByteString) ref;
       }
     }
     
-    // optional string correlationId = 4;
-    public static final int CORRELATIONID_FIELD_NUMBER = 4;
-    private java.lang.Object correlationId_;
-    public boolean hasCorrelationId() {
+    // optional bool isRedeliver = 4;
+    public static final int ISREDELIVER_FIELD_NUMBER = 4;
+    private boolean isRedeliver_;
+    public boolean hasIsRedeliver() {
       return ((bitField0_ & 0x00000008) == 0x00000008);
     }
-    public String getCorrelationId() {
-      java.lang.Object ref = correlationId_;
-      if (ref instanceof String) {
-        return (String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        String s = bs.toStringUtf8();
-        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
-          correlationId_ = s;
-        }
-        return s;
-      }
-    }
-    private com.google.protobuf.ByteString getCorrelationIdBytes() {
-      java.lang.Object ref = correlationId_;
-      if (ref instanceof String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
-        correlationId_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
+    public boolean getIsRedeliver() {
+      return isRedeliver_;
     }
     
-    // optional int32 deliveryMode = 5;
-    public static final int DELIVERYMODE_FIELD_NUMBER = 5;
-    private int deliveryMode_;
-    public boolean hasDeliveryMode() {
+    // optional int32 exchangeSymbol = 5;
+    public static final int EXCHANGESYMBOL_FIELD_NUMBER = 5;
+    private int exchangeSymbol_;
+    public boolean hasExchangeSymbol() {
       return ((bitField0_ & 0x00000010) == 0x00000010);
     }
-    public int getDeliveryMode() {
-      return deliveryMode_;
+    public int getExchangeSymbol() {
+      return exchangeSymbol_;
     }
     
-    // optional string expiration = 6;
-    public static final int EXPIRATION_FIELD_NUMBER = 6;
-    private java.lang.Object expiration_;
-    public boolean hasExpiration() {
+    // optional int32 routingKeySymbol = 6;
+    public static final int ROUTINGKEYSYMBOL_FIELD_NUMBER = 6;
+    private int routingKeySymbol_;
+    public boolean hasRoutingKeySymbol() {
       return ((bitField0_ & 0x00000020) == 0x00000020);
     }
-    public String getExpiration() {
-      java.lang.Object ref = expiration_;
-      if (ref instanceof String) {
-        return (String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        String s = bs.toStringUtf8();
-        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
-          expiration_ = s;
-        }
-        return s;
-      }
-    }
-    private com.google.protobuf.ByteString getExpirationBytes() {
-      java.lang.Object ref = expiration_;
-      if (ref instanceof String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
-        expiration_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
-    }
-    
-    // optional string messageID = 7;
-    public static final int MESSAGEID_FIELD_NUMBER = 7;
-    private java.lang.Object messageID_;
-    public boolean hasMessageID() {
-      return ((bitField0_ & 0x00000040) == 0x00000040);
-    }
-    public String getMessageID() {
-      java.lang.Object ref = messageID_;
-      if (ref instanceof String) {
-        return (String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        String s = bs.toStringUtf8();
-        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
-          messageID_ = s;
-        }
-        return s;
-      }
-    }
-    private com.google.protobuf.ByteString getMessageIDBytes() {
-      java.lang.Object ref = messageID_;
-      if (ref instanceof String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
-        messageID_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
-    }
-    
-    // optional int32 priority = 8;
-    public static final int PRIORITY_FIELD_NUMBER = 8;
-    private int priority_;
-    public boolean hasPriority() {
-      return ((bitField0_ & 0x00000080) == 0x00000080);
-    }
-    public int getPriority() {
-      return priority_;
-    }
-    
-    // optional string replyTo = 9;
-    public static final int REPLYTO_FIELD_NUMBER = 9;
-    private java.lang.Object replyTo_;
-    public boolean hasReplyTo() {
-      return ((bitField0_ & 0x00000100) == 0x00000100);
-    }
-    public String getReplyTo() {
-      java.lang.Object ref = replyTo_;
-      if (ref instanceof String) {
-        return (String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        String s = bs.toStringUtf8();
-        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
-          replyTo_ = s;
-        }
-        return s;
-      }
-    }
-    private com.google.protobuf.ByteString getReplyToBytes() {
-      java.lang.Object ref = replyTo_;
-      if (ref instanceof String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
-        replyTo_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
-    }
-    
-    // optional int64 timestamp = 10;
-    public static final int TIMESTAMP_FIELD_NUMBER = 10;
-    private long timestamp_;
-    public boolean hasTimestamp() {
-      return ((bitField0_ & 0x00000200) == 0x00000200);
-    }
-    public long getTimestamp() {
-      return timestamp_;
-    }
-    
-    // optional string type = 11;
-    public static final int TYPE_FIELD_NUMBER = 11;
-    private java.lang.Object type_;
-    public boolean hasType() {
-      return ((bitField0_ & 0x00000400) == 0x00000400);
-    }
-    public String getType() {
-      java.lang.Object ref = type_;
-      if (ref instanceof String) {
-        return (String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        String s = bs.toStringUtf8();
-        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
-          type_ = s;
-        }
-        return s;
-      }
-    }
-    private com.google.protobuf.ByteString getTypeBytes() {
-      java.lang.Object ref = type_;
-      if (ref instanceof String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
-        type_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
-    }
-    
-    // optional string userId = 12;
-    public static final int USERID_FIELD_NUMBER = 12;
-    private java.lang.Object userId_;
-    public boolean hasUserId() {
-      return ((bitField0_ & 0x00000800) == 0x00000800);
-    }
-    public String getUserId() {
-      java.lang.Object ref = userId_;
-      if (ref instanceof String) {
-        return (String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        String s = bs.toStringUtf8();
-        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
-          userId_ = s;
-        }
-        return s;
-      }
-    }
-    private com.google.protobuf.ByteString getUserIdBytes() {
-      java.lang.Object ref = userId_;
-      if (ref instanceof String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
-        userId_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
-    }
-    
-    // repeated .Header header = 13;
-    public static final int HEADER_FIELD_NUMBER = 13;
-    private java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> header_;
-    public java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> getHeaderList() {
-      return header_;
-    }
-    public java.util.List<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder> 
-        getHeaderOrBuilderList() {
-      return header_;
-    }
-    public int getHeaderCount() {
-      return header_.size();
-    }
-    public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header getHeader(int index) {
-      return header_.get(index);
-    }
-    public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder getHeaderOrBuilder(
-        int index) {
-      return header_.get(index);
+    public int getRoutingKeySymbol() {
+      return routingKeySymbol_;
     }
     
     private void initFields() {
-      appID_ = "";
-      contentEncoding_ = "";
-      contentType_ = "";
-      correlationId_ = "";
-      deliveryMode_ = 0;
-      expiration_ = "";
-      messageID_ = "";
-      priority_ = 0;
-      replyTo_ = "";
-      timestamp_ = 0L;
-      type_ = "";
-      userId_ = "";
-      header_ = java.util.Collections.emptyList();
+      deliveryTag_ = 0L;
+      exchange_ = "";
+      routingKey_ = "";
+      isRedeliver_ = false;
+      exchangeSymbol_ = 0;
+      routingKeySymbol_ = 0;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
       if (isInitialized != -1) return isInitialized == 1;
       
-      for (int i = 0; i < getHeaderCount(); i++) {
-        if (!getHeader(i).isInitialized()) {
-          memoizedIsInitialized = 0;
-          return false;
-        }
+      if (!hasDeliveryTag()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasExchange()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasRoutingKey()) {
+        memoizedIsInitialized = 0;
+        return false;
       }
       memoizedIsInitialized = 1;
       return true;
@@ -1563,43 +1191,22 @@ public final class MessageRelayEncoding {
                         throws java.io.IOException {
       getSerializedSize();
       if (((bitField0_ & 0x00000001) == 0x00000001)) {
-        output.writeBytes(1, getAppIDBytes());
+        output.writeInt64(1, deliveryTag_);
       }
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
-        output.writeBytes(2, getContentEncodingBytes());
+        output.writeBytes(2, getExchangeBytes());
       }
       if (((bitField0_ & 0x00000004) == 0x00000004)) {
-        output.writeBytes(3, getContentTypeBytes());
+        output.writeBytes(3, getRoutingKeyBytes());
       }
       if (((bitField0_ & 0x00000008) == 0x00000008)) {
-        output.writeBytes(4, getCorrelationIdBytes());
+        output.writeBool(4, isRedeliver_);
       }
       if (((bitField0_ & 0x00000010) == 0x00000010)) {
-        output.writeInt32(5, deliveryMode_);
+        output.writeInt32(5, exchangeSymbol_);
       }
       if (((bitField0_ & 0x00000020) == 0x00000020)) {
-        output.writeBytes(6, getExpirationBytes());
-      }
-      if (((bitField0_ & 0x00000040) == 0x00000040)) {
-        output.writeBytes(7, getMessageIDBytes());
-      }
-      if (((bitField0_ & 0x00000080) == 0x00000080)) {
-        output.writeInt32(8, priority_);
-      }
-      if (((bitField0_ & 0x00000100) == 0x00000100)) {
-        output.writeBytes(9, getReplyToBytes());
-      }
-      if (((bitField0_ & 0x00000200) == 0x00000200)) {
-        output.writeInt64(10, timestamp_);
-      }
-      if (((bitField0_ & 0x00000400) == 0x00000400)) {
-        output.writeBytes(11, getTypeBytes());
-      }
-      if (((bitField0_ & 0x00000800) == 0x00000800)) {
-        output.writeBytes(12, getUserIdBytes());
-      }
-      for (int i = 0; i < header_.size(); i++) {
-        output.writeMessage(13, header_.get(i));
+        output.writeInt32(6, routingKeySymbol_);
       }
       getUnknownFields().writeTo(output);
     }
@@ -1612,55 +1219,27 @@ public final class MessageRelayEncoding {
       size = 0;
       if (((bitField0_ & 0x00000001) == 0x00000001)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(1, getAppIDBytes());
+          .computeInt64Size(1, deliveryTag_);
       }
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(2, getContentEncodingBytes());
+          .computeBytesSize(2, getExchangeBytes());
       }
       if (((bitField0_ & 0x00000004) == 0x00000004)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(3, getContentTypeBytes());
+          .computeBytesSize(3, getRoutingKeyBytes());
       }
       if (((bitField0_ & 0x00000008) == 0x00000008)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(4, getCorrelationIdBytes());
+          .computeBoolSize(4, isRedeliver_);
       }
       if (((bitField0_ & 0x00000010) == 0x00000010)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeInt32Size(5, deliveryMode_);
+          .computeInt32Size(5, exchangeSymbol_);
       }
       if (((bitField0_ & 0x00000020) == 0x00000020)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(6, getExpirationBytes());
-      }
-      if (((bitField0_ & 0x00000040) == 0x00000040)) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(7, getMessageIDBytes());
-      }
-      if (((bitField0_ & 0x00000080) == 0x00000080)) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeInt32Size(8, priority_);
-      }
-      if (((bitField0_ & 0x00000100) == 0x00000100)) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(9, getReplyToBytes());
-      }
-      if (((bitField0_ & 0x00000200) == 0x00000200)) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeInt64Size(10, timestamp_);
-      }
-      if (((bitField0_ & 0x00000400) == 0x00000400)) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(11, getTypeBytes());
-      }
-      if (((bitField0_ & 0x00000800) == 0x00000800)) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(12, getUserIdBytes());
-      }
-      for (int i = 0; i < header_.size(); i++) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeMessageSize(13, header_.get(i));
+          .computeInt32Size(6, routingKeySymbol_);
       }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
@@ -1674,41 +1253,41 @@ public final class MessageRelayEncoding {
       return super.writeReplace();
     }
     
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
         com.google.protobuf.ByteString data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data).buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
         com.google.protobuf.ByteString data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data, extensionRegistry)
                .buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(byte[] data)
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(byte[] data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data).buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
         byte[] data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data, extensionRegistry)
                .buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(java.io.InputStream input)
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(java.io.InputStream input)
         throws java.io.IOException {
       return newBuilder().mergeFrom(input).buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
       return newBuilder().mergeFrom(input, extensionRegistry)
                .buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseDelimitedFrom(java.io.InputStream input)
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseDelimitedFrom(java.io.InputStream input)
         throws java.io.IOException {
       Builder builder = newBuilder();
       if (builder.mergeDelimitedFrom(input)) {
@@ -1717,7 +1296,7 @@ public final class MessageRelayEncoding {
         return null;
       }
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseDelimitedFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseDelimitedFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -1728,12 +1307,12 @@ public final class MessageRelayEncoding {
         return null;
       }
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
         com.google.protobuf.CodedInputStream input)
         throws java.io.IOException {
       return newBuilder().mergeFrom(input).buildParsed();
     }
-    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope parseFrom(
         com.google.protobuf.CodedInputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -1743,7 +1322,7 @@ public final class MessageRelayEncoding {
     
     public static Builder newBuilder() { return Builder.create(); }
     public Builder newBuilderForType() { return newBuilder(); }
-    public static Builder newBuilder(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties prototype) {
+    public static Builder newBuilder(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope prototype) {
       return newBuilder().mergeFrom(prototype);
     }
     public Builder toBuilder() { return newBuilder(this); }
@@ -1756,18 +1335,18 @@ public final class MessageRelayEncoding {
     }
     public static final class Builder extends
         com.google.protobuf.GeneratedMessage.Builder<Builder>
-       implements com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedPropertiesOrBuilder {
+       implements com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelopeOrBuilder {
       public static final com.google.protobuf.Descriptors.Descriptor
           getDescriptor() {
-        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedProperties_descriptor;
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedEnvelope_descriptor;
       }
       
       protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
           internalGetFieldAccessorTable() {
-        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedProperties_fieldAccessorTable;
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedEnvelope_fieldAccessorTable;
       }
       
-      // Construct using com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties.newBuilder()
+      // Construct using com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope.newBuilder()
       private Builder() {
         maybeForceBuilderInitialization();
       }
@@ -1778,7 +1357,6 @@ public final class MessageRelayEncoding {
       }
       private void maybeForceBuilderInitialization() {
         if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
-          getHeaderFieldBuilder();
         }
       }
       private static Builder create() {
@@ -1787,36 +1365,18 @@ public final class MessageRelayEncoding {
       
       public Builder clear() {
         super.clear();
-        appID_ = "";
+        deliveryTag_ = 0L;
         bitField0_ = (bitField0_ & ~0x00000001);
-        contentEncoding_ = "";
+        exchange_ = "";
         bitField0_ = (bitField0_ & ~0x00000002);
-        contentType_ = "";
+        routingKey_ = "";
         bitField0_ = (bitField0_ & ~0x00000004);
-        correlationId_ = "";
+        isRedeliver_ = false;
         bitField0_ = (bitField0_ & ~0x00000008);
-        deliveryMode_ = 0;
+        exchangeSymbol_ = 0;
         bitField0_ = (bitField0_ & ~0x00000010);
-        expiration_ = "";
+        routingKeySymbol_ = 0;
         bitField0_ = (bitField0_ & ~0x00000020);
-        messageID_ = "";
-        bitField0_ = (bitField0_ & ~0x00000040);
-        priority_ = 0;
-        bitField0_ = (bitField0_ & ~0x00000080);
-        replyTo_ = "";
-        bitField0_ = (bitField0_ & ~0x00000100);
-        timestamp_ = 0L;
-        bitField0_ = (bitField0_ & ~0x00000200);
-        type_ = "";
-        bitField0_ = (bitField0_ & ~0x00000400);
-        userId_ = "";
-        bitField0_ = (bitField0_ & ~0x00000800);
-        if (headerBuilder_ == null) {
-          header_ = java.util.Collections.emptyList();
-          bitField0_ = (bitField0_ & ~0x00001000);
-        } else {
-          headerBuilder_.clear();
-        }
         return this;
       }
       
@@ -1826,24 +1386,24 @@ public final class MessageRelayEncoding {
       
       public com.google.protobuf.Descriptors.Descriptor
           getDescriptorForType() {
-        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties.getDescriptor();
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope.getDescriptor();
       }
       
-      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties getDefaultInstanceForType() {
-        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties.getDefaultInstance();
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope getDefaultInstanceForType() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope.getDefaultInstance();
       }
       
-      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties build() {
-        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties result = buildPartial();
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope build() {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope result = buildPartial();
         if (!result.isInitialized()) {
           throw newUninitializedMessageException(result);
         }
         return result;
       }
       
-      private com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties buildParsed()
+      private com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope buildParsed()
           throws com.google.protobuf.InvalidProtocolBufferException {
-        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties result = buildPartial();
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope result = buildPartial();
         if (!result.isInitialized()) {
           throw newUninitializedMessageException(
             result).asInvalidProtocolBufferException();
@@ -1851,155 +1411,84 @@ public final class MessageRelayEncoding {
         return result;
       }
       
-      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties buildPartial() {
-        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties result = new com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties(this);
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope buildPartial() {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope result = new com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope(this);
         int from_bitField0_ = bitField0_;
         int to_bitField0_ = 0;
         if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
           to_bitField0_ |= 0x00000001;
         }
-        result.appID_ = appID_;
+        result.deliveryTag_ = deliveryTag_;
         if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
           to_bitField0_ |= 0x00000002;
         }
-        result.contentEncoding_ = contentEncoding_;
+        result.exchange_ = exchange_;
         if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
           to_bitField0_ |= 0x00000004;
         }
-        result.contentType_ = contentType_;
+        result.routingKey_ = routingKey_;
         if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
           to_bitField0_ |= 0x00000008;
         }
-        result.correlationId_ = correlationId_;
+        result.isRedeliver_ = isRedeliver_;
         if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
           to_bitField0_ |= 0x00000010;
         }
-        result.deliveryMode_ = deliveryMode_;
+        result.exchangeSymbol_ = exchangeSymbol_;
         if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
           to_bitField0_ |= 0x00000020;
         }
-        result.expiration_ = expiration_;
-        if (((from_bitField0_ & 0x00000040) == 0x00000040)) {
-          to_bitField0_ |= 0x00000040;
-        }
-        result.messageID_ = messageID_;
-        if (((from_bitField0_ & 0x00000080) == 0x00000080)) {
-          to_bitField0_ |= 0x00000080;
-        }
-        result.priority_ = priority_;
-        if (((from_bitField0_ & 0x00000100) == 0x00000100)) {
-          to_bitField0_ |= 0x00000100;
-        }
-        result.replyTo_ = replyTo_;
-        if (((from_bitField0_ & 0x00000200) == 0x00000200)) {
-          to_bitField0_ |= 0x00000200;
-        }
-        result.timestamp_ = timestamp_;
-        if (((from_bitField0_ & 0x00000400) == 0x00000400)) {
-          to_bitField0_ |= 0x00000400;
-        }
-        result.type_ = type_;
-        if (((from_bitField0_ & 0x00000800) == 0x00000800)) {
-          to_bitField0_ |= 0x00000800;
-        }
-        result.userId_ = userId_;
-        if (headerBuilder_ == null) {
-          if (((bitField0_ & 0x00001000) == 0x00001000)) {
-            header_ = java.util.Collections.unmodifiableList(header_);
-            bitField0_ = (bitField0_ & ~0x00001000);
-          }
-          result.header_ = header_;
-        } else {
-          result.header_ = headerBuilder_.build();
-        }
+        result.routingKeySymbol_ = routingKeySymbol_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
       }
       
       public Builder mergeFrom(com.google.protobuf.Message other) {
-        if (other instanceof com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties) {
-          return mergeFrom((com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties)other);
+        if (other instanceof com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope) {
+          return mergeFrom((com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope)other);
         } else {
           super.mergeFrom(other);
           return this;
         }
       }
       
-      public Builder mergeFrom(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties other) {
-        if (other == com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties.getDefaultInstance()) return this;
-        if (other.hasAppID()) {
-          setAppID(other.getAppID());
-        }
-        if (other.hasContentEncoding()) {
-          setContentEncoding(other.getContentEncoding());
-        }
-        if (other.hasContentType()) {
-          setContentType(other.getContentType());
-        }
-        if (other.hasCorrelationId()) {
-          setCorrelationId(other.getCorrelationId());
-        }
-        if (other.hasDeliveryMode()) {
-          setDeliveryMode(other.getDeliveryMode());
-        }
-        if (other.hasExpiration()) {
-          setExpiration(other.getExpiration());
-        }
-        if (other.hasMessageID()) {
-          setMessageID(other.getMessageID());
-        }
-        if (other.hasPriority()) {
-          setPriority(other.getPriority());
+      public Builder mergeFrom(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope other) {
+        if (other == com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope.getDefaultInstance()) return this;
+        if (other.hasDeliveryTag()) {
+          setDeliveryTag(other.getDeliveryTag());
         }
-        if (other.hasReplyTo()) {
-          setReplyTo(other.getReplyTo());
+        if (other.hasExchange()) {
+          setExchange(other.getExchange());
         }
-        if (other.hasTimestamp()) {
-          setTimestamp(other.getTimestamp());
+        if (other.hasRoutingKey()) {
+          setRoutingKey(other.getRoutingKey());
         }
-        if (other.hasType()) {
-          setType(other.getType());
+        if (other.hasIsRedeliver()) {
+          setIsRedeliver(other.getIsRedeliver());
         }
-        if (other.hasUserId()) {
-          setUserId(other.getUserId());
+        if (other.hasExchangeSymbol()) {
+          setExchangeSymbol(other.getExchangeSymbol());
         }
-        if (headerBuilder_ == null) {
-          if (!other.header_.isEmpty()) {
-            if (header_.isEmpty()) {
-              header_ = other.header_;
-              bitField0_ = (bitField0_ & ~0x00001000);
-            } else {
-              ensureHeaderIsMutable();
-              header_.addAll(other.header_);
-            }
-            onChanged();
-          }
-        } else {
-          if (!other.header_.isEmpty()) {
-            if (headerBuilder_.isEmpty()) {
-              headerBuilder_.dispose();
-              headerBuilder_ = null;
-              header_ = other.header_;
-              bitField0_ = (bitField0_ & ~0x00001000);
-              headerBuilder_ = 
-                com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders ?
-                   getHeaderFieldBuilder() : null;
-            } else {
-              headerBuilder_.addAllMessages(other.header_);
-            }
-          }
+        if (other.hasRoutingKeySymbol()) {
+          setRoutingKeySymbol(other.getRoutingKeySymbol());
         }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
       
       public final boolean isInitialized() {
-        for (int i = 0; i < getHeaderCount(); i++) {
-          if (!getHeader(i).isInitialized()) {
-            
-            return false;
-          }
+        if (!hasDeliveryTag()) {
+          
+          return false;
+        }
+        if (!hasExchange()) {
+          
+          return false;
+        }
+        if (!hasRoutingKey()) {
+          
+          return false;
         }
         return true;
       }
@@ -2027,70 +1516,34 @@ public final class MessageRelayEncoding {
               }
               break;
             }
-            case 10: {
+            case 8: {
               bitField0_ |= 0x00000001;
-              appID_ = input.readBytes();
+              deliveryTag_ = input.readInt64();
               break;
             }
             case 18: {
               bitField0_ |= 0x00000002;
-              contentEncoding_ = input.readBytes();
+              exchange_ = input.readBytes();
               break;
             }
             case 26: {
               bitField0_ |= 0x00000004;
-              contentType_ = input.readBytes();
+              routingKey_ = input.readBytes();
               break;
             }
-            case 34: {
+            case 32: {
               bitField0_ |= 0x00000008;
-              correlationId_ = input.readBytes();
+              isRedeliver_ = input.readBool();
               break;
             }
             case 40: {
               bitField0_ |= 0x00000010;
-              deliveryMode_ = input.readInt32();
+              exchangeSymbol_ = input.readInt32();
               break;
             }
-            case 50: {
+            case 48: {
               bitField0_ |= 0x00000020;
-              expiration_ = input.readBytes();
-              break;
-            }
-            case 58: {
-              bitField0_ |= 0x00000040;
-              messageID_ = input.readBytes();
-              break;
-            }
-            case 64: {
-              bitField0_ |= 0x00000080;
-              priority_ = input.readInt32();
-              break;
-            }
-            case 74: {
-              bitField0_ |= 0x00000100;
-              replyTo_ = input.readBytes();
-              break;
-            }
-            case 80: {
-              bitField0_ |= 0x00000200;
-              timestamp_ = input.readInt64();
-              break;
-            }
-            case 90: {
-              bitField0_ |= 0x00000400;
-              type_ = input.readBytes();
-              break;
-            }
-            case 98: {
-              bitField0_ |= 0x00000800;
-              userId_ = input.readBytes();
-              break;
-            }
-            case 106: {
-              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder subBuilder = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.newBuilder();
-              input.readMessage(subBuilder, extensionRegistry);
-              addHeader(subBuilder.buildPartial());
+              routingKeySymbol_ = input.readInt32();
               break;
             }
           }
@@ -2099,588 +1552,3014 @@ public final class MessageRelayEncoding {
       
       private int bitField0_;
       
-      // optional string appID = 1;
-      private java.lang.Object appID_ = "";
-      public boolean hasAppID() {
+      // required int64 deliveryTag = 1;
+      private long deliveryTag_ ;
+      public boolean hasDeliveryTag() {
         return ((bitField0_ & 0x00000001) == 0x00000001);
       }
-      public String getAppID() {
-        java.lang.Object ref = appID_;
-        if (!(ref instanceof String)) {
-          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
-          appID_ = s;
-          return s;
-        } else {
-          return (String) ref;
-        }
+      public long getDeliveryTag() {
+        return deliveryTag_;
       }
-      public Builder setAppID(String value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000001;
-        appID_ = value;
+      public Builder setDeliveryTag(long value) {
+        bitField0_ |= 0x00000001;
+        deliveryTag_ = value;
         onChanged();
         return this;
       }
-      public Builder clearAppID() {
+      public Builder clearDeliveryTag() {
         bitField0_ = (bitField0_ & ~0x00000001);
-        appID_ = getDefaultInstance().getAppID();
+        deliveryTag_ = 0L;
         onChanged();
         return this;
       }
-      void setAppID(com.google.protobuf.ByteString value) {
-        bitField0_ |= 0x00000001;
-        appID_ = value;
-        onChanged();
-      }
       
-      // optional string contentEncoding = 2;
-      private java.lang.Object contentEncoding_ = "";
-      public boolean hasContentEncoding() {
+      // required string exchange = 2;
+      private java.lang.Object exchange_ = "";
+      public boolean hasExchange() {
         return ((bitField0_ & 0x00000002) == 0x00000002);
       }
-      public String getContentEncoding() {
-        java.lang.Object ref = contentEncoding_;
+      public String getExchange() {
+        java.lang.Object ref = exchange_;
         if (!(ref instanceof String)) {
           String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
-          contentEncoding_ = s;
+          exchange_ = s;
           return s;
         } else {
           return (String) ref;
         }
       }
-      public Builder setContentEncoding(String value) {
+      public Builder setExchange(String value) {
         if (value == null) {
     throw new NullPointerException();
   }
   bitField0_ |= 0x00000002;
-        contentEncoding_ = value;
+        exchange_ = value;
         onChanged();
         return this;
       }
-      public Builder clearContentEncoding() {
+      public Builder clearExchange() {
         bitField0_ = (bitField0_ & ~0x00000002);
-        contentEncoding_ = getDefaultInstance().getContentEncoding();
+        exchange_ = getDefaultInstance().getExchange();
         onChanged();
         return this;
       }
-      void setContentEncoding(com.google.protobuf.ByteString value) {
+      void setExchange(com.google.protobuf.ByteString value) {
         bitField0_ |= 0x00000002;
-        contentEncoding_ = value;
+        exchange_ = value;
         onChanged();
       }
       
-      // optional string contentType = 3;
-      private java.lang.Object contentType_ = "";
-      public boolean hasContentType() {
+      // required string routingKey = 3;
+      private java.lang.Object routingKey_ = "";
+      public boolean hasRoutingKey() {
         return ((bitField0_ & 0x00000004) == 0x00000004);
       }
-      public String getContentType() {
-        java.lang.Object ref = contentType_;
+      public String getRoutingKey() {
+        java.lang.Object ref = routingKey_;
         if (!(ref instanceof String)) {
           String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
-          contentType_ = s;
+          routingKey_ = s;
           return s;
         } else {
           return (String) ref;
         }
       }
-      public Builder setContentType(String value) {
+      public Builder setRoutingKey(String value) {
         if (value == null) {
     throw new NullPointerException();
   }
   bitField0_ |= 0x00000004;
-        contentType_ = value;
+        routingKey_ = value;
         onChanged();
         return this;
       }
-      public Builder clearContentType() {
+      public Builder clearRoutingKey() {
         bitField0_ = (bitField0_ & ~0x00000004);
-        contentType_ = getDefaultInstance().getContentType();
+        routingKey_ = getDefaultInstance().getRoutingKey();
         onChanged();
         return this;
       }
-      void setContentType(com.google.protobuf.ByteString value) {
+      void setRoutingKey(com.google.protobuf.ByteString value) {
         bitField0_ |= 0x00000004;
-        contentType_ = value;
+        routingKey_ = value;
         onChanged();
       }
       
-      // optional string correlationId = 4;
-      private java.lang.Object correlationId_ = "";
-      public boolean hasCorrelationId() {
+      // optional bool isRedeliver = 4;
+      private boolean isRedeliver_ ;
+      public boolean hasIsRedeliver() {
         return ((bitField0_ & 0x00000008) == 0x00000008);
       }
-      public String getCorrelationId() {
-        java.lang.Object ref = correlationId_;
-        if (!(ref instanceof String)) {
-          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
-          correlationId_ = s;
-          return s;
-        } else {
-          return (String) ref;
-        }
+      public boolean getIsRedeliver() {
+        return isRedeliver_;
       }
-      public Builder setCorrelationId(String value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000008;
-        correlationId_ = value;
+      public Builder setIsRedeliver(boolean value) {
+        bitField0_ |= 0x00000008;
+        isRedeliver_ = value;
         onChanged();
         return this;
       }
-      public Builder clearCorrelationId() {
+      public Builder clearIsRedeliver() {
         bitField0_ = (bitField0_ & ~0x00000008);
-        correlationId_ = getDefaultInstance().getCorrelationId();
+        isRedeliver_ = false;
         onChanged();
         return this;
       }
-      void setCorrelationId(com.google.protobuf.ByteString value) {
-        bitField0_ |= 0x00000008;
-        correlationId_ = value;
-        onChanged();
-      }
       
-      // optional int32 deliveryMode = 5;
-      private int deliveryMode_ ;
-      public boolean hasDeliveryMode() {
+      // optional int32 exchangeSymbol = 5;
+      private int exchangeSymbol_ ;
+      public boolean hasExchangeSymbol() {
         return ((bitField0_ & 0x00000010) == 0x00000010);
       }
-      public int getDeliveryMode() {
-        return deliveryMode_;
+      public int getExchangeSymbol() {
+        return exchangeSymbol_;
       }
-      public Builder setDeliveryMode(int value) {
+      public Builder setExchangeSymbol(int value) {
         bitField0_ |= 0x00000010;
-        deliveryMode_ = value;
+        exchangeSymbol_ = value;
         onChanged();
         return this;
       }
-      public Builder clearDeliveryMode() {
+      public Builder clearExchangeSymbol() {
         bitField0_ = (bitField0_ & ~0x00000010);
-        deliveryMode_ = 0;
+        exchangeSymbol_ = 0;
         onChanged();
         return this;
       }
       
-      // optional string expiration = 6;
-      private java.lang.Object expiration_ = "";
-      public boolean hasExpiration() {
+      // optional int32 routingKeySymbol = 6;
+      private int routingKeySymbol_ ;
+      public boolean hasRoutingKeySymbol() {
         return ((bitField0_ & 0x00000020) == 0x00000020);
       }
-      public String getExpiration() {
-        java.lang.Object ref = expiration_;
-        if (!(ref instanceof String)) {
-          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
-          expiration_ = s;
-          return s;
-        } else {
-          return (String) ref;
-        }
+      public int getRoutingKeySymbol() {
+        return routingKeySymbol_;
       }
-      public Builder setExpiration(String value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000020;
-        expiration_ = value;
+      public Builder setRoutingKeySymbol(int value) {
+        bitField0_ |= 0x00000020;
+        routingKeySymbol_ = value;
         onChanged();
         return this;
       }
-      public Builder clearExpiration() {
+      public Builder clearRoutingKeySymbol() {
         bitField0_ = (bitField0_ & ~0x00000020);
-        expiration_ = getDefaultInstance().getExpiration();
+        routingKeySymbol_ = 0;
         onChanged();
         return this;
       }
-      void setExpiration(com.google.protobuf.ByteString value) {
-        bitField0_ |= 0x00000020;
-        expiration_ = value;
-        onChanged();
-      }
       
-      // optional string messageID = 7;
-      private java.lang.Object messageID_ = "";
-      public boolean hasMessageID() {
-        return ((bitField0_ & 0x00000040) == 0x00000040);
-      }
-      public String getMessageID() {
-        java.lang.Object ref = messageID_;
-        if (!(ref instanceof String)) {
-          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
-          messageID_ = s;
-          return s;
-        } else {
-          return (String) ref;
-        }
-      }
-      public Builder setMessageID(String value) {
-        if (value == null) {
-    throw new NullPointerException();
+      // @@protoc_insertion_point(builder_scope:EncodedEnvelope)
+    }
+    
+    static {
+      defaultInstance = new EncodedEnvelope(true);
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:EncodedEnvelope)
   }
-  bitField0_ |= 0x00000040;
-        messageID_ = value;
-        onChanged();
-        return this;
-      }
-      public Builder clearMessageID() {
-        bitField0_ = (bitField0_ & ~0x00000040);
-        messageID_ = getDefaultInstance().getMessageID();
-        onChanged();
-        return this;
-      }
-      void setMessageID(com.google.protobuf.ByteString value) {
+  
+  public interface EncodedPropertiesOrBuilder
+      extends com.google.protobuf.MessageOrBuilder {
+    
+    // optional string appID = 1;
+    boolean hasAppID();
+    String getAppID();
+    
+    // optional string contentEncoding = 2;
+    boolean hasContentEncoding();
+    String getContentEncoding();
+    
+    // optional string contentType = 3;
+    boolean hasContentType();
+    String getContentType();
+    
+    // optional string correlationId = 4;
+    boolean hasCorrelationId();
+    String getCorrelationId();
+    
+    // optional int32 deliveryMode = 5;
+    boolean hasDeliveryMode();
+    int getDeliveryMode();
+    
+    // optional string expiration = 6;
+    boolean hasExpiration();
+    String getExpiration();
+    
+    // optional string messageID = 7;
+    boolean hasMessageID();
+    String getMessageID();
+    
+    // optional int32 priority = 8;
+    boolean hasPriority();
+    int getPriority();
+    
+    // optional string replyTo = 9;
+    boolean hasReplyTo();
+    String getReplyTo();
+    
+    // optional int64 timestamp = 10;
+    boolean hasTimestamp();
+    long getTimestamp();
+    
+    // optional string type = 11;
+    boolean hasType();
+    String getType();
+    
+    // optional string userId = 12;
+    boolean hasUserId();
+    String getUserId();
+    
+    // repeated .Header header = 13;
+    java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> 
+        getHeaderList();
+    com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header getHeader(int index);
+    int getHeaderCount();
+    java.util.List<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder> 
+        getHeaderOrBuilderList();
+    com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder getHeaderOrBuilder(
+        int index);
+    
+    // optional int32 contentEncodingSymbol = 14;
+    boolean hasContentEncodingSymbol();
+    int getContentEncodingSymbol();
+    
+    // optional int32 contentTypeSymbol = 15;
+    boolean hasContentTypeSymbol();
+    int getContentTypeSymbol();
+    
+    // optional bool isDelta = 16;
+    boolean hasIsDelta();
+    boolean getIsDelta();
+    
+    // repeated int32 clearedField = 17;
+    java.util.List<java.lang.Integer> getClearedFieldList();
+    int getClearedFieldCount();
+    int getClearedField(int index);
+  }
+  public static final class EncodedProperties extends
+      com.google.protobuf.GeneratedMessage
+      implements EncodedPropertiesOrBuilder {
+    // Use EncodedProperties.newBuilder() to construct.
+    private EncodedProperties(Builder builder) {
+      super(builder);
+    }
+    private EncodedProperties(boolean noInit) {}
+    
+    private static final EncodedProperties defaultInstance;
+    public static EncodedProperties getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public EncodedProperties getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedProperties_descriptor;
+    }
+    
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedProperties_fieldAccessorTable;
+    }
+    
+    private int bitField0_;
+    // optional string appID = 1;
+    public static final int APPID_FIELD_NUMBER = 1;
+    private java.lang.Object appID_;
+    public boolean hasAppID() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    public String getAppID() {
+      java.lang.Object ref = appID_;
+      if (ref instanceof String) {
+        return (String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        String s = bs.toStringUtf8();
+        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
+          appID_ = s;
+        }
+        return s;
+      }
+    }
+    private com.google.protobuf.ByteString getAppIDBytes() {
+      java.lang.Object ref = appID_;
+      if (ref instanceof String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
+        appID_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+    
+    // optional string contentEncoding = 2;
+    public static final int CONTENTENCODING_FIELD_NUMBER = 2;
+    private java.lang.Object contentEncoding_;
+    public boolean hasContentEncoding() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    public String getContentEncoding() {
+      java.lang.Object ref = contentEncoding_;
+      if (ref instanceof String) {
+        return (String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        String s = bs.toStringUtf8();
+        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
+          contentEncoding_ = s;
+        }
+        return s;
+      }
+    }
+    private com.google.protobuf.ByteString getContentEncodingBytes() {
+      java.lang.Object ref = contentEncoding_;
+      if (ref instanceof String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
+        contentEncoding_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+    
+    // optional string contentType = 3;
+    public static final int CONTENTTYPE_FIELD_NUMBER = 3;
+    private java.lang.Object contentType_;
+    public boolean hasContentType() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    public String getContentType() {
+      java.lang.Object ref = contentType_;
+      if (ref instanceof String) {
+        return (String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        String s = bs.toStringUtf8();
+        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
+          contentType_ = s;
+        }
+        return s;
+      }
+    }
+    private com.google.protobuf.ByteString getContentTypeBytes() {
+      java.lang.Object ref = contentType_;
+      if (ref instanceof String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
+        contentType_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+    
+    // optional string correlationId = 4;
+    public static final int CORRELATIONID_FIELD_NUMBER = 4;
+    private java.lang.Object correlationId_;
+    public boolean hasCorrelationId() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    public String getCorrelationId() {
+      java.lang.Object ref = correlationId_;
+      if (ref instanceof String) {
+        return (String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        String s = bs.toStringUtf8();
+        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
+          correlationId_ = s;
+        }
+        return s;
+      }
+    }
+    private com.google.protobuf.ByteString getCorrelationIdBytes() {
+      java.lang.Object ref = correlationId_;
+      if (ref instanceof String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
+        correlationId_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+    
+    // optional int32 deliveryMode = 5;
+    public static final int DELIVERYMODE_FIELD_NUMBER = 5;
+    private int deliveryMode_;
+    public boolean hasDeliveryMode() {
+      return ((bitField0_ & 0x00000010) == 0x00000010);
+    }
+    public int getDeliveryMode() {
+      return deliveryMode_;
+    }
+    
+    // optional string expiration = 6;
+    public static final int EXPIRATION_FIELD_NUMBER = 6;
+    private java.lang.Object expiration_;
+    public boolean hasExpiration() {
+      return ((bitField0_ & 0x00000020) == 0x00000020);
+    }
+    public String getExpiration() {
+      java.lang.Object ref = expiration_;
+      if (ref instanceof String) {
+        return (String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        String s = bs.toStringUtf8();
+        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
+          expiration_ = s;
+        }
+        return s;
+      }
+    }
+    private com.google.protobuf.ByteString getExpirationBytes() {
+      java.lang.Object ref = expiration_;
+      if (ref instanceof String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
+        expiration_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+    
+    // optional string messageID = 7;
+    public static final int MESSAGEID_FIELD_NUMBER = 7;
+    private java.lang.Object messageID_;
+    public boolean hasMessageID() {
+      return ((bitField0_ & 0x00000040) == 0x00000040);
+    }
+    public String getMessageID() {
+      java.lang.Object ref = messageID_;
+      if (ref instanceof String) {
+        return (String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        String s = bs.toStringUtf8();
+        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
+          messageID_ = s;
+        }
+        return s;
+      }
+    }
+    private com.google.protobuf.ByteString getMessageIDBytes() {
+      java.lang.Object ref = messageID_;
+      if (ref instanceof String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
+        messageID_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+    
+    // optional int32 priority = 8;
+    public static final int PRIORITY_FIELD_NUMBER = 8;
+    private int priority_;
+    public boolean hasPriority() {
+      return ((bitField0_ & 0x00000080) == 0x00000080);
+    }
+    public int getPriority() {
+      return priority_;
+    }
+    
+    // optional string replyTo = 9;
+    public static final int REPLYTO_FIELD_NUMBER = 9;
+    private java.lang.Object replyTo_;
+    public boolean hasReplyTo() {
+      return ((bitField0_ & 0x00000100) == 0x00000100);
+    }
+    public String getReplyTo() {
+      java.lang.Object ref = replyTo_;
+      if (ref instanceof String) {
+        return (String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        String s = bs.toStringUtf8();
+        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
+          replyTo_ = s;
+        }
+        return s;
+      }
+    }
+    private com.google.protobuf.ByteString getReplyToBytes() {
+      java.lang.Object ref = replyTo_;
+      if (ref instanceof String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
+        replyTo_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+    
+    // optional int64 timestamp = 10;
+    public static final int TIMESTAMP_FIELD_NUMBER = 10;
+    private long timestamp_;
+    public boolean hasTimestamp() {
+      return ((bitField0_ & 0x00000200) == 0x00000200);
+    }
+    public long getTimestamp() {
+      return timestamp_;
+    }
+    
+    // optional string type = 11;
+    public static final int TYPE_FIELD_NUMBER = 11;
+    private java.lang.Object type_;
+    public boolean hasType() {
+      return ((bitField0_ & 0x00000400) == 0x00000400);
+    }
+    public String getType() {
+      java.lang.Object ref = type_;
+      if (ref instanceof String) {
+        return (String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        String s = bs.toStringUtf8();
+        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
+          type_ = s;
+        }
+        return s;
+      }
+    }
+    private com.google.protobuf.ByteString getTypeBytes() {
+      java.lang.Object ref = type_;
+      if (ref instanceof String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
+        type_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+    
+    // optional string userId = 12;
+    public static final int USERID_FIELD_NUMBER = 12;
+    private java.lang.Object userId_;
+    public boolean hasUserId() {
+      return ((bitField0_ & 0x00000800) == 0x00000800);
+    }
+    public String getUserId() {
+      java.lang.Object ref = userId_;
+      if (ref instanceof String) {
+        return (String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        String s = bs.toStringUtf8();
+        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
+          userId_ = s;
+        }
+        return s;
+      }
+    }
+    private com.google.protobuf.ByteString getUserIdBytes() {
+      java.lang.Object ref = userId_;
+      if (ref instanceof String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
+        userId_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+    
+    // repeated .Header header = 13;
+    public static final int HEADER_FIELD_NUMBER = 13;
+    private java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> header_;
+    public java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> getHeaderList() {
+      return header_;
+    }
+    public java.util.List<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder> 
+        getHeaderOrBuilderList() {
+      return header_;
+    }
+    public int getHeaderCount() {
+      return header_.size();
+    }
+    public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header getHeader(int index) {
+      return header_.get(index);
+    }
+    public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder getHeaderOrBuilder(
+        int index) {
+      return header_.get(index);
+    }
+    
+    // optional int32 contentEncodingSymbol = 14;
+    public static final int CONTENTENCODINGSYMBOL_FIELD_NUMBER = 14;
+    private int contentEncodingSymbol_;
+    public boolean hasContentEncodingSymbol() {
+      return ((bitField0_ & 0x00001000) == 0x00001000);
+    }
+    public int getContentEncodingSymbol() {
+      return contentEncodingSymbol_;
+    }
+    
+    // optional int32 contentTypeSymbol = 15;
+    public static final int CONTENTTYPESYMBOL_FIELD_NUMBER = 15;
+    private int contentTypeSymbol_;
+    public boolean hasContentTypeSymbol() {
+      return ((bitField0_ & 0x00002000) == 0x00002000);
+    }
+    public int getContentTypeSymbol() {
+      return contentTypeSymbol_;
+    }
+    
+    // optional bool isDelta = 16;
+    public static final int ISDELTA_FIELD_NUMBER = 16;
+    private boolean isDelta_;
+    public boolean hasIsDelta() {
+      return ((bitField0_ & 0x00004000) == 0x00004000);
+    }
+    public boolean getIsDelta() {
+      return isDelta_;
+    }
+    
+    // repeated int32 clearedField = 17;
+    public static final int CLEAREDFIELD_FIELD_NUMBER = 17;
+    private java.util.List<java.lang.Integer> clearedField_;
+    public java.util.List<java.lang.Integer>
+        getClearedFieldList() {
+      return clearedField_;
+    }
+    public int getClearedFieldCount() {
+      return clearedField_.size();
+    }
+    public int getClearedField(int index) {
+      return clearedField_.get(index);
+    }
+    
+    private void initFields() {
+      appID_ = "";
+      contentEncoding_ = "";
+      contentType_ = "";
+      correlationId_ = "";
+      deliveryMode_ = 0;
+      expiration_ = "";
+      messageID_ = "";
+      priority_ = 0;
+      replyTo_ = "";
+      timestamp_ = 0L;
+      type_ = "";
+      userId_ = "";
+      header_ = java.util.Collections.emptyList();
+      contentEncodingSymbol_ = 0;
+      contentTypeSymbol_ = 0;
+      isDelta_ = false;
+      clearedField_ = java.util.Collections.emptyList();;
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized != -1) return isInitialized == 1;
+      
+      for (int i = 0; i < getHeaderCount(); i++) {
+        if (!getHeader(i).isInitialized()) {
+          memoizedIsInitialized = 0;
+          return false;
+        }
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeBytes(1, getAppIDBytes());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeBytes(2, getContentEncodingBytes());
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeBytes(3, getContentTypeBytes());
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeBytes(4, getCorrelationIdBytes());
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        output.writeInt32(5, deliveryMode_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        output.writeBytes(6, getExpirationBytes());
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        output.writeBytes(7, getMessageIDBytes());
+      }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        output.writeInt32(8, priority_);
+      }
+      if (((bitField0_ & 0x00000100) == 0x00000100)) {
+        output.writeBytes(9, getReplyToBytes());
+      }
+      if (((bitField0_ & 0x00000200) == 0x00000200)) {
+        output.writeInt64(10, timestamp_);
+      }
+      if (((bitField0_ & 0x00000400) == 0x00000400)) {
+        output.writeBytes(11, getTypeBytes());
+      }
+      if (((bitField0_ & 0x00000800) == 0x00000800)) {
+        output.writeBytes(12, getUserIdBytes());
+      }
+      for (int i = 0; i < header_.size(); i++) {
+        output.writeMessage(13, header_.get(i));
+      }
+      if (((bitField0_ & 0x00001000) == 0x00001000)) {
+        output.writeInt32(14, contentEncodingSymbol_);
+      }
+      if (((bitField0_ & 0x00002000) == 0x00002000)) {
+        output.writeInt32(15, contentTypeSymbol_);
+      }
+      if (((bitField0_ & 0x00004000) == 0x00004000)) {
+        output.writeBool(16, isDelta_);
+      }
+      for (int i = 0; i < clearedField_.size(); i++) {
+        output.writeInt32(17, clearedField_.get(i));
+      }
+      getUnknownFields().writeTo(output);
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(1, getAppIDBytes());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(2, getContentEncodingBytes());
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(3, getContentTypeBytes());
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(4, getCorrelationIdBytes());
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(5, deliveryMode_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(6, getExpirationBytes());
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(7, getMessageIDBytes());
+      }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(8, priority_);
+      }
+      if (((bitField0_ & 0x00000100) == 0x00000100)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(9, getReplyToBytes());
+      }
+      if (((bitField0_ & 0x00000200) == 0x00000200)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(10, timestamp_);
+      }
+      if (((bitField0_ & 0x00000400) == 0x00000400)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(11, getTypeBytes());
+      }
+      if (((bitField0_ & 0x00000800) == 0x00000800)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(12, getUserIdBytes());
+      }
+      for (int i = 0; i < header_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(13, header_.get(i));
+      }
+      if (((bitField0_ & 0x00001000) == 0x00001000)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(14, contentEncodingSymbol_);
+      }
+      if (((bitField0_ & 0x00002000) == 0x00002000)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(15, contentTypeSymbol_);
+      }
+      if (((bitField0_ & 0x00004000) == 0x00004000)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(16, isDelta_);
+      }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < clearedField_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeInt32SizeNoTag(clearedField_.get(i));
+        }
+        size += dataSize;
+        size += 2 * getClearedFieldList().size();
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+    
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder>
+       implements com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedPropertiesOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedProperties_descriptor;
+      }
+      
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_EncodedProperties_fieldAccessorTable;
+      }
+      
+      // Construct using com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+      
+      private Builder(BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+          getHeaderFieldBuilder();
+        }
+      }
+      private static Builder create() {
+        return new Builder();
+      }
+      
+      public Builder clear() {
+        super.clear();
+        appID_ = "";
+        bitField0_ = (bitField0_ & ~0x00000001);
+        contentEncoding_ = "";
+        bitField0_ = (bitField0_ & ~0x00000002);
+        contentType_ = "";
+        bitField0_ = (bitField0_ & ~0x00000004);
+        correlationId_ = "";
+        bitField0_ = (bitField0_ & ~0x00000008);
+        deliveryMode_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000010);
+        expiration_ = "";
+        bitField0_ = (bitField0_ & ~0x00000020);
+        messageID_ = "";
+        bitField0_ = (bitField0_ & ~0x00000040);
+        priority_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000080);
+        replyTo_ = "";
+        bitField0_ = (bitField0_ & ~0x00000100);
+        timestamp_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000200);
+        type_ = "";
+        bitField0_ = (bitField0_ & ~0x00000400);
+        userId_ = "";
+        bitField0_ = (bitField0_ & ~0x00000800);
+        if (headerBuilder_ == null) {
+          header_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00001000);
+        } else {
+          headerBuilder_.clear();
+        }
+        contentEncodingSymbol_ = 0;
+        bitField0_ = (bitField0_ & ~0x00002000);
+        contentTypeSymbol_ = 0;
+        bitField0_ = (bitField0_ & ~0x00004000);
+        isDelta_ = false;
+        bitField0_ = (bitField0_ & ~0x00008000);
+        clearedField_ = java.util.Collections.emptyList();;
+        bitField0_ = (bitField0_ & ~0x00010000);
+        return this;
+      }
+      
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
+      }
+      
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties.getDescriptor();
+      }
+      
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties getDefaultInstanceForType() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties.getDefaultInstance();
+      }
+      
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties build() {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+      
+      private com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return result;
+      }
+      
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties buildPartial() {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties result = new com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.appID_ = appID_;
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.contentEncoding_ = contentEncoding_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.contentType_ = contentType_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.correlationId_ = correlationId_;
+        if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
+          to_bitField0_ |= 0x00000010;
+        }
+        result.deliveryMode_ = deliveryMode_;
+        if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
+          to_bitField0_ |= 0x00000020;
+        }
+        result.expiration_ = expiration_;
+        if (((from_bitField0_ & 0x00000040) == 0x00000040)) {
+          to_bitField0_ |= 0x00000040;
+        }
+        result.messageID_ = messageID_;
+        if (((from_bitField0_ & 0x00000080) == 0x00000080)) {
+          to_bitField0_ |= 0x00000080;
+        }
+        result.priority_ = priority_;
+        if (((from_bitField0_ & 0x00000100) == 0x00000100)) {
+          to_bitField0_ |= 0x00000100;
+        }
+        result.replyTo_ = replyTo_;
+        if (((from_bitField0_ & 0x00000200) == 0x00000200)) {
+          to_bitField0_ |= 0x00000200;
+        }
+        result.timestamp_ = timestamp_;
+        if (((from_bitField0_ & 0x00000400) == 0x00000400)) {
+          to_bitField0_ |= 0x00000400;
+        }
+        result.type_ = type_;
+        if (((from_bitField0_ & 0x00000800) == 0x00000800)) {
+          to_bitField0_ |= 0x00000800;
+        }
+        result.userId_ = userId_;
+        if (headerBuilder_ == null) {
+          if (((bitField0_ & 0x00001000) == 0x00001000)) {
+            header_ = java.util.Collections.unmodifiableList(header_);
+            bitField0_ = (bitField0_ & ~0x00001000);
+          }
+          result.header_ = header_;
+        } else {
+          result.header_ = headerBuilder_.build();
+        }
+        if (((from_bitField0_ & 0x00002000) == 0x00002000)) {
+          to_bitField0_ |= 0x00001000;
+        }
+        result.contentEncodingSymbol_ = contentEncodingSymbol_;
+        if (((from_bitField0_ & 0x00004000) == 0x00004000)) {
+          to_bitField0_ |= 0x00002000;
+        }
+        result.contentTypeSymbol_ = contentTypeSymbol_;
+        if (((from_bitField0_ & 0x00008000) == 0x00008000)) {
+          to_bitField0_ |= 0x00004000;
+        }
+        result.isDelta_ = isDelta_;
+        if (((bitField0_ & 0x00010000) == 0x00010000)) {
+          clearedField_ = java.util.Collections.unmodifiableList(clearedField_);
+          bitField0_ = (bitField0_ & ~0x00010000);
+        }
+        result.clearedField_ = clearedField_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+      
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties) {
+          return mergeFrom((com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+      
+      public Builder mergeFrom(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties other) {
+        if (other == com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties.getDefaultInstance()) return this;
+        if (other.hasAppID()) {
+          setAppID(other.getAppID());
+        }
+        if (other.hasContentEncoding()) {
+          setContentEncoding(other.getContentEncoding());
+        }
+        if (other.hasContentType()) {
+          setContentType(other.getContentType());
+        }
+        if (other.hasCorrelationId()) {
+          setCorrelationId(other.getCorrelationId());
+        }
+        if (other.hasDeliveryMode()) {
+          setDeliveryMode(other.getDeliveryMode());
+        }
+        if (other.hasExpiration()) {
+          setExpiration(other.getExpiration());
+        }
+        if (other.hasMessageID()) {
+          setMessageID(other.getMessageID());
+        }
+        if (other.hasPriority()) {
+          setPriority(other.getPriority());
+        }
+        if (other.hasReplyTo()) {
+          setReplyTo(other.getReplyTo());
+        }
+        if (other.hasTimestamp()) {
+          setTimestamp(other.getTimestamp());
+        }
+        if (other.hasType()) {
+          setType(other.getType());
+        }
+        if (other.hasUserId()) {
+          setUserId(other.getUserId());
+        }
+        if (headerBuilder_ == null) {
+          if (!other.header_.isEmpty()) {
+            if (header_.isEmpty()) {
+              header_ = other.header_;
+              bitField0_ = (bitField0_ & ~0x00001000);
+            } else {
+              ensureHeaderIsMutable();
+              header_.addAll(other.header_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.header_.isEmpty()) {
+            if (headerBuilder_.isEmpty()) {
+              headerBuilder_.dispose();
+              headerBuilder_ = null;
+              header_ = other.header_;
+              bitField0_ = (bitField0_ & ~0x00001000);
+              headerBuilder_ = 
+                com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders ?
+                   getHeaderFieldBuilder() : null;
+            } else {
+              headerBuilder_.addAllMessages(other.header_);
+            }
+          }
+        }
+        if (other.hasContentEncodingSymbol()) {
+          setContentEncodingSymbol(other.getContentEncodingSymbol());
+        }
+        if (other.hasContentTypeSymbol()) {
+          setContentTypeSymbol(other.getContentTypeSymbol());
+        }
+        if (other.hasIsDelta()) {
+          setIsDelta(other.getIsDelta());
+        }
+        if (!other.clearedField_.isEmpty()) {
+          if (clearedField_.isEmpty()) {
+            clearedField_ = other.clearedField_;
+            bitField0_ = (bitField0_ & ~0x00010000);
+          } else {
+            ensureClearedFieldIsMutable();
+            clearedField_.addAll(other.clearedField_);
+          }
+          onChanged();
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+      
+      public final boolean isInitialized() {
+        for (int i = 0; i < getHeaderCount(); i++) {
+          if (!getHeader(i).isInitialized()) {
+            
+            return false;
+          }
+        }
+        return true;
+      }
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder(
+            this.getUnknownFields());
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              this.setUnknownFields(unknownFields.build());
+              onChanged();
+              return this;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                this.setUnknownFields(unknownFields.build());
+                onChanged();
+                return this;
+              }
+              break;
+            }
+            case 10: {
+              bitField0_ |= 0x00000001;
+              appID_ = input.readBytes();
+              break;
+            }
+            case 18: {
+              bitField0_ |= 0x00000002;
+              contentEncoding_ = input.readBytes();
+              break;
+            }
+            case 26: {
+              bitField0_ |= 0x00000004;
+              contentType_ = input.readBytes();
+              break;
+            }
+            case 34: {
+              bitField0_ |= 0x00000008;
+              correlationId_ = input.readBytes();
+              break;
+            }
+            case 40: {
+              bitField0_ |= 0x00000010;
+              deliveryMode_ = input.readInt32();
+              break;
+            }
+            case 50: {
+              bitField0_ |= 0x00000020;
+              expiration_ = input.readBytes();
+              break;
+            }
+            case 58: {
+              bitField0_ |= 0x00000040;
+              messageID_ = input.readBytes();
+              break;
+            }
+            case 64: {
+              bitField0_ |= 0x00000080;
+              priority_ = input.readInt32();
+              break;
+            }
+            case 74: {
+              bitField0_ |= 0x00000100;
+              replyTo_ = input.readBytes();
+              break;
+            }
+            case 80: {
+              bitField0_ |= 0x00000200;
+              timestamp_ = input.readInt64();
+              break;
+            }
+            case 90: {
+              bitField0_ |= 0x00000400;
+              type_ = input.readBytes();
+              break;
+            }
+            case 98: {
+              bitField0_ |= 0x00000800;
+              userId_ = input.readBytes();
+              break;
+            }
+            case 106: {
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder subBuilder = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.newBuilder();
+              input.readMessage(subBuilder, extensionRegistry);
+              addHeader(subBuilder.buildPartial());
+              break;
+            }
+            case 112: {
+              bitField0_ |= 0x00002000;
+              contentEncodingSymbol_ = input.readInt32();
+              break;
+            }
+            case 120: {
+              bitField0_ |= 0x00004000;
+              contentTypeSymbol_ = input.readInt32();
+              break;
+            }
+            case 128: {
+              bitField0_ |= 0x00008000;
+              isDelta_ = input.readBool();
+              break;
+            }
+            case 136: {
+              ensureClearedFieldIsMutable();
+              clearedField_.add(input.readInt32());
+              break;
+            }
+            case 138: {
+              int length = input.readRawVarint32();
+              int limit = input.pushLimit(length);
+              while (input.getBytesUntilLimit() > 0) {
+                addClearedField(input.readInt32());
+              }
+              input.popLimit(limit);
+              break;
+            }
+          }
+        }
+      }
+      
+      private int bitField0_;
+      
+      // optional string appID = 1;
+      private java.lang.Object appID_ = "";
+      public boolean hasAppID() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      public String getAppID() {
+        java.lang.Object ref = appID_;
+        if (!(ref instanceof String)) {
+          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
+          appID_ = s;
+          return s;
+        } else {
+          return (String) ref;
+        }
+      }
+      public Builder setAppID(String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        appID_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearAppID() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        appID_ = getDefaultInstance().getAppID();
+        onChanged();
+        return this;
+      }
+      void setAppID(com.google.protobuf.ByteString value) {
+        bitField0_ |= 0x00000001;
+        appID_ = value;
+        onChanged();
+      }
+      
+      // optional string contentEncoding = 2;
+      private java.lang.Object contentEncoding_ = "";
+      public boolean hasContentEncoding() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      public String getContentEncoding() {
+        java.lang.Object ref = contentEncoding_;
+        if (!(ref instanceof String)) {
+          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
+          contentEncoding_ = s;
+          return s;
+        } else {
+          return (String) ref;
+        }
+      }
+      public Builder setContentEncoding(String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+        contentEncoding_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearContentEncoding() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        contentEncoding_ = getDefaultInstance().getContentEncoding();
+        onChanged();
+        return this;
+      }
+      void setContentEncoding(com.google.protobuf.ByteString value) {
+        bitField0_ |= 0x00000002;
+        contentEncoding_ = value;
+        onChanged();
+      }
+      
+      // optional string contentType = 3;
+      private java.lang.Object contentType_ = "";
+      public boolean hasContentType() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      public String getContentType() {
+        java.lang.Object ref = contentType_;
+        if (!(ref instanceof String)) {
+          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
+          contentType_ = s;
+          return s;
+        } else {
+          return (String) ref;
+        }
+      }
+      public Builder setContentType(String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        contentType_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearContentType() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        contentType_ = getDefaultInstance().getContentType();
+        onChanged();
+        return this;
+      }
+      void setContentType(com.google.protobuf.ByteString value) {
+        bitField0_ |= 0x00000004;
+        contentType_ = value;
+        onChanged();
+      }
+      
+      // optional string correlationId = 4;
+      private java.lang.Object correlationId_ = "";
+      public boolean hasCorrelationId() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      public String getCorrelationId() {
+        java.lang.Object ref = correlationId_;
+        if (!(ref instanceof String)) {
+          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
+          correlationId_ = s;
+          return s;
+        } else {
+          return (String) ref;
+        }
+      }
+      public Builder setCorrelationId(String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000008;
+        correlationId_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearCorrelationId() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        correlationId_ = getDefaultInstance().getCorrelationId();
+        onChanged();
+        return this;
+      }
+      void setCorrelationId(com.google.protobuf.ByteString value) {
+        bitField0_ |= 0x00000008;
+        correlationId_ = value;
+        onChanged();
+      }
+      
+      // optional int32 deliveryMode = 5;
+      private int deliveryMode_ ;
+      public boolean hasDeliveryMode() {
+        return ((bitField0_ & 0x00000010) == 0x00000010);
+      }
+      public int getDeliveryMode() {
+        return deliveryMode_;
+      }
+      public Builder setDeliveryMode(int value) {
+        bitField0_ |= 0x00000010;
+        deliveryMode_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearDeliveryMode() {
+        bitField0_ = (bitField0_ & ~0x00000010);
+        deliveryMode_ = 0;
+        onChanged();
+        return this;
+      }
+      
+      // optional string expiration = 6;
+      private java.lang.Object expiration_ = "";
+      public boolean hasExpiration() {
+        return ((bitField0_ & 0x00000020) == 0x00000020);
+      }
+      public String getExpiration() {
+        java.lang.Object ref = expiration_;
+        if (!(ref instanceof String)) {
+          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
+          expiration_ = s;
+          return s;
+        } else {
+          return (String) ref;
+        }
+      }
+      public Builder setExpiration(String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000020;
+        expiration_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearExpiration() {
+        bitField0_ = (bitField0_ & ~0x00000020);
+        expiration_ = getDefaultInstance().getExpiration();
+        onChanged();
+        return this;
+      }
+      void setExpiration(com.google.protobuf.ByteString value) {
+        bitField0_ |= 0x00000020;
+        expiration_ = value;
+        onChanged();
+      }
+      
+      // optional string messageID = 7;
+      private java.lang.Object messageID_ = "";
+      public boolean hasMessageID() {
+        return ((bitField0_ & 0x00000040) == 0x00000040);
+      }
+      public String getMessageID() {
+        java.lang.Object ref = messageID_;
+        if (!(ref instanceof String)) {
+          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
+          messageID_ = s;
+          return s;
+        } else {
+          return (String) ref;
+        }
+      }
+      public Builder setMessageID(String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000040;
+        messageID_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearMessageID() {
+        bitField0_ = (bitField0_ & ~0x00000040);
+        messageID_ = getDefaultInstance().getMessageID();
+        onChanged();
+        return this;
+      }
+      void setMessageID(com.google.protobuf.ByteString value) {
         bitField0_ |= 0x00000040;
         messageID_ = value;
         onChanged();
       }
       
-      // optional int32 priority = 8;
-      private int priority_ ;
-      public boolean hasPriority() {
-        return ((bitField0_ & 0x00000080) == 0x00000080);
+      // optional int32 priority = 8;
+      private int priority_ ;
+      public boolean hasPriority() {
+        return ((bitField0_ & 0x00000080) == 0x00000080);
+      }
+      public int getPriority() {
+        return priority_;
+      }
+      public Builder setPriority(int value) {
+        bitField0_ |= 0x00000080;
+        priority_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearPriority() {
+        bitField0_ = (bitField0_ & ~0x00000080);
+        priority_ = 0;
+        onChanged();
+        return this;
+      }
+      
+      // optional string replyTo = 9;
+      private java.lang.Object replyTo_ = "";
+      public boolean hasReplyTo() {
+        return ((bitField0_ & 0x00000100) == 0x00000100);
+      }
+      public String getReplyTo() {
+        java.lang.Object ref = replyTo_;
+        if (!(ref instanceof String)) {
+          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
+          replyTo_ = s;
+          return s;
+        } else {
+          return (String) ref;
+        }
+      }
+      public Builder setReplyTo(String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000100;
+        replyTo_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearReplyTo() {
+        bitField0_ = (bitField0_ & ~0x00000100);
+        replyTo_ = getDefaultInstance().getReplyTo();
+        onChanged();
+        return this;
+      }
+      void setReplyTo(com.google.protobuf.ByteString value) {
+        bitField0_ |= 0x00000100;
+        replyTo_ = value;
+        onChanged();
+      }
+      
+      // optional int64 timestamp = 10;
+      private long timestamp_ ;
+      public boolean hasTimestamp() {
+        return ((bitField0_ & 0x00000200) == 0x00000200);
+      }
+      public long getTimestamp() {
+        return timestamp_;
+      }
+      public Builder setTimestamp(long value) {
+        bitField0_ |= 0x00000200;
+        timestamp_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearTimestamp() {
+        bitField0_ = (bitField0_ & ~0x00000200);
+        timestamp_ = 0L;
+        onChanged();
+        return this;
+      }
+      
+      // optional string type = 11;
+      private java.lang.Object type_ = "";
+      public boolean hasType() {
+        return ((bitField0_ & 0x00000400) == 0x00000400);
+      }
+      public String getType() {
+        java.lang.Object ref = type_;
+        if (!(ref instanceof String)) {
+          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
+          type_ = s;
+          return s;
+        } else {
+          return (String) ref;
+        }
+      }
+      public Builder setType(String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000400;
+        type_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearType() {
+        bitField0_ = (bitField0_ & ~0x00000400);
+        type_ = getDefaultInstance().getType();
+        onChanged();
+        return this;
+      }
+      void setType(com.google.protobuf.ByteString value) {
+        bitField0_ |= 0x00000400;
+        type_ = value;
+        onChanged();
+      }
+      
+      // optional string userId = 12;
+      private java.lang.Object userId_ = "";
+      public boolean hasUserId() {
+        return ((bitField0_ & 0x00000800) == 0x00000800);
+      }
+      public String getUserId() {
+        java.lang.Object ref = userId_;
+        if (!(ref instanceof String)) {
+          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
+          userId_ = s;
+          return s;
+        } else {
+          return (String) ref;
+        }
+      }
+      public Builder setUserId(String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000800;
+        userId_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearUserId() {
+        bitField0_ = (bitField0_ & ~0x00000800);
+        userId_ = getDefaultInstance().getUserId();
+        onChanged();
+        return this;
+      }
+      void setUserId(com.google.protobuf.ByteString value) {
+        bitField0_ |= 0x00000800;
+        userId_ = value;
+        onChanged();
+      }
+      
+      // repeated .Header header = 13;
+      private java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> header_ =
+        java.util.Collections.emptyList();
+      private void ensureHeaderIsMutable() {
+        if (!((bitField0_ & 0x00001000) == 0x00001000)) {
+          header_ = new java.util.ArrayList<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header>(header_);
+          bitField0_ |= 0x00001000;
+         }
+      }
+      
+      private com.google.protobuf.RepeatedFieldBuilder<
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder> headerBuilder_;
+      
+      public java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> getHeaderList() {
+        if (headerBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(header_);
+        } else {
+          return headerBuilder_.getMessageList();
+        }
+      }
+      public int getHeaderCount() {
+        if (headerBuilder_ == null) {
+          return header_.size();
+        } else {
+          return headerBuilder_.getCount();
+        }
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header getHeader(int index) {
+        if (headerBuilder_ == null) {
+          return header_.get(index);
+        } else {
+          return headerBuilder_.getMessage(index);
+        }
+      }
+      public Builder setHeader(
+          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header value) {
+        if (headerBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureHeaderIsMutable();
+          header_.set(index, value);
+          onChanged();
+        } else {
+          headerBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+      public Builder setHeader(
+          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder builderForValue) {
+        if (headerBuilder_ == null) {
+          ensureHeaderIsMutable();
+          header_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          headerBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addHeader(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header value) {
+        if (headerBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureHeaderIsMutable();
+          header_.add(value);
+          onChanged();
+        } else {
+          headerBuilder_.addMessage(value);
+        }
+        return this;
+      }
+      public Builder addHeader(
+          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header value) {
+        if (headerBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureHeaderIsMutable();
+          header_.add(index, value);
+          onChanged();
+        } else {
+          headerBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+      public Builder addHeader(
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder builderForValue) {
+        if (headerBuilder_ == null) {
+          ensureHeaderIsMutable();
+          header_.add(builderForValue.build());
+          onChanged();
+        } else {
+          headerBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addHeader(
+          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder builderForValue) {
+        if (headerBuilder_ == null) {
+          ensureHeaderIsMutable();
+          header_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          headerBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addAllHeader(
+          java.lang.Iterable<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> values) {
+        if (headerBuilder_ == null) {
+          ensureHeaderIsMutable();
+          super.addAll(values, header_);
+          onChanged();
+        } else {
+          headerBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+      public Builder clearHeader() {
+        if (headerBuilder_ == null) {
+          header_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00001000);
+          onChanged();
+        } else {
+          headerBuilder_.clear();
+        }
+        return this;
+      }
+      public Builder removeHeader(int index) {
+        if (headerBuilder_ == null) {
+          ensureHeaderIsMutable();
+          header_.remove(index);
+          onChanged();
+        } else {
+          headerBuilder_.remove(index);
+        }
+        return this;
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder getHeaderBuilder(
+          int index) {
+        return getHeaderFieldBuilder().getBuilder(index);
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder getHeaderOrBuilder(
+          int index) {
+        if (headerBuilder_ == null) {
+          return header_.get(index);  } else {
+          return headerBuilder_.getMessageOrBuilder(index);
+        }
+      }
+      public java.util.List<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder> 
+           getHeaderOrBuilderList() {
+        if (headerBuilder_ != null) {
+          return headerBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(header_);
+        }
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder addHeaderBuilder() {
+        return getHeaderFieldBuilder().addBuilder(
+            com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.getDefaultInstance());
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder addHeaderBuilder(
+          int index) {
+        return getHeaderFieldBuilder().addBuilder(
+            index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.getDefaultInstance());
+      }
+      public java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder> 
+           getHeaderBuilderList() {
+        return getHeaderFieldBuilder().getBuilderList();
+      }
+      private com.google.protobuf.RepeatedFieldBuilder<
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder> 
+          getHeaderFieldBuilder() {
+        if (headerBuilder_ == null) {
+          headerBuilder_ = new com.google.protobuf.RepeatedFieldBuilder<
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder>(
+                  header_,
+                  ((bitField0_ & 0x00001000) == 0x00001000),
+                  getParentForChildren(),
+                  isClean());
+          header_ = null;
+        }
+        return headerBuilder_;
+      }
+      
+      // optional int32 contentEncodingSymbol = 14;
+      private int contentEncodingSymbol_ ;
+      public boolean hasContentEncodingSymbol() {
+        return ((bitField0_ & 0x00002000) == 0x00002000);
+      }
+      public int getContentEncodingSymbol() {
+        return contentEncodingSymbol_;
+      }
+      public Builder setContentEncodingSymbol(int value) {
+        bitField0_ |= 0x00002000;
+        contentEncodingSymbol_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearContentEncodingSymbol() {
+        bitField0_ = (bitField0_ & ~0x00002000);
+        contentEncodingSymbol_ = 0;
+        onChanged();
+        return this;
+      }
+      
+      // optional int32 contentTypeSymbol = 15;
+      private int contentTypeSymbol_ ;
+      public boolean hasContentTypeSymbol() {
+        return ((bitField0_ & 0x00004000) == 0x00004000);
+      }
+      public int getContentTypeSymbol() {
+        return contentTypeSymbol_;
+      }
+      public Builder setContentTypeSymbol(int value) {
+        bitField0_ |= 0x00004000;
+        contentTypeSymbol_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearContentTypeSymbol() {
+        bitField0_ = (bitField0_ & ~0x00004000);
+        contentTypeSymbol_ = 0;
+        onChanged();
+        return this;
+      }
+      
+      // optional bool isDelta = 16;
+      private boolean isDelta_ ;
+      public boolean hasIsDelta() {
+        return ((bitField0_ & 0x00008000) == 0x00008000);
+      }
+      public boolean getIsDelta() {
+        return isDelta_;
+      }
+      public Builder setIsDelta(boolean value) {
+        bitField0_ |= 0x00008000;
+        isDelta_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearIsDelta() {
+        bitField0_ = (bitField0_ & ~0x00008000);
+        isDelta_ = false;
+        onChanged();
+        return this;
+      }
+      
+      // repeated int32 clearedField = 17;
+      private java.util.List<java.lang.Integer> clearedField_ = java.util.Collections.emptyList();;
+      private void ensureClearedFieldIsMutable() {
+        if (!((bitField0_ & 0x00010000) == 0x00010000)) {
+          clearedField_ = new java.util.ArrayList<java.lang.Integer>(clearedField_);
+          bitField0_ |= 0x00010000;
+         }
+      }
+      public java.util.List<java.lang.Integer>
+          getClearedFieldList() {
+        return java.util.Collections.unmodifiableList(clearedField_);
+      }
+      public int getClearedFieldCount() {
+        return clearedField_.size();
+      }
+      public int getClearedField(int index) {
+        return clearedField_.get(index);
+      }
+      public Builder setClearedField(
+          int index, int value) {
+        ensureClearedFieldIsMutable();
+        clearedField_.set(index, value);
+        onChanged();
+        return this;
+      }
+      public Builder addClearedField(int value) {
+        ensureClearedFieldIsMutable();
+        clearedField_.add(value);
+        onChanged();
+        return this;
+      }
+      public Builder addAllClearedField(
+          java.lang.Iterable<? extends java.lang.Integer> values) {
+        ensureClearedFieldIsMutable();
+        super.addAll(values, clearedField_);
+        onChanged();
+        return this;
+      }
+      public Builder clearClearedField() {
+        clearedField_ = java.util.Collections.emptyList();;
+        bitField0_ = (bitField0_ & ~0x00010000);
+        onChanged();
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:EncodedProperties)
+    }
+    
+    static {
+      defaultInstance = new EncodedProperties(true);
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:EncodedProperties)
+  }
+  
+  public interface FragmentOrBuilder
+      extends com.google.protobuf.MessageOrBuilder {
+    
+    // required int64 id = 1;
+    boolean hasId();
+    long getId();
+    
+    // required int32 index = 2;
+    boolean hasIndex();
+    int getIndex();
+    
+    // required int32 count = 3;
+    boolean hasCount();
+    int getCount();
+    
+    // optional int32 totalSize = 4;
+    boolean hasTotalSize();
+    int getTotalSize();
+  }
+  public static final class Fragment extends
+      com.google.protobuf.GeneratedMessage
+      implements FragmentOrBuilder {
+    // Use Fragment.newBuilder() to construct.
+    private Fragment(Builder builder) {
+      super(builder);
+    }
+    private Fragment(boolean noInit) {}
+    
+    private static final Fragment defaultInstance;
+    public static Fragment getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public Fragment getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_Fragment_descriptor;
+    }
+    
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_Fragment_fieldAccessorTable;
+    }
+    
+    private int bitField0_;
+    // required int64 id = 1;
+    public static final int ID_FIELD_NUMBER = 1;
+    private long id_;
+    public boolean hasId() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    public long getId() {
+      return id_;
+    }
+    
+    // required int32 index = 2;
+    public static final int INDEX_FIELD_NUMBER = 2;
+    private int index_;
+    public boolean hasIndex() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    public int getIndex() {
+      return index_;
+    }
+    
+    // required int32 count = 3;
+    public static final int COUNT_FIELD_NUMBER = 3;
+    private int count_;
+    public boolean hasCount() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    public int getCount() {
+      return count_;
+    }
+    
+    // optional int32 totalSize = 4;
+    public static final int TOTALSIZE_FIELD_NUMBER = 4;
+    private int totalSize_;
+    public boolean hasTotalSize() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    public int getTotalSize() {
+      return totalSize_;
+    }
+    
+    private void initFields() {
+      id_ = 0L;
+      index_ = 0;
+      count_ = 0;
+      totalSize_ = 0;
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized != -1) return isInitialized == 1;
+      
+      if (!hasId()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasIndex()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasCount()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeInt64(1, id_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeInt32(2, index_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeInt32(3, count_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeInt32(4, totalSize_);
+      }
+      getUnknownFields().writeTo(output);
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(1, id_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(2, index_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(3, count_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(4, totalSize_);
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+    
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder>
+       implements com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.FragmentOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_Fragment_descriptor;
+      }
+      
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_Fragment_fieldAccessorTable;
+      }
+      
+      // Construct using com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+      
+      private Builder(BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+        }
+      }
+      private static Builder create() {
+        return new Builder();
+      }
+      
+      public Builder clear() {
+        super.clear();
+        id_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000001);
+        index_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000002);
+        count_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        totalSize_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        return this;
+      }
+      
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
+      }
+      
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.getDescriptor();
+      }
+      
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment getDefaultInstanceForType() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.getDefaultInstance();
+      }
+      
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment build() {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+      
+      private com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return result;
+      }
+      
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment buildPartial() {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment result = new com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.id_ = id_;
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.index_ = index_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.count_ = count_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.totalSize_ = totalSize_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+      
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment) {
+          return mergeFrom((com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+      
+      public Builder mergeFrom(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment other) {
+        if (other == com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.getDefaultInstance()) return this;
+        if (other.hasId()) {
+          setId(other.getId());
+        }
+        if (other.hasIndex()) {
+          setIndex(other.getIndex());
+        }
+        if (other.hasCount()) {
+          setCount(other.getCount());
+        }
+        if (other.hasTotalSize()) {
+          setTotalSize(other.getTotalSize());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+      
+      public final boolean isInitialized() {
+        if (!hasId()) {
+          
+          return false;
+        }
+        if (!hasIndex()) {
+          
+          return false;
+        }
+        if (!hasCount()) {
+          
+          return false;
+        }
+        return true;
+      }
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder(
+            this.getUnknownFields());
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              this.setUnknownFields(unknownFields.build());
+              onChanged();
+              return this;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                this.setUnknownFields(unknownFields.build());
+                onChanged();
+                return this;
+              }
+              break;
+            }
+            case 8: {
+              bitField0_ |= 0x00000001;
+              id_ = input.readInt64();
+              break;
+            }
+            case 16: {
+              bitField0_ |= 0x00000002;
+              index_ = input.readInt32();
+              break;
+            }
+            case 24: {
+              bitField0_ |= 0x00000004;
+              count_ = input.readInt32();
+              break;
+            }
+            case 32: {
+              bitField0_ |= 0x00000008;
+              totalSize_ = input.readInt32();
+              break;
+            }
+          }
+        }
+      }
+      
+      private int bitField0_;
+      
+      // required int64 id = 1;
+      private long id_ ;
+      public boolean hasId() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      public long getId() {
+        return id_;
+      }
+      public Builder setId(long value) {
+        bitField0_ |= 0x00000001;
+        id_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearId() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        id_ = 0L;
+        onChanged();
+        return this;
+      }
+      
+      // required int32 index = 2;
+      private int index_ ;
+      public boolean hasIndex() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
       }
-      public int getPriority() {
-        return priority_;
+      public int getIndex() {
+        return index_;
       }
-      public Builder setPriority(int value) {
-        bitField0_ |= 0x00000080;
-        priority_ = value;
+      public Builder setIndex(int value) {
+        bitField0_ |= 0x00000002;
+        index_ = value;
         onChanged();
         return this;
       }
-      public Builder clearPriority() {
-        bitField0_ = (bitField0_ & ~0x00000080);
-        priority_ = 0;
+      public Builder clearIndex() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        index_ = 0;
         onChanged();
         return this;
       }
       
-      // optional string replyTo = 9;
-      private java.lang.Object replyTo_ = "";
-      public boolean hasReplyTo() {
-        return ((bitField0_ & 0x00000100) == 0x00000100);
+      // required int32 count = 3;
+      private int count_ ;
+      public boolean hasCount() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
       }
-      public String getReplyTo() {
-        java.lang.Object ref = replyTo_;
-        if (!(ref instanceof String)) {
-          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
-          replyTo_ = s;
-          return s;
-        } else {
-          return (String) ref;
-        }
+      public int getCount() {
+        return count_;
       }
-      public Builder setReplyTo(String value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000100;
-        replyTo_ = value;
+      public Builder setCount(int value) {
+        bitField0_ |= 0x00000004;
+        count_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearCount() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        count_ = 0;
+        onChanged();
+        return this;
+      }
+      
+      // optional int32 totalSize = 4;
+      private int totalSize_ ;
+      public boolean hasTotalSize() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      public int getTotalSize() {
+        return totalSize_;
+      }
+      public Builder setTotalSize(int value) {
+        bitField0_ |= 0x00000008;
+        totalSize_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearTotalSize() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        totalSize_ = 0;
         onChanged();
         return this;
       }
-      public Builder clearReplyTo() {
-        bitField0_ = (bitField0_ & ~0x00000100);
-        replyTo_ = getDefaultInstance().getReplyTo();
-        onChanged();
-        return this;
+      
+      // @@protoc_insertion_point(builder_scope:Fragment)
+    }
+    
+    static {
+      defaultInstance = new Fragment(true);
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:Fragment)
+  }
+  
+  public interface ClaimCheckOrBuilder
+      extends com.google.protobuf.MessageOrBuilder {
+    
+    // required string blobID = 1;
+    boolean hasBlobID();
+    String getBlobID();
+    
+    // required int64 size = 2;
+    boolean hasSize();
+    long getSize();
+  }
+  public static final class ClaimCheck extends
+      com.google.protobuf.GeneratedMessage
+      implements ClaimCheckOrBuilder {
+    // Use ClaimCheck.newBuilder() to construct.
+    private ClaimCheck(Builder builder) {
+      super(builder);
+    }
+    private ClaimCheck(boolean noInit) {}
+    
+    private static final ClaimCheck defaultInstance;
+    public static ClaimCheck getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public ClaimCheck getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_ClaimCheck_descriptor;
+    }
+    
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_ClaimCheck_fieldAccessorTable;
+    }
+    
+    private int bitField0_;
+    // required string blobID = 1;
+    public static final int BLOBID_FIELD_NUMBER = 1;
+    private java.lang.Object blobID_;
+    public boolean hasBlobID() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    public String getBlobID() {
+      java.lang.Object ref = blobID_;
+      if (ref instanceof String) {
+        return (String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        String s = bs.toStringUtf8();
+        if (com.google.protobuf.Internal.isValidUtf8(bs)) {
+          blobID_ = s;
+        }
+        return s;
+      }
+    }
+    private com.google.protobuf.ByteString getBlobIDBytes() {
+      java.lang.Object ref = blobID_;
+      if (ref instanceof String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8((String) ref);
+        blobID_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+    
+    // required int64 size = 2;
+    public static final int SIZE_FIELD_NUMBER = 2;
+    private long size_;
+    public boolean hasSize() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    public long getSize() {
+      return size_;
+    }
+    
+    private void initFields() {
+      blobID_ = "";
+      size_ = 0L;
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized != -1) return isInitialized == 1;
+      
+      if (!hasBlobID()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasSize()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeBytes(1, getBlobIDBytes());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeInt64(2, size_);
+      }
+      getUnknownFields().writeTo(output);
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(1, getBlobIDBytes());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(2, size_);
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+    
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
       }
-      void setReplyTo(com.google.protobuf.ByteString value) {
-        bitField0_ |= 0x00000100;
-        replyTo_ = value;
-        onChanged();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder>
+       implements com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheckOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_ClaimCheck_descriptor;
       }
       
-      // optional int64 timestamp = 10;
-      private long timestamp_ ;
-      public boolean hasTimestamp() {
-        return ((bitField0_ & 0x00000200) == 0x00000200);
-      }
-      public long getTimestamp() {
-        return timestamp_;
-      }
-      public Builder setTimestamp(long value) {
-        bitField0_ |= 0x00000200;
-        timestamp_ = value;
-        onChanged();
-        return this;
-      }
-      public Builder clearTimestamp() {
-        bitField0_ = (bitField0_ & ~0x00000200);
-        timestamp_ = 0L;
-        onChanged();
-        return this;
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.internal_static_ClaimCheck_fieldAccessorTable;
       }
       
-      // optional string type = 11;
-      private java.lang.Object type_ = "";
-      public boolean hasType() {
-        return ((bitField0_ & 0x00000400) == 0x00000400);
-      }
-      public String getType() {
-        java.lang.Object ref = type_;
-        if (!(ref instanceof String)) {
-          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
-          type_ = s;
-          return s;
-        } else {
-          return (String) ref;
-        }
-      }
-      public Builder setType(String value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000400;
-        type_ = value;
-        onChanged();
-        return this;
-      }
-      public Builder clearType() {
-        bitField0_ = (bitField0_ & ~0x00000400);
-        type_ = getDefaultInstance().getType();
-        onChanged();
-        return this;
-      }
-      void setType(com.google.protobuf.ByteString value) {
-        bitField0_ |= 0x00000400;
-        type_ = value;
-        onChanged();
+      // Construct using com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
       }
       
-      // optional string userId = 12;
-      private java.lang.Object userId_ = "";
-      public boolean hasUserId() {
-        return ((bitField0_ & 0x00000800) == 0x00000800);
+      private Builder(BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
       }
-      public String getUserId() {
-        java.lang.Object ref = userId_;
-        if (!(ref instanceof String)) {
-          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
-          userId_ = s;
-          return s;
-        } else {
-          return (String) ref;
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
         }
       }
-      public Builder setUserId(String value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000800;
-        userId_ = value;
-        onChanged();
-        return this;
+      private static Builder create() {
+        return new Builder();
       }
-      public Builder clearUserId() {
-        bitField0_ = (bitField0_ & ~0x00000800);
-        userId_ = getDefaultInstance().getUserId();
-        onChanged();
+      
+      public Builder clear() {
+        super.clear();
+        blobID_ = "";
+        bitField0_ = (bitField0_ & ~0x00000001);
+        size_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000002);
         return this;
       }
-      void setUserId(com.google.protobuf.ByteString value) {
-        bitField0_ |= 0x00000800;
-        userId_ = value;
-        onChanged();
-      }
       
-      // repeated .Header header = 13;
-      private java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> header_ =
-        java.util.Collections.emptyList();
-      private void ensureHeaderIsMutable() {
-        if (!((bitField0_ & 0x00001000) == 0x00001000)) {
-          header_ = new java.util.ArrayList<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header>(header_);
-          bitField0_ |= 0x00001000;
-         }
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
       }
       
-      private com.google.protobuf.RepeatedFieldBuilder<
-          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder> headerBuilder_;
-      
-      public java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> getHeaderList() {
-        if (headerBuilder_ == null) {
-          return java.util.Collections.unmodifiableList(header_);
-        } else {
-          return headerBuilder_.getMessageList();
-        }
-      }
-      public int getHeaderCount() {
-        if (headerBuilder_ == null) {
-          return header_.size();
-        } else {
-          return headerBuilder_.getCount();
-        }
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.getDescriptor();
       }
-      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header getHeader(int index) {
-        if (headerBuilder_ == null) {
-          return header_.get(index);
-        } else {
-          return headerBuilder_.getMessage(index);
-        }
+      
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck getDefaultInstanceForType() {
+        return com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.getDefaultInstance();
       }
-      public Builder setHeader(
-          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header value) {
-        if (headerBuilder_ == null) {
-          if (value == null) {
-            throw new NullPointerException();
-          }
-          ensureHeaderIsMutable();
-          header_.set(index, value);
-          onChanged();
-        } else {
-          headerBuilder_.setMessage(index, value);
+      
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck build() {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
         }
-        return this;
+        return result;
       }
-      public Builder setHeader(
-          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder builderForValue) {
-        if (headerBuilder_ == null) {
-          ensureHeaderIsMutable();
-          header_.set(index, builderForValue.build());
-          onChanged();
-        } else {
-          headerBuilder_.setMessage(index, builderForValue.build());
+      
+      private com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
         }
-        return this;
+        return result;
       }
-      public Builder addHeader(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header value) {
-        if (headerBuilder_ == null) {
-          if (value == null) {
-            throw new NullPointerException();
-          }
-          ensureHeaderIsMutable();
-          header_.add(value);
-          onChanged();
-        } else {
-          headerBuilder_.addMessage(value);
+      
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck buildPartial() {
+        com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck result = new com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
         }
-        return this;
-      }
-      public Builder addHeader(
-          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header value) {
-        if (headerBuilder_ == null) {
-          if (value == null) {
-            throw new NullPointerException();
-          }
-          ensureHeaderIsMutable();
-          header_.add(index, value);
-          onChanged();
-        } else {
-          headerBuilder_.addMessage(index, value);
+        result.blobID_ = blobID_;
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
         }
-        return this;
+        result.size_ = size_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
       }
-      public Builder addHeader(
-          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder builderForValue) {
-        if (headerBuilder_ == null) {
-          ensureHeaderIsMutable();
-          header_.add(builderForValue.build());
-          onChanged();
+      
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck) {
+          return mergeFrom((com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck)other);
         } else {
-          headerBuilder_.addMessage(builderForValue.build());
+          super.mergeFrom(other);
+          return this;
         }
-        return this;
       }
-      public Builder addHeader(
-          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder builderForValue) {
-        if (headerBuilder_ == null) {
-          ensureHeaderIsMutable();
-          header_.add(index, builderForValue.build());
-          onChanged();
-        } else {
-          headerBuilder_.addMessage(index, builderForValue.build());
+      
+      public Builder mergeFrom(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck other) {
+        if (other == com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.getDefaultInstance()) return this;
+        if (other.hasBlobID()) {
+          setBlobID(other.getBlobID());
+        }
+        if (other.hasSize()) {
+          setSize(other.getSize());
         }
+        this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
-      public Builder addAllHeader(
-          java.lang.Iterable<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header> values) {
-        if (headerBuilder_ == null) {
-          ensureHeaderIsMutable();
-          super.addAll(values, header_);
-          onChanged();
-        } else {
-          headerBuilder_.addAllMessages(values);
+      
+      public final boolean isInitialized() {
+        if (!hasBlobID()) {
+          
+          return false;
         }
-        return this;
+        if (!hasSize()) {
+          
+          return false;
+        }
+        return true;
       }
-      public Builder clearHeader() {
-        if (headerBuilder_ == null) {
-          header_ = java.util.Collections.emptyList();
-          bitField0_ = (bitField0_ & ~0x00001000);
-          onChanged();
-        } else {
-          headerBuilder_.clear();
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder(
+            this.getUnknownFields());
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              this.setUnknownFields(unknownFields.build());
+              onChanged();
+              return this;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                this.setUnknownFields(unknownFields.build());
+                onChanged();
+                return this;
+              }
+              break;
+            }
+            case 10: {
+              bitField0_ |= 0x00000001;
+              blobID_ = input.readBytes();
+              break;
+            }
+            case 16: {
+              bitField0_ |= 0x00000002;
+              size_ = input.readInt64();
+              break;
+            }
+          }
         }
-        return this;
       }
-      public Builder removeHeader(int index) {
-        if (headerBuilder_ == null) {
-          ensureHeaderIsMutable();
-          header_.remove(index);
-          onChanged();
+      
+      private int bitField0_;
+      
+      // required string blobID = 1;
+      private java.lang.Object blobID_ = "";
+      public boolean hasBlobID() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      public String getBlobID() {
+        java.lang.Object ref = blobID_;
+        if (!(ref instanceof String)) {
+          String s = ((com.google.protobuf.ByteString) ref).toStringUtf8();
+          blobID_ = s;
+          return s;
         } else {
-          headerBuilder_.remove(index);
+          return (String) ref;
         }
-        return this;
       }
-      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder getHeaderBuilder(
-          int index) {
-        return getHeaderFieldBuilder().getBuilder(index);
+      public Builder setBlobID(String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        blobID_ = value;
+        onChanged();
+        return this;
       }
-      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder getHeaderOrBuilder(
-          int index) {
-        if (headerBuilder_ == null) {
-          return header_.get(index);  } else {
-          return headerBuilder_.getMessageOrBuilder(index);
-        }
+      public Builder clearBlobID() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        blobID_ = getDefaultInstance().getBlobID();
+        onChanged();
+        return this;
       }
-      public java.util.List<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder> 
-           getHeaderOrBuilderList() {
-        if (headerBuilder_ != null) {
-          return headerBuilder_.getMessageOrBuilderList();
-        } else {
-          return java.util.Collections.unmodifiableList(header_);
-        }
+      void setBlobID(com.google.protobuf.ByteString value) {
+        bitField0_ |= 0x00000001;
+        blobID_ = value;
+        onChanged();
       }
-      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder addHeaderBuilder() {
-        return getHeaderFieldBuilder().addBuilder(
-            com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.getDefaultInstance());
+      
+      // required int64 size = 2;
+      private long size_ ;
+      public boolean hasSize() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
       }
-      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder addHeaderBuilder(
-          int index) {
-        return getHeaderFieldBuilder().addBuilder(
-            index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.getDefaultInstance());
+      public long getSize() {
+        return size_;
       }
-      public java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder> 
-           getHeaderBuilderList() {
-        return getHeaderFieldBuilder().getBuilderList();
+      public Builder setSize(long value) {
+        bitField0_ |= 0x00000002;
+        size_ = value;
+        onChanged();
+        return this;
       }
-      private com.google.protobuf.RepeatedFieldBuilder<
-          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder> 
-          getHeaderFieldBuilder() {
-        if (headerBuilder_ == null) {
-          headerBuilder_ = new com.google.protobuf.RepeatedFieldBuilder<
-              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.HeaderOrBuilder>(
-                  header_,
-                  ((bitField0_ & 0x00001000) == 0x00001000),
-                  getParentForChildren(),
-                  isClean());
-          header_ = null;
-        }
-        return headerBuilder_;
+      public Builder clearSize() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        size_ = 0L;
+        onChanged();
+        return this;
       }
       
-      // @@protoc_insertion_point(builder_scope:EncodedProperties)
+      // @@protoc_insertion_point(builder_scope:ClaimCheck)
     }
     
     static {
-      defaultInstance = new EncodedProperties(true);
+      defaultInstance = new ClaimCheck(true);
       defaultInstance.initFields();
     }
     
-    // @@protoc_insertion_point(class_scope:EncodedProperties)
+    // @@protoc_insertion_point(class_scope:ClaimCheck)
   }
   
   public interface EncodedMessageOrBuilder
@@ -2707,6 +4586,30 @@ public final class MessageRelayEncoding {
     // optional int32 channelID = 6;
     boolean hasChannelID();
     int getChannelID();
+    
+    // repeated .Symbol symbols = 7;
+    java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol> 
+        getSymbolsList();
+    com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol getSymbols(int index);
+    int getSymbolsCount();
+    java.util.List<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.SymbolOrBuilder> 
+        getSymbolsOrBuilderList();
+    com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.SymbolOrBuilder getSymbolsOrBuilder(
+        int index);
+    
+    // optional .Fragment fragment = 8;
+    boolean hasFragment();
+    com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment getFragment();
+    com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.FragmentOrBuilder getFragmentOrBuilder();
+    
+    // optional .ClaimCheck claimCheck = 9;
+    boolean hasClaimCheck();
+    com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck getClaimCheck();
+    com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheckOrBuilder getClaimCheckOrBuilder();
+    
+    // optional int64 sequence = 10;
+    boolean hasSequence();
+    long getSequence();
   }
   public static final class EncodedMessage extends
       com.google.protobuf.GeneratedMessage
@@ -2793,12 +4696,73 @@ public final class MessageRelayEncoding {
       return channelID_;
     }
     
+    // repeated .Symbol symbols = 7;
+    public static final int SYMBOLS_FIELD_NUMBER = 7;
+    private java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol> symbols_;
+    public java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol> getSymbolsList() {
+      return symbols_;
+    }
+    public java.util.List<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.SymbolOrBuilder> 
+        getSymbolsOrBuilderList() {
+      return symbols_;
+    }
+    public int getSymbolsCount() {
+      return symbols_.size();
+    }
+    public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol getSymbols(int index) {
+      return symbols_.get(index);
+    }
+    public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.SymbolOrBuilder getSymbolsOrBuilder(
+        int index) {
+      return symbols_.get(index);
+    }
+    
+    // optional .Fragment fragment = 8;
+    public static final int FRAGMENT_FIELD_NUMBER = 8;
+    private com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment fragment_;
+    public boolean hasFragment() {
+      return ((bitField0_ & 0x00000020) == 0x00000020);
+    }
+    public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment getFragment() {
+      return fragment_;
+    }
+    public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.FragmentOrBuilder getFragmentOrBuilder() {
+      return fragment_;
+    }
+    
+    // optional .ClaimCheck claimCheck = 9;
+    public static final int CLAIMCHECK_FIELD_NUMBER = 9;
+    private com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck claimCheck_;
+    public boolean hasClaimCheck() {
+      return ((bitField0_ & 0x00000040) == 0x00000040);
+    }
+    public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck getClaimCheck() {
+      return claimCheck_;
+    }
+    public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheckOrBuilder getClaimCheckOrBuilder() {
+      return claimCheck_;
+    }
+    
+    // optional int64 sequence = 10;
+    public static final int SEQUENCE_FIELD_NUMBER = 10;
+    private long sequence_;
+    public boolean hasSequence() {
+      return ((bitField0_ & 0x00000080) == 0x00000080);
+    }
+    public long getSequence() {
+      return sequence_;
+    }
+    
     private void initFields() {
       envelope_ = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope.getDefaultInstance();
       properties_ = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties.getDefaultInstance();
       payload_ = com.google.protobuf.ByteString.EMPTY;
       doAck_ = false;
       channelID_ = 0;
+      symbols_ = java.util.Collections.emptyList();
+      fragment_ = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.getDefaultInstance();
+      claimCheck_ = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.getDefaultInstance();
+      sequence_ = 0L;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -2819,6 +4783,24 @@ public final class MessageRelayEncoding {
           return false;
         }
       }
+      for (int i = 0; i < getSymbolsCount(); i++) {
+        if (!getSymbols(i).isInitialized()) {
+          memoizedIsInitialized = 0;
+          return false;
+        }
+      }
+      if (hasFragment()) {
+        if (!getFragment().isInitialized()) {
+          memoizedIsInitialized = 0;
+          return false;
+        }
+      }
+      if (hasClaimCheck()) {
+        if (!getClaimCheck().isInitialized()) {
+          memoizedIsInitialized = 0;
+          return false;
+        }
+      }
       memoizedIsInitialized = 1;
       return true;
     }
@@ -2841,6 +4823,18 @@ public final class MessageRelayEncoding {
       if (((bitField0_ & 0x00000010) == 0x00000010)) {
         output.writeInt32(6, channelID_);
       }
+      for (int i = 0; i < symbols_.size(); i++) {
+        output.writeMessage(7, symbols_.get(i));
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        output.writeMessage(8, fragment_);
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        output.writeMessage(9, claimCheck_);
+      }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        output.writeInt64(10, sequence_);
+      }
       getUnknownFields().writeTo(output);
     }
     
@@ -2870,6 +4864,22 @@ public final class MessageRelayEncoding {
         size += com.google.protobuf.CodedOutputStream
           .computeInt32Size(6, channelID_);
       }
+      for (int i = 0; i < symbols_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(7, symbols_.get(i));
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(8, fragment_);
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(9, claimCheck_);
+      }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(10, sequence_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -2988,6 +4998,9 @@ public final class MessageRelayEncoding {
         if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
           getEnvelopeFieldBuilder();
           getPropertiesFieldBuilder();
+          getSymbolsFieldBuilder();
+          getFragmentFieldBuilder();
+          getClaimCheckFieldBuilder();
         }
       }
       private static Builder create() {
@@ -3014,6 +5027,26 @@ public final class MessageRelayEncoding {
         bitField0_ = (bitField0_ & ~0x00000008);
         channelID_ = 0;
         bitField0_ = (bitField0_ & ~0x00000010);
+        if (symbolsBuilder_ == null) {
+          symbols_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000020);
+        } else {
+          symbolsBuilder_.clear();
+        }
+        if (fragmentBuilder_ == null) {
+          fragment_ = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.getDefaultInstance();
+        } else {
+          fragmentBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000040);
+        if (claimCheckBuilder_ == null) {
+          claimCheck_ = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.getDefaultInstance();
+        } else {
+          claimCheckBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000080);
+        sequence_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000100);
         return this;
       }
       
@@ -3080,6 +5113,35 @@ public final class MessageRelayEncoding {
           to_bitField0_ |= 0x00000010;
         }
         result.channelID_ = channelID_;
+        if (symbolsBuilder_ == null) {
+          if (((bitField0_ & 0x00000020) == 0x00000020)) {
+            symbols_ = java.util.Collections.unmodifiableList(symbols_);
+            bitField0_ = (bitField0_ & ~0x00000020);
+          }
+          result.symbols_ = symbols_;
+        } else {
+          result.symbols_ = symbolsBuilder_.build();
+        }
+        if (((from_bitField0_ & 0x00000040) == 0x00000040)) {
+          to_bitField0_ |= 0x00000020;
+        }
+        if (fragmentBuilder_ == null) {
+          result.fragment_ = fragment_;
+        } else {
+          result.fragment_ = fragmentBuilder_.build();
+        }
+        if (((from_bitField0_ & 0x00000080) == 0x00000080)) {
+          to_bitField0_ |= 0x00000040;
+        }
+        if (claimCheckBuilder_ == null) {
+          result.claimCheck_ = claimCheck_;
+        } else {
+          result.claimCheck_ = claimCheckBuilder_.build();
+        }
+        if (((from_bitField0_ & 0x00000100) == 0x00000100)) {
+          to_bitField0_ |= 0x00000080;
+        }
+        result.sequence_ = sequence_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -3102,14 +5164,49 @@ public final class MessageRelayEncoding {
         if (other.hasProperties()) {
           mergeProperties(other.getProperties());
         }
-        if (other.hasPayload()) {
-          setPayload(other.getPayload());
+        if (other.hasPayload()) {
+          setPayload(other.getPayload());
+        }
+        if (other.hasDoAck()) {
+          setDoAck(other.getDoAck());
+        }
+        if (other.hasChannelID()) {
+          setChannelID(other.getChannelID());
+        }
+        if (symbolsBuilder_ == null) {
+          if (!other.symbols_.isEmpty()) {
+            if (symbols_.isEmpty()) {
+              symbols_ = other.symbols_;
+              bitField0_ = (bitField0_ & ~0x00000020);
+            } else {
+              ensureSymbolsIsMutable();
+              symbols_.addAll(other.symbols_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.symbols_.isEmpty()) {
+            if (symbolsBuilder_.isEmpty()) {
+              symbolsBuilder_.dispose();
+              symbolsBuilder_ = null;
+              symbols_ = other.symbols_;
+              bitField0_ = (bitField0_ & ~0x00000020);
+              symbolsBuilder_ = 
+                com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders ?
+                   getSymbolsFieldBuilder() : null;
+            } else {
+              symbolsBuilder_.addAllMessages(other.symbols_);
+            }
+          }
+        }
+        if (other.hasFragment()) {
+          mergeFragment(other.getFragment());
         }
-        if (other.hasDoAck()) {
-          setDoAck(other.getDoAck());
+        if (other.hasClaimCheck()) {
+          mergeClaimCheck(other.getClaimCheck());
         }
-        if (other.hasChannelID()) {
-          setChannelID(other.getChannelID());
+        if (other.hasSequence()) {
+          setSequence(other.getSequence());
         }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
@@ -3130,6 +5227,24 @@ public final class MessageRelayEncoding {
             return false;
           }
         }
+        for (int i = 0; i < getSymbolsCount(); i++) {
+          if (!getSymbols(i).isInitialized()) {
+            
+            return false;
+          }
+        }
+        if (hasFragment()) {
+          if (!getFragment().isInitialized()) {
+            
+            return false;
+          }
+        }
+        if (hasClaimCheck()) {
+          if (!getClaimCheck().isInitialized()) {
+            
+            return false;
+          }
+        }
         return true;
       }
       
@@ -3189,6 +5304,35 @@ public final class MessageRelayEncoding {
               channelID_ = input.readInt32();
               break;
             }
+            case 58: {
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder subBuilder = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.newBuilder();
+              input.readMessage(subBuilder, extensionRegistry);
+              addSymbols(subBuilder.buildPartial());
+              break;
+            }
+            case 66: {
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.Builder subBuilder = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.newBuilder();
+              if (hasFragment()) {
+                subBuilder.mergeFrom(getFragment());
+              }
+              input.readMessage(subBuilder, extensionRegistry);
+              setFragment(subBuilder.buildPartial());
+              break;
+            }
+            case 74: {
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.Builder subBuilder = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.newBuilder();
+              if (hasClaimCheck()) {
+                subBuilder.mergeFrom(getClaimCheck());
+              }
+              input.readMessage(subBuilder, extensionRegistry);
+              setClaimCheck(subBuilder.buildPartial());
+              break;
+            }
+            case 80: {
+              bitField0_ |= 0x00000100;
+              sequence_ = input.readInt64();
+              break;
+            }
           }
         }
       }
@@ -3441,6 +5585,393 @@ public final class MessageRelayEncoding {
         return this;
       }
       
+      // repeated .Symbol symbols = 7;
+      private java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol> symbols_ =
+        java.util.Collections.emptyList();
+      private void ensureSymbolsIsMutable() {
+        if (!((bitField0_ & 0x00000020) == 0x00000020)) {
+          symbols_ = new java.util.ArrayList<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol>(symbols_);
+          bitField0_ |= 0x00000020;
+         }
+      }
+      
+      private com.google.protobuf.RepeatedFieldBuilder<
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.SymbolOrBuilder> symbolsBuilder_;
+      
+      public java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol> getSymbolsList() {
+        if (symbolsBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(symbols_);
+        } else {
+          return symbolsBuilder_.getMessageList();
+        }
+      }
+      public int getSymbolsCount() {
+        if (symbolsBuilder_ == null) {
+          return symbols_.size();
+        } else {
+          return symbolsBuilder_.getCount();
+        }
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol getSymbols(int index) {
+        if (symbolsBuilder_ == null) {
+          return symbols_.get(index);
+        } else {
+          return symbolsBuilder_.getMessage(index);
+        }
+      }
+      public Builder setSymbols(
+          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol value) {
+        if (symbolsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureSymbolsIsMutable();
+          symbols_.set(index, value);
+          onChanged();
+        } else {
+          symbolsBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+      public Builder setSymbols(
+          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder builderForValue) {
+        if (symbolsBuilder_ == null) {
+          ensureSymbolsIsMutable();
+          symbols_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          symbolsBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addSymbols(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol value) {
+        if (symbolsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureSymbolsIsMutable();
+          symbols_.add(value);
+          onChanged();
+        } else {
+          symbolsBuilder_.addMessage(value);
+        }
+        return this;
+      }
+      public Builder addSymbols(
+          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol value) {
+        if (symbolsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureSymbolsIsMutable();
+          symbols_.add(index, value);
+          onChanged();
+        } else {
+          symbolsBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+      public Builder addSymbols(
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder builderForValue) {
+        if (symbolsBuilder_ == null) {
+          ensureSymbolsIsMutable();
+          symbols_.add(builderForValue.build());
+          onChanged();
+        } else {
+          symbolsBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addSymbols(
+          int index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder builderForValue) {
+        if (symbolsBuilder_ == null) {
+          ensureSymbolsIsMutable();
+          symbols_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          symbolsBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addAllSymbols(
+          java.lang.Iterable<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol> values) {
+        if (symbolsBuilder_ == null) {
+          ensureSymbolsIsMutable();
+          super.addAll(values, symbols_);
+          onChanged();
+        } else {
+          symbolsBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+      public Builder clearSymbols() {
+        if (symbolsBuilder_ == null) {
+          symbols_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000020);
+          onChanged();
+        } else {
+          symbolsBuilder_.clear();
+        }
+        return this;
+      }
+      public Builder removeSymbols(int index) {
+        if (symbolsBuilder_ == null) {
+          ensureSymbolsIsMutable();
+          symbols_.remove(index);
+          onChanged();
+        } else {
+          symbolsBuilder_.remove(index);
+        }
+        return this;
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder getSymbolsBuilder(
+          int index) {
+        return getSymbolsFieldBuilder().getBuilder(index);
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.SymbolOrBuilder getSymbolsOrBuilder(
+          int index) {
+        if (symbolsBuilder_ == null) {
+          return symbols_.get(index);  } else {
+          return symbolsBuilder_.getMessageOrBuilder(index);
+        }
+      }
+      public java.util.List<? extends com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.SymbolOrBuilder> 
+           getSymbolsOrBuilderList() {
+        if (symbolsBuilder_ != null) {
+          return symbolsBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(symbols_);
+        }
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder addSymbolsBuilder() {
+        return getSymbolsFieldBuilder().addBuilder(
+            com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.getDefaultInstance());
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder addSymbolsBuilder(
+          int index) {
+        return getSymbolsFieldBuilder().addBuilder(
+            index, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.getDefaultInstance());
+      }
+      public java.util.List<com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder> 
+           getSymbolsBuilderList() {
+        return getSymbolsFieldBuilder().getBuilderList();
+      }
+      private com.google.protobuf.RepeatedFieldBuilder<
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.SymbolOrBuilder> 
+          getSymbolsFieldBuilder() {
+        if (symbolsBuilder_ == null) {
+          symbolsBuilder_ = new com.google.protobuf.RepeatedFieldBuilder<
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.SymbolOrBuilder>(
+                  symbols_,
+                  ((bitField0_ & 0x00000020) == 0x00000020),
+                  getParentForChildren(),
+                  isClean());
+          symbols_ = null;
+        }
+        return symbolsBuilder_;
+      }
+      
+      // optional .Fragment fragment = 8;
+      private com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment fragment_ = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.getDefaultInstance();
+      private com.google.protobuf.SingleFieldBuilder<
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.FragmentOrBuilder> fragmentBuilder_;
+      public boolean hasFragment() {
+        return ((bitField0_ & 0x00000040) == 0x00000040);
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment getFragment() {
+        if (fragmentBuilder_ == null) {
+          return fragment_;
+        } else {
+          return fragmentBuilder_.getMessage();
+        }
+      }
+      public Builder setFragment(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment value) {
+        if (fragmentBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          fragment_ = value;
+          onChanged();
+        } else {
+          fragmentBuilder_.setMessage(value);
+        }
+        bitField0_ |= 0x00000040;
+        return this;
+      }
+      public Builder setFragment(
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.Builder builderForValue) {
+        if (fragmentBuilder_ == null) {
+          fragment_ = builderForValue.build();
+          onChanged();
+        } else {
+          fragmentBuilder_.setMessage(builderForValue.build());
+        }
+        bitField0_ |= 0x00000040;
+        return this;
+      }
+      public Builder mergeFragment(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment value) {
+        if (fragmentBuilder_ == null) {
+          if (((bitField0_ & 0x00000040) == 0x00000040) &&
+              fragment_ != com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.getDefaultInstance()) {
+            fragment_ =
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.newBuilder(fragment_).mergeFrom(value).buildPartial();
+          } else {
+            fragment_ = value;
+          }
+          onChanged();
+        } else {
+          fragmentBuilder_.mergeFrom(value);
+        }
+        bitField0_ |= 0x00000040;
+        return this;
+      }
+      public Builder clearFragment() {
+        if (fragmentBuilder_ == null) {
+          fragment_ = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.getDefaultInstance();
+          onChanged();
+        } else {
+          fragmentBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000040);
+        return this;
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.Builder getFragmentBuilder() {
+        bitField0_ |= 0x00000040;
+        onChanged();
+        return getFragmentFieldBuilder().getBuilder();
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.FragmentOrBuilder getFragmentOrBuilder() {
+        if (fragmentBuilder_ != null) {
+          return fragmentBuilder_.getMessageOrBuilder();
+        } else {
+          return fragment_;
+        }
+      }
+      private com.google.protobuf.SingleFieldBuilder<
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.FragmentOrBuilder> 
+          getFragmentFieldBuilder() {
+        if (fragmentBuilder_ == null) {
+          fragmentBuilder_ = new com.google.protobuf.SingleFieldBuilder<
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.FragmentOrBuilder>(
+                  fragment_,
+                  getParentForChildren(),
+                  isClean());
+          fragment_ = null;
+        }
+        return fragmentBuilder_;
+      }
+      
+      // optional .ClaimCheck claimCheck = 9;
+      private com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck claimCheck_ = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.getDefaultInstance();
+      private com.google.protobuf.SingleFieldBuilder<
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheckOrBuilder> claimCheckBuilder_;
+      public boolean hasClaimCheck() {
+        return ((bitField0_ & 0x00000080) == 0x00000080);
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck getClaimCheck() {
+        if (claimCheckBuilder_ == null) {
+          return claimCheck_;
+        } else {
+          return claimCheckBuilder_.getMessage();
+        }
+      }
+      public Builder setClaimCheck(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck value) {
+        if (claimCheckBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          claimCheck_ = value;
+          onChanged();
+        } else {
+          claimCheckBuilder_.setMessage(value);
+        }
+        bitField0_ |= 0x00000080;
+        return this;
+      }
+      public Builder setClaimCheck(
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.Builder builderForValue) {
+        if (claimCheckBuilder_ == null) {
+          claimCheck_ = builderForValue.build();
+          onChanged();
+        } else {
+          claimCheckBuilder_.setMessage(builderForValue.build());
+        }
+        bitField0_ |= 0x00000080;
+        return this;
+      }
+      public Builder mergeClaimCheck(com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck value) {
+        if (claimCheckBuilder_ == null) {
+          if (((bitField0_ & 0x00000080) == 0x00000080) &&
+              claimCheck_ != com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.getDefaultInstance()) {
+            claimCheck_ =
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.newBuilder(claimCheck_).mergeFrom(value).buildPartial();
+          } else {
+            claimCheck_ = value;
+          }
+          onChanged();
+        } else {
+          claimCheckBuilder_.mergeFrom(value);
+        }
+        bitField0_ |= 0x00000080;
+        return this;
+      }
+      public Builder clearClaimCheck() {
+        if (claimCheckBuilder_ == null) {
+          claimCheck_ = com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.getDefaultInstance();
+          onChanged();
+        } else {
+          claimCheckBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000080);
+        return this;
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.Builder getClaimCheckBuilder() {
+        bitField0_ |= 0x00000080;
+        onChanged();
+        return getClaimCheckFieldBuilder().getBuilder();
+      }
+      public com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheckOrBuilder getClaimCheckOrBuilder() {
+        if (claimCheckBuilder_ != null) {
+          return claimCheckBuilder_.getMessageOrBuilder();
+        } else {
+          return claimCheck_;
+        }
+      }
+      private com.google.protobuf.SingleFieldBuilder<
+          com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheckOrBuilder> 
+          getClaimCheckFieldBuilder() {
+        if (claimCheckBuilder_ == null) {
+          claimCheckBuilder_ = new com.google.protobuf.SingleFieldBuilder<
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.Builder, com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheckOrBuilder>(
+                  claimCheck_,
+                  getParentForChildren(),
+                  isClean());
+          claimCheck_ = null;
+        }
+        return claimCheckBuilder_;
+      }
+      
+      // optional int64 sequence = 10;
+      private long sequence_ ;
+      public boolean hasSequence() {
+        return ((bitField0_ & 0x00000100) == 0x00000100);
+      }
+      public long getSequence() {
+        return sequence_;
+      }
+      public Builder setSequence(long value) {
+        bitField0_ |= 0x00000100;
+        sequence_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearSequence() {
+        bitField0_ = (bitField0_ & ~0x00000100);
+        sequence_ = 0L;
+        onChanged();
+        return this;
+      }
+      
       // @@protoc_insertion_point(builder_scope:EncodedMessage)
     }
     
@@ -4853,6 +7384,11 @@ public final class MessageRelayEncoding {
   private static
     com.google.protobuf.GeneratedMessage.FieldAccessorTable
       internal_static_Header_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_Symbol_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_Symbol_fieldAccessorTable;
   private static com.google.protobuf.Descriptors.Descriptor
     internal_static_EncodedEnvelope_descriptor;
   private static
@@ -4863,6 +7399,16 @@ public final class MessageRelayEncoding {
   private static
     com.google.protobuf.GeneratedMessage.FieldAccessorTable
       internal_static_EncodedProperties_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_Fragment_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_Fragment_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_ClaimCheck_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_ClaimCheck_fieldAccessorTable;
   private static com.google.protobuf.Descriptors.Descriptor
     internal_static_EncodedMessage_descriptor;
   private static
@@ -4887,32 +7433,43 @@ public final class MessageRelayEncoding {
       descriptor;
   static {
     java.lang.String[] descriptorData = {
-      "\n\023message-relay.proto\"%\n\006Header\022\014\n\004name\030" +
-      "\001 \002(\t\022\r\n\005value\030\002 \002(\t\"a\n\017EncodedEnvelope\022" +
-      "\023\n\013deliveryTag\030\001 \002(\003\022\020\n\010exchange\030\002 \002(\t\022\022" +
-      "\n\nroutingKey\030\003 \002(\t\022\023\n\013isRedeliver\030\004 \001(\010\"" +
-      "\221\002\n\021EncodedProperties\022\r\n\005appID\030\001 \001(\t\022\027\n\017" +
-      "contentEncoding\030\002 \001(\t\022\023\n\013contentType\030\003 \001" +
-      "(\t\022\025\n\rcorrelationId\030\004 \001(\t\022\024\n\014deliveryMod" +
-      "e\030\005 \001(\005\022\022\n\nexpiration\030\006 \001(\t\022\021\n\tmessageID" +
-      "\030\007 \001(\t\022\020\n\010priority\030\010 \001(\005\022\017\n\007replyTo\030\t \001(" +
-      "\t\022\021\n\ttimestamp\030\n \001(\003\022\014\n\004type\030\013 \001(\t\022\016\n\006us",
-      "erId\030\014 \001(\t\022\027\n\006header\030\r \003(\0132\007.Header\"\226\001\n\016" +
-      "EncodedMessage\022\"\n\010envelope\030\002 \002(\0132\020.Encod" +
-      "edEnvelope\022&\n\nproperties\030\003 \001(\0132\022.Encoded" +
-      "Properties\022\017\n\007payload\030\004 \001(\014\022\024\n\005doAck\030\005 \001" +
-      "(\010:\005false\022\021\n\tchannelID\030\006 \001(\005\"7\n\022EncodedM" +
-      "essageList\022!\n\010messages\030\001 \003(\0132\017.EncodedMe" +
-      "ssage\"\301\002\n\023RelayControlMessage\022-\n\007command" +
-      "\030\001 \002(\0162\034.RelayControlMessage.Command\0227\n\014" +
-      "endpointType\030\002 \001(\0162!.RelayControlMessage" +
-      ".EndpointType\022\024\n\014endpointName\030\003 \001(\t\022\020\n\010b",
-      "indings\030\004 \003(\t\022\025\n\007fullAck\030\005 \001(\010:\004true\"8\n\007" +
-      "Command\022\013\n\007PUBLISH\020\001\022\r\n\tUNPUBLISH\020\002\022\021\n\rU" +
-      "NPUBLISH_ALL\020\003\"I\n\014EndpointType\022\t\n\005QUEUE\020" +
-      "\001\022\n\n\006FANOUT\020\002\022\n\n\006DIRECT\020\003\022\t\n\005TOPIC\020\004\022\013\n\007" +
-      "HEADERS\020\005BE\n-com.rapid7.component.messag" +
-      "ing.relay.encodingB\024MessageRelayEncoding"
+      "\n\023message-relay.proto\"9\n\006Header\022\014\n\004name\030" +
+      "\001 \002(\t\022\r\n\005value\030\002 \002(\t\022\022\n\nnameSymbol\030\003 \001(\005" +
+      "\"#\n\006Symbol\022\n\n\002id\030\001 \002(\005\022\r\n\005value\030\002 \002(\t\"\223\001" +
+      "\n\017EncodedEnvelope\022\023\n\013deliveryTag\030\001 \002(\003\022\020" +
+      "\n\010exchange\030\002 \002(\t\022\022\n\nroutingKey\030\003 \002(\t\022\023\n\013" +
+      "isRedeliver\030\004 \001(\010\022\026\n\016exchangeSymbol\030\005 \001(" +
+      "\005\022\030\n\020routingKeySymbol\030\006 \001(\005\"\362\002\n\021EncodedP" +
+      "roperties\022\r\n\005appID\030\001 \001(\t\022\027\n\017contentEncod" +
+      "ing\030\002 \001(\t\022\023\n\013contentType\030\003 \001(\t\022\025\n\rcorrel" +
+      "ationId\030\004 \001(\t\022\024\n\014deliveryMode\030\005 \001(\005\022\022\n\ne",
+      "xpiration\030\006 \001(\t\022\021\n\tmessageID\030\007 \001(\t\022\020\n\010pr" +
+      "iority\030\010 \001(\005\022\017\n\007replyTo\030\t \001(\t\022\021\n\ttimesta" +
+      "mp\030\n \001(\003\022\014\n\004type\030\013 \001(\t\022\016\n\006userId\030\014 \001(\t\022\027" +
+      "\n\006header\030\r \003(\0132\007.Header\022\035\n\025contentEncodi" +
+      "ngSymbol\030\016 \001(\005\022\031\n\021contentTypeSymbol\030\017 \001(" +
+      "\005\022\017\n\007isDelta\030\020 \001(\010\022\024\n\014clearedField\030\021 \003(\005" +
+      "\"G\n\010Fragment\022\n\n\002id\030\001 \002(\003\022\r\n\005index\030\002 \002(\005\022" +
+      "\r\n\005count\030\003 \002(\005\022\021\n\ttotalSize\030\004 \001(\005\"*\n\nCla" +
+      "imCheck\022\016\n\006blobID\030\001 \002(\t\022\014\n\004size\030\002 \002(\003\"\200\002" +
+      "\n\016EncodedMessage\022\"\n\010envelope\030\002 \002(\0132\020.Enc",
+      "odedEnvelope\022&\n\nproperties\030\003 \001(\0132\022.Encod" +
+      "edProperties\022\017\n\007payload\030\004 \001(\014\022\024\n\005doAck\030\005" +
+      " \001(\010:\005false\022\021\n\tchannelID\030\006 \001(\005\022\030\n\007symbol" +
+      "s\030\007 \003(\0132\007.Symbol\022\033\n\010fragment\030\010 \001(\0132\t.Fra" +
+      "gment\022\037\n\nclaimCheck\030\t \001(\0132\013.ClaimCheck\022\020" +
+      "\n\010sequence\030\n \001(\003\"7\n\022EncodedMessageList\022!" +
+      "\n\010messages\030\001 \003(\0132\017.EncodedMessage\"\301\002\n\023Re" +
+      "layControlMessage\022-\n\007command\030\001 \002(\0162\034.Rel" +
+      "ayControlMessage.Command\0227\n\014endpointType" +
+      "\030\002 \001(\0162!.RelayControlMessage.EndpointTyp",
+      "e\022\024\n\014endpointName\030\003 \001(\t\022\020\n\010bindings\030\004 \003(" +
+      "\t\022\025\n\007fullAck\030\005 \001(\010:\004true\"8\n\007Command\022\013\n\007P" +
+      "UBLISH\020\001\022\r\n\tUNPUBLISH\020\002\022\021\n\rUNPUBLISH_ALL" +
+      "\020\003\"I\n\014EndpointType\022\t\n\005QUEUE\020\001\022\n\n\006FANOUT\020" +
+      "\002\022\n\n\006DIRECT\020\003\022\t\n\005TOPIC\020\004\022\013\n\007HEADERS\020\005BE\n" +
+      "-com.rapid7.component.messaging.relay.en" +
+      "codingB\024MessageRelayEncoding"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
       new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
@@ -4924,35 +7481,59 @@ public final class MessageRelayEncoding {
           internal_static_Header_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_Header_descriptor,
-              new java.lang.String[] { "Name", "Value", },
+              new java.lang.String[] { "Name", "Value", "NameSymbol", },
               com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.class,
               com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header.Builder.class);
-          internal_static_EncodedEnvelope_descriptor =
+          internal_static_Symbol_descriptor =
             getDescriptor().getMessageTypes().get(1);
+          internal_static_Symbol_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_Symbol_descriptor,
+              new java.lang.String[] { "Id", "Value", },
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.class,
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol.Builder.class);
+          internal_static_EncodedEnvelope_descriptor =
+            getDescriptor().getMessageTypes().get(2);
           internal_static_EncodedEnvelope_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_EncodedEnvelope_descriptor,
-              new java.lang.String[] { "DeliveryTag", "Exchange", "RoutingKey", "IsRedeliver", },
+              new java.lang.String[] { "DeliveryTag", "Exchange", "RoutingKey", "IsRedeliver", "ExchangeSymbol", "RoutingKeySymbol", },
               com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope.class,
               com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope.Builder.class);
           internal_static_EncodedProperties_descriptor =
-            getDescriptor().getMessageTypes().get(2);
+            getDescriptor().getMessageTypes().get(3);
           internal_static_EncodedProperties_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_EncodedProperties_descriptor,
-              new java.lang.String[] { "AppID", "ContentEncoding", "ContentType", "CorrelationId", "DeliveryMode", "Expiration", "MessageID", "Priority", "ReplyTo", "Timestamp", "Type", "UserId", "Header", },
+              new java.lang.String[] { "AppID", "ContentEncoding", "ContentType", "CorrelationId", "DeliveryMode", "Expiration", "MessageID", "Priority", "ReplyTo", "Timestamp", "Type", "UserId", "Header", "ContentEncodingSymbol", "ContentTypeSymbol", "IsDelta", "ClearedField", },
               com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties.class,
               com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties.Builder.class);
+          internal_static_Fragment_descriptor =
+            getDescriptor().getMessageTypes().get(4);
+          internal_static_Fragment_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_Fragment_descriptor,
+              new java.lang.String[] { "Id", "Index", "Count", "TotalSize", },
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.class,
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment.Builder.class);
+          internal_static_ClaimCheck_descriptor =
+            getDescriptor().getMessageTypes().get(5);
+          internal_static_ClaimCheck_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_ClaimCheck_descriptor,
+              new java.lang.String[] { "BlobID", "Size", },
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.class,
+              com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.ClaimCheck.Builder.class);
           internal_static_EncodedMessage_descriptor =
-            getDescriptor().getMessageTypes().get(3);
+            getDescriptor().getMessageTypes().get(6);
           internal_static_EncodedMessage_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_EncodedMessage_descriptor,
-              new java.lang.String[] { "Envelope", "Properties", "Payload", "DoAck", "ChannelID", },
+              new java.lang.String[] { "Envelope", "Properties", "Payload", "DoAck", "ChannelID", "Symbols", "Fragment", "ClaimCheck", "Sequence", },
               com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage.class,
               com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage.Builder.class);
           internal_static_EncodedMessageList_descriptor =
-            getDescriptor().getMessageTypes().get(4);
+            getDescriptor().getMessageTypes().get(7);
           internal_static_EncodedMessageList_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_EncodedMessageList_descriptor,
@@ -4960,7 +7541,7 @@ public final class MessageRelayEncoding {
               com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessageList.class,
               com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessageList.Builder.class);
           internal_static_RelayControlMessage_descriptor =
-            getDescriptor().getMessageTypes().get(5);
+            getDescriptor().getMessageTypes().get(8);
           internal_static_RelayControlMessage_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_RelayControlMessage_descriptor,
@@ -0,0 +1,403 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay.encoding;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedEnvelope;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedProperties;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Fragment;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Header;
+import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.Symbol;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A stream scoped symbol table for the strings that are repeated in almost every message on a
+ * relay stream: exchange names, routing keys, content types and encodings, and header names.
+ * The first time the sending side writes one of these strings it defines a symbol for it in the
+ * same frame, and later frames refer to the symbol by ID only. The receiving side keeps the
+ * matching table and expands the references back into strings.<P>
+ * The dictionary also remembers the last properties sent to each exchange and routing key, so
+ * that properties can be delta encoded against them. A message with the same properties as the
+ * previous message to its destination then only carries an empty delta, and the receiving side
+ * hands back the previous properties instance. Fragments after the first fragment of a message
+ * never carry properties and do not affect delta encoding.<P>
+ * A dictionary only lives as long as the stream it was created for, so both sides start from an
+ * empty table whenever a connection cycles. An instance should only be used for one direction
+ * of a single stream, and is not thread safe. The receiving side always understands both
+ * symbols and deltas, whichever of them the sending side uses.
+ */
+public class StreamDictionary
+{
+   /** The maximum number of symbols defined on a single stream. Later strings are sent inline. */
+   public static final int MAX_SYMBOLS = 4096;
+   /** Strings shorter than this are always sent inline, as a reference would not save anything. */
+   public static final int MIN_SYMBOL_LENGTH = 4;
+   /** The maximum number of destinations whose properties are tracked for delta encoding. */
+   public static final int MAX_DESTINATIONS = 1024;
+   
+   private static final int EMPTY_DELTA_SIZE = 
+      EncodedProperties.newBuilder().setIsDelta(true).build().getSerializedSize();
+   
+   private boolean m_useSymbols;
+   private boolean m_useDeltas;
+   private Map<String,Integer> m_ids = new HashMap<String,Integer>();
+   private List<String> m_symbols = new ArrayList<String>();
+   // Last properties per exchange, then per routing key
+   private Map<String,Map<String,EncodedProperties>> m_baseProperties = new HashMap<String,Map<String,EncodedProperties>>();
+   private int m_destinationCount = 0;
+   
+   /**
+    * Create a dictionary that uses both symbols and property deltas when compressing messages.
+    */
+   public StreamDictionary() {
+      this(true, true);
+   }
+   
+   /**
+    * Create a dictionary.
+    * @param useSymbols If true, compress repeated strings into symbol references.
+    * @param useDeltas If true, delta encode properties against the previous properties sent to
+    * the same destination.
+    */
+   public StreamDictionary(boolean useSymbols, boolean useDeltas) {
+      m_useSymbols = useSymbols;
+      m_useDeltas = useDeltas;
+   }
+   
+   /**
+    * Compress a message. Used on the sending side of a stream.
+    * @param message The message to compress.
+    * @return The compressed message, or the original message if it could not be compressed.
+    */
+   public EncodedMessage compress(EncodedMessage message) {
+      List<Symbol> definitions = new ArrayList<Symbol>(2);
+      EncodedMessage.Builder builder = null;
+      
+      EncodedEnvelope envelope = message.getEnvelope();
+      EncodedProperties properties = message.hasProperties() ? message.getProperties() : null;
+      EncodedProperties encodedProperties = properties;
+      boolean isContinuation = message.hasFragment() && isContinuation(message.getFragment());
+      if (m_useDeltas && !isContinuation) encodedProperties = this.delta(envelope, properties);
+      if (m_useSymbols) {
+         if (encodedProperties != null) encodedProperties = this.symbolize(encodedProperties, definitions);
+         
+         int exchange = this.lookup(envelope.getExchange(), definitions);
+         int routingKey = this.lookup(envelope.getRoutingKey(), definitions);
+         if (exchange >= 0 || routingKey >= 0) {
+            EncodedEnvelope.Builder envelopeBuilder = envelope.toBuilder();
+            if (exchange >= 0) envelopeBuilder.setExchange("").setExchangeSymbol(exchange);
+            if (routingKey >= 0) envelopeBuilder.setRoutingKey("").setRoutingKeySymbol(routingKey);
+            builder = message.toBuilder().setEnvelope(envelopeBuilder);
+         }
+      }
+      
+      if (encodedProperties != properties) {
+         if (builder == null) builder = message.toBuilder();
+         if (encodedProperties == null) {
+            builder.clearProperties();
+         } else {
+            builder.setProperties(encodedProperties);
+         }
+      }
+      
+      if (builder == null) return message;
+      return builder.addAllSymbols(definitions).build();
+   }
+   
+   /**
+    * Define the symbols carried by a message and expand all of its symbol references and
+    * property deltas. Used on the receiving side of a stream.
+    * @param message The message to expand.
+    * @return The expanded message, or the original message if it was not compressed.
+    * @throws InvalidProtocolBufferException If the message refers to an unknown symbol.
+    */
+   public EncodedMessage expand(EncodedMessage message) throws InvalidProtocolBufferException {
+      int symbolCount = message.getSymbolsCount();
+      for (int i = 0; i < symbolCount; i++) {
+         this.define(message.getSymbols(i));
+      }
+      EncodedEnvelope envelope = this.expand(message.getEnvelope());
+      EncodedProperties encodedProperties = message.hasProperties() ? message.getProperties() : null;
+      EncodedProperties properties = encodedProperties;
+      if (!message.hasFragment() || !isContinuation(message.getFragment())) {
+         properties = this.expand(envelope, encodedProperties);
+      }
+      if (symbolCount == 0 && envelope == message.getEnvelope() && properties == encodedProperties) {
+         return message;
+      }
+      
+      EncodedMessage.Builder builder = message.toBuilder().clearSymbols().setEnvelope(envelope);
+      if (properties != null) builder.setProperties(properties);
+      return builder.build();
+   }
+   
+   /**
+    * Resolve the symbol references in an envelope.
+    * @param envelope The envelope to expand.
+    * @return The expanded envelope, or the original envelope if it uses no symbols.
+    * @throws InvalidProtocolBufferException If the envelope refers to an unknown symbol.
+    */
+   public EncodedEnvelope expand(EncodedEnvelope envelope) throws InvalidProtocolBufferException {
+      if (!envelope.hasExchangeSymbol() && !envelope.hasRoutingKeySymbol()) return envelope;
+      EncodedEnvelope.Builder builder = envelope.toBuilder();
+      if (envelope.hasExchangeSymbol()) {
+         builder.setExchange(this.resolve(envelope.getExchangeSymbol())).clearExchangeSymbol();
+      }
+      if (envelope.hasRoutingKeySymbol()) {
+         builder.setRoutingKey(this.resolve(envelope.getRoutingKeySymbol())).clearRoutingKeySymbol();
+      }
+      return builder.build();
+   }
+   
+   /**
+    * Expand the properties of a message. This must be called exactly once for every message
+    * read from the stream, including messages without properties, so that the properties
+    * tracked for delta decoding stay in step with the sending side.
+    * @param envelope The expanded envelope of the message.
+    * @param properties The properties of the message, or null if it has none.
+    * @return The expanded properties, or null if the message has none.
+    * @throws InvalidProtocolBufferException If the properties refer to an unknown symbol.
+    */
+   public EncodedProperties expand(EncodedEnvelope envelope, EncodedProperties properties) 
+         throws InvalidProtocolBufferException {
+      if (properties != null) properties = this.resolveSymbols(properties);
+      Map<String,EncodedProperties> bases = this.getBases(envelope.getExchange());
+      if (properties != null && properties.getIsDelta()) {
+         EncodedProperties base = (bases == null) ? null : bases.get(envelope.getRoutingKey());
+         if (base == null) throw new InvalidProtocolBufferException("Delta encoded properties without a base.");
+         properties = this.applyDelta(base, properties);
+      }
+      if (bases != null) {
+         this.setBase(bases, envelope.getRoutingKey(), 
+            (properties == null) ? EncodedProperties.getDefaultInstance() : properties);
+      }
+      return properties;
+   }
+   
+   /**
+    * Define a symbol received on the stream. Symbols must be defined in ID order.
+    * @param symbol The symbol definition.
+    * @throws InvalidProtocolBufferException If the symbol is out of order or the table is full.
+    */
+   public void define(Symbol symbol) throws InvalidProtocolBufferException {
+      if (symbol.getId() != m_symbols.size() || m_symbols.size() >= MAX_SYMBOLS) {
+         throw new InvalidProtocolBufferException("Unexpected stream dictionary symbol " + symbol.getId() + ".");
+      }
+      m_symbols.add(symbol.getValue());
+   }
+   
+   /**
+    * Check whether a fragment continues a message, rather than starting one.
+    * @param fragment The fragment, or null if the message is not fragmented.
+    * @return True if the fragment is not the first fragment of its message.
+    */
+   public static boolean isContinuation(Fragment fragment) {
+      return fragment != null && fragment.getIndex() > 0;
+   }
+   
+   private EncodedProperties resolveSymbols(EncodedProperties properties) throws InvalidProtocolBufferException {
+      EncodedProperties.Builder builder = null;
+      if (properties.hasContentEncodingSymbol()) {
+         builder = properties.toBuilder();
+         builder.setContentEncoding(this.resolve(properties.getContentEncodingSymbol())).clearContentEncodingSymbol();
+      }
+      if (properties.hasContentTypeSymbol()) {
+         if (builder == null) builder = properties.toBuilder();
+         builder.setContentType(this.resolve(properties.getContentTypeSymbol())).clearContentTypeSymbol();
+      }
+      int headerCount = properties.getHeaderCount();
+      for (int i = 0; i < headerCount; i++) {
+         Header header = properties.getHeader(i);
+         if (header.hasNameSymbol()) {
+            if (builder == null) builder = properties.toBuilder();
+            builder.setHeader(i, Header.newBuilder()
+               .setName(this.resolve(header.getNameSymbol()))
+               .setValue(header.getValue()));
+         }
+      }
+      return (builder == null) ? properties : builder.build();
+   }
+   
+   private EncodedProperties symbolize(EncodedProperties properties, List<Symbol> definitions) {
+      EncodedProperties.Builder builder = null;
+      if (properties.hasContentEncoding()) {
+         int id = this.lookup(properties.getContentEncoding(), definitions);
+         if (id >= 0) {
+            builder = properties.toBuilder();
+            builder.clearContentEncoding().setContentEncodingSymbol(id);
+         }
+      }
+      if (properties.hasContentType()) {
+         int id = this.lookup(properties.getContentType(), definitions);
+         if (id >= 0) {
+            if (builder == null) builder = properties.toBuilder();
+            builder.clearContentType().setContentTypeSymbol(id);
+         }
+      }
+      int headerCount = properties.getHeaderCount();
+      for (int i = 0; i < headerCount; i++) {
+         Header header = properties.getHeader(i);
+         int id = this.lookup(header.getName(), definitions);
+         if (id >= 0) {
+            if (builder == null) builder = properties.toBuilder();
+            builder.setHeader(i, header.toBuilder().setName("").setNameSymbol(id));
+         }
+      }
+      return (builder == null) ? properties : builder.build();
+   }
+   
+   /**
+    * Delta encode message properties against the last properties sent to the same destination,
+    * and remember them as the base for the next message.
+    * @return The properties to send, which may be the original properties or null.
+    */
+   private EncodedProperties delta(EncodedEnvelope envelope, EncodedProperties properties) {
+      Map<String,EncodedProperties> bases = this.getBases(envelope.getExchange());
+      if (bases == null) return properties;
+      EncodedProperties base = this.setBase(bases, envelope.getRoutingKey(), 
+         (properties == null) ? EncodedProperties.getDefaultInstance() : properties);
+      // Empty properties are cheaper to send as they are
+      if (base == null || properties == null || base.getSerializedSize() == 0) return properties;
+      
+      EncodedProperties.Builder delta = EncodedProperties.newBuilder().setIsDelta(true);
+      if (properties.hasAppID()) {
+         if (!base.hasAppID() || !properties.getAppID().equals(base.getAppID())) delta.setAppID(properties.getAppID());
+      } else if (base.hasAppID()) delta.addClearedField(EncodedProperties.APPID_FIELD_NUMBER);
+      if (properties.hasContentEncoding()) {
+         if (!base.hasContentEncoding() || !properties.getContentEncoding().equals(base.getContentEncoding())) delta.setContentEncoding(properties.getContentEncoding());
+      } else if (base.hasContentEncoding()) delta.addClearedField(EncodedProperties.CONTENTENCODING_FIELD_NUMBER);
+      if (properties.hasContentType()) {
+         if (!base.hasContentType() || !properties.getContentType().equals(base.getContentType())) delta.setContentType(properties.getContentType());
+      } else if (base.hasContentType()) delta.addClearedField(EncodedProperties.CONTENTTYPE_FIELD_NUMBER);
+      if (properties.hasCorrelationId()) {
+         if (!base.hasCorrelationId() || !properties.getCorrelationId().equals(base.getCorrelationId())) delta.setCorrelationId(properties.getCorrelationId());
+      } else if (base.hasCorrelationId()) delta.addClearedField(EncodedProperties.CORRELATIONID_FIELD_NUMBER);
+      if (properties.hasDeliveryMode()) {
+         if (!base.hasDeliveryMode() || properties.getDeliveryMode() != base.getDeliveryMode()) delta.setDeliveryMode(properties.getDeliveryMode());
+      } else if (base.hasDeliveryMode()) delta.addClearedField(EncodedProperties.DELIVERYMODE_FIELD_NUMBER);
+      if (properties.hasExpiration()) {
+         if (!base.hasExpiration() || !properties.getExpiration().equals(base.getExpiration())) delta.setExpiration(properties.getExpiration());
+      } else if (base.hasExpiration()) delta.addClearedField(EncodedProperties.EXPIRATION_FIELD_NUMBER);
+      if (properties.hasMessageID()) {
+         if (!base.hasMessageID() || !properties.getMessageID().equals(base.getMessageID())) delta.setMessageID(properties.getMessageID());
+      } else if (base.hasMessageID()) delta.addClearedField(EncodedProperties.MESSAGEID_FIELD_NUMBER);
+      if (properties.hasPriority()) {
+         if (!base.hasPriority() || properties.getPriority() != base.getPriority()) delta.setPriority(properties.getPriority());
+      } else if (base.hasPriority()) delta.addClearedField(EncodedProperties.PRIORITY_FIELD_NUMBER);
+      if (properties.hasReplyTo()) {
+         if (!base.hasReplyTo() || !properties.getReplyTo().equals(base.getReplyTo())) delta.setReplyTo(properties.getReplyTo());
+      } else if (base.hasReplyTo()) delta.addClearedField(EncodedProperties.REPLYTO_FIELD_NUMBER);
+      if (properties.hasTimestamp()) {
+         if (!base.hasTimestamp() || properties.getTimestamp() != base.getTimestamp()) delta.setTimestamp(properties.getTimestamp());
+      } else if (base.hasTimestamp()) delta.addClearedField(EncodedProperties.TIMESTAMP_FIELD_NUMBER);
+      if (properties.hasType()) {
+         if (!base.hasType() || !properties.getType().equals(base.getType())) delta.setType(properties.getType());
+      } else if (base.hasType()) delta.addClearedField(EncodedProperties.TYPE_FIELD_NUMBER);
+      if (properties.hasUserId()) {
+         if (!base.hasUserId() || !properties.getUserId().equals(base.getUserId())) delta.setUserId(properties.getUserId());
+      } else if (base.hasUserId()) delta.addClearedField(EncodedProperties.USERID_FIELD_NUMBER);
+      if (!properties.getHeaderList().equals(base.getHeaderList())) {
+         if (properties.getHeaderCount() == 0) {
+            delta.addClearedField(EncodedProperties.HEADER_FIELD_NUMBER);
+         } else {
+            delta.addAllHeader(properties.getHeaderList());
+         }
+      }
+      
+      EncodedProperties encodedDelta = delta.build();
+      return (encodedDelta.getSerializedSize() < properties.getSerializedSize()) ? encodedDelta : properties;
+   }
+   
+   private EncodedProperties applyDelta(EncodedProperties base, EncodedProperties delta) {
+      // An empty delta means the properties are unchanged, so the base instance can be reused
+      if (delta.getSerializedSize() == EMPTY_DELTA_SIZE) {
+         return base;
+      }
+      EncodedProperties.Builder builder = base.toBuilder();
+      int clearedCount = delta.getClearedFieldCount();
+      for (int i = 0; i < clearedCount; i++) {
+         builder.clearField(EncodedProperties.getDescriptor().findFieldByNumber(delta.getClearedField(i)));
+      }
+      if (delta.getHeaderCount() > 0) builder.clearHeader();
+      return builder.mergeFrom(delta).clearIsDelta().clearClearedField().build();
+   }
+   
+   /**
+    * Get the base properties of the destinations for an exchange, or null if the exchange
+    * can not be tracked because too many destinations are already tracked.
+    */
+   private Map<String,EncodedProperties> getBases(String exchange) {
+      Map<String,EncodedProperties> bases = m_baseProperties.get(exchange);
+      if (bases == null && m_destinationCount < MAX_DESTINATIONS) {
+         bases = new HashMap<String,EncodedProperties>();
+         m_baseProperties.put(exchange, bases);
+      }
+      return bases;
+   }
+   
+   /**
+    * Set the base properties for a destination.
+    * @return The previous base properties, or null if there were none.
+    */
+   private EncodedProperties setBase(Map<String,EncodedProperties> bases, String routingKey, 
+         EncodedProperties properties) {
+      if (!bases.containsKey(routingKey)) {
+         if (m_destinationCount >= MAX_DESTINATIONS) return null;
+         m_destinationCount++;
+      }
+      return bases.put(routingKey, properties);
+   }
+   
+   private String resolve(int id) throws InvalidProtocolBufferException {
+      if (id < 0 || id >= m_symbols.size()) {
+         throw new InvalidProtocolBufferException("Unknown stream dictionary symbol " + id + ".");
+      }
+      return m_symbols.get(id);
+   }
+   
+   /**
+    * Get the symbol ID for a string, defining a new symbol if required.
+    * @return The symbol ID, or -1 if the string should be sent inline.
+    */
+   private int lookup(String value, List<Symbol> definitions) {
+      if (value.length() < MIN_SYMBOL_LENGTH) return -1;
+      Integer id = m_ids.get(value);
+      if (id != null) return id;
+      if (m_ids.size() >= MAX_SYMBOLS) return -1;
+      id = m_ids.size();
+      m_ids.put(value, id);
+      definitions.add(Symbol.newBuilder().setId(id).setValue(value).build());
+      return id;
+   }
+
+}
@@ -0,0 +1,98 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay.encoding;
+
+import com.google.protobuf.ByteString;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+
+/**
+ * Utility methods to move payload bytes in and out of Protobuf ByteString instances without
+ * copying them. The Protobuf 2.4 API only offers copying methods (ByteString.copyFrom() and
+ * ByteString.toByteArray()), so these methods reach the ByteString internals by reflection,
+ * falling back to the copying methods if that is not possible.<P>
+ * Callers must treat the shared arrays as immutable: an array wrapped with wrap() must not be
+ * modified afterwards, and an array obtained from array() must never be modified.
+ */
+public class ZeroCopyByteString
+{
+   private static final Constructor<ByteString> sm_wrapConstructor;
+   private static final Field sm_bytesField;
+   
+   static {
+      Constructor<ByteString> constructor = null;
+      Field field = null;
+      try {
+         constructor = ByteString.class.getDeclaredConstructor(byte[].class);
+         constructor.setAccessible(true);
+         field = ByteString.class.getDeclaredField("bytes");
+         field.setAccessible(true);
+      } catch (Exception e) {
+         System.err.println("Zero-copy ByteString access unavailable, payloads will be copied: " + e);
+         constructor = null;
+         field = null;
+      }
+      sm_wrapConstructor = constructor;
+      sm_bytesField = field;
+   }
+   
+   /**
+    * Wrap a byte array in a ByteString without copying it.
+    * @param bytes The array to wrap. It must not be modified after it has been wrapped.
+    * @return A ByteString backed by the supplied array.
+    */
+   public static ByteString wrap(byte[] bytes) {
+      if (sm_wrapConstructor != null) {
+         try {
+            return sm_wrapConstructor.newInstance((Object)bytes);
+         } catch (Exception e) {
+            // Fall through to the copy
+         }
+      }
+      return ByteString.copyFrom(bytes);
+   }
+   
+   /**
+    * Get the bytes of a ByteString as an array, without copying them if possible.
+    * @param bytes The ByteString.
+    * @return An array containing exactly the bytes of the ByteString. It may be the
+    * ByteString's own backing array, so it must not be modified.
+    */
+   public static byte[] array(ByteString bytes) {
+      if (sm_bytesField != null) {
+         try {
+            return (byte[])sm_bytesField.get(bytes);
+         } catch (Exception e) {
+            // Fall through to the copy
+         }
+      }
+      return bytes.toByteArray();
+   }
+
+}
@@ -0,0 +1,269 @@
+/***************************************************************************
+* Copyright (c) 2013, Rapid7 Inc
+* 
+* Redistribution and use in source and binary forms, with or without modification, are
+* permitted provided that the following conditions are met:
+* 
+* * Redistributions of source code must retain the above copyright notice, this list of 
+*   conditions and the following disclaimer.
+* 
+* * Redistributions in binary form must reproduce the above copyright notice, this list of
+*   conditions and the following disclaimer in the documentation and/or other materials
+*   provided with the distribution.
+* 
+* * Neither the name of Rapid7 nor the names of its contributors may be used to endorse or
+*   promote products derived from this software without specific prior written permission.
+* 
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+* EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+* MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+* THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+* SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+* OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+* HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+* TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+* SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+* 
+****************************************************************************/
+
+package com.rapid7.component.messaging.relay.server;
+
+import com.rapid7.component.messaging.relay.DiskBlobStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A Servlet implementation used to upload and download the payloads of claim checked messages,
+ * which are too large to send inline on the relay streams. Blobs are kept in a DiskBlobStore
+ * with a separate directory for each client, and are identified by the "id" request parameter.
+ * Uploads (PUT) accept a Content-Range header and downloads (GET) accept a Range header, so an
+ * interrupted transfer can be resumed; a HEAD request returns the number of bytes stored so far
+ * as the Content-Length. The servlet accepts these initialization parameters:<P>
+ * <UL>
+ *    <LI>blob-store-dir : the root directory of the blob store. This must be the same directory
+ *    that is configured for the MessageRelayServlet. (Required)</LI>
+ *    <LI>blob-expiry : the time, in ms, after its upload at which a blob is removed
+ *    (Default: 24 hours)</LI>
+ *    <LI>blob-max-size : the maximum size of an uploaded blob, in bytes (Default: 1GB)</LI>
+ * </UL>
+ * Like the MessageRelayServlet, this servlet expects to obtain the client id by calling the
+ * getRemoteUser() method of the supplied HttpServletRequest. Requests without a remote user are
+ * rejected as unauthorized.
+ * @see MessageRelayServlet
+ */
+public class MessageBlobServlet extends HttpServlet {
+
+   private static final long serialVersionUID = 1L;
+
+   public static final String PARAM_BLOB_STORE_DIR = "blob-store-dir";
+   public static final String PARAM_BLOB_EXPIRY = "blob-expiry";
+   public static final String PARAM_BLOB_MAX_SIZE = "blob-max-size";
+
+   public static final long DEFAULT_BLOB_MAX_SIZE = 1024L * 1024 * 1024;
+
+   private static final Charset UTF8 = Charset.forName("UTF-8");
+   private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+   private File m_storeDirectory;
+   private long m_expiry;
+   private long m_maxSize;
+
+   /**
+    * Get the blob store directory for a client. Client IDs are hex encoded, so any ID maps to
+    * a distinct, safe directory name.
+    * @param storeDirectory The root directory of the blob store.
+    * @param clientID The unique ID of the client.
+    * @return The client's blob directory.
+    */
+   public static File getClientDirectory(File storeDirectory, String clientID) {
+      byte[] bytes = clientID.getBytes(UTF8);
+      char[] name = new char[bytes.length * 2];
+      for (int i = 0; i < bytes.length; i++) {
+         name[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+         name[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+      }
+      return new File(storeDirectory, new String(name));
+   }
+
+   @Override
+   public void init(ServletConfig config) throws ServletException {
+      super.init(config);
+
+      String directory = config.getInitParameter(PARAM_BLOB_STORE_DIR);
+      if (directory == null) throw new ServletException("Missing required init parameter " + PARAM_BLOB_STORE_DIR);
+      m_storeDirectory = new File(directory);
+
+      m_expiry = (config.getInitParameter(PARAM_BLOB_EXPIRY) != null) ?
+            Long.parseLong(config.getInitParameter(PARAM_BLOB_EXPIRY)) : DiskBlobStore.DEFAULT_EXPIRY;
+      m_maxSize = (config.getInitParameter(PARAM_BLOB_MAX_SIZE) != null) ?
+            Long.parseLong(config.getInitParameter(PARAM_BLOB_MAX_SIZE)) : DEFAULT_BLOB_MAX_SIZE;
+   }
+
+   /**
+    * Return the number of bytes stored so far for a blob, so an interrupted upload can be resumed.
+    * @see HttpServlet#doHead(HttpServletRequest request, HttpServletResponse response)
+    */
+   protected void doHead(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+      String blobID = this.getBlobID(request, response);
+      if (blobID == null) return;
+      DiskBlobStore store = this.getStore(request, response);
+      if (store == null) return;
+      long size = store.getSize(blobID);
+      if (size < 0) {
+         response.sendError(HttpServletResponse.SC_NOT_FOUND);
+         return;
+      }
+      response.setContentType("application/octet-stream");
+      response.setContentLengthLong(size);
+   }
+
+   /**
+    * Download a blob, or the part of it given by an open ended ("bytes=N-") Range header.
+    * @see HttpServlet#doGet(HttpServletRequest request, HttpServletResponse response)
+    */
+   protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+      String blobID = this.getBlobID(request, response);
+      if (blobID == null) return;
+      DiskBlobStore store = this.getStore(request, response);
+      if (store == null) return;
+      long size = store.getSize(blobID);
+      if (size < 0) {
+         response.sendError(HttpServletResponse.SC_NOT_FOUND);
+         return;
+      }
+
+      long offset = 0;
+      String range = request.getHeader("Range");
+      if (range != null) {
+         offset = parseRangeStart(range, "bytes=");
+         if (offset < 0 || offset >= size) {
+            response.setHeader("Content-Range", "bytes */" + size);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+         }
+         response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+         response.setHeader("Content-Range", "bytes " + offset + "-" + (size - 1) + "/" + size);
+      }
+      response.setContentType("application/octet-stream");
+      response.setContentLengthLong(size - offset);
+
+      InputStream in = store.open(blobID, offset);
+      if (in == null) throw new IOException("Blob " + blobID + " was removed while being downloaded.");
+      try {
+         copy(in, response.getOutputStream());
+      } finally {
+         in.close();
+      }
+   }
+
+   /**
+    * Upload a blob, or the part of it given by a Content-Range header ("bytes N-M/T"). The start
+    * of the range must not be beyond the number of bytes already stored.
+    * @see HttpServlet#doPut(HttpServletRequest request, HttpServletResponse response)
+    */
+   protected void doPut(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+      String blobID = this.getBlobID(request, response);
+      if (blobID == null) return;
+      DiskBlobStore store = this.getStore(request, response);
+      if (store == null) return;
+
+      long offset = 0;
+      String range = request.getHeader("Content-Range");
+      if (range != null) {
+         offset = parseRangeStart(range, "bytes ");
+         int totalIndex = range.lastIndexOf('/');
+         if (offset < 0 || totalIndex < 0) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed Content-Range header.");
+            return;
+         }
+         String total = range.substring(totalIndex + 1).trim();
+         if (!total.equals("*") && parseLength(total) > m_maxSize) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+         }
+      }
+      if (offset > Math.max(store.getSize(blobID), 0)) {
+         response.sendError(HttpServletResponse.SC_CONFLICT, "Upload does not continue from the end of the blob.");
+         return;
+      }
+
+      long size = store.write(blobID, offset, request.getInputStream(), m_maxSize);
+      if (size > m_maxSize) {
+         store.delete(blobID);
+         response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+         return;
+      }
+      response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+   }
+
+   /**
+    * Remove a blob that is no longer needed, rather than waiting for it to expire.
+    * @see HttpServlet#doDelete(HttpServletRequest request, HttpServletResponse response)
+    */
+   protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+      String blobID = this.getBlobID(request, response);
+      if (blobID == null) return;
+      DiskBlobStore store = this.getStore(request, response);
+      if (store == null) return;
+      if (store.delete(blobID)) {
+         response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+      } else {
+         response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      }
+   }
+
+   private DiskBlobStore getStore(HttpServletRequest request, HttpServletResponse response) throws IOException {
+      String clientID = request.getRemoteUser();
+      if (clientID == null) {
+         response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "No client id for request.");
+         return null;
+      }
+      return new DiskBlobStore(getClientDirectory(m_storeDirectory, clientID), m_expiry);
+   }
+
+   private String getBlobID(HttpServletRequest request, HttpServletResponse response) throws IOException {
+      String blobID = request.getParameter("id");
+      if (!DiskBlobStore.isValidID(blobID)) {
+         response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing or invalid blob id.");
+         return null;
+      }
+      return blobID;
+   }
+
+   private static long parseRangeStart(String range, String prefix) {
+      if (!range.startsWith(prefix)) return -1;
+      int end = range.indexOf('-', prefix.length());
+      if (end < 0) return -1;
+      try {
+         return Long.parseLong(range.substring(prefix.length(), end).trim());
+      } catch (NumberFormatException e) {
+         return -1;
+      }
+   }
+
+   private static long parseLength(String length) {
+      try {
+         return Long.parseLong(length);
+      } catch (NumberFormatException e) {
+         return Long.MAX_VALUE;
+      }
+   }
+
+   private static void copy(InputStream in, OutputStream out) throws IOException {
+      byte[] buffer = new byte[64 * 1024];
+      int count;
+      while ((count = in.read(buffer)) >= 0) {
+         out.write(buffer, 0, count);
+      }
+   }
+
+}
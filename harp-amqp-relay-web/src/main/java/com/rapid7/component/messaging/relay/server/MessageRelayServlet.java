@@ -28,17 +28,33 @@
 
 package com.rapid7.component.messaging.relay.server;
 
+import com.rapid7.component.messaging.relay.DiskBlobStore;
+import com.rapid7.component.messaging.relay.DuplicateIndex;
 import com.rapid7.component.messaging.relay.MessageHandlerChain;
+import com.rapid7.component.messaging.relay.MessageStreamReader;
+import com.rapid7.component.messaging.relay.RetransmitBuffer;
+import com.rapid7.component.messaging.relay.SequenceTracker;
+import com.rapid7.component.messaging.relay.amqp.AckHandler;
 import com.rapid7.component.messaging.relay.amqp.BusConnector;
 import com.rapid7.component.messaging.relay.amqp.BusMessageRetriever;
+import com.rapid7.component.messaging.relay.amqp.FlushPolicy;
 import com.rapid7.component.messaging.relay.amqp.OutputStreamHandler;
 import com.rapid7.component.messaging.relay.amqp.SecurityFilterManager;
 import com.rapid7.component.messaging.relay.amqp.StandardHandler;
 import com.rapid7.component.messaging.relay.encoding.MessageRelayEncoding.EncodedMessage;
+import com.rapid7.component.messaging.relay.encoding.StreamDictionary;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -54,10 +70,42 @@ import javax.servlet.http.HttpServletResponse;
  *    <LI>amqp-port : the port of the local message bus (Default: 5672)</LI>
  *    <LI>amqp-user : the username used to authenticate to the bus</LI>
  *    <LI>amqp-passwd : the password used to authenticate to the bus</LI>
+ *    <LI>amqp-connections : the number of pooled connections to the bus that client channels are
+ *    striped across (Default: 1)</LI>
  *    <LI>amqp-connector-name : An identifier for the bus client used by this;
  *    servlet. Only significant if there is more than one MessageRelayServlet instance operating in the </LI>
  *    container (Default: "RELAY_SERVLET_DEFAULT")<P>
+ *    <LI>output-flush-bytes : coalesce response stream flushes until this many bytes are buffered</LI>
+ *    <LI>output-flush-linger : the maximum time, in ms, that response data may stay buffered</LI>
+ *    <LI>output-flush-on-drain : if true, flush whenever the retriever has no more messages queued</LI>
+ *    <LI>output-flush-immediate : a comma delimited list of latency sensitive endpoints whose messages
+ *    are always flushed immediately</LI>
+ *    <LI>output-buffer-size : the size of the response stream buffer, in bytes (Default: 16384)</LI>
+ *    <LI>blob-store-dir : the root directory of the blob store used for claim checked messages. This
+ *    must be the same directory that is configured for the MessageBlobServlet. Claim checks are only
+ *    supported if it is set.</LI>
+ *    <LI>blob-expiry : the time, in ms, after its upload at which a blob is removed
+ *    (Default: 24 hours)</LI>
+ *    <LI>dedup-size : the number of republished messages remembered per client so that redelivered
+ *    duplicates can be dropped. Only messages with a message ID are checked. Duplicate suppression
+ *    is only enabled if it is set.</LI>
+ *    <LI>dedup-expiry : the time, in ms, that republished messages are remembered for (Default: 10 minutes)</LI>
+ *    <LI>dedup-dir : if set, the directory where each client's duplicate index is persisted</LI>
+ *    <LI>stream-state-expiry : the time, in ms, after which the retransmit buffers and sequence
+ *    trackers of resumable streams that have not been used are discarded (Default: 30 minutes)</LI>
+ *    <LI>max-chunk-limit : the highest chunk_limit a client may request (Default: 10000)</LI>
+ *    <LI>max-chunk-timeout : the longest chunk_timeout, in ms, a client may request (Default: 60000)</LI>
+ *    <LI>max-chunk-bytes : the largest chunk_bytes a client may request, and the byte budget of the
+ *    chunks of clients that request none (Default: 0, no limit)</LI>
+ *    <LI>retrieval-channels : the number of channels each client's target queues are sharded
+ *    across (Default: 1)</LI>
+ *    <LI>retrieval-prefetch : the prefetch count of each retrieval channel (Default: 1)</LI>
+ *    <LI>queue-weights : a comma delimited list of queue:weight or exchange:weight entries. If it is
+ *    set, each chunk is scheduled across the target queues by weight.</LI>
+ *    <LI>express-endpoints : a comma delimited list of queues and exchanges that are carried by the
+ *    express lane (the "express" response stream), along with acks and relay control messages</LI>
  * </UL>
+ * If none of the output-flush parameters are supplied every message is flushed as soon as it is written.
  * The servlet implementation expects to obtain a unique client id by calling the getRemoteUser() method
  * of the supplied HttpServletRequest. It is thus compatible with a wide variety of Filter-based 
  * authentication schemes, as long as the filter implementation returns a request object that implements
@@ -73,15 +121,53 @@ public class MessageRelayServlet extends HttpServlet {
    public static final String PARAM_AMQP_PORT = "amqp-port";
    public static final String PARAM_AMQP_USER = "amqp-user";
    public static final String PARAM_AMQP_PASS = "amqp-passwd";
+   public static final String PARAM_AMQP_CONNECTIONS = "amqp-connections";
+   public static final String PARAM_OUTPUT_FLUSH_BYTES = "output-flush-bytes";
+   public static final String PARAM_OUTPUT_FLUSH_LINGER = "output-flush-linger";
+   public static final String PARAM_OUTPUT_FLUSH_ON_DRAIN = "output-flush-on-drain";
+   public static final String PARAM_OUTPUT_FLUSH_IMMEDIATE = "output-flush-immediate";
+   public static final String PARAM_OUTPUT_BUFFER_SIZE = "output-buffer-size";
+   public static final String PARAM_BLOB_STORE_DIR = MessageBlobServlet.PARAM_BLOB_STORE_DIR;
+   public static final String PARAM_BLOB_EXPIRY = MessageBlobServlet.PARAM_BLOB_EXPIRY;
+   public static final String PARAM_DEDUP_SIZE = "dedup-size";
+   public static final String PARAM_DEDUP_EXPIRY = "dedup-expiry";
+   public static final String PARAM_DEDUP_DIR = "dedup-dir";
+   public static final String PARAM_STREAM_STATE_EXPIRY = "stream-state-expiry";
+   public static final String PARAM_MAX_CHUNK_LIMIT = "max-chunk-limit";
+   public static final String PARAM_MAX_CHUNK_TIMEOUT = "max-chunk-timeout";
+   public static final String PARAM_MAX_CHUNK_BYTES = "max-chunk-bytes";
+   public static final String PARAM_RETRIEVAL_CHANNELS = "retrieval-channels";
+   public static final String PARAM_RETRIEVAL_PREFETCH = "retrieval-prefetch";
+   public static final String PARAM_QUEUE_WEIGHTS = "queue-weights";
+   public static final String PARAM_EXPRESS_ENDPOINTS = "express-endpoints";
 
    public static final int DEFAULT_CHUNK_LIMIT = 100;
    public static final long DEFAULT_CHUNK_TIMEOUT = 5000;
+   public static final int DEFAULT_MAX_CHUNK_LIMIT = 10000;
+   public static final long DEFAULT_MAX_CHUNK_TIMEOUT = 60000;
+   public static final long MIN_HEARTBEAT_INTERVAL = 1000;
+   public static final long DEFAULT_STREAM_STATE_EXPIRY = 30 * 60 * 1000L;
 
    public static final String DEFAULT_AMQP_CONNECTOR_NAME = "RELAY_SERVLET_DEFAULT";
 
    private String m_connectorName;
+   private FlushPolicy m_flushPolicy;
+   private int m_outputBufferSize;
+   private File m_blobStoreDirectory;
+   private long m_blobExpiry;
+   private int m_dedupSize;
+   private long m_dedupExpiry;
+   private File m_dedupDirectory;
+   private long m_streamStateExpiry;
+   private volatile long m_lastStreamStateEviction = 0;
+   private int m_maxChunkLimit;
+   private long m_maxChunkTimeout;
+   private long m_maxChunkBytes;
 
    private SecurityFilterManager m_securityFilter = new SecurityFilterManager();
+   private ConcurrentMap<String,RetransmitBuffer> m_retransmitBuffers = new ConcurrentHashMap<String,RetransmitBuffer>();
+   private ConcurrentMap<String,SequenceTracker> m_sequenceTrackers = new ConcurrentHashMap<String,SequenceTracker>();
+   private ConcurrentMap<String,DuplicateIndex> m_duplicateIndexes = new ConcurrentHashMap<String,DuplicateIndex>();
    
    /**
     * @see HttpServlet#HttpServlet()
@@ -101,6 +187,58 @@ public class MessageRelayServlet extends HttpServlet {
     */
    protected void handleResponseStream(String clientID, OutputStream responseStream, int limit, long timeout) 
          throws IOException {
+      this.handleResponseStream(clientID, BusMessageRetriever.DEFAULT_STREAM, responseStream, limit, timeout,
+            false, 0, 0, null, false, 0);
+   }
+
+   /** 
+    * Handle the outgoing response stream for the specified client.
+    * @param clientID The unique ID of the client.
+    * @param streamID The ID of the response stream, for clients that receive over several concurrent
+    * response streams.
+    * @param responseStream The OutputStream associated with the HTTP(S) response.
+    * @param limit The message chunk limit
+    * @param timeout The message chunk timeout
+    * @param useDictionary If true, compress the response stream with a stream dictionary.
+    * @param fragmentSize Messages with larger payloads are fragmented, unless this is 0.
+    * @param claimCheckSize Messages with larger payloads are sent with a claim check, unless this
+    * is 0 or the servlet has no blob store.
+    * @param retransmitBuffer If not null, resume the response stream from this buffer.
+    * @param overlapped If true, the request overlaps the client's previous request, which is still
+    * being streamed, so the retransmit buffer is not replayed.
+    * @param heartbeatInterval If not 0, send a heartbeat whenever nothing else has been sent for
+    * this many ms.
+    * @throws IOException
+    */
+   protected void handleResponseStream(String clientID, String streamID, OutputStream responseStream, 
+         int limit, long timeout, boolean useDictionary, int fragmentSize, int claimCheckSize, RetransmitBuffer retransmitBuffer,
+         boolean overlapped, long heartbeatInterval) throws IOException {
+      this.handleResponseStream(clientID, streamID, responseStream, limit, 0, timeout, useDictionary, fragmentSize,
+            claimCheckSize, retransmitBuffer, overlapped, heartbeatInterval);
+   }
+
+   /** 
+    * Handle the outgoing response stream for the specified client, ending it once either the
+    * message chunk limit or the chunk byte budget is reached.
+    * @param clientID The unique ID of the client.
+    * @param streamID The ID of the response stream.
+    * @param responseStream The OutputStream associated with the HTTP(S) response.
+    * @param limit The message chunk limit
+    * @param byteLimit The chunk byte budget, or 0 for none.
+    * @param timeout The message chunk timeout
+    * @param useDictionary If true, compress the response stream with a stream dictionary.
+    * @param fragmentSize Messages with larger payloads are fragmented, unless this is 0.
+    * @param claimCheckSize Messages with larger payloads are sent with a claim check, unless this
+    * is 0 or the servlet has no blob store.
+    * @param retransmitBuffer If not null, resume the response stream from this buffer.
+    * @param overlapped If true, the request overlaps the client's previous request.
+    * @param heartbeatInterval If not 0, send a heartbeat whenever nothing else has been sent for
+    * this many ms.
+    * @throws IOException
+    */
+   protected void handleResponseStream(String clientID, String streamID, OutputStream responseStream, 
+         int limit, long byteLimit, long timeout, boolean useDictionary, int fragmentSize, int claimCheckSize,
+         RetransmitBuffer retransmitBuffer, boolean overlapped, long heartbeatInterval) throws IOException {
       // Get a connector to the local message bus
       BusConnector connector = BusConnector.getConnector(m_connectorName);
 
@@ -108,11 +246,33 @@ public class MessageRelayServlet extends HttpServlet {
       BusMessageRetriever retriever = connector.getRetriever(clientID);
 
       // Stream encoded messages to the response stream using the message retriever
+      // The express lane is never held back to fill a write
+      FlushPolicy flushPolicy = BusMessageRetriever.EXPRESS_STREAM.equals(streamID) ?
+            FlushPolicy.immediate() : m_flushPolicy;
+      OutputStreamHandler streamHandler = new OutputStreamHandler(responseStream, flushPolicy,
+            m_outputBufferSize);
+      if (useDictionary) streamHandler.setDictionary(new StreamDictionary());
+      streamHandler.setFragmentSize(fragmentSize);
+      if (claimCheckSize > 0) streamHandler.setClaimCheckStore(this.getBlobStore(clientID), claimCheckSize);
       MessageHandlerChain responseHandlers = new MessageHandlerChain()
       .add(m_securityFilter.getRequestHander(clientID))
-      .add(new OutputStreamHandler(responseStream));
-
-      retriever.retrieve(responseHandlers, limit, timeout);
+      .add(streamHandler);
+
+      streamHandler.setHeartbeatInterval(heartbeatInterval);
+      try {
+         // Replay anything the client did not receive during the previous request cycle, unless
+         // that cycle is still going and is being handed over to this one.
+         if (retransmitBuffer != null && overlapped) {
+            streamHandler.continueFrom(retransmitBuffer);
+         } else if (retransmitBuffer != null) {
+            streamHandler.resumeFrom(retransmitBuffer);
+         }
+         retriever.retrieve(responseHandlers, limit, byteLimit, timeout, streamID);
+      } finally {
+         streamHandler.setHeartbeatInterval(0);
+      }
+      // Push out anything still held back by the flush policy
+      streamHandler.flush();
    }
 
    /**
@@ -123,26 +283,149 @@ public class MessageRelayServlet extends HttpServlet {
     */
    protected void handleRequestStream(String clientID, InputStream requestStream) 
          throws IOException {
+      this.handleRequestStream(clientID, requestStream, null);
+   }
+
+   /**
+    * Handle incoming request streams from the specified client.
+    * @param clientID the unique ID of the client.
+    * @param requestStream The InputStream associated with the HTTP(S) request.
+    * @param sequenceTracker If not null, the tracker used to drop messages the client replays
+    * on a resumable stream that have already been received.
+    * @throws IOException
+    */
+   protected void handleRequestStream(String clientID, InputStream requestStream, SequenceTracker sequenceTracker) 
+         throws IOException {
       // Get a connector to the local message bus
       BusConnector connector = BusConnector.getConnector(m_connectorName);
       // Get the message retriever instance for this client
       BusMessageRetriever retriever = connector.getRetriever(clientID);
 
-      // Set up the message handler chain so we can handle acks, control messages,
+      // Set up the message handler chain so we can handle control messages,
       // ReplyTo headers, and then republish to the local message bus.
       MessageHandlerChain requestHandlers = new MessageHandlerChain()
-      .add(m_securityFilter.getFilter(clientID))
-      .add(new StandardHandler(retriever,connector));
+      .add(new StandardHandler(retriever,connector,this.getDuplicateIndex(clientID)));
+
+      // Security filtering and acks only need the message envelope, so they run
+      // before the rest of each message is decoded.
+      MessageStreamReader reader = new MessageStreamReader(requestStream)
+      .addEnvelopeHandler(m_securityFilter.getEnvelopeFilter(clientID))
+      .addEnvelopeHandler(new AckHandler(retriever))
+      .setClaimCheckStore(this.getBlobStore(clientID))
+      .setSequenceTracker(sequenceTracker);
+      try {
+         while (true) {
+            // Pull batches of encoded messages off the request stream until the client closes it.
+            List<EncodedMessage> batch = reader.readBatch();
+            if (batch == null) break;
+            // Submit the encoded messages to the message handler chain.
+            requestHandlers.handleBatch(batch);
+         }
+      } finally {
+         reader.release();
+      }
+   }
+
+   /**
+    * Get the blob store that holds the payloads of claim checked messages for the specified client.
+    * @param clientID The unique ID of the client.
+    * @return The blob store, or null if the servlet is not configured with a blob store directory.
+    */
+   protected DiskBlobStore getBlobStore(String clientID) {
+      if (m_blobStoreDirectory == null) return null;
+      return new DiskBlobStore(MessageBlobServlet.getClientDirectory(m_blobStoreDirectory, clientID), m_blobExpiry);
+   }
 
-      while (true) {
-         // Pull encoded messages off the request stream until the client closes it.
-         EncodedMessage message = EncodedMessage.parseDelimitedFrom(requestStream);
-         if (message == null) break;
-         // Submit the encoded messages to the message handler chain.
-         requestHandlers.handle(message);
+   /**
+    * Get the retransmit buffer that keeps the resumable response stream for the specified client.
+    * @param clientID The unique ID of the client.
+    * @return The retransmit buffer.
+    */
+   protected RetransmitBuffer getRetransmitBuffer(String clientID) {
+      return this.getRetransmitBuffer(clientID, BusMessageRetriever.DEFAULT_STREAM);
+   }
+
+   /**
+    * Get the retransmit buffer that keeps one of the resumable response streams for the specified client.
+    * @param clientID The unique ID of the client.
+    * @param streamID The ID of the response stream.
+    * @return The retransmit buffer.
+    */
+   protected RetransmitBuffer getRetransmitBuffer(String clientID, String streamID) {
+      // Client IDs come from the authentication filter, so they will not contain a line break
+      String key = streamID.isEmpty() ? clientID : clientID + "\n" + streamID;
+      this.evictIdleStreamState();
+      RetransmitBuffer buffer = m_retransmitBuffers.get(key);
+      if (buffer == null) {
+         buffer = new RetransmitBuffer();
+         RetransmitBuffer existing = m_retransmitBuffers.putIfAbsent(key, buffer);
+         if (existing != null) buffer = existing;
+      }
+      buffer.touch();
+      return buffer;
+   }
+
+   /**
+    * Get the sequence tracker for the resumable request stream of the specified client.
+    * @param clientID The unique ID of the client.
+    * @return The sequence tracker.
+    */
+   protected SequenceTracker getSequenceTracker(String clientID) {
+      this.evictIdleStreamState();
+      SequenceTracker tracker = m_sequenceTrackers.get(clientID);
+      if (tracker == null) {
+         tracker = new SequenceTracker();
+         SequenceTracker existing = m_sequenceTrackers.putIfAbsent(clientID, tracker);
+         if (existing != null) tracker = existing;
+      }
+      tracker.touch();
+      return tracker;
+   }
+
+   /**
+    * Discard the retransmit buffers and sequence trackers of resumable streams that have not been
+    * used within the stream state expiry time, since their clients have gone away. This runs at
+    * most once every tenth of the expiry time.
+    */
+   protected void evictIdleStreamState() {
+      long now = System.currentTimeMillis();
+      if (now - m_lastStreamStateEviction < m_streamStateExpiry / 10) return;
+      m_lastStreamStateEviction = now;
+      long cutoff = now - m_streamStateExpiry;
+      for (Map.Entry<String,RetransmitBuffer> entry : m_retransmitBuffers.entrySet()) {
+         if (entry.getValue().getLastUsed() < cutoff) m_retransmitBuffers.remove(entry.getKey(), entry.getValue());
+      }
+      for (Map.Entry<String,SequenceTracker> entry : m_sequenceTrackers.entrySet()) {
+         if (entry.getValue().getLastUsed() < cutoff) m_sequenceTrackers.remove(entry.getKey(), entry.getValue());
       }
    }
 
+   /**
+    * Get the index of messages already republished for the specified client.
+    * @param clientID The unique ID of the client.
+    * @return The duplicate index, or null if the servlet is not configured for duplicate suppression.
+    * @throws IOException
+    */
+   protected DuplicateIndex getDuplicateIndex(String clientID) throws IOException {
+      if (m_dedupSize <= 0) return null;
+      DuplicateIndex index = m_duplicateIndexes.get(clientID);
+      if (index == null) {
+         synchronized (m_duplicateIndexes) {
+            index = m_duplicateIndexes.get(clientID);
+            if (index == null) {
+               if (m_dedupDirectory != null) {
+                  String fileName = MessageBlobServlet.getClientDirectory(m_dedupDirectory, clientID).getName() + ".dedup";
+                  index = new DuplicateIndex(m_dedupSize, m_dedupExpiry, new File(m_dedupDirectory, fileName));
+               } else {
+                  index = new DuplicateIndex(m_dedupSize, m_dedupExpiry);
+               }
+               m_duplicateIndexes.put(clientID, index);
+            }
+         }
+      }
+      return index;
+   }
+
    @Override
    public void init(ServletConfig config) throws ServletException {
       super.init(config);
@@ -167,6 +450,79 @@ public class MessageRelayServlet extends HttpServlet {
          if (user != null) hostSpec = user + "@" + hostSpec;
          connector = BusConnector.createConnector(m_connectorName,hostSpec,passwd);
       }
+      if (config.getInitParameter(PARAM_AMQP_CONNECTIONS) != null) {
+         connector.setConnectionPoolSize(Integer.parseInt(config.getInitParameter(PARAM_AMQP_CONNECTIONS)));
+      }
+      
+      // Set up sharding of each client's target queues across retrieval channels
+      int retrievalChannels = (config.getInitParameter(PARAM_RETRIEVAL_CHANNELS) != null) ?
+            Integer.parseInt(config.getInitParameter(PARAM_RETRIEVAL_CHANNELS)) : 1;
+      int retrievalPrefetch = (config.getInitParameter(PARAM_RETRIEVAL_PREFETCH) != null) ?
+            Integer.parseInt(config.getInitParameter(PARAM_RETRIEVAL_PREFETCH)) : 1;
+      connector.setRetrieverSharding(retrievalChannels, retrievalPrefetch);
+      String queueWeights = config.getInitParameter(PARAM_QUEUE_WEIGHTS);
+      if (queueWeights != null) {
+         Map<String,Integer> weights = new HashMap<String,Integer>();
+         for (String entry : queueWeights.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            weights.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator+1).trim()));
+         }
+         connector.setRetrieverQueueWeights(weights);
+      }
+      String expressEndpoints = config.getInitParameter(PARAM_EXPRESS_ENDPOINTS);
+      if (expressEndpoints != null) {
+         connector.setRetrieverExpressQueues(Arrays.asList(expressEndpoints.split(",")));
+      }
+      
+      // Set up the response stream flush policy
+      List<FlushPolicy> policies = new ArrayList<FlushPolicy>();
+      if (config.getInitParameter(PARAM_OUTPUT_FLUSH_BYTES) != null) {
+         policies.add(FlushPolicy.afterBytes(Integer.parseInt(config.getInitParameter(PARAM_OUTPUT_FLUSH_BYTES))));
+      }
+      if (config.getInitParameter(PARAM_OUTPUT_FLUSH_LINGER) != null) {
+         policies.add(FlushPolicy.afterLinger(Long.parseLong(config.getInitParameter(PARAM_OUTPUT_FLUSH_LINGER))));
+      }
+      if (Boolean.parseBoolean(config.getInitParameter(PARAM_OUTPUT_FLUSH_ON_DRAIN))) {
+         policies.add(FlushPolicy.onDrain());
+      }
+      if (policies.isEmpty()) {
+         m_flushPolicy = FlushPolicy.immediate();
+      } else {
+         m_flushPolicy = FlushPolicy.any(policies.toArray(new FlushPolicy[policies.size()]));
+         String immediateEndpoints = config.getInitParameter(PARAM_OUTPUT_FLUSH_IMMEDIATE);
+         if (immediateEndpoints != null) {
+            m_flushPolicy = FlushPolicy.latencySensitive(Arrays.asList(immediateEndpoints.split(",")), m_flushPolicy);
+         }
+      }
+      m_outputBufferSize = (config.getInitParameter(PARAM_OUTPUT_BUFFER_SIZE) != null) ?
+            Integer.parseInt(config.getInitParameter(PARAM_OUTPUT_BUFFER_SIZE)) : OutputStreamHandler.DEFAULT_BUFFER_SIZE;
+      
+      // Set up the blob store for claim checked messages
+      String blobStoreDirectory = config.getInitParameter(PARAM_BLOB_STORE_DIR);
+      m_blobStoreDirectory = (blobStoreDirectory != null) ? new File(blobStoreDirectory) : null;
+      m_blobExpiry = (config.getInitParameter(PARAM_BLOB_EXPIRY) != null) ?
+            Long.parseLong(config.getInitParameter(PARAM_BLOB_EXPIRY)) : DiskBlobStore.DEFAULT_EXPIRY;
+      
+      // Set up duplicate suppression for republished messages
+      m_dedupSize = (config.getInitParameter(PARAM_DEDUP_SIZE) != null) ?
+            Integer.parseInt(config.getInitParameter(PARAM_DEDUP_SIZE)) : 0;
+      m_dedupExpiry = (config.getInitParameter(PARAM_DEDUP_EXPIRY) != null) ?
+            Long.parseLong(config.getInitParameter(PARAM_DEDUP_EXPIRY)) : DuplicateIndex.DEFAULT_EXPIRY;
+      String dedupDirectory = config.getInitParameter(PARAM_DEDUP_DIR);
+      m_dedupDirectory = (dedupDirectory != null) ? new File(dedupDirectory) : null;
+      if (m_dedupDirectory != null) m_dedupDirectory.mkdirs();
+      
+      // Set up the expiry of idle resumable stream state
+      m_streamStateExpiry = (config.getInitParameter(PARAM_STREAM_STATE_EXPIRY) != null) ?
+            Long.parseLong(config.getInitParameter(PARAM_STREAM_STATE_EXPIRY)) : DEFAULT_STREAM_STATE_EXPIRY;
+      
+      // Set up the limits on the chunking parameters clients may request
+      m_maxChunkLimit = (config.getInitParameter(PARAM_MAX_CHUNK_LIMIT) != null) ?
+            Integer.parseInt(config.getInitParameter(PARAM_MAX_CHUNK_LIMIT)) : DEFAULT_MAX_CHUNK_LIMIT;
+      m_maxChunkTimeout = (config.getInitParameter(PARAM_MAX_CHUNK_TIMEOUT) != null) ?
+            Long.parseLong(config.getInitParameter(PARAM_MAX_CHUNK_TIMEOUT)) : DEFAULT_MAX_CHUNK_TIMEOUT;
+      m_maxChunkBytes = (config.getInitParameter(PARAM_MAX_CHUNK_BYTES) != null) ?
+            Long.parseLong(config.getInitParameter(PARAM_MAX_CHUNK_BYTES)) : 0;
       
       // Set up the control message buffer queue
       
@@ -175,6 +531,13 @@ public class MessageRelayServlet extends HttpServlet {
 
    @Override
    public void destroy() {
+      for (DuplicateIndex index : m_duplicateIndexes.values()) {
+         try {
+            index.close();
+         } catch (IOException e) {
+            e.printStackTrace();
+         }
+      }
       BusConnector.deleteConnector(m_connectorName);
       super.destroy();
    }
@@ -182,11 +545,31 @@ public class MessageRelayServlet extends HttpServlet {
 
    /**
     * The doGet() method, used by the client to retrieve messages from the server's local
-    * message bus. This method understands two request parameters that may be passed
+    * message bus. This method understands eleven request parameters that may be passed
     * by the client:
     *    chunk_limit - The maximum number of messages that will be returned with the request (Default 100).
     *    chunk_timeout - The maximum amount of time, in ms, that the request will run before
     *    ending (default 5000ms).
+    *    chunk_bytes - End the request once the encoded size of the returned messages reaches this
+    *    many bytes, as well as at the chunk limit (default 0, no byte budget).
+    *    All three are capped by the max-chunk-limit, max-chunk-timeout and max-chunk-bytes
+    *    initialization parameters.
+    *    dictionary - If true, compress the response stream with a stream dictionary (default false).
+    *    fragment_size - Fragment messages with payloads larger than this many bytes (default 0, never).
+    *    claim_check_size - Send messages with payloads larger than this many bytes with a claim check,
+    *    to be downloaded from the blob servlet (default 0, never).
+    *    ack_sequence - Makes the response stream resumable. The sequence number up to which the client
+    *    has received every message; anything sent after it is replayed first.
+    *    stream_epoch - The epoch of the resumable stream that ack_sequence refers to. The current
+    *    epoch is returned in the X-Relay-Stream-Epoch response header.
+    *    heartbeat - Send an empty heartbeat frame whenever nothing else has been sent for this many ms,
+    *    so long-polls from idle clients are kept alive (default 0, never; at least 1000ms otherwise).
+    *    overlap - If true, the request was made before the client's previous request ended. The
+    *    previous request's retrieval stream is handed over to this one, without a gap, and the
+    *    resumable stream is continued rather than replayed (default false).
+    *    stream - The ID of the response stream, for clients that receive over several concurrent
+    *    response streams. The client's queues are split between its running streams, and each
+    *    resumable stream is resumed separately (default: the single default stream).
     * @see HttpServlet#doGet(HttpServletRequest request, HttpServletResponse response)
     */
    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
@@ -200,18 +583,75 @@ public class MessageRelayServlet extends HttpServlet {
       long chunkTimeout = DEFAULT_CHUNK_TIMEOUT;
       String chunkTimeoutString = request.getParameter("chunk_timeout");
       if (chunkTimeoutString != null) chunkTimeout = Long.valueOf(chunkTimeoutString).longValue();
+      
+      long chunkBytes = 0;
+      String chunkBytesString = request.getParameter("chunk_bytes");
+      if (chunkBytesString != null) chunkBytes = Long.valueOf(chunkBytesString).longValue();
+      
+      // Keep the client within the server's limits
+      chunkLimit = Math.max(1, Math.min(m_maxChunkLimit, chunkLimit));
+      chunkTimeout = Math.max(0, Math.min(m_maxChunkTimeout, chunkTimeout));
+      if (m_maxChunkBytes > 0 && (chunkBytes <= 0 || chunkBytes > m_maxChunkBytes)) chunkBytes = m_maxChunkBytes;
+
+      boolean useDictionary = Boolean.parseBoolean(request.getParameter("dictionary"));
+
+      int fragmentSize = 0;
+      String fragmentSizeString = request.getParameter("fragment_size");
+      if (fragmentSizeString != null) fragmentSize = Integer.valueOf(fragmentSizeString).intValue();
+
+      int claimCheckSize = 0;
+      String claimCheckSizeString = request.getParameter("claim_check_size");
+      if (claimCheckSizeString != null) claimCheckSize = Integer.valueOf(claimCheckSizeString).intValue();
+
+      String streamID = request.getParameter("stream");
+      if (streamID == null) streamID = BusMessageRetriever.DEFAULT_STREAM;
+
+      RetransmitBuffer retransmitBuffer = null;
+      String ackSequenceString = request.getParameter("ack_sequence");
+      if (ackSequenceString != null) {
+         retransmitBuffer = getRetransmitBuffer(clientID, streamID);
+         String epochString = request.getParameter("stream_epoch");
+         if (epochString != null) {
+            retransmitBuffer.acknowledge(Long.parseLong(epochString), Long.parseLong(ackSequenceString));
+         }
+         response.setHeader(RetransmitBuffer.EPOCH_HEADER, String.valueOf(retransmitBuffer.getEpoch()));
+      }
+
+      long heartbeatInterval = 0;
+      String heartbeatString = request.getParameter("heartbeat");
+      if (heartbeatString != null) heartbeatInterval = Long.valueOf(heartbeatString).longValue();
+      if (heartbeatInterval > 0) heartbeatInterval = Math.max(MIN_HEARTBEAT_INTERVAL, heartbeatInterval);
+
+      boolean overlapped = Boolean.parseBoolean(request.getParameter("overlap"));
 
       response.setContentType("application/x-protobuf");
-      handleResponseStream(clientID,response.getOutputStream(),chunkLimit,chunkTimeout);
+      handleResponseStream(clientID,streamID,response.getOutputStream(),chunkLimit,chunkBytes,chunkTimeout,useDictionary,
+            fragmentSize,claimCheckSize,retransmitBuffer,overlapped,heartbeatInterval);
    }
 
    /**
     * The doPost() method, used by the client to send messages to the server's local message bus. 
+    * Request streams compressed with a stream dictionary or carrying fragmented messages are
+    * always accepted, and claim checked messages are accepted if the servlet has a blob store.
+    * If the client passes a stream_epoch parameter the request stream is resumable: replayed messages
+    * that have already been received are dropped, and the sequence number up to which every message
+    * has been received is returned in the X-Relay-Ack-Sequence response header.
     * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse response)
     */
    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
       String clientID = request.getRemoteUser();
-      handleRequestStream(clientID, request.getInputStream());
+
+      SequenceTracker sequenceTracker = null;
+      String epochString = request.getParameter("stream_epoch");
+      if (epochString != null) {
+         sequenceTracker = getSequenceTracker(clientID);
+         sequenceTracker.setEpoch(Long.parseLong(epochString));
+      }
+
+      handleRequestStream(clientID, request.getInputStream(), sequenceTracker);
+      if (sequenceTracker != null) {
+         response.setHeader(RetransmitBuffer.ACK_HEADER, String.valueOf(sequenceTracker.getAcknowledged()));
+      }
    }
 
 }